@@ -0,0 +1,103 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Scores one query against a block of rows with each entry point of the distance strategies, at
+ * the dimensions of common embedding models. The double entry point is the baseline the float
+ * kernels replace.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DistanceStrategyBenchmark {
+  private static final int ROWS = 256;
+
+  @Param({"384", "768", "1536", "3072"})
+  private int dimensions;
+
+  @Param({"cosine", "euclidean", "innerProduct"})
+  private String strategy;
+
+  private DistanceStrategy distanceStrategy;
+  private float[] query;
+  private float[] rows;
+  private float[] norms;
+  private double[] doubleQuery;
+  private double[][] doubleRows;
+  private double[] distances;
+
+  @Setup
+  public void setUp() {
+    switch (strategy) {
+      case "cosine":
+        distanceStrategy = DistanceStrategies.cosine();
+        break;
+      case "euclidean":
+        distanceStrategy = DistanceStrategies.euclidean();
+        break;
+      default:
+        distanceStrategy = DistanceStrategies.innerProduct();
+    }
+    Random random = new Random(42);
+    query = new float[dimensions];
+    doubleQuery = new double[dimensions];
+    for (int i = 0; i < dimensions; i++) {
+      query[i] = random.nextFloat();
+      doubleQuery[i] = query[i];
+    }
+    rows = new float[ROWS * dimensions];
+    doubleRows = new double[ROWS][dimensions];
+    norms = new float[ROWS];
+    for (int row = 0; row < ROWS; row++) {
+      for (int i = 0; i < dimensions; i++) {
+        rows[row * dimensions + i] = random.nextFloat();
+        doubleRows[row][i] = rows[row * dimensions + i];
+      }
+      norms[row] = VectorKernels.norm(rows, row * dimensions, dimensions);
+    }
+    distances = new double[ROWS];
+  }
+
+  @Benchmark
+  public void doubleArrays(Blackhole blackhole) {
+    for (double[] row : doubleRows) {
+      blackhole.consume(distanceStrategy.calculateDistance(doubleQuery, row));
+    }
+  }
+
+  @Benchmark
+  public void floatRows(Blackhole blackhole) {
+    for (int row = 0; row < ROWS; row++) {
+      blackhole.consume(distanceStrategy.calculateDistance(query, rows, row * dimensions));
+    }
+  }
+
+  @Benchmark
+  public double[] floatBatch() {
+    distanceStrategy.calculateDistances(query, rows, 0, ROWS, distances);
+    return distances;
+  }
+
+  /** Only meaningful for cosine, the other strategies fall back to the plain batch. */
+  @Benchmark
+  public double[] floatBatchWithNorms() {
+    if (distanceStrategy instanceof CosineDistanceStrategy) {
+      ((CosineDistanceStrategy) distanceStrategy)
+          .calculateDistances(query, rows, 0, norms, 0, ROWS, distances);
+    } else {
+      distanceStrategy.calculateDistances(query, rows, 0, ROWS, distances);
+    }
+    return distances;
+  }
+}
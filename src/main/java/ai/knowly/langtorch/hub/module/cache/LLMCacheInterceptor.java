@@ -1,35 +1,56 @@
 package ai.knowly.langtorch.hub.module.cache;
 
-import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
 
-import ai.knowly.langtorch.llm.openai.schema.dto.completion.CompletionChoice;
+import ai.knowly.langtorch.llm.openai.OpenAIService;
 import ai.knowly.langtorch.llm.openai.schema.dto.completion.CompletionRequest;
 import ai.knowly.langtorch.llm.openai.schema.dto.completion.CompletionResult;
+import ai.knowly.langtorch.llm.openai.schema.dto.completion.chat.ChatCompletionRequest;
+import ai.knowly.langtorch.llm.openai.schema.dto.completion.chat.ChatCompletionResult;
 import ai.knowly.langtorch.store.cache.Cache;
-import ai.knowly.langtorch.store.cache.inmemory.exact.schema.TextCompletionCacheValue;
-import ai.knowly.langtorch.store.cache.inmemory.exact.schema.TextCompletionCacheKey;
+import ai.knowly.langtorch.store.cache.inmemory.exact.schema.LLMRequestCacheKey;
+import ai.knowly.langtorch.store.cache.inmemory.exact.schema.LLMResponseCacheValue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.FluentLogger;
-import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
-import org.jetbrains.annotations.NotNull;
 
+/**
+ * Answers completion and chat completion requests from an exact-match cache before the annotated
+ * method is invoked, so a hit never reaches the API. Misses are invoked and their responses
+ * cached once they complete.
+ *
+ * <p>Requests are keyed on their canonical JSON: properties and map entries are sorted, and every
+ * field that determines the response is included, such as the model, the prompt or messages,
+ * {@code max_tokens}, {@code stop}, the penalties and the functions. Only {@code user} and
+ * {@code stream} are left out. Streamed requests and requests sampled at a temperature above
+ * {@value #MAX_CACHED_TEMPERATURE} are not cached.
+ */
 public class LLMCacheInterceptor implements MethodInterceptor {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
-  private final Provider<Cache<TextCompletionCacheKey, TextCompletionCacheValue>> cache;
+  private static final double MAX_CACHED_TEMPERATURE = 0.2;
+  // Request fields that do not change the response.
+  private static final ImmutableList<String> IGNORED_FIELDS = ImmutableList.of("user", "stream");
+  private static final ObjectMapper MAPPER =
+      OpenAIService.defaultObjectMapper()
+          .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+          .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+  private final Provider<Cache<LLMRequestCacheKey, LLMResponseCacheValue>> cache;
 
   @Inject
-  public LLMCacheInterceptor(
-      Provider<Cache<TextCompletionCacheKey, TextCompletionCacheValue>> cache) {
+  public LLMCacheInterceptor(Provider<Cache<LLMRequestCacheKey, LLMResponseCacheValue>> cache) {
     this.cache = cache;
   }
 
@@ -37,86 +58,89 @@ public class LLMCacheInterceptor implements MethodInterceptor {
   public Object invoke(MethodInvocation invocation) throws Throwable {
     String strategy = invocation.getMethod().getAnnotation(EnableLLMCache.class).strategy();
     Object[] arguments = invocation.getArguments();
-    if (arguments.length != 1 || !strategy.equals("EXACT_MATCH")) {
+    if (arguments.length != 1
+        || !strategy.equals("EXACT_MATCH")
+        || !ListenableFuture.class.isAssignableFrom(invocation.getMethod().getReturnType())) {
       return invocation.proceed();
     }
-
-    Object result = invocation.proceed();
-    boolean instanceOfListenableFuture = result instanceof ListenableFuture;
-    if (!instanceOfListenableFuture) {
-      return result;
+    Optional<Class<?>> responseType = getResponseType(arguments[0]);
+    if (responseType.isEmpty()) {
+      return invocation.proceed();
     }
 
-    Object input = arguments[0];
-    if (!(input instanceof CompletionRequest)) {
-      return result;
+    LLMRequestCacheKey key = getCacheKey(arguments[0]);
+    Optional<Object> cachedResponse = getFromCache(key, responseType.get());
+    if (cachedResponse.isPresent()) {
+      return immediateFuture(cachedResponse.get());
     }
+    return Futures.transform(
+        (ListenableFuture<?>) invocation.proceed(),
+        response -> {
+          putInCache(key, response);
+          return response;
+        },
+        MoreExecutors.directExecutor());
+  }
 
-    CompletionRequest completionRequest = (CompletionRequest) input;
-    if (completionRequest.getTemperature() != null && completionRequest.getTemperature() > 0.2) {
-      return result;
+  /**
+   * Returns the type of the response to the request, or empty if the request is not cacheable.
+   */
+  private static Optional<Class<?>> getResponseType(Object request) {
+    if (request instanceof CompletionRequest) {
+      CompletionRequest completionRequest = (CompletionRequest) request;
+      return isCacheable(completionRequest.getStream(), completionRequest.getTemperature())
+          ? Optional.of(CompletionResult.class)
+          : Optional.empty();
     }
-    Optional<CompletionResult> completionResult = getFromCache(completionRequest);
-
-    if (completionResult.isPresent()) {
-      return immediateFuture(completionResult.get());
+    if (request instanceof ChatCompletionRequest) {
+      ChatCompletionRequest chatCompletionRequest = (ChatCompletionRequest) request;
+      return isCacheable(chatCompletionRequest.getStream(), chatCompletionRequest.getTemperature())
+          ? Optional.of(ChatCompletionResult.class)
+          : Optional.empty();
     }
+    return Optional.empty();
+  }
 
-    SettableFuture<Object> newFuture = SettableFuture.create();
-    Futures.addCallback(
-        (ListenableFuture<?>) result,
-        new FutureCallback<Object>() {
-          @Override
-          public void onSuccess(Object result) {
-            if (result instanceof CompletionResult) {
-              handleCompletionResult(completionRequest, (CompletionResult) result);
-            }
-            newFuture.set(result);
-          }
-
-          public void onFailure(@NotNull Throwable thrown) {
-            logger.atWarning().withCause(thrown).log(
-                "Failed to add callback in OpenAITokenUsageInterceptor");
-            newFuture.setException(thrown);
-          }
-        },
-        Executors.newCachedThreadPool());
+  private static boolean isCacheable(Boolean stream, Double temperature) {
+    return !Boolean.TRUE.equals(stream)
+        && (temperature == null || temperature <= MAX_CACHED_TEMPERATURE);
+  }
 
-    // Return newFuture instead of the original one
-    return newFuture;
+  /** Returns the key of the request, equal for requests that only differ in ignored fields. */
+  static LLMRequestCacheKey getCacheKey(Object request) {
+    ObjectNode canonicalRequest = MAPPER.valueToTree(request);
+    canonicalRequest.remove(IGNORED_FIELDS);
+    return LLMRequestCacheKey.builder()
+        .setRequestType(request.getClass().getName())
+        .setCanonicalRequest(canonicalRequest.toString())
+        .build();
   }
 
-  @NotNull
-  private Optional<CompletionResult> getFromCache(CompletionRequest completionRequest) {
-    return cache
-        .get()
-        .get(TextCompletionCacheKey.builder().setPrompt(completionRequest.getPrompt()).build())
-        .map(
-            value -> {
-              CompletionResult completionResultFromCache = new CompletionResult();
-              completionResultFromCache.setChoices(
-                  value.getCompletion().stream()
-                      .map(
-                          completion -> {
-                            CompletionChoice completionChoice = new CompletionChoice();
-                            completionChoice.setText(completion);
-                            return completionChoice;
-                          })
-                      .collect(Collectors.toList()));
-              return completionResultFromCache;
-            });
+  private Optional<Object> getFromCache(LLMRequestCacheKey key, Class<?> responseType) {
+    Optional<LLMResponseCacheValue> value = cache.get().get(key);
+    if (value.isEmpty()) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(MAPPER.readValue(value.get().getResponse(), responseType));
+    } catch (JsonProcessingException e) {
+      logger.atWarning().withCause(e).log("Failed to read a cached response, dropping it");
+      cache.get().remove(key);
+      return Optional.empty();
+    }
   }
 
-  private void handleCompletionResult(CompletionRequest input, CompletionResult result) {
-    cache
-        .get()
-        .put(
-            TextCompletionCacheKey.builder().setPrompt(input.getPrompt()).build(),
-            TextCompletionCacheValue.builder()
-                .setCompletion(
-                    result.getChoices().stream()
-                        .map(CompletionChoice::getText)
-                        .collect(toImmutableList()))
-                .build());
+  private void putInCache(LLMRequestCacheKey key, Object response) {
+    try {
+      cache
+          .get()
+          .put(
+              key,
+              LLMResponseCacheValue.builder()
+                  .setResponse(MAPPER.writeValueAsString(response))
+                  .build());
+    } catch (JsonProcessingException e) {
+      logger.atWarning().withCause(e).log("Failed to cache a response");
+    }
   }
 }
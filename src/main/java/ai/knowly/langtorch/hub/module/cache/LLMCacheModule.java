@@ -3,8 +3,8 @@ package ai.knowly.langtorch.hub.module.cache;
 import ai.knowly.langtorch.store.cache.Cache;
 import ai.knowly.langtorch.store.cache.inmemory.exact.InMemoryExactMatchCache;
 import ai.knowly.langtorch.store.cache.inmemory.exact.InMemoryExactMatchCacheSpec;
-import ai.knowly.langtorch.store.cache.inmemory.exact.schema.TextCompletionCacheValue;
-import ai.knowly.langtorch.store.cache.inmemory.exact.schema.TextCompletionCacheKey;
+import ai.knowly.langtorch.store.cache.inmemory.exact.schema.LLMRequestCacheKey;
+import ai.knowly.langtorch.store.cache.inmemory.exact.schema.LLMResponseCacheValue;
 import com.google.inject.AbstractModule;
 import com.google.inject.Key;
 import com.google.inject.Provides;
@@ -13,10 +13,15 @@ import com.google.inject.TypeLiteral;
 import com.google.inject.matcher.Matchers;
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * Caches the responses of the methods annotated with {@link EnableLLMCache}. Install it before
+ * modules whose interceptors should only see requests that reach the API, such as the token usage
+ * module, since interceptors bound first run first.
+ */
 public class LLMCacheModule extends AbstractModule {
   @Provides
   @Singleton
-  public static Cache<TextCompletionCacheKey, TextCompletionCacheValue> provideExactMatchCatch() {
+  public static Cache<LLMRequestCacheKey, LLMResponseCacheValue> provideExactMatchCatch() {
     return new InMemoryExactMatchCache<>(InMemoryExactMatchCacheSpec.getDefaultInstance());
   }
 
@@ -29,8 +34,8 @@ public class LLMCacheModule extends AbstractModule {
   }
 
   @NotNull
-  private static TypeLiteral<Cache<TextCompletionCacheKey, TextCompletionCacheValue>>
+  private static TypeLiteral<Cache<LLMRequestCacheKey, LLMResponseCacheValue>>
       getCacheTypeLiteral() {
-    return new TypeLiteral<Cache<TextCompletionCacheKey, TextCompletionCacheValue>>() {};
+    return new TypeLiteral<Cache<LLMRequestCacheKey, LLMResponseCacheValue>>() {};
   }
 }
@@ -1,6 +1,8 @@
 package ai.knowly.langtorch.llm.minimax.schema.dto.embedding;
 
 import ai.knowly.langtorch.llm.minimax.schema.dto.BaseResp;
+import ai.knowly.langtorch.utils.json.FloatArrayDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import java.util.List;
 import lombok.Data;
 
@@ -9,7 +11,8 @@ import lombok.Data;
 public class EmbeddingResult {
 
   /** Vector result, one text corresponds to a float32 array, with a length of 1536 */
-  private List<List<Float>> vectors;
+  @JsonDeserialize(contentUsing = FloatArrayDeserializer.class)
+  private List<float[]> vectors;
 
   private BaseResp baseResp;
 }
@@ -1,7 +1,8 @@
 package ai.knowly.langtorch.llm.openai.schema.dto.embedding;
 
+import ai.knowly.langtorch.utils.json.FloatArrayDeserializer;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import java.util.List;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 
 /**
@@ -15,9 +16,10 @@ public class Embedding {
   /** The type of object returned, should be "embedding" */
   String object;
 
-  /** The embedding vector */
+  /** The embedding vector, sent as an array of numbers or as base64 */
   @JsonProperty("embedding")
-  List<Double> value;
+  @JsonDeserialize(using = FloatArrayDeserializer.class)
+  float[] value;
 
   /** The position of this embedding in the list */
   Integer index;
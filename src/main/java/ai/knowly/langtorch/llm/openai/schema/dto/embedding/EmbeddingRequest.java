@@ -32,4 +32,10 @@ public class EmbeddingRequest {
    * abuse.
    */
   String user;
+
+  /**
+   * The format of the returned embeddings, "float" (the default) for arrays of numbers or "base64"
+   * for little-endian 32-bit floats, which are smaller and faster to decode.
+   */
+  String encodingFormat;
 }
@@ -33,5 +33,7 @@ public class Encodings {
           OpenAIModel.GPT_4_32K,
           registry.getEncodingForModel(ModelType.GPT_4_32K),
           OpenAIModel.GPT_4_32K_0613,
-          registry.getEncodingForModel(ModelType.GPT_4_32K));
+          registry.getEncodingForModel(ModelType.GPT_4_32K),
+          OpenAIModel.TEXT_EMBEDDING_ADA_002,
+          registry.getEncodingForModel(ModelType.TEXT_EMBEDDING_ADA_002));
 }
@@ -17,6 +17,7 @@ public enum OpenAIModel {
   GPT_4("gpt-4"),
   GPT_4_32K("gpt-4-32k"),
   GPT_4_0613("gpt-4-0613"),
-  GPT_4_32K_0613("gpt-4-32k-0613");
+  GPT_4_32K_0613("gpt-4-32k-0613"),
+  TEXT_EMBEDDING_ADA_002("text-embedding-ada-002");
   private String value;
 }
@@ -7,4 +7,8 @@ public class ProcessorExecutionException extends RuntimeException {
   public ProcessorExecutionException(String message) {
     super(message);
   }
+
+  public ProcessorExecutionException(String message, Throwable cause) {
+    super(message, cause);
+  }
 }
@@ -34,7 +34,7 @@ public class MiniMaxEmbeddingsProcessor implements EmbeddingProcessor {
     return EmbeddingOutput.of(
         EmbeddingType.MINI_MAX,
         embeddingResult.getVectors().stream()
-            .map(Embedding::ofFloatVector)
+            .map(Embedding::of)
             .collect(toImmutableList()));
   }
 
@@ -54,7 +54,7 @@ public class MiniMaxEmbeddingsProcessor implements EmbeddingProcessor {
           return EmbeddingOutput.of(
               EmbeddingType.MINI_MAX,
               result.getVectors().stream()
-                  .map(Embedding::ofFloatVector)
+                  .map(Embedding::of)
                   .collect(toImmutableList()));
         },
         directExecutor());
@@ -12,6 +12,7 @@ import ai.knowly.langtorch.schema.embeddings.EmbeddingOutput;
 import ai.knowly.langtorch.schema.embeddings.EmbeddingType;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import java.util.Comparator;
 import javax.inject.Inject;
 
 /** Embeddings processor for OpenAI. */
@@ -32,11 +33,7 @@ public class OpenAIEmbeddingProcessor implements EmbeddingProcessor {
         openAIService.createEmbeddings(
             OpenAIEmbeddingsProcessorRequestConverter.convert(
                 openAIEmbeddingsProcessorConfig, inputData.getModel(), inputData.getInput()));
-    return EmbeddingOutput.of(
-        EmbeddingType.OPEN_AI,
-        embeddingResult.getData().stream()
-            .map(embedding -> Embedding.of(embedding.getValue()))
-            .collect(toImmutableList()));
+    return toEmbeddingOutput(embeddingResult);
   }
 
   @Override
@@ -47,13 +44,18 @@ public class OpenAIEmbeddingProcessor implements EmbeddingProcessor {
                 openAIEmbeddingsProcessorConfig, inputData.getModel(), inputData.getInput()));
 
     return Futures.transform(
-        embeddingResult,
-        result ->
-            EmbeddingOutput.of(
-                EmbeddingType.OPEN_AI,
-                result.getData().stream()
-                    .map(embedding -> Embedding.of(embedding.getValue()))
-                    .collect(toImmutableList())),
-        directExecutor());
+        embeddingResult, OpenAIEmbeddingProcessor::toEmbeddingOutput, directExecutor());
+  }
+
+  // The embeddings are returned in input order, so callers can map them back by position.
+  private static EmbeddingOutput toEmbeddingOutput(EmbeddingResult embeddingResult) {
+    return EmbeddingOutput.of(
+        EmbeddingType.OPEN_AI,
+        embeddingResult.getData().stream()
+            .sorted(
+                Comparator.comparingInt(
+                    embedding -> embedding.getIndex() == null ? 0 : embedding.getIndex()))
+            .map(embedding -> Embedding.of(embedding.getValue()))
+            .collect(toImmutableList()));
   }
 }
@@ -16,10 +16,16 @@ public abstract class OpenAIEmbeddingsProcessorConfig implements ProcessorConfig
 
   public abstract Optional<String> getUser();
 
+  // The encoding_format of the embeddings response, "float" or "base64".
+  public abstract Optional<String> getEncodingFormat();
+
   @AutoValue.Builder
   public abstract static class Builder {
     public abstract OpenAIEmbeddingsProcessorConfig.Builder setUser(String user);
 
+    public abstract OpenAIEmbeddingsProcessorConfig.Builder setEncodingFormat(
+        String encodingFormat);
+
     public abstract OpenAIEmbeddingsProcessorConfig build();
   }
 }
@@ -17,6 +17,9 @@ public final class OpenAIEmbeddingsProcessorRequestConverter {
     embeddingRequest.setInput(input);
 
     openAIEmbeddingsProcessorConfig.getUser().ifPresent(embeddingRequest::setUser);
+    openAIEmbeddingsProcessorConfig
+        .getEncodingFormat()
+        .ifPresent(embeddingRequest::setEncodingFormat);
 
     return embeddingRequest;
   }
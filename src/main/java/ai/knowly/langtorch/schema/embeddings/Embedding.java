@@ -1,34 +1,82 @@
 package ai.knowly.langtorch.schema.embeddings;
 
-import static java.util.Collections.emptyList;
-
 import ai.knowly.langtorch.schema.io.Output;
+import com.google.common.primitives.Floats;
+import java.nio.FloatBuffer;
+import java.util.AbstractList;
+import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
+/**
+ * An embedding vector. The components are stored in a {@code float[]}, the precision embedding
+ * models return, so a vector takes four bytes per component and no object per component. The list
+ * accessors are read-only views that box a component when it is read.
+ */
 public class Embedding implements Output {
 
-  private final List<Double> vector;
+  private final float[] values;
 
-  private final List<Float> floatVector;
+  private Embedding(float[] values) {
+    this.values = values;
+  }
 
-  private Embedding(List<Double> vector, List<Float> floatVector) {
-    this.vector = vector;
-    this.floatVector = floatVector;
+  /**
+   * Creates an embedding backed by the array, without copying it. The array must not be modified
+   * afterwards.
+   */
+  public static Embedding of(float[] values) {
+    return new Embedding(values);
   }
 
+  /** Creates an embedding from the vector, rounding its components to floats. */
   public static Embedding of(List<Double> vector) {
-    return new Embedding(vector, emptyList());
+    return new Embedding(Floats.toArray(vector));
   }
 
   public static Embedding ofFloatVector(List<Float> floatVector) {
-    return new Embedding(emptyList(), floatVector);
+    return new Embedding(Floats.toArray(floatVector));
+  }
+
+  public int getDimensions() {
+    return values.length;
   }
 
+  /** Returns a copy of the components. */
+  public float[] toFloatArray() {
+    return values.clone();
+  }
+
+  /** Returns a read-only buffer over the components, without copying them. */
+  public FloatBuffer asFloatBuffer() {
+    return FloatBuffer.wrap(values).asReadOnlyBuffer();
+  }
+
+  /** Returns a read-only view of the components as doubles. */
   public List<Double> getVector() {
-    return vector;
+    return new DoubleListView(values);
   }
 
+  /** Returns a read-only view of the components. */
   public List<Float> getFloatVector() {
-    return floatVector;
+    return Collections.unmodifiableList(Floats.asList(values));
+  }
+
+  private static final class DoubleListView extends AbstractList<Double> implements RandomAccess {
+    private final float[] values;
+
+    private DoubleListView(float[] values) {
+      this.values = values;
+    }
+
+    @Override
+    public Double get(int index) {
+      return (double) values[index];
+    }
+
+    @Override
+    public int size() {
+      return values.length;
+    }
   }
 }
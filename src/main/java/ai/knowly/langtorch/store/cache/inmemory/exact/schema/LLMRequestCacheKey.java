@@ -0,0 +1,17 @@
+package ai.knowly.langtorch.store.cache.inmemory.exact.schema;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/** Identifies an LLM request by everything that determines its response. */
+@Data
+@Builder(toBuilder = true, setterPrefix = "set")
+@AllArgsConstructor(access = lombok.AccessLevel.PRIVATE)
+public class LLMRequestCacheKey {
+  /** The type of the request, so that requests of different endpoints never share a key. */
+  private String requestType;
+
+  /** The request as JSON with sorted properties and without the fields that do not matter. */
+  private String canonicalRequest;
+}
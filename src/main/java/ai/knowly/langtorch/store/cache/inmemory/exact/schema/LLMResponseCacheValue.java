@@ -7,6 +7,10 @@ import lombok.Data;
 @Data
 @Builder(toBuilder = true, setterPrefix = "set")
 @AllArgsConstructor(access = lombok.AccessLevel.PRIVATE)
-public class TextCompletionCacheKey {
-  private String prompt;
+public class LLMResponseCacheValue {
+  /**
+   * The response as JSON. A hit is read into a new response object, so callers cannot change the
+   * cached one.
+   */
+  private String response;
 }
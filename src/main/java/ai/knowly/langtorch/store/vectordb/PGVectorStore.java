@@ -1,33 +1,67 @@
 package ai.knowly.langtorch.store.vectordb;
 
 import ai.knowly.langtorch.processor.EmbeddingProcessor;
-import ai.knowly.langtorch.schema.embeddings.EmbeddingInput;
-import ai.knowly.langtorch.schema.embeddings.EmbeddingOutput;
+import ai.knowly.langtorch.schema.embeddings.Embedding;
 import ai.knowly.langtorch.schema.io.DomainDocument;
 import ai.knowly.langtorch.schema.io.Metadata;
+import ai.knowly.langtorch.store.vectordb.integration.DocumentEmbedder;
 import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.ConnectionCallback;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.PGBinaryCopyWriter;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.PGVectorSQLException;
 import ai.knowly.langtorch.store.vectordb.integration.pgvector.PGVectorService;
 import ai.knowly.langtorch.store.vectordb.integration.pgvector.SqlCommandProvider;
 import ai.knowly.langtorch.store.vectordb.integration.pgvector.StringBuilderUtils;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorFilterClause;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorIndexSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorMetadataLayout;
 import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorQueryParameters;
 import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorStoreSpec;
 import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorValues;
 import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategy;
+import ai.knowly.langtorch.store.vectordb.integration.quantization.VectorQuantization;
 import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionReader;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionWriter;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import com.google.common.collect.Lists;
 import com.google.common.flogger.FluentLogger;
-import com.google.common.primitives.Floats;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
 import com.pgvector.PGvector;
 import lombok.NonNull;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
-/** A vector store implementation using PostgreSQL and PGVector for storing and querying vectors. */
+/**
+ * A vector store implementation using PostgreSQL and PGVector for storing and querying vectors.
+ *
+ * <p>JDBC is blocking, so the asynchronous operations run the blocking ones on an executor of the
+ * store with {@link PGVectorStoreSpec#getMaxConcurrentOperations()} threads. Operations beyond
+ * that wait in its queue instead of taking more connections, and idle threads are let go.
+ */
 public class PGVectorStore implements VectorStore {
 
   private static final int EMBEDDINGS_COLUMN_COUNT = 2;
+  private static final int DOCUMENTS_COLUMN_COUNT = 3;
   private static final int EMBEDDINGS_INDEX_ID = 0;
   private static final int EMBEDDINGS_INDEX_VECTOR = 1;
   private static final int METADATA_COLUMN_COUNT = 4;
@@ -36,12 +70,16 @@ public class PGVectorStore implements VectorStore {
   private static final int METADATA_INDEX_KEY = 1;
   private static final int METADATA_INDEX_VALUE = 2;
   private static final int METADATA_INDEX_VECTOR_ID = 3;
+  private static final long EXECUTOR_KEEP_ALIVE_SECONDS = 60;
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
-  @NonNull private final EmbeddingProcessor embeddingsProcessor;
+  private static final Gson GSON = new Gson();
+  private static final Type METADATA_TYPE = new TypeToken<Map<String, String>>() {}.getType();
+  private final DocumentEmbedder documentEmbedder;
   private final PGVectorStoreSpec pgVectorStoreSpec;
   private final SqlCommandProvider sqlCommandProvider;
   @NonNull private final PGVectorService pgVectorService;
   private final DistanceStrategy distanceStrategy;
+  private final ThreadPoolExecutor executor;
 
   @Inject
   public PGVectorStore(
@@ -50,19 +88,46 @@ public class PGVectorStore implements VectorStore {
       @NonNull PGVectorService pgVectorService,
       DistanceStrategy distanceStrategy)
       throws SQLException {
+    if (pgVectorStoreSpec.getQuantization() == VectorQuantization.INT8) {
+      throw new IllegalArgumentException(
+          "pgvector has no 8-bit vector type, only BINARY quantization is supported");
+    }
+    if (pgVectorStoreSpec.getRescoreFactor() < 1) {
+      throw new IllegalArgumentException(
+          "rescoreFactor must be at least 1, was " + pgVectorStoreSpec.getRescoreFactor());
+    }
     this.distanceStrategy = distanceStrategy;
     this.pgVectorService = pgVectorService;
-    this.embeddingsProcessor = embeddingsProcessor;
     this.pgVectorStoreSpec = pgVectorStoreSpec;
+    this.documentEmbedder =
+        new DocumentEmbedder(
+            embeddingsProcessor,
+            pgVectorStoreSpec.getModel(),
+            pgVectorStoreSpec.getEmbeddingBatchSpec());
     sqlCommandProvider =
         new SqlCommandProvider(
-            pgVectorStoreSpec.getDatabaseName(), pgVectorStoreSpec.isOverwriteExistingTables());
+            pgVectorStoreSpec.getDatabaseName(),
+            pgVectorStoreSpec.isOverwriteExistingTables(),
+            pgVectorStoreSpec.getMetadataLayout());
+    this.executor =
+        new ThreadPoolExecutor(
+            pgVectorStoreSpec.getMaxConcurrentOperations(),
+            pgVectorStoreSpec.getMaxConcurrentOperations(),
+            EXECUTOR_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("pgvector-store-%d").setDaemon(true).build());
+    executor.allowCoreThreadTimeOut(true);
     createNecessaryTables();
   }
 
   private void createNecessaryTables() throws SQLException {
     createEmbeddingsTable();
-    createMetadataTable();
+    if (isJsonbLayout()) {
+      createMetadataIndex();
+    } else {
+      createMetadataTable();
+    }
   }
 
   /**
@@ -75,93 +140,583 @@ public class PGVectorStore implements VectorStore {
     if (documents.isEmpty()) {
       return true;
     }
+    if (isJsonbLayout()) {
+      return writeDocuments(documents, sqlCommandProvider::getInsertDocumentsQuery);
+    }
     String metadataParams = "(?, ?, ?, ?), "; // id, key, value, and document id
     PGVectorQueryParameters pgVectorQueryParameters =
         getVectorQueryParameters(documents, metadataParams);
     List<PGVectorValues> vectorValues = pgVectorQueryParameters.getVectorValues();
 
-    PreparedStatement insertEmbeddingsStmt;
-    PreparedStatement insertMetadataStmt;
-    int result;
-    int metadataResult;
+    int[] results;
     try {
-      insertEmbeddingsStmt =
-          pgVectorService.prepareStatement(
-              sqlCommandProvider.getInsertEmbeddingsQuery(
-                  pgVectorQueryParameters.getVectorParameters()));
-      insertMetadataStmt =
-          pgVectorService.prepareStatement(
-              sqlCommandProvider.getInsertMetadataQuery(
-                  pgVectorQueryParameters.getMetadataParameters()));
-      setQueryParameters(vectorValues, insertEmbeddingsStmt, insertMetadataStmt);
-      result = insertEmbeddingsStmt.executeUpdate();
-      metadataResult = insertMetadataStmt.executeUpdate();
+      // Both inserts run in one transaction so a failure leaves no partially added documents.
+      results =
+          pgVectorService.executeInTransaction(
+              connection -> {
+                try (PreparedStatement insertEmbeddingsStmt =
+                        connection.prepareStatement(
+                            sqlCommandProvider.getInsertEmbeddingsQuery(
+                                pgVectorQueryParameters.getVectorParameters()));
+                    PreparedStatement insertMetadataStmt =
+                        connection.prepareStatement(
+                            sqlCommandProvider.getInsertMetadataQuery(
+                                pgVectorQueryParameters.getMetadataParameters()))) {
+                  setQueryParameters(vectorValues, insertEmbeddingsStmt, insertMetadataStmt);
+                  return new int[] {
+                    insertEmbeddingsStmt.executeUpdate(), insertMetadataStmt.executeUpdate()
+                  };
+                }
+              });
     } catch (SQLException e) {
       logger.atSevere().withCause(e).log("Error with SQL Exception");
       return false;
     }
 
-    return result == vectorValues.size()
-        && metadataResult == pgVectorQueryParameters.getMetadataSize();
+    return results[0] == vectorValues.size()
+        && results[1] == pgVectorQueryParameters.getMetadataSize();
+  }
+
+  /**
+   * Adds a large number of documents through PostgreSQL's binary COPY protocol. The documents are
+   * embedded and streamed in chunks of {@link PGVectorStoreSpec#getCopyChunkSize()}, and all
+   * chunks are loaded in a single transaction, so either every document is added or none is.
+   * Unlike {@link #addDocuments(List)} this is not bound by the bind parameter limit of a single
+   * statement and does not have to be parsed and planned by the server.
+   *
+   * @return the number of documents loaded
+   * @throws PGVectorSQLException if loading fails, in which case nothing is added
+   */
+  public long bulkAddDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return 0;
+    }
+    try {
+      return pgVectorService.executeInTransaction(
+          connection -> {
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            long rowCount = 0;
+            for (List<DomainDocument> chunk :
+                Lists.partition(documents, pgVectorStoreSpec.getCopyChunkSize())) {
+              rowCount += copyChunk(pgConnection, getVectorValues(chunk));
+            }
+            return rowCount;
+          });
+    } catch (SQLException e) {
+      logger.atSevere().withCause(e).log("Failed to bulk add documents");
+      throw new PGVectorSQLException(e);
+    }
+  }
+
+  /**
+   * Writes every stored document with its embedding. The rows are read through a cursor in
+   * batches of {@link PGVectorStoreSpec#getCopyChunkSize()}, so the table is never loaded into
+   * memory, and from a single transaction, so the export is a consistent snapshot. The page
+   * content of a document is taken from the metadata under the text key, if any.
+   *
+   * @throws PGVectorSQLException if reading the documents fails
+   */
+  @Override
+  public void exportDocuments(VectorCollectionWriter writer) throws IOException {
+    try {
+      pgVectorService.executeInTransaction(
+          connection -> {
+            try (Statement statement = connection.createStatement()) {
+              // With auto-commit off, pgjdbc fetches the rows through a cursor.
+              statement.setFetchSize(pgVectorStoreSpec.getCopyChunkSize());
+              try (ResultSet result =
+                  statement.executeQuery(sqlCommandProvider.getSelectAllDocumentsQuery())) {
+                if (isJsonbLayout()) {
+                  exportJsonbDocuments(result, writer);
+                } else {
+                  exportMetadataRows(result, writer);
+                }
+              }
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            return null;
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } catch (SQLException e) {
+      logger.atSevere().withCause(e).log("Failed to export documents");
+      throw new PGVectorSQLException(e);
+    }
+  }
+
+  private void exportJsonbDocuments(ResultSet result, VectorCollectionWriter writer)
+      throws SQLException, IOException {
+    while (result.next()) {
+      Map<String, String> metadata = GSON.fromJson(result.getString(3), METADATA_TYPE);
+      writer.write(
+          getVectorRecord(
+              result.getString(1),
+              ((PGvector) result.getObject(2)).toArray(),
+              metadata == null ? new HashMap<>() : metadata));
+    }
+  }
+
+  private void exportMetadataRows(ResultSet result, VectorCollectionWriter writer)
+      throws SQLException, IOException {
+    String id = null;
+    float[] vector = null;
+    Map<String, String> metadata = null;
+    while (result.next()) {
+      String rowId = result.getString(1);
+      if (!rowId.equals(id)) {
+        if (id != null) {
+          writer.write(getVectorRecord(id, vector, metadata));
+        }
+        id = rowId;
+        vector = ((PGvector) result.getObject(2)).toArray();
+        metadata = new HashMap<>();
+      }
+      String key = result.getString(3);
+      if (key != null) {
+        metadata.put(key, result.getString(4));
+      }
+    }
+    if (id != null) {
+      writer.write(getVectorRecord(id, vector, metadata));
+    }
+  }
+
+  private VectorRecord getVectorRecord(String id, float[] vector, Map<String, String> metadata) {
+    return VectorRecord.builder()
+        .setDocument(
+            DomainDocument.builder()
+                .setId(id)
+                .setPageContent(pgVectorStoreSpec.getTextKey().map(metadata::get).orElse(""))
+                .setMetadata(Metadata.builder().setValue(metadata).build())
+                .build())
+        .setVector(vector)
+        .build();
+  }
+
+  /**
+   * Adds the documents of the collection with their vectors through the binary COPY protocol, like
+   * {@link #bulkAddDocuments(List)} but without embedding them. The collection is streamed one
+   * chunk at a time and loaded in a single transaction, so either every document is added or none
+   * is. Since the store keeps the page content in the metadata, it is added there under the text
+   * key unless the metadata already has that key.
+   *
+   * @throws IllegalArgumentException if the vectors do not have the dimensions of the store
+   * @throws PGVectorSQLException if loading fails, in which case nothing is added
+   */
+  @Override
+  public long importDocuments(VectorCollectionReader reader) throws IOException {
+    if (reader.getDimensions() != pgVectorStoreSpec.getVectorDimensions()
+        && reader.getDimensions() != 0) {
+      throw new IllegalArgumentException(
+          "Collection has "
+              + reader.getDimensions()
+              + " dimensions, the store has "
+              + pgVectorStoreSpec.getVectorDimensions());
+    }
+    try {
+      return pgVectorService.executeInTransaction(
+          connection -> {
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            long rowCount = 0;
+            try {
+              List<VectorRecord> chunk;
+              while (!(chunk = reader.readChunk()).isEmpty()) {
+                rowCount += copyChunk(pgConnection, getVectorValuesOfRecords(chunk));
+              }
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            return rowCount;
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } catch (SQLException e) {
+      logger.atSevere().withCause(e).log("Failed to import documents");
+      throw new PGVectorSQLException(e);
+    }
+  }
+
+  /**
+   * Adds the documents of the chunk with their vectors through the binary COPY protocol, in a
+   * transaction of its own.
+   *
+   * @throws PGVectorSQLException if loading fails, in which case nothing of the chunk is added
+   */
+  @Override
+  public long importVectorRecords(List<VectorRecord> vectorRecords) {
+    if (vectorRecords.isEmpty()) {
+      return 0;
+    }
+    try {
+      return pgVectorService.executeInTransaction(
+          connection ->
+              copyChunk(
+                  connection.unwrap(PGConnection.class), getVectorValuesOfRecords(vectorRecords)));
+    } catch (SQLException e) {
+      logger.atSevere().withCause(e).log("Failed to import documents");
+      throw new PGVectorSQLException(e);
+    }
+  }
+
+  private List<PGVectorValues> getVectorValuesOfRecords(List<VectorRecord> vectorRecords) {
+    List<PGVectorValues> vectorValues = new ArrayList<>(vectorRecords.size());
+    for (VectorRecord vectorRecord : vectorRecords) {
+      DomainDocument document = vectorRecord.getDocument();
+      Map<String, String> metadata =
+          new HashMap<>(document.getMetadata().map(Metadata::getValue).orElse(new HashMap<>()));
+      pgVectorStoreSpec
+          .getTextKey()
+          .ifPresent(textKey -> metadata.putIfAbsent(textKey, document.getPageContent()));
+      vectorValues.add(
+          buildPGVectorValues(
+              document.getId().get(),
+              vectorRecord.getVector(),
+              Optional.of(Metadata.builder().setValue(metadata).build())));
+    }
+    return vectorValues;
+  }
+
+  private long copyChunk(PGConnection connection, List<PGVectorValues> vectorValues)
+      throws SQLException {
+    try {
+      if (isJsonbLayout()) {
+        try (PGCopyOutputStream documentsCopy =
+            new PGCopyOutputStream(connection, sqlCommandProvider.getCopyDocumentsQuery())) {
+          PGBinaryCopyWriter writer = new PGBinaryCopyWriter(documentsCopy);
+          for (PGVectorValues values : vectorValues) {
+            writer.startRow(DOCUMENTS_COLUMN_COUNT);
+            writer.writeText(values.getId());
+            writer.writeVector(values.getValues());
+            writer.writeJsonb(GSON.toJson(values.getMetadata().getValue()));
+          }
+          writer.finish();
+          return documentsCopy.endCopy();
+        }
+      }
+      // Embeddings first, the metadata rows reference them.
+      long rowCount;
+      try (PGCopyOutputStream embeddingsCopy =
+          new PGCopyOutputStream(connection, sqlCommandProvider.getCopyEmbeddingsQuery())) {
+        PGBinaryCopyWriter writer = new PGBinaryCopyWriter(embeddingsCopy);
+        for (PGVectorValues values : vectorValues) {
+          writer.startRow(EMBEDDINGS_COLUMN_COUNT);
+          writer.writeText(values.getId());
+          writer.writeVector(values.getValues());
+        }
+        writer.finish();
+        rowCount = embeddingsCopy.endCopy();
+      }
+      try (PGCopyOutputStream metadataCopy =
+          new PGCopyOutputStream(connection, sqlCommandProvider.getCopyMetadataQuery())) {
+        PGBinaryCopyWriter writer = new PGBinaryCopyWriter(metadataCopy);
+        for (PGVectorValues values : vectorValues) {
+          for (Map.Entry<String, String> entry : values.getMetadata().getValue().entrySet()) {
+            writer.startRow(METADATA_COLUMN_COUNT);
+            writer.writeText(values.getId() + entry.getKey());
+            writer.writeText(entry.getKey());
+            writer.writeText(entry.getValue());
+            writer.writeText(values.getId());
+          }
+        }
+        writer.finish();
+        metadataCopy.endCopy();
+      }
+      return rowCount;
+    } catch (IOException e) {
+      throw new SQLException("Failed to stream rows to COPY", e);
+    }
   }
 
   /**
    * Performs a similarity search using a vector query and returns a list of pairs containing the
    * schema documents and their corresponding similarity scores.
+   *
+   * <p>The filter and metadata conditions of the query are evaluated by the database inside the
+   * nearest neighbour query, so the top k documents that satisfy them are returned. With an
+   * approximate index, a selective filter can leave fewer than k results among the candidates the
+   * index visits; raising {@code efSearch} or {@code probes} widens the candidate set.
    */
   @Override
   public List<DomainDocument> similaritySearch(SimilaritySearchQuery similaritySearchQuery) {
-    float[] queryVectorValuesAsFloats = getFloatVectorValues(similaritySearchQuery.getQuery());
-    double[] queryVectorValuesAsDoubles = getDoubleVectorValues(queryVectorValuesAsFloats);
-    List<DomainDocument> documentsWithScores;
+    PGvector queryVector = new PGvector(similaritySearchQuery.getQueryVector());
+    PGVectorFilterClause filterClause =
+        sqlCommandProvider.getFilterClause(similaritySearchQuery.getAllMetadataConditions());
+    String selectQuery = getSelectQuery(similaritySearchQuery.getTopK(), filterClause);
     Map<String, DomainDocument> documentsWithScoresMap = new LinkedHashMap<>();
     try {
-      PreparedStatement neighborStmt =
-          pgVectorService.prepareStatement(
-              sqlCommandProvider.getSelectEmbeddingsQuery(
-                  distanceStrategy.getSyntax(), similaritySearchQuery.getTopK()));
-
-      neighborStmt.setObject(1, new PGvector(queryVectorValuesAsFloats));
-      ResultSet result = neighborStmt.executeQuery();
-
-      while (result.next()) {
-        String vectorId = (String) result.getObject(1);
-        PGvector pGvector = (PGvector) result.getObject(2);
-        String key = (String) result.getObject(3);
-        String value = (String) result.getObject(4);
-
-        double[] currentVector = getDoubleVectorValues(pGvector.toArray());
-
-        double score =
-            distanceStrategy.calculateDistance(queryVectorValuesAsDoubles, currentVector);
-
-        documentsWithScoresMap.computeIfAbsent(
-            vectorId,
-            s -> {
-              Metadata defaultMetadata = Metadata.builder().build();
-              return DomainDocument.builder()
-                  .setId(vectorId)
-                  .setPageContent("") // will be set later
-                  .setSimilarityScore(Optional.of(score))
-                  .setMetadata(defaultMetadata)
-                  .build();
+      List<String> searchParameterQueries = getSearchParameterQueries(similaritySearchQuery);
+      if (searchParameterQueries.isEmpty()) {
+        pgVectorService.withConnection(
+            connection -> {
+              selectNearestDocuments(
+                  connection, selectQuery, queryVector, filterClause, documentsWithScoresMap);
+              return null;
+            });
+      } else {
+        // SET LOCAL only lasts until the end of the transaction the query runs in.
+        pgVectorService.executeInTransaction(
+            connection -> {
+              try (Statement statement = connection.createStatement()) {
+                for (String searchParameterQuery : searchParameterQueries) {
+                  statement.execute(searchParameterQuery);
+                }
+              }
+              selectNearestDocuments(
+                  connection, selectQuery, queryVector, filterClause, documentsWithScoresMap);
+              return null;
             });
+      }
+    } catch (SQLException e) {
+      logger.atSevere().withCause(e).log("Error with SQL Exception");
+    }
+
+    return new ArrayList<>(documentsWithScoresMap.values());
+  }
 
-        DomainDocument documentWithScore = documentsWithScoresMap.get(vectorId);
-        saveValueToMetadataIfPresent(documentWithScore, key, value);
-        updateDocumentPageContent(vectorId, documentWithScore, key, value, documentsWithScoresMap);
+  /**
+   * Performs the similarity searches with one statement per group of queries that have the same
+   * filter, metadata conditions and search parameters: the query vectors are joined LATERAL with
+   * the nearest neighbour query, so variants of a question that share their filters cost a single
+   * round trip. The results are returned in the order of the queries.
+   */
+  @Override
+  public List<List<DomainDocument>> similaritySearchBatch(
+      List<SimilaritySearchQuery> similaritySearchQueries) {
+    if (similaritySearchQueries.isEmpty()) {
+      return new ArrayList<>();
+    }
+    List<Map<String, DomainDocument>> documentsWithScoresMaps = new ArrayList<>();
+    Map<List<Object>, List<Integer>> groups = new LinkedHashMap<>();
+    boolean hasSearchParameters = false;
+    for (int i = 0; i < similaritySearchQueries.size(); i++) {
+      SimilaritySearchQuery similaritySearchQuery = similaritySearchQueries.get(i);
+      documentsWithScoresMaps.add(new LinkedHashMap<>());
+      List<Object> groupKey =
+          Arrays.asList(
+              similaritySearchQuery.getAllMetadataConditions(),
+              similaritySearchQuery.getEfSearch(),
+              similaritySearchQuery.getProbes());
+      groups.computeIfAbsent(groupKey, key -> new ArrayList<>()).add(i);
+      hasSearchParameters |= !getSearchParameterQueries(similaritySearchQuery).isEmpty();
+    }
+    // Groups without search parameters run first, before SET LOCAL changes them. Every later group
+    // sets all the parameters, so that none carries over from the group before it.
+    List<List<Integer>> orderedGroups = new ArrayList<>(groups.values());
+    orderedGroups.sort(
+        Comparator.comparing(
+            group ->
+                !getSearchParameterQueries(similaritySearchQueries.get(group.get(0))).isEmpty()));
+    ConnectionCallback<Void> callback =
+        connection -> {
+          for (List<Integer> group : orderedGroups) {
+            List<SimilaritySearchQuery> groupQueries = new ArrayList<>(group.size());
+            List<Map<String, DomainDocument>> groupMaps = new ArrayList<>(group.size());
+            for (int index : group) {
+              groupQueries.add(similaritySearchQueries.get(index));
+              groupMaps.add(documentsWithScoresMaps.get(index));
+            }
+            selectNearestDocuments(connection, groupQueries, groupMaps);
+          }
+          return null;
+        };
+    try {
+      if (hasSearchParameters) {
+        // SET LOCAL only lasts until the end of the transaction the queries run in.
+        pgVectorService.executeInTransaction(callback);
+      } else {
+        pgVectorService.withConnection(callback);
       }
-      documentsWithScores = new ArrayList<>(documentsWithScoresMap.values());
     } catch (SQLException e) {
       logger.atSevere().withCause(e).log("Error with SQL Exception");
-      return new ArrayList<>(documentsWithScoresMap.values());
     }
 
-    return documentsWithScores;
+    List<List<DomainDocument>> results = new ArrayList<>(documentsWithScoresMaps.size());
+    for (Map<String, DomainDocument> documentsWithScoresMap : documentsWithScoresMaps) {
+      results.add(new ArrayList<>(documentsWithScoresMap.values()));
+    }
+    return results;
+  }
+
+  private String getSelectQuery(long topK, PGVectorFilterClause filterClause) {
+    String operator = distanceStrategy.getSyntax();
+    if (!isBinaryQuantized()) {
+      return isJsonbLayout()
+          ? sqlCommandProvider.getSelectDocumentsQuery(operator, topK, filterClause)
+          : sqlCommandProvider.getSelectEmbeddingsQuery(operator, topK, filterClause);
+    }
+    long candidates = topK * pgVectorStoreSpec.getRescoreFactor();
+    int vectorDimensions = pgVectorStoreSpec.getVectorDimensions();
+    return isJsonbLayout()
+        ? sqlCommandProvider.getRescoredSelectDocumentsQuery(
+            operator, topK, candidates, vectorDimensions, filterClause)
+        : sqlCommandProvider.getRescoredSelectEmbeddingsQuery(
+            operator, topK, candidates, vectorDimensions, filterClause);
+  }
+
+  private List<String> getSearchParameterQueries(SimilaritySearchQuery similaritySearchQuery) {
+    List<String> queries = new ArrayList<>();
+    similaritySearchQuery
+        .getEfSearch()
+        .ifPresent(efSearch -> queries.add(sqlCommandProvider.getSetEfSearchQuery(efSearch)));
+    similaritySearchQuery
+        .getProbes()
+        .ifPresent(probes -> queries.add(sqlCommandProvider.getSetProbesQuery(probes)));
+    return queries;
+  }
+
+  /**
+   * Returns the queries that set the search parameters of the query, resetting the ones it leaves
+   * unset to their defaults.
+   */
+  private List<String> getAllSearchParameterQueries(SimilaritySearchQuery similaritySearchQuery) {
+    return Arrays.asList(
+        similaritySearchQuery
+            .getEfSearch()
+            .map(sqlCommandProvider::getSetEfSearchQuery)
+            .orElseGet(sqlCommandProvider::getResetEfSearchQuery),
+        similaritySearchQuery
+            .getProbes()
+            .map(sqlCommandProvider::getSetProbesQuery)
+            .orElseGet(sqlCommandProvider::getResetProbesQuery));
+  }
+
+  private void selectNearestDocuments(
+      Connection connection,
+      String selectQuery,
+      PGvector queryVector,
+      PGVectorFilterClause filterClause,
+      Map<String, DomainDocument> documentsWithScoresMap)
+      throws SQLException {
+    try (PreparedStatement neighborStmt = connection.prepareStatement(selectQuery)) {
+      // The query vector is used both for the returned distance and for the ordering, the filter
+      // parameters are bound in between.
+      int parameterIndex = 1;
+      neighborStmt.setObject(parameterIndex++, queryVector);
+      for (Object parameter : filterClause.getParameters()) {
+        neighborStmt.setObject(parameterIndex++, parameter);
+      }
+      neighborStmt.setObject(parameterIndex, queryVector);
+      try (ResultSet result = neighborStmt.executeQuery()) {
+        while (result.next()) {
+          collectNearestDocument(result, 1, documentsWithScoresMap);
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs the searches of queries that share their conditions and search parameters with a single
+   * statement, collecting the results of the i-th query into the i-th map.
+   */
+  private void selectNearestDocuments(
+      Connection connection,
+      List<SimilaritySearchQuery> similaritySearchQueries,
+      List<Map<String, DomainDocument>> documentsWithScoresMaps)
+      throws SQLException {
+    SimilaritySearchQuery firstQuery = similaritySearchQueries.get(0);
+    if (!getSearchParameterQueries(firstQuery).isEmpty()) {
+      try (Statement statement = connection.createStatement()) {
+        for (String searchParameterQuery : getAllSearchParameterQueries(firstQuery)) {
+          statement.execute(searchParameterQuery);
+        }
+      }
+    }
+    PGVectorFilterClause filterClause =
+        sqlCommandProvider.getFilterClause(firstQuery.getAllMetadataConditions());
+    List<Long> limits = new ArrayList<>();
+    for (SimilaritySearchQuery similaritySearchQuery : similaritySearchQueries) {
+      limits.add(similaritySearchQuery.getTopK());
+    }
+    String selectQuery =
+        isBinaryQuantized()
+            ? sqlCommandProvider.getBatchRescoredSelectQuery(
+                distanceStrategy.getSyntax(),
+                limits,
+                pgVectorStoreSpec.getRescoreFactor(),
+                pgVectorStoreSpec.getVectorDimensions(),
+                filterClause)
+            : sqlCommandProvider.getBatchSelectQuery(
+                distanceStrategy.getSyntax(), limits, filterClause);
+    try (PreparedStatement neighborStmt = connection.prepareStatement(selectQuery)) {
+      int parameterIndex = 1;
+      for (SimilaritySearchQuery similaritySearchQuery : similaritySearchQueries) {
+        neighborStmt.setObject(
+            parameterIndex++, new PGvector(similaritySearchQuery.getQueryVector()));
+      }
+      for (Object parameter : filterClause.getParameters()) {
+        neighborStmt.setObject(parameterIndex++, parameter);
+      }
+      try (ResultSet result = neighborStmt.executeQuery()) {
+        while (result.next()) {
+          collectNearestDocument(result, 2, documentsWithScoresMaps.get(result.getInt(1)));
+        }
+      }
+    }
+  }
+
+  /** Collects the row of a hit whose columns start at {@code firstColumn}. */
+  private void collectNearestDocument(
+      ResultSet result, int firstColumn, Map<String, DomainDocument> documentsWithScoresMap)
+      throws SQLException {
+    if (isJsonbLayout()) {
+      collectNearestJsonbDocument(result, firstColumn, documentsWithScoresMap);
+    } else {
+      collectNearestMetadataRow(result, firstColumn, documentsWithScoresMap);
+    }
+  }
+
+  private void collectNearestJsonbDocument(
+      ResultSet result, int firstColumn, Map<String, DomainDocument> documentsWithScoresMap)
+      throws SQLException {
+    Optional<String> textKey = pgVectorStoreSpec.getTextKey();
+    String vectorId = result.getString(firstColumn);
+    double score = distanceStrategy.fromDatabaseDistance(result.getDouble(firstColumn + 1));
+    Map<String, String> metadata = GSON.fromJson(result.getString(firstColumn + 2), METADATA_TYPE);
+    if (metadata == null) {
+      metadata = new HashMap<>();
+    }
+    String pageContent = textKey.map(metadata::get).orElse("");
+    documentsWithScoresMap.put(
+        vectorId,
+        DomainDocument.builder()
+            .setId(vectorId)
+            .setPageContent(pageContent)
+            .setSimilarityScore(Optional.of(score))
+            .setMetadata(Metadata.builder().setValue(metadata).build())
+            .build());
+  }
+
+  private void collectNearestMetadataRow(
+      ResultSet result, int firstColumn, Map<String, DomainDocument> documentsWithScoresMap)
+      throws SQLException {
+    String vectorId = result.getString(firstColumn);
+    double score = distanceStrategy.fromDatabaseDistance(result.getDouble(firstColumn + 1));
+    String key = result.getString(firstColumn + 2);
+    String value = result.getString(firstColumn + 3);
+
+    documentsWithScoresMap.computeIfAbsent(
+        vectorId,
+        s -> {
+          Metadata defaultMetadata = Metadata.builder().build();
+          return DomainDocument.builder()
+              .setId(vectorId)
+              .setPageContent("") // will be set later
+              .setSimilarityScore(Optional.of(score))
+              .setMetadata(defaultMetadata)
+              .build();
+        });
+
+    DomainDocument documentWithScore = documentsWithScoresMap.get(vectorId);
+    saveValueToMetadataIfPresent(documentWithScore, key, value);
+    updateDocumentPageContent(vectorId, documentWithScore, key, value, documentsWithScoresMap);
   }
 
   @Override
   public boolean updateDocuments(List<DomainDocument> documents) {
+    if (isJsonbLayout()) {
+      return writeDocuments(documents, sqlCommandProvider::getUpdateDocumentsQuery);
+    }
     int updateEmbeddingsResult;
     int updateMetadataResult;
     String metadataParams = "(?, ?, ?), "; // id, key, value
@@ -169,20 +724,27 @@ public class PGVectorStore implements VectorStore {
         getVectorQueryParameters(documents, metadataParams);
     List<PGVectorValues> vectorValues = pgVectorQueryParameters.getVectorValues();
     try {
-      PreparedStatement updateEmbeddingsStmt =
-          pgVectorService.prepareStatement(
-              sqlCommandProvider.getUpdateEmbeddingsQuery(
-                  pgVectorQueryParameters.getVectorParameters()));
-      PreparedStatement updateMetadataStmt =
-          pgVectorService.prepareStatement(
-              sqlCommandProvider.getUpdateMetadataQuery(
-                  pgVectorQueryParameters.getMetadataParameters()));
-      setUpdateQueryParameters(vectorValues, updateEmbeddingsStmt, updateMetadataStmt);
-      updateEmbeddingsResult = updateMetadataStmt.executeUpdate();
-      updateMetadataResult = updateMetadataStmt.executeUpdate();
+      int[] results =
+          pgVectorService.executeInTransaction(
+              connection -> {
+                try (PreparedStatement updateEmbeddingsStmt =
+                        connection.prepareStatement(
+                            sqlCommandProvider.getUpdateEmbeddingsQuery(
+                                pgVectorQueryParameters.getVectorParameters()));
+                    PreparedStatement updateMetadataStmt =
+                        connection.prepareStatement(
+                            sqlCommandProvider.getUpdateMetadataQuery(
+                                pgVectorQueryParameters.getMetadataParameters()))) {
+                  setUpdateQueryParameters(vectorValues, updateEmbeddingsStmt, updateMetadataStmt);
+                  return new int[] {
+                    updateEmbeddingsStmt.executeUpdate(), updateMetadataStmt.executeUpdate()
+                  };
+                }
+              });
+      updateEmbeddingsResult = results[0];
+      updateMetadataResult = results[1];
     } catch (SQLException e) {
       logger.atSevere().withCause(e).log("Failed to update documents");
-      Thread.currentThread().interrupt();
       return false;
     }
 
@@ -190,6 +752,108 @@ public class PGVectorStore implements VectorStore {
         && updateMetadataResult == pgVectorQueryParameters.getMetadataSize();
   }
 
+  /**
+   * Inserts the documents and replaces the embedding and metadata of the stored documents with the
+   * same ids. The documents are written in batches of {@link
+   * PGVectorStoreSpec#getUpsertBatchSize()} with one round trip per batch, and all batches are
+   * written in a single transaction. When several documents share an id, the last one wins.
+   *
+   * @return true if all documents were written, otherwise false
+   */
+  @Override
+  public boolean upsertDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    // ON CONFLICT cannot update the same row twice in one statement.
+    List<PGVectorValues> vectorValues = getVectorValues(getLastDocumentPerId(documents));
+    try {
+      pgVectorService.executeInTransaction(
+          connection -> {
+            for (List<PGVectorValues> batch :
+                Lists.partition(vectorValues, pgVectorStoreSpec.getUpsertBatchSize())) {
+              int rowCount =
+                  isJsonbLayout()
+                      ? upsertJsonbBatch(connection, batch)
+                      : upsertBatch(connection, batch);
+              if (rowCount != batch.size()) {
+                // Rolls the transaction back.
+                throw new SQLException(
+                    "Upserted " + rowCount + " rows for a batch of " + batch.size());
+              }
+            }
+            return null;
+          });
+    } catch (SQLException e) {
+      logger.atSevere().withCause(e).log("Failed to upsert documents");
+      return false;
+    }
+    return true;
+  }
+
+  private int upsertJsonbBatch(Connection connection, List<PGVectorValues> batch)
+      throws SQLException {
+    try (PreparedStatement upsertStmt =
+        connection.prepareStatement(
+            sqlCommandProvider.getUpsertDocumentsQuery(
+                getParameters("(?, ?, ?::jsonb), ", batch.size())))) {
+      setDocumentQueryParameters(batch, upsertStmt);
+      return upsertStmt.executeUpdate();
+    }
+  }
+
+  private int upsertBatch(Connection connection, List<PGVectorValues> batch) throws SQLException {
+    int metadataSize = 0;
+    for (PGVectorValues values : batch) {
+      metadataSize += values.getMetadata().getValue().size();
+    }
+    int rowCount;
+    try (PreparedStatement upsertEmbeddingsStmt =
+            connection.prepareStatement(
+                sqlCommandProvider.getUpsertEmbeddingsQuery(
+                    getParameters(getVectorParameters(), batch.size())));
+        PreparedStatement deleteMetadataStmt =
+            connection.prepareStatement(
+                sqlCommandProvider.getDeleteMetadataByVectorIdsQuery(
+                    getParameters("?, ", batch.size())))) {
+      int embeddingParameterIndex = 1;
+      int deleteParameterIndex = 1;
+      for (PGVectorValues values : batch) {
+        embeddingParameterIndex =
+            setVectorQueryParameters(values, embeddingParameterIndex, upsertEmbeddingsStmt);
+        deleteMetadataStmt.setString(deleteParameterIndex++, values.getId());
+      }
+      rowCount = upsertEmbeddingsStmt.executeUpdate();
+      // Keys missing from the new metadata must not survive, so the rows are replaced wholesale.
+      deleteMetadataStmt.executeUpdate();
+    }
+    if (metadataSize == 0) {
+      return rowCount;
+    }
+    try (PreparedStatement insertMetadataStmt =
+        connection.prepareStatement(
+            sqlCommandProvider.getInsertMetadataQuery(
+                getParameters("(?, ?, ?, ?), ", metadataSize)))) {
+      int metadataParameterIndex = 1;
+      for (PGVectorValues values : batch) {
+        metadataParameterIndex =
+            setMetadataQueryParameters(values, metadataParameterIndex, insertMetadataStmt);
+      }
+      insertMetadataStmt.executeUpdate();
+    }
+    return rowCount;
+  }
+
+  private static List<DomainDocument> getLastDocumentPerId(List<DomainDocument> documents) {
+    Map<String, DomainDocument> documentsById = new LinkedHashMap<>();
+    for (DomainDocument document : documents) {
+      // Documents without an id get a fresh one later on and never collide.
+      documentsById.put(
+          document.getId().orElseGet(() -> UUID.randomUUID().toString()), document);
+    }
+    return new ArrayList<>(documentsById.values());
+  }
+
   @Override
   public boolean deleteDocuments(List<DomainDocument> documents) {
     List<String> documentIds = new ArrayList<>();
@@ -210,6 +874,108 @@ public class PGVectorStore implements VectorStore {
     return true;
   }
 
+  @Override
+  public ListenableFuture<Boolean> addDocumentsAsync(List<DomainDocument> documents) {
+    return submit(() -> addDocuments(documents));
+  }
+
+  @Override
+  public ListenableFuture<List<DomainDocument>> similaritySearchAsync(
+      SimilaritySearchQuery similaritySearchQuery) {
+    return submit(() -> similaritySearch(similaritySearchQuery));
+  }
+
+  @Override
+  public ListenableFuture<List<List<DomainDocument>>> similaritySearchBatchAsync(
+      List<SimilaritySearchQuery> similaritySearchQueries) {
+    return submit(() -> similaritySearchBatch(similaritySearchQueries));
+  }
+
+  @Override
+  public ListenableFuture<Boolean> updateDocumentsAsync(List<DomainDocument> documents) {
+    return submit(() -> updateDocuments(documents));
+  }
+
+  @Override
+  public ListenableFuture<Boolean> upsertDocumentsAsync(List<DomainDocument> documents) {
+    return submit(() -> upsertDocuments(documents));
+  }
+
+  @Override
+  public ListenableFuture<Boolean> deleteDocumentsAsync(List<DomainDocument> documents) {
+    return submit(() -> deleteDocuments(documents));
+  }
+
+  @Override
+  public ListenableFuture<Boolean> deleteDocumentsByIdsAsync(List<String> documentsIds) {
+    return submit(() -> deleteDocumentsByIds(documentsIds));
+  }
+
+  private <T> ListenableFuture<T> submit(Callable<T> operation) {
+    return Futures.submit(operation, executor);
+  }
+
+  /**
+   * Builds the approximate nearest neighbour index declared in the {@link PGVectorStoreSpec} if it
+   * does not exist yet. Building the index can take a long time on large tables, so it is not part
+   * of the store construction. IVFFlat indexes should be built after the table has been loaded,
+   * as their lists are computed from the existing rows. With binary quantization, the index is
+   * built on the sign bits of the embeddings; an HNSW index then yields at most {@code efSearch}
+   * candidates, see {@link PGVectorStoreSpec#getRescoreFactor()}.
+   *
+   * @return true if the index exists after the call, otherwise false
+   */
+  public boolean createIndex() {
+    PGVectorIndexSpec indexSpec = getIndexSpec();
+    try {
+      pgVectorService.executeUpdate(getCreateIndexQuery(indexSpec));
+    } catch (SQLException e) {
+      logger.atSevere().withCause(e).log("Failed to create index");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Drops and rebuilds the approximate nearest neighbour index declared in the {@link
+   * PGVectorStoreSpec}, e.g. after changing its build parameters or after a bulk load. Both steps
+   * run in one transaction, so concurrent searches wait for the new index instead of falling back
+   * to a sequential scan.
+   *
+   * @return true if the index was rebuilt successfully, otherwise false
+   */
+  public boolean rebuildIndex() {
+    PGVectorIndexSpec indexSpec = getIndexSpec();
+    try {
+      pgVectorService.executeInTransaction(
+          connection -> {
+            try (Statement statement = connection.createStatement()) {
+              statement.executeUpdate(sqlCommandProvider.getDropIndexQuery());
+              statement.executeUpdate(getCreateIndexQuery(indexSpec));
+            }
+            return null;
+          });
+    } catch (SQLException e) {
+      logger.atSevere().withCause(e).log("Failed to rebuild index");
+      return false;
+    }
+    return true;
+  }
+
+  private String getCreateIndexQuery(PGVectorIndexSpec indexSpec) {
+    return isBinaryQuantized()
+        ? sqlCommandProvider.getCreateBinaryQuantizedIndexQuery(
+            indexSpec, pgVectorStoreSpec.getVectorDimensions())
+        : sqlCommandProvider.getCreateIndexQuery(indexSpec, distanceStrategy.getOperatorClass());
+  }
+
+  private PGVectorIndexSpec getIndexSpec() {
+    return pgVectorStoreSpec
+        .getIndexSpec()
+        .orElseThrow(
+            () -> new IllegalStateException("No index is declared in the PGVectorStoreSpec"));
+  }
+
   private void createEmbeddingsTable() throws SQLException {
     pgVectorService.executeUpdate(
         sqlCommandProvider.getCreateEmbeddingsTableQuery(pgVectorStoreSpec.getVectorDimensions()));
@@ -219,18 +985,80 @@ public class PGVectorStore implements VectorStore {
     pgVectorService.executeUpdate(sqlCommandProvider.getCreateMetadataTableQuery());
   }
 
+  private void createMetadataIndex() throws SQLException {
+    pgVectorService.executeUpdate(sqlCommandProvider.getCreateMetadataIndexQuery());
+  }
+
+  private boolean isJsonbLayout() {
+    return pgVectorStoreSpec.getMetadataLayout() == PGVectorMetadataLayout.JSONB;
+  }
+
+  private boolean isBinaryQuantized() {
+    return pgVectorStoreSpec.getQuantization() == VectorQuantization.BINARY;
+  }
+
+  /**
+   * Writes the documents with their JSONB metadata through a single statement built by the given
+   * query function from the row parameters.
+   */
+  private boolean writeDocuments(
+      List<DomainDocument> documents, Function<String, String> queryFunction) {
+    List<PGVectorValues> vectorValues = getVectorValues(documents);
+    // document id, vector and metadata
+    String query = queryFunction.apply(getParameters("(?, ?, ?::jsonb), ", vectorValues.size()));
+    int result;
+    try {
+      result =
+          pgVectorService.withConnection(
+              connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(query)) {
+                  setDocumentQueryParameters(vectorValues, statement);
+                  return statement.executeUpdate();
+                }
+              });
+    } catch (SQLException e) {
+      logger.atSevere().withCause(e).log("Failed to write documents");
+      return false;
+    }
+    return result == vectorValues.size();
+  }
+
+  private void setDocumentQueryParameters(
+      List<PGVectorValues> vectorValues, PreparedStatement statement) throws SQLException {
+    int parameterIndex = 1;
+    for (PGVectorValues values : vectorValues) {
+      parameterIndex = setVectorQueryParameters(values, parameterIndex, statement);
+      statement.setString(parameterIndex++, GSON.toJson(values.getMetadata().getValue()));
+    }
+  }
+
+  private static String getParameters(String parameter, int count) {
+    StringBuilder parameters = new StringBuilder(parameter.repeat(count));
+    StringBuilderUtils.trimSqlQueryParameter(parameters);
+    return parameters.toString();
+  }
+
+  private List<PGVectorValues> getVectorValues(List<DomainDocument> documents) {
+    List<Embedding> embeddings = documentEmbedder.embed(documents);
+    List<PGVectorValues> vectorValues = new ArrayList<>(documents.size());
+    for (int i = 0; i < documents.size(); i++) {
+      DomainDocument document = documents.get(i);
+      vectorValues.add(
+          buildPGVectorValues(
+              document.getId().orElse(UUID.randomUUID().toString()),
+              embeddings.get(i).toFloatArray(),
+              document.getMetadata()));
+    }
+    return vectorValues;
+  }
+
   private PGVectorQueryParameters getVectorQueryParameters(
       List<DomainDocument> documents, String metadataParams) {
-    List<PGVectorValues> vectorValues = new ArrayList<>();
+    List<PGVectorValues> vectorValues = getVectorValues(documents);
     StringBuilder vectorParameters = new StringBuilder();
     StringBuilder metadataParameters = new StringBuilder();
     int metadataSize = 0;
     for (DomainDocument document : documents) {
-      List<Double> vector = createVector(document);
-      String id = document.getId().orElse(UUID.randomUUID().toString());
-
-      vectorValues.add(buildPGVectorValues(id, vector, document.getMetadata()));
-
       vectorParameters.append(getVectorParameters());
       metadataSize += processMetadata(metadataParameters, document.getMetadata(), metadataParams);
     }
@@ -243,10 +1071,10 @@ public class PGVectorStore implements VectorStore {
   }
 
   private PGVectorValues buildPGVectorValues(
-      String id, List<Double> vector, Optional<Metadata> metadata) {
+      String id, float[] vector, Optional<Metadata> metadata) {
     return PGVectorValues.builder()
         .setId(id)
-        .setValues(getFloatVectorValues(vector))
+        .setValues(vector)
         .setMetadata(metadata.orElse(Metadata.builder().build()))
         .build();
   }
@@ -279,16 +1107,6 @@ public class PGVectorStore implements VectorStore {
         .build();
   }
 
-  private List<Double> createVector(DomainDocument document) {
-    EmbeddingOutput embeddingOutput =
-        embeddingsProcessor.run(
-            EmbeddingInput.builder()
-                .setModel(pgVectorStoreSpec.getModel())
-                .setInput(Collections.singletonList(document.getPageContent()))
-                .build());
-    return embeddingOutput.getValue().get(0).getVector();
-  }
-
   private int setMetadataQueryParameters(
       PGVectorValues values, int parameterIndex, PreparedStatement insertStmt) throws SQLException {
     for (Map.Entry<String, String> entry : values.getMetadata().getValue().entrySet()) {
@@ -407,16 +1225,4 @@ public class PGVectorStore implements VectorStore {
 
     documentsWithScoresMap.put(vectorId, document.toBuilder().setPageContent(value).build());
   }
-
-  private float[] getFloatVectorValues(List<Double> vectorValues) {
-    return Floats.toArray(vectorValues);
-  }
-
-  private double[] getDoubleVectorValues(float[] vectorValues) {
-    double[] doubles = new double[vectorValues.length];
-    for (int i = 0; i < vectorValues.length; i++) {
-      doubles[i] = vectorValues[i];
-    }
-    return doubles;
-  }
 }
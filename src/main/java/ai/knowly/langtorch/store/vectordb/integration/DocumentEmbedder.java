@@ -0,0 +1,128 @@
+package ai.knowly.langtorch.store.vectordb.integration;
+
+import ai.knowly.langtorch.llm.openai.tokenization.OpenAITokenizer;
+import ai.knowly.langtorch.llm.openai.util.OpenAIModel;
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.processor.ProcessorExecutionException;
+import ai.knowly.langtorch.schema.embeddings.Embedding;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingInput;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingOutput;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.schema.EmbeddingBatchSpec;
+import ai.knowly.langtorch.utils.future.InFlightLimiter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import lombok.NonNull;
+
+/**
+ * Embeds documents for the vector stores in batches. Documents are grouped into requests capped by
+ * the number of inputs and by the number of tokens estimated with the cl100k tokenizer used by the
+ * OpenAI embedding models, and several requests are kept in flight through {@link
+ * EmbeddingProcessor#runAsync}; {@link #embedAsync(List)} does so without blocking a thread. The
+ * embeddings are mapped back to the documents by position.
+ */
+public class DocumentEmbedder {
+  private final EmbeddingProcessor embeddingProcessor;
+  private final String model;
+  private final EmbeddingBatchSpec embeddingBatchSpec;
+
+  public DocumentEmbedder(
+      @NonNull EmbeddingProcessor embeddingProcessor,
+      @NonNull String model,
+      @NonNull EmbeddingBatchSpec embeddingBatchSpec) {
+    this.embeddingProcessor = embeddingProcessor;
+    this.model = model;
+    this.embeddingBatchSpec = embeddingBatchSpec;
+  }
+
+  /**
+   * Embeds the page content of the given documents.
+   *
+   * @param documents the documents to embed
+   * @return the embeddings, in the same order as the documents
+   * @throws ProcessorExecutionException if an embedding request fails or returns a different
+   *     number of embeddings than inputs
+   */
+  public List<Embedding> embed(List<DomainDocument> documents) {
+    try {
+      return embedAsync(documents).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProcessorExecutionException("Interrupted while waiting for embeddings.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ProcessorExecutionException) {
+        throw (ProcessorExecutionException) e.getCause();
+      }
+      throw new ProcessorExecutionException("Failed to embed documents.", e.getCause());
+    }
+  }
+
+  /**
+   * Embeds the page content of the given documents without blocking. At most {@code
+   * maxConcurrentBatches} requests are in flight, the next one is sent when one of them completes.
+   *
+   * @return a future of the embeddings, in the same order as the documents, which fails with a
+   *     {@link ProcessorExecutionException} if a request returns a different number of embeddings
+   *     than inputs
+   */
+  public ListenableFuture<List<Embedding>> embedAsync(List<DomainDocument> documents) {
+    InFlightLimiter limiter = new InFlightLimiter(embeddingBatchSpec.getMaxConcurrentBatches());
+    List<ListenableFuture<List<Embedding>>> batchEmbeddings = new ArrayList<>();
+    for (List<String> batch : createBatches(documents)) {
+      ListenableFuture<EmbeddingOutput> output =
+          limiter.submit(
+              () ->
+                  embeddingProcessor.runAsync(
+                      EmbeddingInput.builder().setModel(model).setInput(batch).build()));
+      batchEmbeddings.add(
+          Futures.transform(
+              output, value -> checkSize(batch.size(), value), MoreExecutors.directExecutor()));
+    }
+    return Futures.transform(
+        Futures.allAsList(batchEmbeddings),
+        batches -> {
+          ImmutableList.Builder<Embedding> embeddings = ImmutableList.builder();
+          batches.forEach(embeddings::addAll);
+          return embeddings.build();
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  private List<List<String>> createBatches(List<DomainDocument> documents) {
+    List<List<String>> batches = new ArrayList<>();
+    List<String> currentBatch = new ArrayList<>();
+    long currentTokens = 0;
+    for (DomainDocument document : documents) {
+      String text = document.getPageContent();
+      long tokens = OpenAITokenizer.getTokenNumber(OpenAIModel.TEXT_EMBEDDING_ADA_002, text);
+      boolean isFull =
+          currentBatch.size() >= embeddingBatchSpec.getMaxInputsPerBatch()
+              || currentTokens + tokens > embeddingBatchSpec.getMaxTokensPerBatch();
+      if (!currentBatch.isEmpty() && isFull) {
+        batches.add(currentBatch);
+        currentBatch = new ArrayList<>();
+        currentTokens = 0;
+      }
+      currentBatch.add(text);
+      currentTokens += tokens;
+    }
+    if (!currentBatch.isEmpty()) {
+      batches.add(currentBatch);
+    }
+    return batches;
+  }
+
+  private static List<Embedding> checkSize(int size, EmbeddingOutput embeddingOutput) {
+    List<Embedding> embeddings = embeddingOutput.getValue();
+    if (embeddings.size() != size) {
+      throw new ProcessorExecutionException(
+          String.format("Expected %d embeddings but received %d.", size, embeddings.size()));
+    }
+    return embeddings;
+  }
+}
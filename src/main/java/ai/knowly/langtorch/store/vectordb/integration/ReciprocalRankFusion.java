@@ -0,0 +1,63 @@
+package ai.knowly.langtorch.store.vectordb.integration;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Fuses the rankings of several searches into one with Reciprocal Rank Fusion: a document scores
+ * {@code 1 / (rankConstant + rank)} for every ranking it appears in, with ranks starting at 1.
+ * Only ranks are used, so rankings whose similarity scores are on different scales, such as those
+ * of different distance strategies or stores, can be fused.
+ *
+ * <p>Documents are identified by their id, or by their page content if they have none. The fused
+ * documents carry their fused score as similarity score, a higher score is better.
+ */
+public final class ReciprocalRankFusion {
+  /** The rank constant of the original paper, which damps the weight of the first ranks. */
+  public static final int DEFAULT_RANK_CONSTANT = 60;
+
+  private ReciprocalRankFusion() {}
+
+  /** Returns the {@code topK} best documents of the fused rankings, best first. */
+  public static List<DomainDocument> fuse(List<List<DomainDocument>> rankings, int topK) {
+    return fuse(rankings, topK, DEFAULT_RANK_CONSTANT);
+  }
+
+  /**
+   * Returns the {@code topK} best documents of the fused rankings, best first. Documents with the
+   * same fused score keep the order they first appear in.
+   *
+   * @param rankings the rankings, each ordered best first
+   * @param topK the maximum number of documents to return
+   * @param rankConstant the constant added to every rank, must not be negative
+   */
+  public static List<DomainDocument> fuse(
+      List<List<DomainDocument>> rankings, int topK, int rankConstant) {
+    if (rankConstant < 0) {
+      throw new IllegalArgumentException("rankConstant must not be negative, was " + rankConstant);
+    }
+    Map<String, DomainDocument> documents = new LinkedHashMap<>();
+    Map<String, Double> scores = new LinkedHashMap<>();
+    for (List<DomainDocument> ranking : rankings) {
+      for (int rank = 0; rank < ranking.size(); rank++) {
+        DomainDocument document = ranking.get(rank);
+        String key = document.getId().orElse(document.getPageContent());
+        documents.putIfAbsent(key, document);
+        scores.merge(key, 1.0 / (rankConstant + rank + 1), Double::sum);
+      }
+    }
+    List<String> keys = new ArrayList<>(scores.keySet());
+    // The sort is stable, so ties keep the order of first appearance.
+    keys.sort((first, second) -> Double.compare(scores.get(second), scores.get(first)));
+    List<DomainDocument> fused = new ArrayList<>(Math.min(topK, keys.size()));
+    for (String key : keys.subList(0, Math.min(topK, keys.size()))) {
+      fused.add(
+          documents.get(key).toBuilder().setSimilarityScore(Optional.of(scores.get(key))).build());
+    }
+    return fused;
+  }
+}
@@ -2,18 +2,127 @@ package ai.knowly.langtorch.store.vectordb.integration;
 
 import ai.knowly.langtorch.schema.io.DomainDocument;
 import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionReader;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionWriter;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
-/** A shared interface for all Vector Store Databases */
+/**
+ * A shared interface for all Vector Store Databases.
+ *
+ * <p>Every operation has an asynchronous variant returning a {@link ListenableFuture}, so that it
+ * can be composed with other asynchronous work such as {@code Capability.runAsync}. By default,
+ * the variants run the blocking operation on the calling thread; stores that talk to a remote
+ * service override them to not block, and bound the number of requests they keep in flight.
+ */
 public interface VectorStore {
 
   boolean addDocuments(List<DomainDocument> documents);
 
+  default ListenableFuture<Boolean> addDocumentsAsync(List<DomainDocument> documents) {
+    return Futures.submit(() -> addDocuments(documents), MoreExecutors.directExecutor());
+  }
+
   List<DomainDocument> similaritySearch(SimilaritySearchQuery similaritySearchQuery);
 
+  default ListenableFuture<List<DomainDocument>> similaritySearchAsync(
+      SimilaritySearchQuery similaritySearchQuery) {
+    return Futures.submit(
+        () -> similaritySearch(similaritySearchQuery), MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Performs a similarity search for each of the queries and returns their results in the order of
+   * the queries. Stores that can share work between the queries, a scan or a round trip, override
+   * this; the results can be fused into a single ranking with {@link ReciprocalRankFusion}.
+   */
+  default List<List<DomainDocument>> similaritySearchBatch(
+      List<SimilaritySearchQuery> similaritySearchQueries) {
+    List<List<DomainDocument>> results = new ArrayList<>(similaritySearchQueries.size());
+    for (SimilaritySearchQuery similaritySearchQuery : similaritySearchQueries) {
+      results.add(similaritySearch(similaritySearchQuery));
+    }
+    return results;
+  }
+
+  default ListenableFuture<List<List<DomainDocument>>> similaritySearchBatchAsync(
+      List<SimilaritySearchQuery> similaritySearchQueries) {
+    return Futures.submit(
+        () -> similaritySearchBatch(similaritySearchQueries), MoreExecutors.directExecutor());
+  }
+
   boolean updateDocuments(List<DomainDocument> documents);
 
+  default ListenableFuture<Boolean> updateDocumentsAsync(List<DomainDocument> documents) {
+    return Futures.submit(() -> updateDocuments(documents), MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Inserts the documents, replacing the stored documents that have the same ids. Unlike a delete
+   * followed by an add, readers never observe the documents as missing.
+   */
+  boolean upsertDocuments(List<DomainDocument> documents);
+
+  default ListenableFuture<Boolean> upsertDocumentsAsync(List<DomainDocument> documents) {
+    return Futures.submit(() -> upsertDocuments(documents), MoreExecutors.directExecutor());
+  }
+
   boolean deleteDocuments(List<DomainDocument> documents);
 
+  default ListenableFuture<Boolean> deleteDocumentsAsync(List<DomainDocument> documents) {
+    return Futures.submit(() -> deleteDocuments(documents), MoreExecutors.directExecutor());
+  }
+
   boolean deleteDocumentsByIds(List<String> documentsIds);
+
+  default ListenableFuture<Boolean> deleteDocumentsByIdsAsync(List<String> documentsIds) {
+    return Futures.submit(() -> deleteDocumentsByIds(documentsIds), MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Writes every stored document with its vector to the writer, so that the collection can be
+   * moved to another store with {@link #importDocuments(VectorCollectionReader)} instead of being
+   * embedded again. The documents are streamed to the writer, which is left open.
+   *
+   * @throws UnsupportedOperationException if the store cannot enumerate its documents
+   */
+  default void exportDocuments(VectorCollectionWriter writer) throws IOException {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support exporting documents");
+  }
+
+  /**
+   * Adds the documents of an exported collection with their vectors, without embedding them. The
+   * collection is read one chunk at a time and each chunk is passed to {@link
+   * #importVectorRecords(List)}, so this is meant for loading a collection into a store that does
+   * not hold it yet.
+   *
+   * @return the number of documents imported
+   * @throws UnsupportedOperationException if the store cannot write vectors directly
+   */
+  default long importDocuments(VectorCollectionReader reader) throws IOException {
+    long count = 0;
+    List<VectorRecord> chunk;
+    while (!(chunk = reader.readChunk()).isEmpty()) {
+      count += importVectorRecords(chunk);
+    }
+    return count;
+  }
+
+  /**
+   * Adds one chunk of an exported collection through the bulk write path of the store, without
+   * embedding the documents.
+   *
+   * @return the number of documents imported
+   * @throws UnsupportedOperationException if the store cannot write vectors directly
+   */
+  default long importVectorRecords(List<VectorRecord> vectorRecords) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support importing documents");
+  }
 }
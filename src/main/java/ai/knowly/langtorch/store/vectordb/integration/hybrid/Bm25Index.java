@@ -0,0 +1,265 @@
+package ai.knowly.langtorch.store.vectordb.integration.hybrid;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.schema.io.Metadata;
+import ai.knowly.langtorch.store.vectordb.integration.local.TopKHeap;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory inverted index that ranks documents by their BM25 score for a text query. Every
+ * term has a {@link PostingsList} of the documents it occurs in, delta and varint encoded.
+ *
+ * <p>Documents are identified by their id, or by their page content if they have none, the same
+ * way {@code ReciprocalRankFusion} identifies them. Adding a document with the key of an indexed
+ * one replaces it. Deleted documents are only marked as such and skipped by searches; once they
+ * outnumber the live ones, the postings lists are rewritten without them.
+ *
+ * <p>Searches run concurrently with each other, writes are exclusive.
+ */
+public final class Bm25Index {
+  /** The term frequency saturation of the original Okapi BM25. */
+  public static final double DEFAULT_K1 = 1.2;
+
+  /** The document length normalization of the original Okapi BM25. */
+  public static final double DEFAULT_B = 0.75;
+
+  private final double k1;
+  private final double b;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, PostingsList> postingsByTerm = new HashMap<>();
+  // The document of each number, null once deleted. Numbers are assigned in ascending order, so
+  // that new documents are appended to the postings lists.
+  private final List<DomainDocument> documents = new ArrayList<>();
+  // The number of terms of each document.
+  private int[] lengths = new int[16];
+  // The distinct terms of each document, null once deleted, to maintain the document frequencies.
+  private final List<String[]> documentTerms = new ArrayList<>();
+  private final Map<String, Integer> documentsByKey = new HashMap<>();
+  private long totalLength;
+  private int deletedCount;
+
+  public Bm25Index() {
+    this(DEFAULT_K1, DEFAULT_B);
+  }
+
+  /**
+   * Creates an empty index.
+   *
+   * @param k1 how quickly repetitions of a term stop raising the score, must not be negative
+   * @param b how much longer documents are penalized, between 0 and 1
+   */
+  public Bm25Index(double k1, double b) {
+    if (k1 < 0) {
+      throw new IllegalArgumentException("k1 must not be negative, was " + k1);
+    }
+    if (b < 0 || b > 1) {
+      throw new IllegalArgumentException("b must be between 0 and 1, was " + b);
+    }
+    this.k1 = k1;
+    this.b = b;
+  }
+
+  /** Returns the key documents are identified by in the index. */
+  public static String getKey(DomainDocument document) {
+    return document.getId().orElse(document.getPageContent());
+  }
+
+  /** Indexes the page content of the documents, replacing indexed documents with the same keys. */
+  public void addDocuments(List<DomainDocument> documents) {
+    lock.writeLock().lock();
+    try {
+      for (DomainDocument document : documents) {
+        delete(getKey(document));
+        add(document);
+      }
+      compactIfSparse();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Removes the documents with the given keys, keys that are not indexed are ignored. */
+  public void deleteDocuments(Collection<String> keys) {
+    lock.writeLock().lock();
+    try {
+      keys.forEach(this::delete);
+      compactIfSparse();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the {@code topK} documents that score best for the query, best first, with their BM25
+   * score as similarity score. Documents that contain none of the terms of the query are not
+   * returned, and repeated query terms count once.
+   */
+  public List<DomainDocument> search(String query, int topK) {
+    return search(query, topK, Collections.emptyList());
+  }
+
+  /**
+   * Returns the {@code topK} documents that score best for the query among those whose metadata
+   * satisfies all the conditions, best first, with their BM25 score as similarity score.
+   */
+  public List<DomainDocument> search(
+      String query, int topK, List<MetadataCondition> metadataConditions) {
+    Set<String> terms = new LinkedHashSet<>(LexicalTokenizer.tokenize(query));
+    lock.readLock().lock();
+    try {
+      int documentCount = documents.size() - deletedCount;
+      if (documentCount == 0 || topK <= 0) {
+        return new ArrayList<>();
+      }
+      double averageLength = (double) totalLength / documentCount;
+      double[] scores = new double[documents.size()];
+      List<Integer> candidates = new ArrayList<>();
+      for (String term : terms) {
+        PostingsList postings = postingsByTerm.get(term);
+        if (postings == null || postings.getDocumentFrequency() == 0) {
+          continue;
+        }
+        double df = postings.getDocumentFrequency();
+        double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+        PostingsList.Reader reader = postings.reader();
+        while (reader.next()) {
+          int document = reader.getDocument();
+          if (documents.get(document) == null) {
+            continue;
+          }
+          double tf = reader.getFrequency();
+          double norm = k1 * (1 - b + b * lengths[document] / averageLength);
+          if (scores[document] == 0) {
+            candidates.add(document);
+          }
+          scores[document] += idf * tf * (k1 + 1) / (tf + norm);
+        }
+      }
+      TopKHeap heap = new TopKHeap(Math.min(topK, candidates.size()), true);
+      for (int document : candidates) {
+        if (metadataConditions.isEmpty() || matches(documents.get(document), metadataConditions)) {
+          heap.offer(document, scores[document]);
+        }
+      }
+      heap.sort();
+      List<DomainDocument> results = new ArrayList<>(heap.size());
+      for (int i = 0; i < heap.size(); i++) {
+        results.add(
+            documents
+                .get(heap.getId(i))
+                .toBuilder()
+                .setSimilarityScore(Optional.of(heap.getScore(i)))
+                .build());
+      }
+      return results;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the number of indexed documents. */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size() - deletedCount;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the number of bytes the postings lists take, without the term dictionary. */
+  public long getPostingsSizeInBytes() {
+    lock.readLock().lock();
+    try {
+      long size = 0;
+      for (PostingsList postings : postingsByTerm.values()) {
+        size += postings.getSizeInBytes();
+      }
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static boolean matches(DomainDocument document, List<MetadataCondition> conditions) {
+    return MetadataCondition.testAll(
+        conditions, document.getMetadata().map(Metadata::getValue).orElse(Collections.emptyMap()));
+  }
+
+  private void add(DomainDocument document) {
+    int number = documents.size();
+    List<String> terms = LexicalTokenizer.tokenize(document.getPageContent());
+    Map<String, Integer> frequencies = new LinkedHashMap<>();
+    for (String term : terms) {
+      frequencies.merge(term, 1, Integer::sum);
+    }
+    for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+      postingsByTerm
+          .computeIfAbsent(entry.getKey(), term -> new PostingsList())
+          .add(number, entry.getValue());
+    }
+    if (number == lengths.length) {
+      lengths = Arrays.copyOf(lengths, lengths.length * 2);
+    }
+    lengths[number] = terms.size();
+    totalLength += terms.size();
+    documents.add(document);
+    documentTerms.add(frequencies.keySet().toArray(new String[0]));
+    documentsByKey.put(getKey(document), number);
+  }
+
+  private void delete(String key) {
+    Integer number = documentsByKey.remove(key);
+    if (number == null) {
+      return;
+    }
+    for (String term : documentTerms.get(number)) {
+      postingsByTerm.get(term).decrementDocumentFrequency();
+    }
+    totalLength -= lengths[number];
+    documents.set(number, null);
+    documentTerms.set(number, null);
+    deletedCount++;
+  }
+
+  /** Drops the deleted documents from the postings lists once they outnumber the live ones. */
+  private void compactIfSparse() {
+    if (deletedCount <= documents.size() - deletedCount) {
+      return;
+    }
+    int[] newNumbers = new int[documents.size()];
+    int liveCount = 0;
+    for (int number = 0; number < documents.size(); number++) {
+      if (documents.get(number) == null) {
+        newNumbers[number] = -1;
+        continue;
+      }
+      newNumbers[number] = liveCount;
+      documents.set(liveCount, documents.get(number));
+      documentTerms.set(liveCount, documentTerms.get(number));
+      lengths[liveCount] = lengths[number];
+      documentsByKey.put(getKey(documents.get(liveCount)), liveCount);
+      liveCount++;
+    }
+    documents.subList(liveCount, documents.size()).clear();
+    documentTerms.subList(liveCount, documentTerms.size()).clear();
+    postingsByTerm.values().removeIf(postings -> postings.getDocumentFrequency() == 0);
+    for (PostingsList postings : postingsByTerm.values()) {
+      postings.compact(newNumbers);
+    }
+    deletedCount = 0;
+  }
+}
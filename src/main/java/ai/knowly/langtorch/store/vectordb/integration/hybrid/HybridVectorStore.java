@@ -0,0 +1,340 @@
+package ai.knowly.langtorch.store.vectordb.integration.hybrid;
+
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.withIds;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.ReciprocalRankFusion;
+import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.hybrid.schema.HybridFusion;
+import ai.knowly.langtorch.store.vectordb.integration.hybrid.schema.HybridVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionReader;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionWriter;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import lombok.NonNull;
+
+/**
+ * A vector store that keeps a {@link Bm25Index} of its documents next to any other vector store,
+ * so that searches also find exact terms such as identifiers and error codes that embeddings tend
+ * to blur. Writes go to the vector store first and reach the index only if they succeed.
+ *
+ * <p>Queries with a {@link SimilaritySearchQuery#getQueryText() query text} are run against both:
+ * the lexical search is started on the {@link HybridVectorStoreSpec#getLexicalSearchExecutor()
+ * lexical search executor}, the vector search runs meanwhile, asynchronously if the vector store
+ * supports it and on the calling thread otherwise, and the two rankings are fused as configured by
+ * the {@link HybridVectorStoreSpec}. Queries without a text are plain vector searches.
+ *
+ * <p>The two rankings are fused by id, so documents written without one are given a random id
+ * before they reach the vector store and the index.
+ *
+ * <p>The index is kept in memory and starts empty. Over a vector store that persists its
+ * documents, such as pgvector, Pinecone or a segmented store, searches find nothing lexically after
+ * a restart until {@link #rebuildIndex()} is called.
+ */
+public class HybridVectorStore implements VectorStore {
+  private final VectorStore vectorStore;
+  private final HybridVectorStoreSpec hybridVectorStoreSpec;
+  // Replaced as a whole when the index is rebuilt.
+  private volatile Bm25Index bm25Index;
+
+  public HybridVectorStore(
+      @NonNull VectorStore vectorStore, @NonNull HybridVectorStoreSpec hybridVectorStoreSpec) {
+    if (hybridVectorStoreSpec.getLexicalWeight() < 0
+        || hybridVectorStoreSpec.getLexicalWeight() > 1) {
+      throw new IllegalArgumentException(
+          "lexicalWeight must be between 0 and 1, was " + hybridVectorStoreSpec.getLexicalWeight());
+    }
+    if (hybridVectorStoreSpec.getCandidateFactor() <= 0) {
+      throw new IllegalArgumentException(
+          "candidateFactor must be greater than 0, was "
+              + hybridVectorStoreSpec.getCandidateFactor());
+    }
+    if (hybridVectorStoreSpec.getRankConstant() < 0) {
+      throw new IllegalArgumentException(
+          "rankConstant must not be negative, was " + hybridVectorStoreSpec.getRankConstant());
+    }
+    this.vectorStore = vectorStore;
+    this.hybridVectorStoreSpec = hybridVectorStoreSpec;
+    this.bm25Index = new Bm25Index(hybridVectorStoreSpec.getK1(), hybridVectorStoreSpec.getB());
+  }
+
+  /** Adds the documents, assigning a random id to the ones that have none. */
+  @Override
+  public boolean addDocuments(List<DomainDocument> documents) {
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    return indexIfSuccessful(vectorStore.addDocuments(identifiedDocuments), identifiedDocuments);
+  }
+
+  @Override
+  public ListenableFuture<Boolean> addDocumentsAsync(List<DomainDocument> documents) {
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    return Futures.transform(
+        vectorStore.addDocumentsAsync(identifiedDocuments),
+        isSuccessful -> indexIfSuccessful(isSuccessful, identifiedDocuments),
+        MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public List<DomainDocument> similaritySearch(SimilaritySearchQuery similaritySearchQuery) {
+    try {
+      return similaritySearchAsync(similaritySearchQuery).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the searches", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("The search failed", e.getCause());
+    }
+  }
+
+  @Override
+  public ListenableFuture<List<DomainDocument>> similaritySearchAsync(
+      SimilaritySearchQuery similaritySearchQuery) {
+    Optional<String> queryText = similaritySearchQuery.getQueryText();
+    if (!queryText.isPresent()) {
+      return vectorStore.similaritySearchAsync(similaritySearchQuery);
+    }
+    int topK = Math.toIntExact(similaritySearchQuery.getTopK());
+    int candidateCount = topK * hybridVectorStoreSpec.getCandidateFactor();
+    ListenableFuture<List<DomainDocument>> lexicalResults =
+        Futures.submit(
+            () ->
+                bm25Index.search(
+                    queryText.get(),
+                    candidateCount,
+                    similaritySearchQuery.getAllMetadataConditions()),
+            hybridVectorStoreSpec.getLexicalSearchExecutor());
+    ListenableFuture<List<DomainDocument>> vectorResults =
+        vectorStore.similaritySearchAsync(
+            similaritySearchQuery.toBuilder().setTopK((long) candidateCount).build());
+    return Futures.whenAllSucceed(vectorResults, lexicalResults)
+        .call(
+            () -> fuse(Futures.getDone(vectorResults), Futures.getDone(lexicalResults), topK),
+            MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public boolean updateDocuments(List<DomainDocument> documents) {
+    return indexIfSuccessful(vectorStore.updateDocuments(documents), documents);
+  }
+
+  @Override
+  public ListenableFuture<Boolean> updateDocumentsAsync(List<DomainDocument> documents) {
+    return Futures.transform(
+        vectorStore.updateDocumentsAsync(documents),
+        isSuccessful -> indexIfSuccessful(isSuccessful, documents),
+        MoreExecutors.directExecutor());
+  }
+
+  /** Upserts the documents, assigning a random id to the ones that have none. */
+  @Override
+  public boolean upsertDocuments(List<DomainDocument> documents) {
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    return indexIfSuccessful(
+        vectorStore.upsertDocuments(identifiedDocuments), identifiedDocuments);
+  }
+
+  @Override
+  public ListenableFuture<Boolean> upsertDocumentsAsync(List<DomainDocument> documents) {
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    return Futures.transform(
+        vectorStore.upsertDocumentsAsync(identifiedDocuments),
+        isSuccessful -> indexIfSuccessful(isSuccessful, identifiedDocuments),
+        MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public boolean deleteDocuments(List<DomainDocument> documents) {
+    return unindexIfSuccessful(vectorStore.deleteDocuments(documents), getKeys(documents));
+  }
+
+  @Override
+  public ListenableFuture<Boolean> deleteDocumentsAsync(List<DomainDocument> documents) {
+    return Futures.transform(
+        vectorStore.deleteDocumentsAsync(documents),
+        isSuccessful -> unindexIfSuccessful(isSuccessful, getKeys(documents)),
+        MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public boolean deleteDocumentsByIds(List<String> documentsIds) {
+    return unindexIfSuccessful(vectorStore.deleteDocumentsByIds(documentsIds), documentsIds);
+  }
+
+  @Override
+  public ListenableFuture<Boolean> deleteDocumentsByIdsAsync(List<String> documentsIds) {
+    return Futures.transform(
+        vectorStore.deleteDocumentsByIdsAsync(documentsIds),
+        isSuccessful -> unindexIfSuccessful(isSuccessful, documentsIds),
+        MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public void exportDocuments(VectorCollectionWriter writer) throws IOException {
+    vectorStore.exportDocuments(writer);
+  }
+
+  /**
+   * Imports the chunk into the vector store and, if all of its documents were imported, adds them
+   * to the index.
+   */
+  @Override
+  public long importVectorRecords(List<VectorRecord> vectorRecords) {
+    List<VectorRecord> identifiedRecords = new ArrayList<>(vectorRecords.size());
+    for (VectorRecord vectorRecord : vectorRecords) {
+      identifiedRecords.add(
+          vectorRecord.getDocument().getId().isPresent()
+              ? vectorRecord
+              : vectorRecord.toBuilder().setDocument(withId(vectorRecord.getDocument())).build());
+    }
+    long count = vectorStore.importVectorRecords(identifiedRecords);
+    if (count == identifiedRecords.size()) {
+      bm25Index.addDocuments(
+          identifiedRecords.stream().map(VectorRecord::getDocument).collect(Collectors.toList()));
+    }
+    return count;
+  }
+
+  /**
+   * Replaces the index with an index of the documents the vector store exports. The export is
+   * spooled through a temporary file and indexed a chunk at a time. Writes made while the index is
+   * rebuilt may be missing from it, so this is meant to be called before the store takes writes.
+   *
+   * @return the number of documents indexed
+   * @throws UnsupportedOperationException if the vector store cannot export its documents
+   */
+  public long rebuildIndex() throws IOException {
+    Path file = Files.createTempFile("hybrid-index-", ".vectors");
+    try {
+      try (VectorCollectionWriter writer =
+          new VectorCollectionWriter(new BufferedOutputStream(Files.newOutputStream(file)))) {
+        vectorStore.exportDocuments(writer);
+      }
+      Bm25Index index = new Bm25Index(hybridVectorStoreSpec.getK1(), hybridVectorStoreSpec.getB());
+      long count = 0;
+      try (VectorCollectionReader reader =
+          new VectorCollectionReader(new BufferedInputStream(Files.newInputStream(file)))) {
+        List<VectorRecord> chunk;
+        while (!(chunk = reader.readChunk()).isEmpty()) {
+          index.addDocuments(
+              chunk.stream().map(VectorRecord::getDocument).collect(Collectors.toList()));
+          count += chunk.size();
+        }
+      }
+      bm25Index = index;
+      return count;
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /** Returns the number of documents in the lexical index. */
+  public int getIndexedDocumentCount() {
+    return bm25Index.size();
+  }
+
+  private static DomainDocument withId(DomainDocument document) {
+    return withIds(Collections.singletonList(document)).get(0);
+  }
+
+  private boolean indexIfSuccessful(boolean isSuccessful, List<DomainDocument> documents) {
+    if (isSuccessful) {
+      bm25Index.addDocuments(documents);
+    }
+    return isSuccessful;
+  }
+
+  private boolean unindexIfSuccessful(boolean isSuccessful, List<String> keys) {
+    if (isSuccessful) {
+      bm25Index.deleteDocuments(keys);
+    }
+    return isSuccessful;
+  }
+
+  private static List<String> getKeys(List<DomainDocument> documents) {
+    return documents.stream().map(Bm25Index::getKey).collect(Collectors.toList());
+  }
+
+  private List<DomainDocument> fuse(
+      List<DomainDocument> vectorResults, List<DomainDocument> lexicalResults, int topK) {
+    if (hybridVectorStoreSpec.getFusion() == HybridFusion.RECIPROCAL_RANK) {
+      return ReciprocalRankFusion.fuse(
+          ImmutableList.of(vectorResults, lexicalResults),
+          topK,
+          hybridVectorStoreSpec.getRankConstant());
+    }
+    double lexicalWeight = hybridVectorStoreSpec.getLexicalWeight();
+    Map<String, DomainDocument> documents = new LinkedHashMap<>();
+    Map<String, Double> scores = new LinkedHashMap<>();
+    addNormalizedScores(vectorResults, 1 - lexicalWeight, documents, scores);
+    addNormalizedScores(lexicalResults, lexicalWeight, documents, scores);
+    List<String> keys = new ArrayList<>(scores.keySet());
+    // The sort is stable, so ties keep the vector ranking first.
+    keys.sort((first, second) -> Double.compare(scores.get(second), scores.get(first)));
+    List<DomainDocument> fused = new ArrayList<>(Math.min(topK, keys.size()));
+    for (String key : keys.subList(0, Math.min(topK, keys.size()))) {
+      fused.add(
+          documents.get(key).toBuilder().setSimilarityScore(Optional.of(scores.get(key))).build());
+    }
+    return fused;
+  }
+
+  /**
+   * Adds the weighted scores of a ranking, min-max normalized so that its first document scores 1
+   * and its last 0. Rankings are ordered best first, so this works for distances as well as for
+   * similarities. Documents without a score are normalized by their rank instead.
+   */
+  private static void addNormalizedScores(
+      List<DomainDocument> ranking,
+      double weight,
+      Map<String, DomainDocument> documents,
+      Map<String, Double> scores) {
+    if (ranking.isEmpty()) {
+      return;
+    }
+    Optional<Double> best = getScore(ranking.get(0));
+    Optional<Double> worst = getScore(ranking.get(ranking.size() - 1));
+    boolean hasScoreRange =
+        best.isPresent() && worst.isPresent() && !best.get().equals(worst.get());
+    for (int rank = 0; rank < ranking.size(); rank++) {
+      DomainDocument document = ranking.get(rank);
+      Optional<Double> score = getScore(document);
+      double normalized;
+      if (ranking.size() == 1) {
+        normalized = 1;
+      } else if (hasScoreRange && score.isPresent()) {
+        normalized = (score.get() - worst.get()) / (best.get() - worst.get());
+      } else {
+        normalized = 1 - (double) rank / (ranking.size() - 1);
+      }
+      String key = Bm25Index.getKey(document);
+      documents.putIfAbsent(key, document);
+      scores.merge(key, weight * normalized, Double::sum);
+    }
+  }
+
+  private static Optional<Double> getScore(DomainDocument document) {
+    // Documents built without a score hold null rather than an empty optional.
+    Optional<Double> score = document.getSimilarityScore();
+    return score == null ? Optional.empty() : score;
+  }
+}
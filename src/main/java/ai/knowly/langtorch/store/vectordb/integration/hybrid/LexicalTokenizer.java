@@ -0,0 +1,38 @@
+package ai.knowly.langtorch.store.vectordb.integration.hybrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into lower-cased terms for the {@link Bm25Index}. Runs of letters and digits joined
+ * by {@code -}, {@code _}, {@code .}, {@code /} or {@code :} are kept whole, so that identifiers
+ * such as {@code SKU-1042} or {@code ERR_TIMEOUT} match exactly, and their parts are emitted as
+ * well, so that {@code 1042} alone still matches.
+ */
+public final class LexicalTokenizer {
+  private static final Pattern TOKEN_PATTERN =
+      Pattern.compile("[\\p{L}\\p{N}]+(?:[-_./:][\\p{L}\\p{N}]+)*");
+  private static final Pattern PART_PATTERN = Pattern.compile("[\\p{L}\\p{N}]+");
+
+  private LexicalTokenizer() {}
+
+  /** Returns the terms of the text in order, with repetitions. */
+  public static List<String> tokenize(String text) {
+    List<String> terms = new ArrayList<>();
+    Matcher matcher = TOKEN_PATTERN.matcher(text.toLowerCase(Locale.ROOT));
+    while (matcher.find()) {
+      String token = matcher.group();
+      terms.add(token);
+      Matcher partMatcher = PART_PATTERN.matcher(token);
+      while (partMatcher.find()) {
+        if (partMatcher.start() != 0 || partMatcher.end() != token.length()) {
+          terms.add(partMatcher.group());
+        }
+      }
+    }
+    return terms;
+  }
+}
@@ -0,0 +1,127 @@
+package ai.knowly.langtorch.store.vectordb.integration.hybrid;
+
+import java.util.Arrays;
+
+/**
+ * The documents a term occurs in and how often, in ascending document order. Every entry is
+ * encoded as the gap to the previous document followed by the term frequency, both as varints, so
+ * that a common term costs about two bytes per document instead of eight.
+ */
+final class PostingsList {
+  private static final int INITIAL_CAPACITY = 8;
+
+  private byte[] data = new byte[INITIAL_CAPACITY];
+  private int length;
+  private int lastDocument = -1;
+  // The number of documents the term occurs in that are not deleted, for the IDF.
+  private int documentFrequency;
+
+  /**
+   * Appends a document to the list.
+   *
+   * @throws IllegalArgumentException if the document is not after the last one of the list
+   */
+  void add(int document, int frequency) {
+    if (document <= lastDocument) {
+      throw new IllegalArgumentException(
+          "Documents must be added in ascending order, " + document + " after " + lastDocument);
+    }
+    ensureCapacity(10);
+    writeVarint(document - lastDocument);
+    writeVarint(frequency);
+    lastDocument = document;
+    documentFrequency++;
+  }
+
+  int getDocumentFrequency() {
+    return documentFrequency;
+  }
+
+  /** Records that one of the documents of the list was deleted, its entry is dropped later on. */
+  void decrementDocumentFrequency() {
+    documentFrequency--;
+  }
+
+  /** Returns the number of bytes the entries take. */
+  int getSizeInBytes() {
+    return length;
+  }
+
+  Reader reader() {
+    return new Reader();
+  }
+
+  /**
+   * Rewrites the list without the entries of deleted documents, renumbering the others.
+   *
+   * @param newDocuments the new number of every document, or -1 if it was deleted; documents must
+   *     keep their order
+   */
+  void compact(int[] newDocuments) {
+    PostingsList compacted = new PostingsList();
+    compacted.data = new byte[Math.max(INITIAL_CAPACITY, length)];
+    Reader reader = reader();
+    while (reader.next()) {
+      int document = newDocuments[reader.getDocument()];
+      if (document >= 0) {
+        compacted.add(document, reader.getFrequency());
+      }
+    }
+    data = Arrays.copyOf(compacted.data, Math.max(INITIAL_CAPACITY, compacted.length));
+    length = compacted.length;
+    lastDocument = compacted.lastDocument;
+    documentFrequency = compacted.documentFrequency;
+  }
+
+  private void ensureCapacity(int extraBytes) {
+    if (length + extraBytes > data.length) {
+      data = Arrays.copyOf(data, Math.max(data.length * 2, length + extraBytes));
+    }
+  }
+
+  private void writeVarint(int value) {
+    while ((value & ~0x7F) != 0) {
+      data[length++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    data[length++] = (byte) value;
+  }
+
+  /** Decodes the entries of the list in order. Entries added after it was created are not read. */
+  final class Reader {
+    private final int end = length;
+    private int position;
+    private int document = -1;
+    private int frequency;
+
+    /** Moves to the next entry, returns false at the end of the list. */
+    boolean next() {
+      if (position >= end) {
+        return false;
+      }
+      document += readVarint();
+      frequency = readVarint();
+      return true;
+    }
+
+    int getDocument() {
+      return document;
+    }
+
+    int getFrequency() {
+      return frequency;
+    }
+
+    private int readVarint() {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = data[position++];
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      return value;
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package ai.knowly.langtorch.store.vectordb.integration.hybrid.schema;
+
+/** How a hybrid search combines the lexical and the vector ranking into one. */
+public enum HybridFusion {
+  /** Reciprocal Rank Fusion, which only uses the ranks of the documents. */
+  RECIPROCAL_RANK,
+  /**
+   * A weighted sum of the scores of the documents, each ranking min-max normalized to [0, 1] with
+   * its first document as the best one, so that distances and similarities can be combined.
+   */
+  WEIGHTED_SCORE
+}
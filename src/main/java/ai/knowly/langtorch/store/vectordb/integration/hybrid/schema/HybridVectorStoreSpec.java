@@ -0,0 +1,46 @@
+package ai.knowly.langtorch.store.vectordb.integration.hybrid.schema;
+
+import ai.knowly.langtorch.store.vectordb.integration.ReciprocalRankFusion;
+import ai.knowly.langtorch.store.vectordb.integration.hybrid.Bm25Index;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+/** Represents the specification for a vector store that also searches its documents lexically. */
+@Data
+@Builder(toBuilder = true, setterPrefix = "set")
+public class HybridVectorStoreSpec {
+
+  /** How the lexical and the vector ranking are combined. */
+  @NonNull @Builder.Default private final HybridFusion fusion = HybridFusion.RECIPROCAL_RANK;
+
+  /** The rank constant of {@link HybridFusion#RECIPROCAL_RANK}. */
+  @Builder.Default private final int rankConstant = ReciprocalRankFusion.DEFAULT_RANK_CONSTANT;
+
+  /**
+   * The weight of the lexical scores for {@link HybridFusion#WEIGHTED_SCORE}, between 0 and 1; the
+   * vector scores get the rest.
+   */
+  @Builder.Default private final double lexicalWeight = 0.5;
+
+  /**
+   * How many more candidates than {@code topK} each of the two searches returns. Documents ranked
+   * just below {@code topK} by one search can make it into the fused results through the other.
+   */
+  @Builder.Default private final int candidateFactor = 2;
+
+  /** The term frequency saturation of BM25. */
+  @Builder.Default private final double k1 = Bm25Index.DEFAULT_K1;
+
+  /** The document length normalization of BM25, between 0 and 1. */
+  @Builder.Default private final double b = Bm25Index.DEFAULT_B;
+
+  /**
+   * The executor the lexical search runs on, so that it overlaps with the vector search even when
+   * the vector store searches on the calling thread.
+   */
+  @NonNull @Builder.Default
+  private final Executor lexicalSearchExecutor = ForkJoinPool.commonPool();
+}
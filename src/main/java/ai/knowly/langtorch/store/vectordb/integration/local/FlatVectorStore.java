@@ -0,0 +1,539 @@
+package ai.knowly.langtorch.store.vectordb.integration.local;
+
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.embed;
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.getDocuments;
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.getVectors;
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.withIds;
+
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.DocumentEmbedder;
+import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.local.schema.FlatVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategy;
+import ai.knowly.langtorch.store.vectordb.integration.quantization.QuantizedVectors;
+import ai.knowly.langtorch.store.vectordb.integration.quantization.VectorQuantization;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionWriter;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.inject.Inject;
+import lombok.NonNull;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * A vector store that keeps all vectors in memory and answers similarity searches with an exact
+ * scan. Vectors are packed one after the other into contiguous {@code float[]} blocks, so a scan
+ * reads memory sequentially, and the top k are selected with a primitive bounded heap. Deleting a
+ * document moves the last vector into its slot to keep the blocks dense.
+ *
+ * <p>With a {@link VectorQuantization}, the scan reads compressed vectors instead, 4 or 32 times
+ * fewer bytes, and the best {@code rescoreFactor * k} candidates are rescored with their
+ * full-precision vectors. Those can be moved to a file, so that only the compressed vectors are
+ * kept in memory.
+ *
+ * <p>Searches run concurrently with each other, writes are exclusive.
+ */
+public class FlatVectorStore implements VectorStore, Closeable {
+  // The size of the tiles of vectors a batch of queries is scored against, which fits into the L2
+  // cache of common CPUs.
+  private static final int TILE_BYTES = 128 * 1024;
+
+  private final DocumentEmbedder documentEmbedder;
+  private final DistanceStrategy distanceStrategy;
+  private final int dimensions;
+  private final int blockSize;
+  private final int rescoreFactor;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // The full-precision vectors, unless they are kept in the raw vector file.
+  private final List<float[]> blocks = new ArrayList<>();
+  // Null without quantization.
+  private final QuantizedVectors quantizedVectors;
+  // Null if the full-precision vectors are kept in the blocks.
+  private final RawVectorFile rawVectorFile;
+  // The document stored in each slot, with its id set.
+  private final List<DomainDocument> documents = new ArrayList<>();
+  private final Map<String, Integer> slotsById = new HashMap<>();
+  // The slots of the documents by metadata key and value, to filter before scoring.
+  private final MetadataBitmapIndex metadataIndex = new MetadataBitmapIndex();
+
+  @Inject
+  public FlatVectorStore(
+      @NonNull EmbeddingProcessor embeddingProcessor,
+      FlatVectorStoreSpec flatVectorStoreSpec,
+      @NonNull DistanceStrategy distanceStrategy) {
+    if (flatVectorStoreSpec.getVectorDimensions() <= 0) {
+      throw new IllegalArgumentException(
+          "vectorDimensions must be greater than 0, was "
+              + flatVectorStoreSpec.getVectorDimensions());
+    }
+    if (flatVectorStoreSpec.getBlockSize() <= 0) {
+      throw new IllegalArgumentException(
+          "blockSize must be greater than 0, was " + flatVectorStoreSpec.getBlockSize());
+    }
+    if (flatVectorStoreSpec.getRescoreFactor() <= 0) {
+      throw new IllegalArgumentException(
+          "rescoreFactor must be greater than 0, was " + flatVectorStoreSpec.getRescoreFactor());
+    }
+    boolean isQuantized = flatVectorStoreSpec.getQuantization() != VectorQuantization.NONE;
+    if (!isQuantized && flatVectorStoreSpec.getRawVectorPath().isPresent()) {
+      throw new IllegalArgumentException("rawVectorPath requires a quantization");
+    }
+    this.documentEmbedder =
+        new DocumentEmbedder(
+            embeddingProcessor,
+            flatVectorStoreSpec.getModel(),
+            flatVectorStoreSpec.getEmbeddingBatchSpec());
+    this.distanceStrategy = distanceStrategy;
+    this.dimensions = flatVectorStoreSpec.getVectorDimensions();
+    this.blockSize = flatVectorStoreSpec.getBlockSize();
+    this.rescoreFactor = flatVectorStoreSpec.getRescoreFactor();
+    this.quantizedVectors =
+        isQuantized
+            ? QuantizedVectors.create(
+                flatVectorStoreSpec.getQuantization(), dimensions, distanceStrategy)
+            : null;
+    try {
+      this.rawVectorFile =
+          flatVectorStoreSpec.getRawVectorPath().isPresent()
+              ? new RawVectorFile(flatVectorStoreSpec.getRawVectorPath().get(), dimensions)
+              : null;
+    } catch (IOException e) {
+      throw new VectorFileException(e);
+    }
+  }
+
+  /**
+   * Adds the documents to the store. Like a primary key, an id can only be added once.
+   *
+   * @return true if all documents were added, false if an id is already taken, in which case no
+   *     document is added
+   */
+  @Override
+  public boolean addDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    List<float[]> vectors = embed(documentEmbedder, identifiedDocuments, dimensions);
+    lock.writeLock().lock();
+    try {
+      Set<String> ids = new HashSet<>();
+      for (DomainDocument document : identifiedDocuments) {
+        String id = document.getId().get();
+        if (slotsById.containsKey(id) || !ids.add(id)) {
+          return false;
+        }
+      }
+      for (int i = 0; i < identifiedDocuments.size(); i++) {
+        append(identifiedDocuments.get(i), vectors.get(i));
+      }
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Performs an exact similarity search over all documents that satisfy the filter and metadata
+   * conditions of the query. The conditions are evaluated on the metadata bitmap index first, so
+   * only the documents that satisfy them are scored. With a quantization, the search is exact among
+   * the candidates ranked best by their compressed vectors.
+   *
+   * @throws IllegalArgumentException if the query does not have the dimensions of the store
+   */
+  @Override
+  public List<DomainDocument> similaritySearch(SimilaritySearchQuery similaritySearchQuery) {
+    return similaritySearchBatch(Collections.singletonList(similaritySearchQuery)).get(0);
+  }
+
+  /**
+   * Performs the similarity searches with a single scan: the stored vectors are read in tiles that
+   * fit into the CPU caches and every tile is scored against all queries before the next one is
+   * read, so each vector is loaded from memory once per batch instead of once per query.
+   *
+   * @throws IllegalArgumentException if a query does not have the dimensions of the store
+   */
+  @Override
+  public List<List<DomainDocument>> similaritySearchBatch(
+      List<SimilaritySearchQuery> similaritySearchQueries) {
+    int queryCount = similaritySearchQueries.size();
+    float[][] queries = new float[queryCount][];
+    List<List<MetadataCondition>> conditions = new ArrayList<>(queryCount);
+    for (int q = 0; q < queryCount; q++) {
+      queries[q] = similaritySearchQueries.get(q).getQueryVector();
+      if (queries[q].length != dimensions) {
+        throw new IllegalArgumentException(
+            "Query has " + queries[q].length + " dimensions, the store has " + dimensions);
+      }
+      conditions.add(similaritySearchQueries.get(q).getAllMetadataConditions());
+    }
+    lock.readLock().lock();
+    try {
+      int[] ks = new int[queryCount];
+      for (int q = 0; q < queryCount; q++) {
+        ks[q] = (int) Math.min(similaritySearchQueries.get(q).getTopK(), documents.size());
+      }
+      // The slots each query is restricted to, null for queries without conditions.
+      RoaringBitmap[] candidates = new RoaringBitmap[queryCount];
+      for (int q = 0; q < queryCount; q++) {
+        if (!conditions.get(q).isEmpty()) {
+          candidates[q] = metadataIndex.evaluate(conditions.get(q));
+        }
+      }
+      TopKHeap[] heaps =
+          quantizedVectors == null
+              ? scan(queries, ks, candidates)
+              : scanQuantized(queries, ks, candidates);
+      List<List<DomainDocument>> results = new ArrayList<>(queryCount);
+      for (TopKHeap heap : heaps) {
+        heap.sort();
+        List<DomainDocument> result = new ArrayList<>(heap.size());
+        for (int i = 0; i < heap.size(); i++) {
+          result.add(
+              documents.get(heap.getId(i)).toBuilder()
+                  .setSimilarityScore(Optional.of(heap.getScore(i)))
+                  .build());
+        }
+        results.add(result);
+      }
+      return results;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Replaces the stored documents with the same ids.
+   *
+   * @return true if all documents were updated, false if a document is not stored, in which case
+   *     no document is updated
+   */
+  @Override
+  public boolean updateDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    if (documents.stream().anyMatch(document -> document.getId().isEmpty())) {
+      return false;
+    }
+    List<float[]> vectors = embed(documentEmbedder, documents, dimensions);
+    lock.writeLock().lock();
+    try {
+      for (DomainDocument document : documents) {
+        if (!slotsById.containsKey(document.getId().get())) {
+          return false;
+        }
+      }
+      for (int i = 0; i < documents.size(); i++) {
+        set(slotsById.get(documents.get(i).getId().get()), documents.get(i), vectors.get(i));
+      }
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean upsertDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    put(identifiedDocuments, embed(documentEmbedder, identifiedDocuments, dimensions));
+    return true;
+  }
+
+  @Override
+  public boolean deleteDocuments(List<DomainDocument> documents) {
+    List<String> documentIds = new ArrayList<>();
+    for (DomainDocument document : documents) {
+      document.getId().ifPresent(documentIds::add);
+    }
+    return deleteDocumentsByIds(documentIds);
+  }
+
+  @Override
+  public boolean deleteDocumentsByIds(List<String> documentsIds) {
+    lock.writeLock().lock();
+    try {
+      for (String id : documentsIds) {
+        Integer slot = slotsById.remove(id);
+        if (slot != null) {
+          removeSlot(slot);
+        }
+      }
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Writes the documents with their full-precision vectors. Writes wait until the export is done,
+   * so the export is a consistent snapshot.
+   */
+  @Override
+  public void exportDocuments(VectorCollectionWriter writer) throws IOException {
+    lock.readLock().lock();
+    try {
+      for (int slot = 0; slot < documents.size(); slot++) {
+        float[] vector = new float[dimensions];
+        readVector(slot, vector);
+        writer.write(
+            VectorRecord.builder().setDocument(documents.get(slot)).setVector(vector).build());
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Upserts the documents of the chunk with their vectors, taking the write lock once.
+   *
+   * @throws IllegalArgumentException if the vectors do not have the dimensions of the store
+   */
+  @Override
+  public long importVectorRecords(List<VectorRecord> vectorRecords) {
+    put(getDocuments(vectorRecords), getVectors(vectorRecords, dimensions));
+    return vectorRecords.size();
+  }
+
+  /** Returns the number of documents in the store. */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Closes the raw vector file, if there is one. */
+  @Override
+  public void close() throws IOException {
+    if (rawVectorFile != null) {
+      rawVectorFile.close();
+    }
+  }
+
+  /**
+   * Scores every slot that matches a query with its full-precision vector. Queries without
+   * conditions are scored one tile of slots against all of them at a time, filtered queries only
+   * visit their candidate slots. Called under the read lock.
+   */
+  private TopKHeap[] scan(float[][] queries, int[] ks, RoaringBitmap[] candidates) {
+    int size = documents.size();
+    TopKHeap[] heaps = new TopKHeap[queries.length];
+    for (int q = 0; q < queries.length; q++) {
+      heaps[q] = new TopKHeap(ks[q], distanceStrategy.isSimilarity());
+    }
+    int tileSize = Math.max(1, Math.min(blockSize, TILE_BYTES / (Float.BYTES * dimensions)));
+    int scannedSize = hasUnfilteredQuery(candidates) ? size : 0;
+    double[] distances = new double[tileSize];
+    for (int blockIndex = 0; blockIndex * blockSize < scannedSize; blockIndex++) {
+      float[] block = blocks.get(blockIndex);
+      int firstSlot = blockIndex * blockSize;
+      int slotCount = Math.min(blockSize, size - firstSlot);
+      for (int tileStart = 0; tileStart < slotCount; tileStart += tileSize) {
+        int tileCount = Math.min(slotCount - tileStart, tileSize);
+        for (int q = 0; q < queries.length; q++) {
+          if (candidates[q] != null) {
+            continue;
+          }
+          distanceStrategy.calculateDistances(
+              queries[q], block, tileStart * dimensions, tileCount, distances);
+          for (int i = 0; i < tileCount; i++) {
+            heaps[q].offer(firstSlot + tileStart + i, distances[i]);
+          }
+        }
+      }
+    }
+    for (int q = 0; q < queries.length; q++) {
+      if (candidates[q] == null) {
+        continue;
+      }
+      PeekableIntIterator slots = candidates[q].getIntIterator();
+      while (slots.hasNext()) {
+        int slot = slots.next();
+        heaps[q].offer(
+            slot,
+            distanceStrategy.calculateDistance(
+                queries[q], blocks.get(slot / blockSize), (slot % blockSize) * dimensions));
+      }
+    }
+    return heaps;
+  }
+
+  /**
+   * Ranks every slot that matches a query by its compressed vector, scoring each slot against all
+   * queries while it is loaded, then rescores the best candidates of each query with their
+   * full-precision vectors. Called under the read lock.
+   */
+  private TopKHeap[] scanQuantized(float[][] queries, int[] ks, RoaringBitmap[] candidateSlots) {
+    int size = documents.size();
+    QuantizedVectors.Scorer[] scorers = new QuantizedVectors.Scorer[queries.length];
+    TopKHeap[] candidates = new TopKHeap[queries.length];
+    for (int q = 0; q < queries.length; q++) {
+      scorers[q] = quantizedVectors.newScorer(queries[q]);
+      candidates[q] = new TopKHeap((int) Math.min((long) ks[q] * rescoreFactor, size), false);
+    }
+    int scannedSize = hasUnfilteredQuery(candidateSlots) ? size : 0;
+    for (int slot = 0; slot < scannedSize; slot++) {
+      for (int q = 0; q < queries.length; q++) {
+        if (candidateSlots[q] == null) {
+          candidates[q].offer(slot, scorers[q].distance(slot));
+        }
+      }
+    }
+    for (int q = 0; q < queries.length; q++) {
+      if (candidateSlots[q] == null) {
+        continue;
+      }
+      PeekableIntIterator slots = candidateSlots[q].getIntIterator();
+      while (slots.hasNext()) {
+        int slot = slots.next();
+        candidates[q].offer(slot, scorers[q].distance(slot));
+      }
+    }
+    TopKHeap[] heaps = new TopKHeap[queries.length];
+    float[] vector = rawVectorFile == null ? null : new float[dimensions];
+    for (int q = 0; q < queries.length; q++) {
+      heaps[q] = new TopKHeap(ks[q], distanceStrategy.isSimilarity());
+      for (int i = 0; i < candidates[q].size(); i++) {
+        int slot = candidates[q].getId(i);
+        double distance;
+        if (rawVectorFile == null) {
+          distance =
+              distanceStrategy.calculateDistance(
+                  queries[q], blocks.get(slot / blockSize), (slot % blockSize) * dimensions);
+        } else {
+          readRawVector(slot, vector);
+          distance = distanceStrategy.calculateDistance(queries[q], vector, 0);
+        }
+        heaps[q].offer(slot, distance);
+      }
+    }
+    return heaps;
+  }
+
+  private static boolean hasUnfilteredQuery(RoaringBitmap[] candidates) {
+    for (RoaringBitmap queryCandidates : candidates) {
+      if (queryCandidates == null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Stores the documents, replacing the ones with the same ids. */
+  private void put(List<DomainDocument> identifiedDocuments, List<float[]> vectors) {
+    lock.writeLock().lock();
+    try {
+      for (int i = 0; i < identifiedDocuments.size(); i++) {
+        DomainDocument document = identifiedDocuments.get(i);
+        Integer slot = slotsById.get(document.getId().get());
+        if (slot == null) {
+          append(document, vectors.get(i));
+        } else {
+          set(slot, document, vectors.get(i));
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void append(DomainDocument document, float[] vector) {
+    int slot = documents.size();
+    if (rawVectorFile == null && slot == blocks.size() * blockSize) {
+      blocks.add(new float[blockSize * dimensions]);
+    }
+    documents.add(document);
+    slotsById.put(document.getId().get(), slot);
+    metadataIndex.add(slot, document);
+    writeVector(slot, vector);
+  }
+
+  private void set(int slot, DomainDocument document, float[] vector) {
+    metadataIndex.remove(slot, documents.get(slot));
+    metadataIndex.add(slot, document);
+    documents.set(slot, document);
+    writeVector(slot, vector);
+  }
+
+  /** Moves the document in the last slot into the removed one, so the slots stay dense. */
+  private void removeSlot(int slot) {
+    int lastSlot = documents.size() - 1;
+    metadataIndex.remove(slot, documents.get(slot));
+    if (slot != lastSlot) {
+      DomainDocument lastDocument = documents.get(lastSlot);
+      documents.set(slot, lastDocument);
+      metadataIndex.move(lastSlot, slot, lastDocument);
+      slotsById.put(lastDocument.getId().get(), slot);
+      if (quantizedVectors != null) {
+        quantizedVectors.move(lastSlot, slot);
+      }
+      if (rawVectorFile == null) {
+        System.arraycopy(
+            blocks.get(lastSlot / blockSize),
+            (lastSlot % blockSize) * dimensions,
+            blocks.get(slot / blockSize),
+            (slot % blockSize) * dimensions,
+            dimensions);
+      } else {
+        float[] vector = new float[dimensions];
+        readRawVector(lastSlot, vector);
+        writeRawVector(slot, vector);
+      }
+    }
+    documents.remove(lastSlot);
+    if (rawVectorFile == null && lastSlot == (blocks.size() - 1) * blockSize) {
+      blocks.remove(blocks.size() - 1);
+    }
+  }
+
+  private void writeVector(int slot, float[] vector) {
+    if (quantizedVectors != null) {
+      quantizedVectors.set(slot, vector);
+    }
+    if (rawVectorFile == null) {
+      System.arraycopy(
+          vector, 0, blocks.get(slot / blockSize), (slot % blockSize) * dimensions, dimensions);
+    } else {
+      writeRawVector(slot, vector);
+    }
+  }
+
+  /** Reads the full-precision vector of the slot. Called under the lock. */
+  private void readVector(int slot, float[] vector) {
+    if (rawVectorFile == null) {
+      System.arraycopy(
+          blocks.get(slot / blockSize), (slot % blockSize) * dimensions, vector, 0, dimensions);
+    } else {
+      readRawVector(slot, vector);
+    }
+  }
+
+  private void readRawVector(int slot, float[] vector) {
+    try {
+      rawVectorFile.read(slot, vector);
+    } catch (IOException e) {
+      throw new VectorFileException(e);
+    }
+  }
+
+  private void writeRawVector(int slot, float[] vector) {
+    try {
+      rawVectorFile.write(slot, vector);
+    } catch (IOException e) {
+      throw new VectorFileException(e);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package ai.knowly.langtorch.store.vectordb.integration.local;
+
+import ai.knowly.langtorch.schema.embeddings.Embedding;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.DocumentEmbedder;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+
+/** Helpers shared by the in-process vector stores. */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class LocalVectorStoreUtils {
+
+  /**
+   * Embeds the page content of the given documents.
+   *
+   * @return the embeddings as float vectors, in the same order as the documents
+   * @throws IllegalArgumentException if an embedding does not have the given dimensions
+   */
+  public static List<float[]> embed(
+      DocumentEmbedder documentEmbedder, List<DomainDocument> documents, int dimensions) {
+    List<Embedding> embeddings = documentEmbedder.embed(documents);
+    List<float[]> vectors = new ArrayList<>(embeddings.size());
+    for (Embedding embedding : embeddings) {
+      float[] vector = embedding.toFloatArray();
+      if (vector.length != dimensions) {
+        throw new IllegalArgumentException(
+            "Embedding has " + vector.length + " dimensions, the store has " + dimensions);
+      }
+      vectors.add(vector);
+    }
+    return vectors;
+  }
+
+  /** Returns the documents with a random id assigned to the ones that have none. */
+  public static List<DomainDocument> withIds(List<DomainDocument> documents) {
+    List<DomainDocument> identifiedDocuments = new ArrayList<>(documents.size());
+    for (DomainDocument document : documents) {
+      identifiedDocuments.add(
+          document.getId().isPresent()
+              ? document
+              : document.toBuilder().setId(UUID.randomUUID().toString()).build());
+    }
+    return identifiedDocuments;
+  }
+
+  /** Returns the documents of the records, with a random id assigned to the ones that have none. */
+  public static List<DomainDocument> getDocuments(List<VectorRecord> vectorRecords) {
+    List<DomainDocument> documents = new ArrayList<>(vectorRecords.size());
+    for (VectorRecord vectorRecord : vectorRecords) {
+      documents.add(vectorRecord.getDocument());
+    }
+    return withIds(documents);
+  }
+
+  /**
+   * Returns the vectors of the records, in the same order as the records.
+   *
+   * @throws IllegalArgumentException if a vector does not have the given dimensions
+   */
+  public static List<float[]> getVectors(List<VectorRecord> vectorRecords, int dimensions) {
+    List<float[]> vectors = new ArrayList<>(vectorRecords.size());
+    for (VectorRecord vectorRecord : vectorRecords) {
+      float[] vector = vectorRecord.getVector();
+      if (vector.length != dimensions) {
+        throw new IllegalArgumentException(
+            "Vector has " + vector.length + " dimensions, the store has " + dimensions);
+      }
+      vectors.add(vector);
+    }
+    return vectors;
+  }
+}
@@ -0,0 +1,118 @@
+package ai.knowly.langtorch.store.vectordb.integration.local;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.schema.io.Metadata;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * An inverted index from metadata keys and values to the slots of the documents that have them,
+ * one compressed {@link RoaringBitmap} per key and value. Metadata conditions are evaluated into
+ * the bitmap of the slots that satisfy all of them, so that a search only scores those instead of
+ * testing the metadata of every document it visits. A tenant id in the metadata costs about two
+ * bytes per document, however many tenants share the store.
+ *
+ * <p>Not thread-safe, the stores guard it with their own locks.
+ */
+public final class MetadataBitmapIndex {
+  private final Map<String, Map<String, RoaringBitmap>> bitmapsByKey = new HashMap<>();
+
+  /** Indexes the metadata of the document under the slot. */
+  public void add(int slot, DomainDocument document) {
+    add(slot, getMetadata(document));
+  }
+
+  /** Indexes the metadata values under the slot. */
+  public void add(int slot, Map<String, String> metadata) {
+    for (Map.Entry<String, String> entry : metadata.entrySet()) {
+      bitmapsByKey
+          .computeIfAbsent(entry.getKey(), key -> new HashMap<>())
+          .computeIfAbsent(entry.getValue(), value -> new RoaringBitmap())
+          .add(slot);
+    }
+  }
+
+  /** Removes the metadata of the document from the slot, it must be the one added there. */
+  public void remove(int slot, DomainDocument document) {
+    for (Map.Entry<String, String> entry : getMetadata(document).entrySet()) {
+      Map<String, RoaringBitmap> bitmapsByValue = bitmapsByKey.get(entry.getKey());
+      if (bitmapsByValue == null) {
+        continue;
+      }
+      RoaringBitmap bitmap = bitmapsByValue.get(entry.getValue());
+      if (bitmap == null) {
+        continue;
+      }
+      bitmap.remove(slot);
+      // Values are dropped once unused, so that short-lived values do not accumulate.
+      if (bitmap.isEmpty()) {
+        bitmapsByValue.remove(entry.getValue());
+        if (bitmapsByValue.isEmpty()) {
+          bitmapsByKey.remove(entry.getKey());
+        }
+      }
+    }
+  }
+
+  /** Moves the metadata of the document from one slot to another. */
+  public void move(int fromSlot, int toSlot, DomainDocument document) {
+    remove(fromSlot, document);
+    add(toSlot, document);
+  }
+
+  /**
+   * Returns the slots of the documents that satisfy all the conditions. Equality conditions look
+   * their values up, range conditions test every value of their key once rather than every
+   * document.
+   *
+   * @param conditions the conditions, which must not be empty
+   * @return a new bitmap the caller owns
+   */
+  public RoaringBitmap evaluate(List<MetadataCondition> conditions) {
+    if (conditions.isEmpty()) {
+      throw new IllegalArgumentException("There are no conditions to evaluate");
+    }
+    RoaringBitmap result = null;
+    for (MetadataCondition condition : conditions) {
+      RoaringBitmap slots = evaluate(condition);
+      if (result == null) {
+        result = slots;
+      } else {
+        result.and(slots);
+      }
+      if (result.isEmpty()) {
+        break;
+      }
+    }
+    return result;
+  }
+
+  private RoaringBitmap evaluate(MetadataCondition condition) {
+    RoaringBitmap slots = new RoaringBitmap();
+    Map<String, RoaringBitmap> bitmapsByValue =
+        bitmapsByKey.getOrDefault(condition.getKey(), Collections.emptyMap());
+    if (!condition.getOperator().isRange()) {
+      for (String value : condition.getValues()) {
+        RoaringBitmap bitmap = bitmapsByValue.get(value);
+        if (bitmap != null) {
+          slots.or(bitmap);
+        }
+      }
+      return slots;
+    }
+    for (Map.Entry<String, RoaringBitmap> entry : bitmapsByValue.entrySet()) {
+      if (condition.test(Collections.singletonMap(condition.getKey(), entry.getKey()))) {
+        slots.or(entry.getValue());
+      }
+    }
+    return slots;
+  }
+
+  private static Map<String, String> getMetadata(DomainDocument document) {
+    return document.getMetadata().map(Metadata::getValue).orElse(Collections.emptyMap());
+  }
+}
@@ -0,0 +1,66 @@
+package ai.knowly.langtorch.store.vectordb.integration.local;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Full-precision vectors stored at fixed offsets of a file, addressed by ordinal. Reads and writes
+ * are positional, so concurrent reads need no locking.
+ */
+public final class RawVectorFile implements Closeable {
+  private final FileChannel channel;
+  private final int dimensions;
+
+  /** Opens the file, discarding its previous content. */
+  public RawVectorFile(Path path, int dimensions) throws IOException {
+    this.channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    this.dimensions = dimensions;
+  }
+
+  public void write(int ordinal, float[] vector) throws IOException {
+    ByteBuffer buffer = newBuffer();
+    buffer.asFloatBuffer().put(vector);
+    long position = getPosition(ordinal);
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  public void read(int ordinal, float[] vector) throws IOException {
+    ByteBuffer buffer = newBuffer();
+    long position = getPosition(ordinal);
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new IOException("No vector is stored at ordinal " + ordinal);
+      }
+      position += read;
+    }
+    buffer.flip();
+    buffer.asFloatBuffer().get(vector);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private ByteBuffer newBuffer() {
+    return ByteBuffer.allocate(dimensions * Float.BYTES).order(ByteOrder.nativeOrder());
+  }
+
+  private long getPosition(int ordinal) {
+    return (long) ordinal * dimensions * Float.BYTES;
+  }
+}
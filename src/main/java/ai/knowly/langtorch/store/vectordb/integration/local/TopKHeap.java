@@ -0,0 +1,132 @@
+package ai.knowly.langtorch.store.vectordb.integration.local;
+
+/**
+ * A bounded heap that keeps the k best scored ids of a stream in primitive arrays, so that a scan
+ * over many candidates allocates nothing per candidate. The root of the heap is the worst entry
+ * kept, which lets an offer that cannot make it into the top k be rejected with one comparison.
+ * Equal scores are ordered by id to keep results deterministic.
+ */
+public final class TopKHeap {
+  private final int[] ids;
+  private final double[] scores;
+  private final boolean higherIsBetter;
+  private int size;
+
+  /**
+   * Creates an empty heap.
+   *
+   * @param capacity the number of entries to keep
+   * @param higherIsBetter whether a larger score is a better one, as for similarities
+   */
+  public TopKHeap(int capacity, boolean higherIsBetter) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity must not be negative, was " + capacity);
+    }
+    this.ids = new int[capacity];
+    this.scores = new double[capacity];
+    this.higherIsBetter = higherIsBetter;
+  }
+
+  /**
+   * Offers an entry to the heap. NaN scores are never kept.
+   *
+   * @return true if the entry is kept, otherwise false
+   */
+  public boolean offer(int id, double score) {
+    if (Double.isNaN(score) || ids.length == 0) {
+      return false;
+    }
+    if (size < ids.length) {
+      ids[size] = id;
+      scores[size] = score;
+      siftUp(size++);
+      return true;
+    }
+    if (!isWorse(ids[0], scores[0], id, score)) {
+      return false;
+    }
+    ids[0] = id;
+    scores[0] = score;
+    siftDown(0, size);
+    return true;
+  }
+
+  /** Returns whether a score can still be kept, i.e. the heap is not full or it beats the root. */
+  public boolean isCandidate(double score) {
+    return size < ids.length || (size > 0 && isBetter(score, scores[0]));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Sorts the kept entries best first, after which they can be read with {@link #getId(int)} and
+   * {@link #getScore(int)}. No entry can be offered afterwards.
+   */
+  public void sort() {
+    for (int end = size - 1; end > 0; end--) {
+      swap(0, end);
+      siftDown(0, end);
+    }
+  }
+
+  public int getId(int index) {
+    return ids[index];
+  }
+
+  public double getScore(int index) {
+    return scores[index];
+  }
+
+  private boolean isBetter(double score, double other) {
+    return higherIsBetter ? score > other : score < other;
+  }
+
+  /** Returns whether the first entry ranks below the second one. */
+  private boolean isWorse(int id, double score, int otherId, double otherScore) {
+    if (score == otherScore) {
+      return id > otherId;
+    }
+    return isBetter(otherScore, score);
+  }
+
+  private void siftUp(int index) {
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (!isWorse(ids[index], scores[index], ids[parent], scores[parent])) {
+        return;
+      }
+      swap(index, parent);
+      index = parent;
+    }
+  }
+
+  private void siftDown(int index, int end) {
+    while (true) {
+      int worst = index;
+      int left = 2 * index + 1;
+      int right = left + 1;
+      if (left < end && isWorse(ids[left], scores[left], ids[worst], scores[worst])) {
+        worst = left;
+      }
+      if (right < end && isWorse(ids[right], scores[right], ids[worst], scores[worst])) {
+        worst = right;
+      }
+      if (worst == index) {
+        return;
+      }
+      swap(index, worst);
+      index = worst;
+    }
+  }
+
+  private void swap(int i, int j) {
+    int id = ids[i];
+    ids[i] = ids[j];
+    ids[j] = id;
+    double score = scores[i];
+    scores[i] = scores[j];
+    scores[j] = score;
+  }
+}
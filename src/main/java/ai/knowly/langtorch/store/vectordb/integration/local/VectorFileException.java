@@ -0,0 +1,10 @@
+package ai.knowly.langtorch.store.vectordb.integration.local;
+
+import java.io.IOException;
+
+/** Thrown when a file backing an in-process vector store cannot be read or written. */
+public class VectorFileException extends RuntimeException {
+  public VectorFileException(IOException e) {
+    super(e);
+  }
+}
@@ -0,0 +1,82 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.hnsw;
+
+import java.util.Arrays;
+
+/**
+ * A growable binary min-heap of node ids keyed by distance, on primitive arrays. A max-heap is
+ * obtained by pushing negated distances.
+ */
+final class DistanceQueue {
+  private int[] ids;
+  private double[] keys;
+  private int size;
+
+  DistanceQueue(int initialCapacity) {
+    ids = new int[Math.max(initialCapacity, 1)];
+    keys = new double[ids.length];
+  }
+
+  void push(int id, double key) {
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, size * 2);
+      keys = Arrays.copyOf(keys, size * 2);
+    }
+    int index = size++;
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (keys[parent] <= key) {
+        break;
+      }
+      ids[index] = ids[parent];
+      keys[index] = keys[parent];
+      index = parent;
+    }
+    ids[index] = id;
+    keys[index] = key;
+  }
+
+  /** Removes the entry with the smallest key and returns its id. */
+  int pop() {
+    int id = ids[0];
+    size--;
+    if (size > 0) {
+      int lastId = ids[size];
+      double lastKey = keys[size];
+      int index = 0;
+      while (true) {
+        int child = 2 * index + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && keys[child + 1] < keys[child]) {
+          child++;
+        }
+        if (lastKey <= keys[child]) {
+          break;
+        }
+        ids[index] = ids[child];
+        keys[index] = keys[child];
+        index = child;
+      }
+      ids[index] = lastId;
+      keys[index] = lastKey;
+    }
+    return id;
+  }
+
+  int peekId() {
+    return ids[0];
+  }
+
+  double peekKey() {
+    return keys[0];
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+}
@@ -0,0 +1,509 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.hnsw;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.local.MetadataBitmapIndex;
+import ai.knowly.langtorch.store.vectordb.integration.local.TopKHeap;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategy;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * A hierarchical navigable small world graph (Malkov and Yashunin, 2016) over the documents of a
+ * {@link HnswVectorStore}.
+ *
+ * <p>Nodes are never removed. Replacing or deleting a document marks its node as a tombstone, which
+ * keeps the graph navigable but excludes the node from results; a compaction rebuilds the graph
+ * without them.
+ *
+ * <p>The metadata of the live nodes is indexed by node id in a {@link MetadataBitmapIndex}, so
+ * that metadata conditions are evaluated into the candidate nodes before a search.
+ *
+ * <p>Searches take no locks, apart from a short one to evaluate metadata conditions. Nodes are
+ * published through atomic arrays before they are linked, and neighbour lists are immutable arrays
+ * that writers replace as a whole while holding the lock of the node they belong to, so a reader
+ * always sees a consistent list. Inserts run concurrently.
+ */
+final class HnswGraph {
+  private static final int SEGMENT_BITS = 16;
+  private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+  private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+  private static final int[] NO_NEIGHBORS = new int[0];
+
+  private final DistanceStrategy distanceStrategy;
+  private final int m;
+  private final int efConstruction;
+  private final double levelMultiplier;
+  // Nodes by id, in lazily allocated segments so the graph can grow without copying.
+  private final AtomicReferenceArray<AtomicReferenceArray<Node>> segments =
+      new AtomicReferenceArray<>(1 << (Integer.SIZE - 1 - SEGMENT_BITS));
+  private final AtomicInteger nextId = new AtomicInteger();
+  // The live node of every document.
+  private final Map<String, Integer> nodeIdsByDocumentId = new ConcurrentHashMap<>();
+  // The metadata of the live nodes. Guarded by itself, and changed together with the live node of
+  // a document so that a replaced node cannot be indexed after its replacement.
+  private final MetadataBitmapIndex metadataIndex = new MetadataBitmapIndex();
+  private final Object entryPointLock = new Object();
+  private volatile Node entryPoint;
+
+  HnswGraph(DistanceStrategy distanceStrategy, int m, int efConstruction) {
+    this.distanceStrategy = distanceStrategy;
+    this.m = m;
+    this.efConstruction = efConstruction;
+    this.levelMultiplier = 1 / Math.log(m);
+  }
+
+  /** Returns the number of live documents. */
+  int size() {
+    return nodeIdsByDocumentId.size();
+  }
+
+  /** Returns the number of nodes, including tombstones. */
+  int getNodeCount() {
+    return nextId.get();
+  }
+
+  boolean contains(String documentId) {
+    return nodeIdsByDocumentId.containsKey(documentId);
+  }
+
+  /** Inserts the document, replacing the node of a document with the same id. */
+  void put(DomainDocument document, float[] vector) {
+    Node node = insert(document, vector);
+    synchronized (metadataIndex) {
+      Integer previousId = nodeIdsByDocumentId.put(document.getId().get(), node.id);
+      metadataIndex.add(node.id, document);
+      if (previousId != null) {
+        Node previous = getNode(previousId);
+        previous.deleted = true;
+        metadataIndex.remove(previous.id, previous.document);
+      }
+    }
+  }
+
+  /**
+   * Inserts the document unless a document with the same id is stored.
+   *
+   * @return true if the document was inserted, otherwise false
+   */
+  boolean putIfAbsent(DomainDocument document, float[] vector) {
+    if (contains(document.getId().get())) {
+      return false;
+    }
+    Node node = insert(document, vector);
+    synchronized (metadataIndex) {
+      // A concurrent insert of the same id can win after the check, its node is kept.
+      if (nodeIdsByDocumentId.putIfAbsent(document.getId().get(), node.id) != null) {
+        node.deleted = true;
+        return false;
+      }
+      metadataIndex.add(node.id, document);
+    }
+    return true;
+  }
+
+  /**
+   * Marks the node of the document as a tombstone.
+   *
+   * @return true if the document was stored, otherwise false
+   */
+  boolean remove(String documentId) {
+    synchronized (metadataIndex) {
+      Integer nodeId = nodeIdsByDocumentId.remove(documentId);
+      if (nodeId == null) {
+        return false;
+      }
+      Node node = getNode(nodeId);
+      node.deleted = true;
+      metadataIndex.remove(node.id, node.document);
+    }
+    return true;
+  }
+
+  /** Returns the vector of the live node of the document. */
+  Optional<float[]> getVector(String documentId) {
+    Integer nodeId = nodeIdsByDocumentId.get(documentId);
+    return nodeId == null ? Optional.empty() : Optional.of(getNode(nodeId).vector);
+  }
+
+  /** Returns the document of the live node of the document id. */
+  Optional<DomainDocument> getDocument(String documentId) {
+    Integer nodeId = nodeIdsByDocumentId.get(documentId);
+    return nodeId == null ? Optional.empty() : Optional.of(getNode(nodeId).document);
+  }
+
+  /** Passes the document and the vector of every live node to the consumer. */
+  void forEachLive(BiConsumer<DomainDocument, float[]> consumer) {
+    for (Integer nodeId : nodeIdsByDocumentId.values()) {
+      Node node = getNode(nodeId);
+      consumer.accept(node.document, node.vector);
+    }
+  }
+
+  /**
+   * Returns the ids of the nodes whose documents satisfy all the conditions. A node that is
+   * replaced or deleted after the evaluation stays in the result, searches skip it.
+   *
+   * @param conditions the conditions, which must not be empty
+   */
+  RoaringBitmap evaluate(List<MetadataCondition> conditions) {
+    synchronized (metadataIndex) {
+      return metadataIndex.evaluate(conditions);
+    }
+  }
+
+  /**
+   * Returns the k live documents closest to the query whose node ids are accepted by the filter,
+   * closest first, with their similarity scores set.
+   *
+   * @param ef the size of the candidate list, at least k
+   */
+  List<DomainDocument> search(float[] query, int k, int ef, IntPredicate filter) {
+    Node entry = entryPoint;
+    if (entry == null || k <= 0) {
+      return new ArrayList<>();
+    }
+    Node nearest = descend(query, entry, 1);
+    DistanceQueue results =
+        searchLayer(
+            query, nearest, Math.max(ef, k), 0, node -> !node.deleted && filter.test(node.id));
+    TopKHeap top = new TopKHeap(k, false);
+    while (!results.isEmpty()) {
+      double distance = -results.peekKey();
+      top.offer(results.pop(), distance);
+    }
+    return toDocuments(top);
+  }
+
+  /**
+   * Returns the k live documents closest to the query among the candidate nodes, closest first,
+   * with their similarity scores set. The search is exact: every candidate is scored and the graph
+   * is not traversed, which is faster than a traversal when there are few candidates.
+   *
+   * @param candidates the node ids, as returned by {@link #evaluate(List)}
+   */
+  List<DomainDocument> searchCandidates(float[] query, int k, RoaringBitmap candidates) {
+    if (k <= 0) {
+      return new ArrayList<>();
+    }
+    TopKHeap top = new TopKHeap(k, false);
+    PeekableIntIterator nodeIds = candidates.getIntIterator();
+    while (nodeIds.hasNext()) {
+      Node node = getNode(nodeIds.next());
+      if (!node.deleted) {
+        top.offer(node.id, distance(query, node.vector));
+      }
+    }
+    return toDocuments(top);
+  }
+
+  private List<DomainDocument> toDocuments(TopKHeap top) {
+    top.sort();
+    List<DomainDocument> documents = new ArrayList<>(top.size());
+    // A document being replaced can briefly have two live nodes.
+    Set<String> documentIds = new HashSet<>();
+    for (int i = 0; i < top.size(); i++) {
+      DomainDocument document = getNode(top.getId(i)).document;
+      if (documentIds.add(document.getId().get())) {
+        double score = distanceStrategy.isSimilarity() ? -top.getScore(i) : top.getScore(i);
+        documents.add(document.toBuilder().setSimilarityScore(Optional.of(score)).build());
+      }
+    }
+    return documents;
+  }
+
+  private Node insert(DomainDocument document, float[] vector) {
+    Node node = new Node(nextId.getAndIncrement(), document, vector, randomLevel());
+    setNode(node);
+    Node entry = entryPoint;
+    if (entry == null) {
+      synchronized (entryPointLock) {
+        if (entryPoint == null) {
+          entryPoint = node;
+          return node;
+        }
+        entry = entryPoint;
+      }
+    }
+    int level = node.getLevel();
+    Node nearest = descend(vector, entry, level + 1);
+    for (int layer = Math.min(level, entry.getLevel()); layer >= 0; layer--) {
+      // Concurrent inserts can already have linked the node, it must not become its own neighbour.
+      DistanceQueue candidates =
+          searchLayer(vector, nearest, efConstruction, layer, candidate -> candidate != node);
+      int count = candidates.size();
+      int[] candidateIds = new int[count];
+      double[] candidateDistances = new double[count];
+      // The queue pops the farthest candidate first.
+      for (int i = count - 1; i >= 0; i--) {
+        candidateDistances[i] = -candidates.peekKey();
+        candidateIds[i] = candidates.pop();
+      }
+      if (count == 0) {
+        continue;
+      }
+      nearest = getNode(candidateIds[0]);
+      int[] neighbors =
+          selectNeighbors(candidateIds, candidateDistances, count, getMaxConnections(layer));
+      addNeighbors(node, neighbors, layer);
+      for (int neighborId : neighbors) {
+        addNeighbors(getNode(neighborId), new int[] {node.id}, layer);
+      }
+    }
+    if (level > entry.getLevel()) {
+      synchronized (entryPointLock) {
+        if (level > entryPoint.getLevel()) {
+          entryPoint = node;
+        }
+      }
+    }
+    return node;
+  }
+
+  /** Greedily walks the layers above {@code lowestLayer} towards the target. */
+  private Node descend(float[] target, Node entry, int lowestLayer) {
+    Node current = entry;
+    double currentDistance = distance(target, current.vector);
+    for (int layer = entry.getLevel(); layer >= lowestLayer; layer--) {
+      boolean changed = true;
+      while (changed) {
+        changed = false;
+        for (int neighborId : current.neighbors.get(layer)) {
+          Node neighbor = getNode(neighborId);
+          double neighborDistance = distance(target, neighbor.vector);
+          if (neighborDistance < currentDistance) {
+            current = neighbor;
+            currentDistance = neighborDistance;
+            changed = true;
+          }
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Searches a layer for the ef nodes closest to the target that are accepted, starting from the
+   * entry node. Rejected nodes are still traversed.
+   *
+   * @param accept the nodes that can be returned
+   * @return a queue keyed by negated distance, so that the farthest result is popped first
+   */
+  private DistanceQueue searchLayer(
+      float[] target, Node entry, int ef, int layer, Predicate<Node> accept) {
+    VisitedSet visited = VisitedSet.acquire(nextId.get());
+    DistanceQueue candidates = new DistanceQueue(ef);
+    DistanceQueue results = new DistanceQueue(ef + 1);
+    double entryDistance = distance(target, entry.vector);
+    visited.add(entry.id);
+    candidates.push(entry.id, entryDistance);
+    if (accept.test(entry)) {
+      results.push(entry.id, -entryDistance);
+    }
+    while (!candidates.isEmpty()) {
+      if (results.size() >= ef && candidates.peekKey() > -results.peekKey()) {
+        break;
+      }
+      Node candidate = getNode(candidates.pop());
+      for (int neighborId : candidate.neighbors.get(layer)) {
+        if (!visited.add(neighborId)) {
+          continue;
+        }
+        Node neighbor = getNode(neighborId);
+        double neighborDistance = distance(target, neighbor.vector);
+        if (results.size() < ef || neighborDistance < -results.peekKey()) {
+          candidates.push(neighborId, neighborDistance);
+          if (accept.test(neighbor)) {
+            results.push(neighborId, -neighborDistance);
+            if (results.size() > ef) {
+              results.pop();
+            }
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Selects up to max neighbours with the heuristic of the paper: a candidate is only linked if it
+   * is closer to the base than to every neighbour selected so far, which keeps links spread out in
+   * different directions.
+   *
+   * @param ids the candidates, closest to the base first
+   * @param distances the distances of the candidates to the base
+   */
+  private int[] selectNeighbors(int[] ids, double[] distances, int count, int max) {
+    int[] selected = new int[Math.min(count, max)];
+    int selectedCount = 0;
+    for (int i = 0; i < count && selectedCount < selected.length; i++) {
+      float[] candidate = getNode(ids[i]).vector;
+      boolean isDiverse = true;
+      for (int j = 0; j < selectedCount && isDiverse; j++) {
+        isDiverse = distance(candidate, getNode(selected[j]).vector) >= distances[i];
+      }
+      if (isDiverse) {
+        selected[selectedCount++] = ids[i];
+      }
+    }
+    return Arrays.copyOf(selected, selectedCount);
+  }
+
+  /** Links the node to the given nodes on a layer, pruning its list if it grows too long. */
+  private void addNeighbors(Node node, int[] neighborIds, int layer) {
+    synchronized (node) {
+      int[] current = node.neighbors.get(layer);
+      int[] merged = Arrays.copyOf(current, current.length + neighborIds.length);
+      int mergedCount = current.length;
+      for (int neighborId : neighborIds) {
+        // Concurrent inserts can link a node before its own search reaches it.
+        if (neighborId != node.id && !contains(merged, mergedCount, neighborId)) {
+          merged[mergedCount++] = neighborId;
+        }
+      }
+      if (mergedCount == current.length) {
+        return;
+      }
+      merged = Arrays.copyOf(merged, mergedCount);
+      int max = getMaxConnections(layer);
+      if (merged.length <= max) {
+        node.neighbors.set(layer, merged);
+        return;
+      }
+      double[] distances = new double[merged.length];
+      for (int i = 0; i < merged.length; i++) {
+        distances[i] = distance(node.vector, getNode(merged[i]).vector);
+      }
+      sortByDistance(merged, distances);
+      node.neighbors.set(layer, selectNeighbors(merged, distances, merged.length, max));
+    }
+  }
+
+  private int getMaxConnections(int layer) {
+    return layer == 0 ? 2 * m : m;
+  }
+
+  private int randomLevel() {
+    return (int) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * levelMultiplier);
+  }
+
+  /** Returns a distance where smaller means closer, whatever the scale of the strategy. */
+  private double distance(float[] a, float[] b) {
+    double distance = distanceStrategy.calculateDistance(a, b, 0);
+    return distanceStrategy.isSimilarity() ? -distance : distance;
+  }
+
+  private Node getNode(int id) {
+    return segments.get(id >>> SEGMENT_BITS).get(id & SEGMENT_MASK);
+  }
+
+  private void setNode(Node node) {
+    int segmentIndex = node.id >>> SEGMENT_BITS;
+    AtomicReferenceArray<Node> segment = segments.get(segmentIndex);
+    if (segment == null) {
+      segments.compareAndSet(segmentIndex, null, new AtomicReferenceArray<>(SEGMENT_SIZE));
+      segment = segments.get(segmentIndex);
+    }
+    segment.set(node.id & SEGMENT_MASK, node);
+  }
+
+  private static boolean contains(int[] ids, int count, int id) {
+    for (int i = 0; i < count; i++) {
+      if (ids[i] == id) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Insertion sort, neighbour lists are short. */
+  private static void sortByDistance(int[] ids, double[] distances) {
+    for (int i = 1; i < ids.length; i++) {
+      int id = ids[i];
+      double distance = distances[i];
+      int j = i - 1;
+      while (j >= 0 && distances[j] > distance) {
+        ids[j + 1] = ids[j];
+        distances[j + 1] = distances[j];
+        j--;
+      }
+      ids[j + 1] = id;
+      distances[j + 1] = distance;
+    }
+  }
+
+  private static final class Node {
+    private final int id;
+    private final DomainDocument document;
+    private final float[] vector;
+    // One immutable list per layer, replaced as a whole under the lock of the node.
+    private final AtomicReferenceArray<int[]> neighbors;
+    private volatile boolean deleted;
+
+    private Node(int id, DomainDocument document, float[] vector, int level) {
+      this.id = id;
+      this.document = document;
+      this.vector = vector;
+      this.neighbors = new AtomicReferenceArray<>(level + 1);
+      for (int layer = 0; layer <= level; layer++) {
+        neighbors.set(layer, NO_NEIGHBORS);
+      }
+    }
+
+    private int getLevel() {
+      return neighbors.length() - 1;
+    }
+  }
+
+  /**
+   * The nodes visited by a search, reused by every search of a thread. Bumping the mark clears the
+   * set without touching the array.
+   */
+  private static final class VisitedSet {
+    private static final ThreadLocal<VisitedSet> INSTANCES =
+        ThreadLocal.withInitial(VisitedSet::new);
+
+    private int[] marks = new int[0];
+    private int mark;
+
+    private static VisitedSet acquire(int capacity) {
+      VisitedSet visited = INSTANCES.get();
+      visited.ensureCapacity(capacity);
+      if (++visited.mark == 0) {
+        Arrays.fill(visited.marks, 0);
+        visited.mark = 1;
+      }
+      return visited;
+    }
+
+    /** Returns true if the id was not visited yet. */
+    private boolean add(int id) {
+      ensureCapacity(id + 1);
+      if (marks[id] == mark) {
+        return false;
+      }
+      marks[id] = mark;
+      return true;
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (marks.length < capacity) {
+        marks = Arrays.copyOf(marks, Math.max(capacity, marks.length * 2));
+      }
+    }
+  }
+}
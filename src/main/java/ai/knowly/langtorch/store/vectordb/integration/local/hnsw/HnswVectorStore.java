@@ -0,0 +1,351 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.hnsw;
+
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.embed;
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.getDocuments;
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.getVectors;
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.withIds;
+
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.DocumentEmbedder;
+import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.local.schema.HnswVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategy;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionWriter;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import javax.inject.Inject;
+import lombok.NonNull;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * A vector store backed by an in-memory HNSW graph, for approximate nearest neighbour searches over
+ * collections that are too large to scan.
+ *
+ * <p>Searches take no locks and run concurrently with each other and with writes, and writes run
+ * concurrently with each other. Replaced and deleted documents stay in the graph as tombstones
+ * until their share exceeds {@link HnswVectorStoreSpec#getCompactionThreshold()}, at which point
+ * the graph is rebuilt in the background and swapped in. Writes made while rebuilding are replayed
+ * onto the new graph before the swap. Closing the store stops the background compaction.
+ */
+public class HnswVectorStore implements VectorStore, Closeable {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final DocumentEmbedder documentEmbedder;
+  private final DistanceStrategy distanceStrategy;
+  private final HnswVectorStoreSpec hnswVectorStoreSpec;
+  private final ExecutorService compactionExecutor;
+  // Writers share the read lock, the compaction takes the write lock to swap the graph.
+  private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+  private final AtomicBoolean isCompactionScheduled = new AtomicBoolean();
+  private volatile HnswGraph graph;
+  // The ids written while a compaction is rebuilding the graph, null otherwise.
+  private volatile Set<String> idsWrittenDuringCompaction;
+
+  @Inject
+  public HnswVectorStore(
+      @NonNull EmbeddingProcessor embeddingProcessor,
+      HnswVectorStoreSpec hnswVectorStoreSpec,
+      @NonNull DistanceStrategy distanceStrategy) {
+    if (hnswVectorStoreSpec.getVectorDimensions() <= 0) {
+      throw new IllegalArgumentException(
+          "vectorDimensions must be greater than 0, was "
+              + hnswVectorStoreSpec.getVectorDimensions());
+    }
+    if (hnswVectorStoreSpec.getM() < 2) {
+      throw new IllegalArgumentException("m must be at least 2, was " + hnswVectorStoreSpec.getM());
+    }
+    this.documentEmbedder =
+        new DocumentEmbedder(
+            embeddingProcessor,
+            hnswVectorStoreSpec.getModel(),
+            hnswVectorStoreSpec.getEmbeddingBatchSpec());
+    this.distanceStrategy = distanceStrategy;
+    this.hnswVectorStoreSpec = hnswVectorStoreSpec;
+    this.compactionExecutor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("hnsw-compaction-%d")
+                .setDaemon(true)
+                .build());
+    this.graph = newGraph();
+  }
+
+  /**
+   * Adds the documents to the store. Like a primary key, an id can only be added once.
+   *
+   * @return true if all documents were added, false if an id is already taken, in which case the
+   *     documents with free ids are still added
+   */
+  @Override
+  public boolean addDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    List<float[]> vectors =
+        embed(documentEmbedder, identifiedDocuments, hnswVectorStoreSpec.getVectorDimensions());
+    boolean[] isSuccessful = {true};
+    write(
+        identifiedDocuments,
+        currentGraph -> {
+          for (int i = 0; i < identifiedDocuments.size(); i++) {
+            isSuccessful[0] &= currentGraph.putIfAbsent(identifiedDocuments.get(i), vectors.get(i));
+          }
+        });
+    return isSuccessful[0];
+  }
+
+  /**
+   * Performs an approximate similarity search. The size of the candidate list is taken from the
+   * {@code efSearch} of the query if it is set, otherwise from the spec, and is never smaller than
+   * k.
+   *
+   * <p>The filter and metadata conditions of the query are evaluated into the matching nodes
+   * first. If there are at most {@link HnswVectorStoreSpec#getBruteForceCandidateLimit()} of them,
+   * they are all scored and the search is exact. Otherwise the graph is traversed as usual and
+   * nodes that do not match are traversed but not returned.
+   *
+   * @throws IllegalArgumentException if the query does not have the dimensions of the store
+   */
+  @Override
+  public List<DomainDocument> similaritySearch(SimilaritySearchQuery similaritySearchQuery) {
+    float[] query = similaritySearchQuery.getQueryVector();
+    if (query.length != hnswVectorStoreSpec.getVectorDimensions()) {
+      throw new IllegalArgumentException(
+          "Query has "
+              + query.length
+              + " dimensions, the store has "
+              + hnswVectorStoreSpec.getVectorDimensions());
+    }
+    List<MetadataCondition> conditions = similaritySearchQuery.getAllMetadataConditions();
+    HnswGraph currentGraph = graph;
+    int k = (int) Math.min(similaritySearchQuery.getTopK(), currentGraph.size());
+    int ef = similaritySearchQuery.getEfSearch().orElse(hnswVectorStoreSpec.getEfSearch());
+    if (conditions.isEmpty()) {
+      return currentGraph.search(query, k, ef, nodeId -> true);
+    }
+    RoaringBitmap candidates = currentGraph.evaluate(conditions);
+    if (candidates.getLongCardinality() <= hnswVectorStoreSpec.getBruteForceCandidateLimit()) {
+      return currentGraph.searchCandidates(query, k, candidates);
+    }
+    return currentGraph.search(query, k, ef, candidates::contains);
+  }
+
+  /**
+   * Replaces the stored documents with the same ids.
+   *
+   * @return true if all documents were updated, false if a document is not stored, in which case
+   *     no document is updated
+   */
+  @Override
+  public boolean updateDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    HnswGraph currentGraph = graph;
+    for (DomainDocument document : documents) {
+      if (document.getId().isEmpty() || !currentGraph.contains(document.getId().get())) {
+        return false;
+      }
+    }
+    return upsertDocuments(documents);
+  }
+
+  @Override
+  public boolean upsertDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    put(
+        identifiedDocuments,
+        embed(documentEmbedder, identifiedDocuments, hnswVectorStoreSpec.getVectorDimensions()));
+    return true;
+  }
+
+  @Override
+  public boolean deleteDocuments(List<DomainDocument> documents) {
+    List<String> documentIds = new ArrayList<>();
+    for (DomainDocument document : documents) {
+      document.getId().ifPresent(documentIds::add);
+    }
+    return deleteDocumentsByIds(documentIds);
+  }
+
+  @Override
+  public boolean deleteDocumentsByIds(List<String> documentsIds) {
+    swapLock.readLock().lock();
+    try {
+      HnswGraph currentGraph = graph;
+      for (String id : documentsIds) {
+        currentGraph.remove(id);
+      }
+      recordCompactionWrites(documentsIds);
+    } finally {
+      swapLock.readLock().unlock();
+    }
+    scheduleCompactionIfNeeded();
+    return true;
+  }
+
+  /**
+   * Writes the live documents with their vectors. The export runs concurrently with writes, a
+   * document written during the export may or may not be included.
+   */
+  @Override
+  public void exportDocuments(VectorCollectionWriter writer) throws IOException {
+    try {
+      graph.forEachLive(
+          (document, vector) -> {
+            try {
+              writer.write(
+                  VectorRecord.builder().setDocument(document).setVector(vector).build());
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Upserts the documents of the chunk, inserting their vectors into the graph without embedding
+   * the documents again.
+   *
+   * @throws IllegalArgumentException if the vectors do not have the dimensions of the store
+   */
+  @Override
+  public long importVectorRecords(List<VectorRecord> vectorRecords) {
+    put(
+        getDocuments(vectorRecords),
+        getVectors(vectorRecords, hnswVectorStoreSpec.getVectorDimensions()));
+    return vectorRecords.size();
+  }
+
+  /** Returns the number of documents in the store. */
+  public int size() {
+    return graph.size();
+  }
+
+  /**
+   * Rebuilds the graph without tombstones and swaps it in. Searches and writes continue on the old
+   * graph while the new one is built; writes are blocked only while they are replayed and the
+   * graphs are swapped. This runs automatically in the background, calling it directly is only
+   * needed to compact at a specific time.
+   */
+  public synchronized void compact() {
+    Set<String> writtenIds = ConcurrentHashMap.newKeySet();
+    HnswGraph snapshot;
+    swapLock.writeLock().lock();
+    try {
+      snapshot = graph;
+      idsWrittenDuringCompaction = writtenIds;
+    } finally {
+      swapLock.writeLock().unlock();
+    }
+    HnswGraph compacted = newGraph();
+    snapshot.forEachLive(compacted::put);
+    swapLock.writeLock().lock();
+    try {
+      for (String id : writtenIds) {
+        // Writers are blocked, so the document and the vector belong to the same node.
+        Optional<DomainDocument> document = snapshot.getDocument(id);
+        Optional<float[]> vector = snapshot.getVector(id);
+        if (document.isPresent() && vector.isPresent()) {
+          compacted.put(document.get(), vector.get());
+        } else {
+          compacted.remove(id);
+        }
+      }
+      graph = compacted;
+      idsWrittenDuringCompaction = null;
+    } finally {
+      swapLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Stops compacting the graph in the background. A running compaction is finished, and the store
+   * can still be searched and written to, but tombstones are only removed by {@link #compact()}.
+   */
+  @Override
+  public void close() {
+    compactionExecutor.shutdown();
+  }
+
+  private void put(List<DomainDocument> identifiedDocuments, List<float[]> vectors) {
+    write(
+        identifiedDocuments,
+        currentGraph -> {
+          for (int i = 0; i < identifiedDocuments.size(); i++) {
+            currentGraph.put(identifiedDocuments.get(i), vectors.get(i));
+          }
+        });
+  }
+
+  private void write(List<DomainDocument> documents, Consumer<HnswGraph> mutation) {
+    swapLock.readLock().lock();
+    try {
+      mutation.accept(graph);
+      List<String> ids = new ArrayList<>(documents.size());
+      for (DomainDocument document : documents) {
+        ids.add(document.getId().get());
+      }
+      recordCompactionWrites(ids);
+    } finally {
+      swapLock.readLock().unlock();
+    }
+    scheduleCompactionIfNeeded();
+  }
+
+  private void recordCompactionWrites(Collection<String> ids) {
+    Set<String> writtenIds = idsWrittenDuringCompaction;
+    if (writtenIds != null) {
+      writtenIds.addAll(ids);
+    }
+  }
+
+  private void scheduleCompactionIfNeeded() {
+    HnswGraph currentGraph = graph;
+    int nodeCount = currentGraph.getNodeCount();
+    int tombstoneCount = nodeCount - currentGraph.size();
+    if (compactionExecutor.isShutdown()
+        || tombstoneCount == 0
+        || tombstoneCount <= hnswVectorStoreSpec.getCompactionThreshold() * nodeCount
+        || !isCompactionScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    compactionExecutor.execute(
+        () -> {
+          try {
+            compact();
+          } catch (RuntimeException e) {
+            logger.atSevere().withCause(e).log("Failed to compact the HNSW graph");
+          } finally {
+            isCompactionScheduled.set(false);
+          }
+        });
+  }
+
+  private HnswGraph newGraph() {
+    return new HnswGraph(
+        distanceStrategy, hnswVectorStoreSpec.getM(), hnswVectorStoreSpec.getEfConstruction());
+  }
+}
@@ -0,0 +1,114 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.ivfpq;
+
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.VectorKernels;
+import java.util.Random;
+
+/**
+ * The trained part of an IVF-PQ index: coarse centroids that partition the vectors into inverted
+ * lists, and a product quantizer for the residual of a vector to the centroid of its list. Encoding
+ * residuals rather than vectors spends the bytes of a code on what the centroid does not already
+ * tell. Immutable once trained.
+ */
+final class IvfPqQuantizer {
+  private final int dimensions;
+  private final int lists;
+  private final float[] centroids;
+  private final ProductQuantizer productQuantizer;
+
+  private IvfPqQuantizer(
+      int dimensions, int lists, float[] centroids, ProductQuantizer productQuantizer) {
+    this.dimensions = dimensions;
+    this.lists = lists;
+    this.centroids = centroids;
+    this.productQuantizer = productQuantizer;
+  }
+
+  /**
+   * Trains the coarse centroids on the vectors, then the product quantizer on their residuals.
+   *
+   * @param vectors the training vectors, packed
+   * @throws IllegalArgumentException if there are fewer vectors than lists or than codewords
+   */
+  static IvfPqQuantizer train(
+      float[] vectors,
+      int count,
+      int dimensions,
+      int lists,
+      int subQuantizers,
+      int iterations,
+      Random random) {
+    float[] centroids = KMeans.train(vectors, count, dimensions, lists, iterations, random);
+    float[] residuals = new float[count * dimensions];
+    for (int i = 0; i < count; i++) {
+      int list = KMeans.nearest(centroids, lists, vectors, i * dimensions, dimensions);
+      for (int d = 0; d < dimensions; d++) {
+        residuals[i * dimensions + d] =
+            vectors[i * dimensions + d] - centroids[list * dimensions + d];
+      }
+    }
+    ProductQuantizer productQuantizer =
+        ProductQuantizer.train(residuals, count, dimensions, subQuantizers, iterations, random);
+    return new IvfPqQuantizer(dimensions, lists, centroids, productQuantizer);
+  }
+
+  int getLists() {
+    return lists;
+  }
+
+  int getCodeSize() {
+    return productQuantizer.getCodeSize();
+  }
+
+  /** Returns the list of the centroid closest to the vector. */
+  int assign(float[] vector) {
+    return KMeans.nearest(centroids, lists, vector, 0, dimensions);
+  }
+
+  /** Writes the code of the residual of the vector to the centroid of the list. */
+  void encode(float[] vector, int list, byte[] codes, int codeOffset) {
+    productQuantizer.encode(getResidual(vector, list), codes, codeOffset);
+  }
+
+  /** Returns the squared Euclidean distance of the query to the centroid of the list. */
+  float getCentroidDistance(float[] query, int list) {
+    return VectorKernels.squaredEuclidean(query, 0, centroids, list * dimensions, dimensions);
+  }
+
+  /** Returns the inner product of the query with the centroid of the list. */
+  float getCentroidInnerProduct(float[] query, int list) {
+    return VectorKernels.dot(query, 0, centroids, list * dimensions, dimensions);
+  }
+
+  /** Returns a table for {@link #computeDistanceTable} or {@link #computeInnerProductTable}. */
+  float[] newTable() {
+    return new float[getCodeSize() * ProductQuantizer.CODEWORDS];
+  }
+
+  /**
+   * Fills the table so that {@link #score} returns the squared Euclidean distance of the query to
+   * a vector of the list. Distances depend on the centroid, so this is done once per list.
+   */
+  void computeDistanceTable(float[] query, int list, float[] table) {
+    productQuantizer.computeDistanceTable(getResidual(query, list), table);
+  }
+
+  /**
+   * Fills the table so that the centroid inner product plus {@link #score} is the inner product of
+   * the query with a vector of any list.
+   */
+  void computeInnerProductTable(float[] query, float[] table) {
+    productQuantizer.computeInnerProductTable(query, table);
+  }
+
+  float score(float[] table, byte[] codes, int codeOffset) {
+    return productQuantizer.score(table, codes, codeOffset);
+  }
+
+  private float[] getResidual(float[] vector, int list) {
+    float[] residual = new float[dimensions];
+    for (int d = 0; d < dimensions; d++) {
+      residual[d] = vector[d] - centroids[list * dimensions + d];
+    }
+    return residual;
+  }
+}
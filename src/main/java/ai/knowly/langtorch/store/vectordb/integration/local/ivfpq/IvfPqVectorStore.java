@@ -0,0 +1,650 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.ivfpq;
+
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.embed;
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.getDocuments;
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.getVectors;
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.withIds;
+
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.DocumentEmbedder;
+import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.local.MetadataBitmapIndex;
+import ai.knowly.langtorch.store.vectordb.integration.local.RawVectorFile;
+import ai.knowly.langtorch.store.vectordb.integration.local.TopKHeap;
+import ai.knowly.langtorch.store.vectordb.integration.local.VectorFileException;
+import ai.knowly.langtorch.store.vectordb.integration.local.schema.IvfPqVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.CosineDistanceStrategy;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategy;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.VectorKernels;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionWriter;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.inject.Inject;
+import lombok.NonNull;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * A vector store that keeps vectors compressed to a few bytes each, for collections too large to
+ * hold as raw floats. Vectors are partitioned into inverted lists by their closest coarse centroid
+ * and stored as product-quantized codes of their residual to it (IVF-PQ). A search scans only the
+ * lists closest to the query, scoring codes with precomputed distance tables. If a raw vector file
+ * is configured, the best candidates are re-ranked with exact distances read from it.
+ *
+ * <p>The quantizers are learned from a sample with {@link #train(List)}, which has to be called
+ * before any document is added. Cosine similarity is served as the inner product of normalized
+ * vectors.
+ *
+ * <p>Searches run concurrently with each other, writes are exclusive.
+ */
+public class IvfPqVectorStore implements VectorStore, Closeable {
+
+  private final DocumentEmbedder documentEmbedder;
+  private final DistanceStrategy distanceStrategy;
+  private final IvfPqVectorStoreSpec ivfPqVectorStoreSpec;
+  private final int dimensions;
+  // Whether codes are scored by inner product rather than by squared Euclidean distance.
+  private final boolean isInnerProduct;
+  private final boolean isNormalized;
+  private final RawVectorFile rawVectorFile;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // The document of every ordinal, null for free ordinals.
+  private final List<DomainDocument> documents = new ArrayList<>();
+  private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+  private final Map<String, Integer> ordinalsById = new HashMap<>();
+  // The ordinals of the documents by metadata key and value.
+  private final MetadataBitmapIndex metadataIndex = new MetadataBitmapIndex();
+  private int[] listsByOrdinal = new int[0];
+  private int[] positionsByOrdinal = new int[0];
+  private InvertedList[] invertedLists;
+  // Set once by train, immutable afterwards.
+  private volatile IvfPqQuantizer quantizer;
+
+  @Inject
+  public IvfPqVectorStore(
+      @NonNull EmbeddingProcessor embeddingProcessor,
+      IvfPqVectorStoreSpec ivfPqVectorStoreSpec,
+      @NonNull DistanceStrategy distanceStrategy) {
+    int vectorDimensions = ivfPqVectorStoreSpec.getVectorDimensions();
+    int subQuantizers = ivfPqVectorStoreSpec.getSubQuantizers();
+    if (vectorDimensions <= 0) {
+      throw new IllegalArgumentException(
+          "vectorDimensions must be greater than 0, was " + vectorDimensions);
+    }
+    if (ivfPqVectorStoreSpec.getLists() <= 0) {
+      throw new IllegalArgumentException(
+          "lists must be greater than 0, was " + ivfPqVectorStoreSpec.getLists());
+    }
+    if (subQuantizers <= 0 || vectorDimensions % subQuantizers != 0) {
+      throw new IllegalArgumentException(
+          "subQuantizers must divide vectorDimensions " + vectorDimensions + ", was "
+              + subQuantizers);
+    }
+    this.documentEmbedder =
+        new DocumentEmbedder(
+            embeddingProcessor,
+            ivfPqVectorStoreSpec.getModel(),
+            ivfPqVectorStoreSpec.getEmbeddingBatchSpec());
+    this.distanceStrategy = distanceStrategy;
+    this.ivfPqVectorStoreSpec = ivfPqVectorStoreSpec;
+    this.dimensions = vectorDimensions;
+    this.isInnerProduct = distanceStrategy.isSimilarity();
+    this.isNormalized = distanceStrategy instanceof CosineDistanceStrategy;
+    try {
+      this.rawVectorFile =
+          ivfPqVectorStoreSpec.getRawVectorPath().isPresent()
+              ? new RawVectorFile(ivfPqVectorStoreSpec.getRawVectorPath().get(), dimensions)
+              : null;
+    } catch (IOException e) {
+      throw new VectorFileException(e);
+    }
+  }
+
+  /**
+   * Learns the coarse centroids and the codebooks from the embeddings of the documents, then adds
+   * the documents. The sample needs at least as many documents as there are lists, and at least 256
+   * for the codebooks; it should be representative of the whole collection.
+   *
+   * @return the result of adding the documents
+   * @throws IllegalStateException if the store is already trained
+   * @throws IllegalArgumentException if the sample is too small
+   */
+  public boolean train(List<DomainDocument> documents) {
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    List<float[]> vectors = embed(documentEmbedder, identifiedDocuments, dimensions);
+    float[] sample = new float[vectors.size() * dimensions];
+    for (int i = 0; i < vectors.size(); i++) {
+      System.arraycopy(normalize(vectors.get(i)), 0, sample, i * dimensions, dimensions);
+    }
+    IvfPqQuantizer trainedQuantizer =
+        IvfPqQuantizer.train(
+            sample,
+            vectors.size(),
+            dimensions,
+            ivfPqVectorStoreSpec.getLists(),
+            ivfPqVectorStoreSpec.getSubQuantizers(),
+            ivfPqVectorStoreSpec.getTrainingIterations(),
+            new Random(ivfPqVectorStoreSpec.getTrainingSeed()));
+    lock.writeLock().lock();
+    try {
+      if (quantizer != null) {
+        throw new IllegalStateException("The store is already trained");
+      }
+      invertedLists = new InvertedList[trainedQuantizer.getLists()];
+      for (int list = 0; list < invertedLists.length; list++) {
+        invertedLists[list] = new InvertedList(trainedQuantizer.getCodeSize());
+      }
+      quantizer = trainedQuantizer;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    return add(identifiedDocuments, vectors);
+  }
+
+  /** Returns whether {@link #train(List)} has been called. */
+  public boolean isTrained() {
+    return quantizer != null;
+  }
+
+  /**
+   * Adds the documents to the store. Like a primary key, an id can only be added once.
+   *
+   * @return true if all documents were added, false if an id is already taken, in which case no
+   *     document is added
+   * @throws IllegalStateException if the store is not trained
+   */
+  @Override
+  public boolean addDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    return add(identifiedDocuments, embed(documentEmbedder, identifiedDocuments, dimensions));
+  }
+
+  /**
+   * Performs an approximate similarity search over the lists closest to the query. The number of
+   * lists is taken from the {@code probes} of the query if it is set, otherwise from the spec.
+   *
+   * <p>The filter and metadata conditions of the query are evaluated into the matching documents
+   * first, the others are skipped before they are scored. If at most {@link
+   * IvfPqVectorStoreSpec#getBruteForceCandidateLimit()} documents match, they are scored in all
+   * lists instead of only in the probed ones, so that matches outside the closest lists are found.
+   *
+   * <p>Without a raw vector file the scores are the approximate distances of the codes.
+   *
+   * @throws IllegalArgumentException if the query does not have the dimensions of the store
+   */
+  @Override
+  public List<DomainDocument> similaritySearch(SimilaritySearchQuery similaritySearchQuery) {
+    float[] query = similaritySearchQuery.getQueryVector();
+    if (query.length != dimensions) {
+      throw new IllegalArgumentException(
+          "Query has " + query.length + " dimensions, the store has " + dimensions);
+    }
+    IvfPqQuantizer currentQuantizer = quantizer;
+    if (currentQuantizer == null) {
+      return new ArrayList<>();
+    }
+    float[] normalizedQuery = normalize(query);
+    List<MetadataCondition> conditions = similaritySearchQuery.getAllMetadataConditions();
+    int probes =
+        Math.min(
+            similaritySearchQuery.getProbes().orElse(ivfPqVectorStoreSpec.getProbes()),
+            currentQuantizer.getLists());
+    lock.readLock().lock();
+    try {
+      int k = (int) Math.min(similaritySearchQuery.getTopK(), ordinalsById.size());
+      int candidateCount =
+          rawVectorFile == null ? k : Math.max(k, ivfPqVectorStoreSpec.getRerankCandidates());
+      TopKHeap candidates = new TopKHeap(candidateCount, isInnerProduct);
+      float[] table = currentQuantizer.newTable();
+      if (isInnerProduct) {
+        currentQuantizer.computeInnerProductTable(normalizedQuery, table);
+      }
+      RoaringBitmap matching = conditions.isEmpty() ? null : metadataIndex.evaluate(conditions);
+      if (matching != null
+          && matching.getLongCardinality() <= ivfPqVectorStoreSpec.getBruteForceCandidateLimit()) {
+        scoreMatching(currentQuantizer, normalizedQuery, table, matching, candidates);
+      } else {
+        TopKHeap closestLists = selectLists(currentQuantizer, normalizedQuery, probes);
+        for (int i = 0; i < closestLists.size(); i++) {
+          int list = closestLists.getId(i);
+          float base = prepareList(currentQuantizer, normalizedQuery, list, table);
+          InvertedList invertedList = invertedLists[list];
+          int codeSize = currentQuantizer.getCodeSize();
+          for (int position = 0; position < invertedList.size; position++) {
+            int ordinal = invertedList.ordinals[position];
+            if (matching != null && !matching.contains(ordinal)) {
+              continue;
+            }
+            candidates.offer(
+                ordinal,
+                base + currentQuantizer.score(table, invertedList.codes, position * codeSize));
+          }
+        }
+      }
+      candidates.sort();
+      return rawVectorFile == null ? toDocuments(candidates) : rerank(query, candidates, k);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Replaces the stored documents with the same ids.
+   *
+   * @return true if all documents were updated, false if a document is not stored, in which case
+   *     no document is updated
+   * @throws IllegalStateException if the store is not trained
+   */
+  @Override
+  public boolean updateDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    if (documents.stream().anyMatch(document -> document.getId().isEmpty())) {
+      return false;
+    }
+    IvfPqQuantizer currentQuantizer = getTrainedQuantizer();
+    List<float[]> vectors = embed(documentEmbedder, documents, dimensions);
+    EncodedVectors encodedVectors = encode(currentQuantizer, vectors);
+    lock.writeLock().lock();
+    try {
+      for (DomainDocument document : documents) {
+        if (!ordinalsById.containsKey(document.getId().get())) {
+          return false;
+        }
+      }
+      put(documents, vectors, encodedVectors);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds the documents, replacing the stored documents with the same ids.
+   *
+   * @throws IllegalStateException if the store is not trained
+   */
+  @Override
+  public boolean upsertDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    IvfPqQuantizer currentQuantizer = getTrainedQuantizer();
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    List<float[]> vectors = embed(documentEmbedder, identifiedDocuments, dimensions);
+    EncodedVectors encodedVectors = encode(currentQuantizer, vectors);
+    lock.writeLock().lock();
+    try {
+      put(identifiedDocuments, vectors, encodedVectors);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean deleteDocuments(List<DomainDocument> documents) {
+    List<String> documentIds = new ArrayList<>();
+    for (DomainDocument document : documents) {
+      document.getId().ifPresent(documentIds::add);
+    }
+    return deleteDocumentsByIds(documentIds);
+  }
+
+  @Override
+  public boolean deleteDocumentsByIds(List<String> documentsIds) {
+    lock.writeLock().lock();
+    try {
+      for (String id : documentsIds) {
+        Integer ordinal = ordinalsById.remove(id);
+        if (ordinal != null) {
+          removeOrdinal(ordinal);
+        }
+      }
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Writes the documents with their full-precision vectors, read from the raw vector file. Writes
+   * wait until the export is done, so the export is a consistent snapshot.
+   *
+   * @throws UnsupportedOperationException if there is no raw vector file, as the codes alone
+   *     cannot restore the vectors
+   */
+  @Override
+  public void exportDocuments(VectorCollectionWriter writer) throws IOException {
+    if (rawVectorFile == null) {
+      throw new UnsupportedOperationException(
+          "IvfPqVectorStore only exports documents with a raw vector file");
+    }
+    lock.readLock().lock();
+    try {
+      for (int ordinal = 0; ordinal < documents.size(); ordinal++) {
+        DomainDocument document = documents.get(ordinal);
+        if (document == null) {
+          continue;
+        }
+        float[] vector = new float[dimensions];
+        rawVectorFile.read(ordinal, vector);
+        writer.write(VectorRecord.builder().setDocument(document).setVector(vector).build());
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Upserts the documents of the chunk, encoding their vectors without embedding the documents
+   * again.
+   *
+   * @throws IllegalStateException if the store is not trained
+   * @throws IllegalArgumentException if the vectors do not have the dimensions of the store
+   */
+  @Override
+  public long importVectorRecords(List<VectorRecord> vectorRecords) {
+    if (vectorRecords.isEmpty()) {
+      return 0;
+    }
+    IvfPqQuantizer currentQuantizer = getTrainedQuantizer();
+    List<DomainDocument> identifiedDocuments = getDocuments(vectorRecords);
+    List<float[]> vectors = getVectors(vectorRecords, dimensions);
+    EncodedVectors encodedVectors = encode(currentQuantizer, vectors);
+    lock.writeLock().lock();
+    try {
+      put(identifiedDocuments, vectors, encodedVectors);
+      return vectorRecords.size();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Returns the number of documents in the store. */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return ordinalsById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Closes the raw vector file, if there is one. */
+  @Override
+  public void close() throws IOException {
+    if (rawVectorFile != null) {
+      rawVectorFile.close();
+    }
+  }
+
+  private boolean add(List<DomainDocument> identifiedDocuments, List<float[]> vectors) {
+    EncodedVectors encodedVectors = encode(getTrainedQuantizer(), vectors);
+    lock.writeLock().lock();
+    try {
+      Set<String> ids = new HashSet<>();
+      for (DomainDocument document : identifiedDocuments) {
+        String id = document.getId().get();
+        if (ordinalsById.containsKey(id) || !ids.add(id)) {
+          return false;
+        }
+      }
+      put(identifiedDocuments, vectors, encodedVectors);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private TopKHeap selectLists(IvfPqQuantizer currentQuantizer, float[] query, int probes) {
+    TopKHeap closestLists = new TopKHeap(probes, isInnerProduct);
+    for (int list = 0; list < currentQuantizer.getLists(); list++) {
+      closestLists.offer(
+          list,
+          isInnerProduct
+              ? currentQuantizer.getCentroidInnerProduct(query, list)
+              : currentQuantizer.getCentroidDistance(query, list));
+    }
+    return closestLists;
+  }
+
+  /**
+   * Returns the score of the list's centroid that the scores of its codes are added to. For the
+   * Euclidean distance, fills the table with the distances of the list instead.
+   */
+  private float prepareList(
+      IvfPqQuantizer currentQuantizer, float[] query, int list, float[] table) {
+    if (isInnerProduct) {
+      return currentQuantizer.getCentroidInnerProduct(query, list);
+    }
+    currentQuantizer.computeDistanceTable(query, list, table);
+    return 0;
+  }
+
+  /**
+   * Scores the matching ordinals wherever they are. They are grouped by list first, so that every
+   * list is prepared once. Called under the read lock.
+   */
+  private void scoreMatching(
+      IvfPqQuantizer currentQuantizer,
+      float[] query,
+      float[] table,
+      RoaringBitmap matching,
+      TopKHeap candidates) {
+    // The list in the high and the ordinal in the low half, so that sorting groups by list.
+    long[] entries = new long[matching.getCardinality()];
+    int count = 0;
+    PeekableIntIterator ordinals = matching.getIntIterator();
+    while (ordinals.hasNext()) {
+      int ordinal = ordinals.next();
+      entries[count++] = ((long) listsByOrdinal[ordinal] << Integer.SIZE) | ordinal;
+    }
+    Arrays.sort(entries);
+    int codeSize = currentQuantizer.getCodeSize();
+    int currentList = -1;
+    float base = 0;
+    for (long entry : entries) {
+      int list = (int) (entry >>> Integer.SIZE);
+      int ordinal = (int) entry;
+      if (list != currentList) {
+        currentList = list;
+        base = prepareList(currentQuantizer, query, list, table);
+      }
+      candidates.offer(
+          ordinal,
+          base
+              + currentQuantizer.score(
+                  table, invertedLists[list].codes, positionsByOrdinal[ordinal] * codeSize));
+    }
+  }
+
+  /** Scores the candidates with their approximate distances, on the scale of the strategy. */
+  private List<DomainDocument> toDocuments(TopKHeap candidates) {
+    List<DomainDocument> result = new ArrayList<>(candidates.size());
+    for (int i = 0; i < candidates.size(); i++) {
+      double score =
+          isInnerProduct ? candidates.getScore(i) : Math.sqrt(Math.max(candidates.getScore(i), 0));
+      result.add(withScore(documents.get(candidates.getId(i)), score));
+    }
+    return result;
+  }
+
+  /** Scores the candidates with exact distances and returns the k best. */
+  private List<DomainDocument> rerank(float[] query, TopKHeap candidates, int k) {
+    TopKHeap heap = new TopKHeap(k, distanceStrategy.isSimilarity());
+    float[] vector = new float[dimensions];
+    try {
+      for (int i = 0; i < candidates.size(); i++) {
+        rawVectorFile.read(candidates.getId(i), vector);
+        heap.offer(candidates.getId(i), distanceStrategy.calculateDistance(query, vector, 0));
+      }
+    } catch (IOException e) {
+      throw new VectorFileException(e);
+    }
+    heap.sort();
+    List<DomainDocument> result = new ArrayList<>(heap.size());
+    for (int i = 0; i < heap.size(); i++) {
+      result.add(withScore(documents.get(heap.getId(i)), heap.getScore(i)));
+    }
+    return result;
+  }
+
+  /** Stores the documents, replacing the ones with the same ids. Called under the write lock. */
+  private void put(
+      List<DomainDocument> identifiedDocuments,
+      List<float[]> vectors,
+      EncodedVectors encodedVectors) {
+    int codeSize = quantizer.getCodeSize();
+    for (int i = 0; i < identifiedDocuments.size(); i++) {
+      DomainDocument document = identifiedDocuments.get(i);
+      Integer previousOrdinal = ordinalsById.get(document.getId().get());
+      if (previousOrdinal != null) {
+        removeOrdinal(previousOrdinal);
+      }
+      int ordinal = allocateOrdinal(document);
+      ordinalsById.put(document.getId().get(), ordinal);
+      int list = encodedVectors.lists[i];
+      listsByOrdinal[ordinal] = list;
+      positionsByOrdinal[ordinal] =
+          invertedLists[list].add(ordinal, encodedVectors.codes, i * codeSize);
+      if (rawVectorFile != null) {
+        try {
+          rawVectorFile.write(ordinal, vectors.get(i));
+        } catch (IOException e) {
+          throw new VectorFileException(e);
+        }
+      }
+    }
+  }
+
+  private int allocateOrdinal(DomainDocument document) {
+    if (!freeOrdinals.isEmpty()) {
+      int ordinal = freeOrdinals.pop();
+      documents.set(ordinal, document);
+      metadataIndex.add(ordinal, document);
+      return ordinal;
+    }
+    int ordinal = documents.size();
+    documents.add(document);
+    metadataIndex.add(ordinal, document);
+    if (ordinal == listsByOrdinal.length) {
+      int capacity = Math.max(16, ordinal * 2);
+      listsByOrdinal = Arrays.copyOf(listsByOrdinal, capacity);
+      positionsByOrdinal = Arrays.copyOf(positionsByOrdinal, capacity);
+    }
+    return ordinal;
+  }
+
+  private void removeOrdinal(int ordinal) {
+    int movedOrdinal = invertedLists[listsByOrdinal[ordinal]].remove(positionsByOrdinal[ordinal]);
+    if (movedOrdinal >= 0) {
+      positionsByOrdinal[movedOrdinal] = positionsByOrdinal[ordinal];
+    }
+    metadataIndex.remove(ordinal, documents.get(ordinal));
+    documents.set(ordinal, null);
+    freeOrdinals.push(ordinal);
+  }
+
+  /** Assigns and encodes the vectors, which needs no lock as the quantizer is immutable. */
+  private EncodedVectors encode(IvfPqQuantizer currentQuantizer, List<float[]> vectors) {
+    int codeSize = currentQuantizer.getCodeSize();
+    EncodedVectors encodedVectors = new EncodedVectors(vectors.size(), codeSize);
+    for (int i = 0; i < vectors.size(); i++) {
+      float[] vector = normalize(vectors.get(i));
+      int list = currentQuantizer.assign(vector);
+      encodedVectors.lists[i] = list;
+      currentQuantizer.encode(vector, list, encodedVectors.codes, i * codeSize);
+    }
+    return encodedVectors;
+  }
+
+  private IvfPqQuantizer getTrainedQuantizer() {
+    IvfPqQuantizer currentQuantizer = quantizer;
+    if (currentQuantizer == null) {
+      throw new IllegalStateException("The store has to be trained before documents are added");
+    }
+    return currentQuantizer;
+  }
+
+  /** Returns the unit vector for cosine similarity, otherwise the vector itself. */
+  private float[] normalize(float[] vector) {
+    if (!isNormalized) {
+      return vector;
+    }
+    double norm = Math.sqrt(VectorKernels.dot(vector, 0, vector, 0, vector.length));
+    if (norm == 0) {
+      return vector;
+    }
+    float[] normalized = new float[vector.length];
+    for (int i = 0; i < vector.length; i++) {
+      normalized[i] = (float) (vector[i] / norm);
+    }
+    return normalized;
+  }
+
+  private static DomainDocument withScore(DomainDocument document, double score) {
+    return document.toBuilder().setSimilarityScore(Optional.of(score)).build();
+  }
+
+  /** The list and the code of each vector of a batch, codes packed. */
+  private static final class EncodedVectors {
+    private final int[] lists;
+    private final byte[] codes;
+
+    private EncodedVectors(int count, int codeSize) {
+      this.lists = new int[count];
+      this.codes = new byte[count * codeSize];
+    }
+  }
+
+  /** The ordinals and codes of the vectors of a list, kept dense by moving the last entry. */
+  private static final class InvertedList {
+    private final int codeSize;
+    private int[] ordinals = new int[0];
+    private byte[] codes = new byte[0];
+    private int size;
+
+    private InvertedList(int codeSize) {
+      this.codeSize = codeSize;
+    }
+
+    /** Appends the entry and returns its position. */
+    private int add(int ordinal, byte[] code, int codeOffset) {
+      if (size == ordinals.length) {
+        int capacity = Math.max(8, size * 2);
+        ordinals = Arrays.copyOf(ordinals, capacity);
+        codes = Arrays.copyOf(codes, capacity * codeSize);
+      }
+      ordinals[size] = ordinal;
+      System.arraycopy(code, codeOffset, codes, size * codeSize, codeSize);
+      return size++;
+    }
+
+    /**
+     * Removes the entry at the position by moving the last entry into it.
+     *
+     * @return the ordinal of the moved entry, or -1 if the removed entry was the last one
+     */
+    private int remove(int position) {
+      int last = --size;
+      if (position == last) {
+        return -1;
+      }
+      ordinals[position] = ordinals[last];
+      System.arraycopy(codes, last * codeSize, codes, position * codeSize, codeSize);
+      return ordinals[position];
+    }
+  }
+}
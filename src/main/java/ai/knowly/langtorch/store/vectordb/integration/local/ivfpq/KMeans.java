@@ -0,0 +1,123 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.ivfpq;
+
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.VectorKernels;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/** Lloyd's k-means over vectors packed one after the other into a {@code float[]}. */
+final class KMeans {
+  // Clustering more points than this per centroid barely moves the centroids, as in faiss.
+  private static final int MAX_POINTS_PER_CENTROID = 256;
+  // The relative perturbation applied when an empty cluster takes over half of another one.
+  private static final float SPLIT_EPSILON = 1 / 1024f;
+
+  private KMeans() {}
+
+  /**
+   * Clusters the vectors into k clusters. The centroids start at k distinct random vectors, and a
+   * cluster that ends up empty is moved next to the largest one so that every centroid is used.
+   *
+   * @param vectors the vectors to cluster, packed
+   * @param count the number of vectors
+   * @param dimensions the dimensions of a vector
+   * @param k the number of clusters
+   * @param iterations the maximum number of iterations
+   * @param random the source of the initial centroids
+   * @return the k centroids, packed
+   * @throws IllegalArgumentException if there are fewer vectors than clusters
+   */
+  static float[] train(
+      float[] vectors, int count, int dimensions, int k, int iterations, Random random) {
+    if (count < k) {
+      throw new IllegalArgumentException(
+          "Training " + k + " centroids needs at least " + k + " vectors, got " + count);
+    }
+    int[] order = IntStream.range(0, count).toArray();
+    int sampleCount = Math.min(count, k * MAX_POINTS_PER_CENTROID);
+    // A partial shuffle picks the sample, its first k vectors are the initial centroids.
+    for (int i = 0; i < sampleCount; i++) {
+      int j = i + random.nextInt(count - i);
+      int swapped = order[i];
+      order[i] = order[j];
+      order[j] = swapped;
+    }
+    float[] sample = new float[sampleCount * dimensions];
+    for (int i = 0; i < sampleCount; i++) {
+      System.arraycopy(vectors, order[i] * dimensions, sample, i * dimensions, dimensions);
+    }
+    float[] centroids = Arrays.copyOf(sample, k * dimensions);
+    int[] assignments = new int[sampleCount];
+    Arrays.fill(assignments, -1);
+    int[] counts = new int[k];
+    double[] sums = new double[k * dimensions];
+    for (int iteration = 0; iteration < iterations; iteration++) {
+      int[] nearest =
+          IntStream.range(0, sampleCount)
+              .parallel()
+              .map(i -> nearest(centroids, k, sample, i * dimensions, dimensions))
+              .toArray();
+      if (Arrays.equals(nearest, assignments)) {
+        break;
+      }
+      System.arraycopy(nearest, 0, assignments, 0, sampleCount);
+      Arrays.fill(counts, 0);
+      Arrays.fill(sums, 0);
+      for (int i = 0; i < sampleCount; i++) {
+        int cluster = assignments[i];
+        counts[cluster]++;
+        for (int d = 0; d < dimensions; d++) {
+          sums[cluster * dimensions + d] += sample[i * dimensions + d];
+        }
+      }
+      for (int cluster = 0; cluster < k; cluster++) {
+        if (counts[cluster] > 0) {
+          for (int d = 0; d < dimensions; d++) {
+            centroids[cluster * dimensions + d] =
+                (float) (sums[cluster * dimensions + d] / counts[cluster]);
+          }
+        }
+      }
+      splitEmptyClusters(centroids, counts, dimensions);
+    }
+    return centroids;
+  }
+
+  /** Returns the index of the centroid closest to the vector at the offset. */
+  static int nearest(float[] centroids, int k, float[] vectors, int offset, int dimensions) {
+    int nearest = 0;
+    float nearestDistance = Float.MAX_VALUE;
+    for (int cluster = 0; cluster < k; cluster++) {
+      float distance =
+          VectorKernels.squaredEuclidean(
+              vectors, offset, centroids, cluster * dimensions, dimensions);
+      if (distance < nearestDistance) {
+        nearest = cluster;
+        nearestDistance = distance;
+      }
+    }
+    return nearest;
+  }
+
+  private static void splitEmptyClusters(float[] centroids, int[] counts, int dimensions) {
+    for (int empty = 0; empty < counts.length; empty++) {
+      if (counts[empty] > 0) {
+        continue;
+      }
+      int largest = 0;
+      for (int cluster = 1; cluster < counts.length; cluster++) {
+        if (counts[cluster] > counts[largest]) {
+          largest = cluster;
+        }
+      }
+      for (int d = 0; d < dimensions; d++) {
+        float value = centroids[largest * dimensions + d];
+        float offset = (d % 2 == 0 ? SPLIT_EPSILON : -SPLIT_EPSILON) * value;
+        centroids[empty * dimensions + d] = value + offset;
+        centroids[largest * dimensions + d] = value - offset;
+      }
+      counts[empty] = counts[largest] / 2;
+      counts[largest] -= counts[empty];
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.ivfpq;
+
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.VectorKernels;
+import java.util.Random;
+
+/**
+ * Compresses a vector into one byte per sub-quantizer: the vector is split into equally long
+ * sub-vectors, and each is replaced by the index of the closest of 256 codewords learned for its
+ * position.
+ *
+ * <p>Distances are computed asymmetrically. The query stays uncompressed, its distance to every
+ * codeword is computed once into a table, and the distance to a code is then the sum of one table
+ * lookup per byte.
+ */
+final class ProductQuantizer {
+  static final int CODEWORDS = 256;
+
+  private final int subQuantizers;
+  private final int subDimensions;
+  // The codewords of each sub-quantizer, packed.
+  private final float[][] codebooks;
+
+  private ProductQuantizer(int subQuantizers, int subDimensions, float[][] codebooks) {
+    this.subQuantizers = subQuantizers;
+    this.subDimensions = subDimensions;
+    this.codebooks = codebooks;
+  }
+
+  /**
+   * Learns the codebooks from the vectors with k-means.
+   *
+   * @param vectors the training vectors, packed
+   * @throws IllegalArgumentException if there are fewer vectors than codewords
+   */
+  static ProductQuantizer train(
+      float[] vectors,
+      int count,
+      int dimensions,
+      int subQuantizers,
+      int iterations,
+      Random random) {
+    int subDimensions = dimensions / subQuantizers;
+    float[][] codebooks = new float[subQuantizers][];
+    float[] subVectors = new float[count * subDimensions];
+    for (int j = 0; j < subQuantizers; j++) {
+      for (int i = 0; i < count; i++) {
+        System.arraycopy(
+            vectors,
+            i * dimensions + j * subDimensions,
+            subVectors,
+            i * subDimensions,
+            subDimensions);
+      }
+      codebooks[j] = KMeans.train(subVectors, count, subDimensions, CODEWORDS, iterations, random);
+    }
+    return new ProductQuantizer(subQuantizers, subDimensions, codebooks);
+  }
+
+  /** Returns the size of a code in bytes. */
+  int getCodeSize() {
+    return subQuantizers;
+  }
+
+  /** Writes the code of the vector at the offset of the codes. */
+  void encode(float[] vector, byte[] codes, int codeOffset) {
+    for (int j = 0; j < subQuantizers; j++) {
+      codes[codeOffset + j] =
+          (byte) KMeans.nearest(codebooks[j], CODEWORDS, vector, j * subDimensions, subDimensions);
+    }
+  }
+
+  /**
+   * Fills the table with the squared Euclidean distance of every sub-vector of the query to every
+   * codeword of its position, so that {@link #score} returns the squared distance to a code.
+   */
+  void computeDistanceTable(float[] query, float[] table) {
+    for (int j = 0; j < subQuantizers; j++) {
+      for (int c = 0; c < CODEWORDS; c++) {
+        table[j * CODEWORDS + c] =
+            VectorKernels.squaredEuclidean(
+                query, j * subDimensions, codebooks[j], c * subDimensions, subDimensions);
+      }
+    }
+  }
+
+  /**
+   * Fills the table with the inner product of every sub-vector of the query with every codeword of
+   * its position, so that {@link #score} returns the inner product with a code.
+   */
+  void computeInnerProductTable(float[] query, float[] table) {
+    for (int j = 0; j < subQuantizers; j++) {
+      for (int c = 0; c < CODEWORDS; c++) {
+        table[j * CODEWORDS + c] =
+            VectorKernels.dot(
+                query, j * subDimensions, codebooks[j], c * subDimensions, subDimensions);
+      }
+    }
+  }
+
+  /** Returns the sum of the table entries selected by the code at the offset. */
+  float score(float[] table, byte[] codes, int codeOffset) {
+    float sum = 0;
+    for (int j = 0; j < subQuantizers; j++) {
+      sum += table[j * CODEWORDS + (codes[codeOffset + j] & 0xFF)];
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,41 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.schema;
+
+import ai.knowly.langtorch.store.vectordb.integration.quantization.VectorQuantization;
+import ai.knowly.langtorch.store.vectordb.integration.schema.EmbeddingBatchSpec;
+import java.nio.file.Path;
+import java.util.Optional;
+import lombok.Builder;
+import lombok.Data;
+
+/** Represents the specification for an in-process flat vector store. */
+@Data
+@Builder(toBuilder = true, setterPrefix = "set")
+public class FlatVectorStoreSpec {
+
+  @Builder.Default private final String model = "text-embedding-ada-002";
+  private final int vectorDimensions;
+  // Number of vectors packed into one contiguous float[] block.
+  @Builder.Default private final int blockSize = 4096;
+
+  /**
+   * How the scanned vectors are compressed. With a quantization, the scan ranks compressed vectors
+   * and only the best candidates are rescored with full precision.
+   */
+  @Builder.Default private final VectorQuantization quantization = VectorQuantization.NONE;
+
+  /** The number of candidates rescored with full precision per requested result. */
+  @Builder.Default private final int rescoreFactor = 4;
+
+  /**
+   * The file the full-precision vectors are kept in instead of memory, which leaves only the
+   * compressed vectors on the heap. Requires a quantization.
+   */
+  private final Path rawVectorPath;
+
+  @Builder.Default
+  private final EmbeddingBatchSpec embeddingBatchSpec = EmbeddingBatchSpec.getDefaultInstance();
+
+  public Optional<Path> getRawVectorPath() {
+    return Optional.ofNullable(rawVectorPath);
+  }
+}
@@ -0,0 +1,39 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.schema;
+
+import ai.knowly.langtorch.store.vectordb.integration.schema.EmbeddingBatchSpec;
+import lombok.Builder;
+import lombok.Data;
+
+/** Represents the specification for an in-process HNSW vector store. */
+@Data
+@Builder(toBuilder = true, setterPrefix = "set")
+public class HnswVectorStoreSpec {
+
+  @Builder.Default private final String model = "text-embedding-ada-002";
+  private final int vectorDimensions;
+
+  /** The number of links per node and layer, twice as many on the bottom layer. */
+  @Builder.Default private final int m = 16;
+
+  /** The size of the candidate list while inserting, a larger value builds a better graph. */
+  @Builder.Default private final int efConstruction = 200;
+
+  /**
+   * The size of the candidate list while searching, unless the query sets its own. A larger value
+   * trades speed for recall.
+   */
+  @Builder.Default private final int efSearch = 64;
+
+  /**
+   * The number of documents matching the metadata conditions of a query up to which they are
+   * scored exactly instead of traversing the graph. A traversal finds few matches when only a
+   * small fraction of the nodes match.
+   */
+  @Builder.Default private final int bruteForceCandidateLimit = 10_000;
+
+  /** The fraction of tombstoned nodes above which the graph is rebuilt in the background. */
+  @Builder.Default private final double compactionThreshold = 0.2;
+
+  @Builder.Default
+  private final EmbeddingBatchSpec embeddingBatchSpec = EmbeddingBatchSpec.getDefaultInstance();
+}
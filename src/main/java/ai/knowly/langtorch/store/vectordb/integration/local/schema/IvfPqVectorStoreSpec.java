@@ -0,0 +1,55 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.schema;
+
+import ai.knowly.langtorch.store.vectordb.integration.schema.EmbeddingBatchSpec;
+import java.nio.file.Path;
+import java.util.Optional;
+import lombok.Builder;
+import lombok.Data;
+
+/** Represents the specification for an in-process IVF-PQ vector store. */
+@Data
+@Builder(toBuilder = true, setterPrefix = "set")
+public class IvfPqVectorStoreSpec {
+
+  @Builder.Default private final String model = "text-embedding-ada-002";
+  private final int vectorDimensions;
+
+  /** The number of inverted lists, i.e. of coarse centroids. */
+  @Builder.Default private final int lists = 1024;
+
+  /**
+   * The number of sub-quantizers, which is also the size of a code in bytes. It has to divide the
+   * vector dimensions.
+   */
+  @Builder.Default private final int subQuantizers = 32;
+
+  /** The number of lists to search, unless the query sets its own. */
+  @Builder.Default private final int probes = 16;
+
+  /** The maximum number of k-means iterations when training the centroids and codebooks. */
+  @Builder.Default private final int trainingIterations = 20;
+
+  @Builder.Default private final long trainingSeed = 42;
+
+  /**
+   * The file the full-precision vectors are written to. If set, the best candidates of the
+   * compressed search are re-ranked with exact distances read from it.
+   */
+  private final Path rawVectorPath;
+
+  /** The number of candidates re-ranked with exact distances, at least the requested top k. */
+  @Builder.Default private final int rerankCandidates = 100;
+
+  /**
+   * The number of documents matching the metadata conditions of a query up to which they are
+   * scored in all lists. Above it, only the matches in the probed lists are scored.
+   */
+  @Builder.Default private final int bruteForceCandidateLimit = 10_000;
+
+  @Builder.Default
+  private final EmbeddingBatchSpec embeddingBatchSpec = EmbeddingBatchSpec.getDefaultInstance();
+
+  public Optional<Path> getRawVectorPath() {
+    return Optional.ofNullable(rawVectorPath);
+  }
+}
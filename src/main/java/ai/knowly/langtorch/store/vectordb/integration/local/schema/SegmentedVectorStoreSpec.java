@@ -0,0 +1,51 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.schema;
+
+import ai.knowly.langtorch.store.vectordb.integration.schema.EmbeddingBatchSpec;
+import java.nio.file.Path;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+/** Represents the specification for a persistent, segmented vector store. */
+@Data
+@Builder(toBuilder = true, setterPrefix = "set")
+public class SegmentedVectorStoreSpec {
+
+  @Builder.Default private final String model = "text-embedding-ada-002";
+  private final int vectorDimensions;
+
+  /** The directory the segments and the write-ahead log are kept in, created if missing. */
+  @NonNull private final Path directory;
+
+  /** The number of logged writes above which they are sealed into a segment in the background. */
+  @Builder.Default private final int sealThreshold = 10_000;
+
+  /** The number of segments above which the smallest ones are merged in the background. */
+  @Builder.Default private final int maxSegments = 8;
+
+  /** The number of segments merged into one at a time. */
+  @Builder.Default private final int mergeFactor = 4;
+
+  /**
+   * The size in bytes the vectors of a merged segment may take, at most {@link Integer#MAX_VALUE}.
+   * Segments are only merged while their live vectors fit, segments too large to be merged with
+   * another one are left as they are.
+   */
+  @Builder.Default private final long maxMergedVectorBytes = Integer.MAX_VALUE;
+
+  /**
+   * Whether every write is forced to disk before it returns. Without it, writes that the operating
+   * system has not flushed yet are lost if the machine crashes.
+   */
+  @Builder.Default private final boolean syncWrites = true;
+
+  /**
+   * The number of documents of a segment matching the metadata conditions of a query up to which
+   * their vectors are read one by one. Above it, the segment is scanned in order and only the
+   * matches are scored.
+   */
+  @Builder.Default private final int bruteForceCandidateLimit = 10_000;
+
+  @Builder.Default
+  private final EmbeddingBatchSpec embeddingBatchSpec = EmbeddingBatchSpec.getDefaultInstance();
+}
@@ -0,0 +1,122 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.segment;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.schema.io.Metadata;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the page content and metadata of a document, without its id and vector, as stored in
+ * segments and in the write-ahead log. Strings are written as their UTF-8 length followed by the
+ * bytes, a length of -1 stands for null, and a metadata entry count of -1 for a document without
+ * metadata. All numbers are little-endian.
+ */
+final class DocumentCodec {
+  private static final int NULL_LENGTH = -1;
+
+  private DocumentCodec() {}
+
+  static byte[] encode(DomainDocument document) {
+    List<byte[]> strings = new ArrayList<>();
+    strings.add(toBytes(document.getPageContent()));
+    Map<String, String> metadata = document.getMetadata().map(Metadata::getValue).orElse(null);
+    if (metadata != null) {
+      for (Map.Entry<String, String> entry : metadata.entrySet()) {
+        strings.add(toBytes(entry.getKey()));
+        strings.add(toBytes(entry.getValue()));
+      }
+    }
+    int length = Integer.BYTES;
+    for (byte[] string : strings) {
+      length += Integer.BYTES + (string == null ? 0 : string.length);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    putString(buffer, strings.get(0));
+    buffer.putInt(metadata == null ? NULL_LENGTH : metadata.size());
+    for (int i = 1; i < strings.size(); i++) {
+      putString(buffer, strings.get(i));
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Decodes the document encoded at {@code offset} of a little-endian buffer.
+   *
+   * @param id the id the decoded document is given
+   */
+  static DomainDocument decode(ByteBuffer buffer, int offset, String id) {
+    int position = offset;
+    String pageContent = getString(buffer, position);
+    position += getEncodedLength(buffer, position);
+    DomainDocument.DomainDocumentBuilder builder =
+        DomainDocument.builder().setId(id).setPageContent(pageContent);
+    if (buffer.getInt(position) != NULL_LENGTH) {
+      builder.setMetadata(Metadata.builder().setValue(readMetadata(buffer, position)).build());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Decodes only the metadata of the document encoded at {@code offset} of a little-endian buffer,
+   * as needed to evaluate metadata conditions.
+   *
+   * @return the metadata, empty if the document has none
+   */
+  static Map<String, String> decodeMetadata(ByteBuffer buffer, int offset) {
+    int position = offset + getEncodedLength(buffer, offset);
+    if (buffer.getInt(position) == NULL_LENGTH) {
+      return Collections.emptyMap();
+    }
+    return readMetadata(buffer, position);
+  }
+
+  private static Map<String, String> readMetadata(ByteBuffer buffer, int position) {
+    int size = buffer.getInt(position);
+    position += Integer.BYTES;
+    Map<String, String> metadata = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      String key = getString(buffer, position);
+      position += getEncodedLength(buffer, position);
+      String value = getString(buffer, position);
+      position += getEncodedLength(buffer, position);
+      metadata.put(key, value);
+    }
+    return metadata;
+  }
+
+  private static byte[] toBytes(String string) {
+    return string == null ? null : string.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void putString(ByteBuffer buffer, byte[] string) {
+    if (string == null) {
+      buffer.putInt(NULL_LENGTH);
+      return;
+    }
+    buffer.putInt(string.length);
+    buffer.put(string);
+  }
+
+  private static String getString(ByteBuffer buffer, int position) {
+    int length = buffer.getInt(position);
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    ByteBuffer view = buffer.duplicate();
+    view.position(position + Integer.BYTES);
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Returns the number of bytes the string encoded at {@code position} takes. */
+  private static int getEncodedLength(ByteBuffer buffer, int position) {
+    return Integer.BYTES + Math.max(0, buffer.getInt(position));
+  }
+}
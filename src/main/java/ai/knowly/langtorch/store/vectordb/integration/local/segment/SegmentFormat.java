@@ -0,0 +1,36 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.segment;
+
+/**
+ * The layout of a segment file. All numbers are little-endian.
+ *
+ * <pre>
+ *   header                 HEADER_BYTES, the fields below
+ *   vectors                size * dimensions floats, in slot order
+ *   id offsets             size + 1 ints, the start of every slot's id in the id data
+ *   id data                the UTF-8 bytes of the ids
+ *   sorted slots           size ints, the slots ordered by the bytes of their ids
+ *   document offsets       size + 1 longs, the start of every slot's document in the document data
+ *   document data          the documents, as encoded by {@link DocumentCodec}
+ * </pre>
+ *
+ * The vectors start at a 64 byte boundary so that they can be read straight from the mapped file.
+ */
+final class SegmentFormat {
+  static final int MAGIC = 0x4C545653;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 64;
+
+  // Offsets of the header fields.
+  static final int MAGIC_OFFSET = 0;
+  static final int VERSION_OFFSET = 4;
+  static final int DIMENSIONS_OFFSET = 8;
+  static final int SIZE_OFFSET = 12;
+  static final int ID_OFFSETS_OFFSET = 16;
+  static final int ID_DATA_OFFSET = 24;
+  static final int SORTED_SLOTS_OFFSET = 32;
+  static final int DOCUMENT_OFFSETS_OFFSET = 40;
+  static final int DOCUMENT_DATA_OFFSET = 48;
+  static final int FILE_LENGTH_OFFSET = 56;
+
+  private SegmentFormat() {}
+}
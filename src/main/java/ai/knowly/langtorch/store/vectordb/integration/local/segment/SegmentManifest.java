@@ -0,0 +1,107 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.segment;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The list of live segment files of a directory, with the deletion file of each, and the first
+ * write-ahead log generation that is not sealed into them. The manifest is a small text file that
+ * is replaced atomically, which makes it the commit point of seals and merges: files it does not
+ * reference are leftovers of an interrupted one.
+ */
+final class SegmentManifest {
+  static final String FILE_NAME = "MANIFEST";
+  private static final String NO_DELETIONS = "-";
+
+  /** A segment file and the file of its deleted slots, null if none is deleted. */
+  static final class Entry {
+    final String segmentFile;
+    final String deletionFile;
+
+    Entry(String segmentFile, String deletionFile) {
+      this.segmentFile = segmentFile;
+      this.deletionFile = deletionFile;
+    }
+  }
+
+  // Incremented by every write, to give rewritten deletion files a new name.
+  final long version;
+  final long walGeneration;
+  final long nextSegmentNumber;
+  final List<Entry> entries;
+
+  SegmentManifest(long version, long walGeneration, long nextSegmentNumber, List<Entry> entries) {
+    this.version = version;
+    this.walGeneration = walGeneration;
+    this.nextSegmentNumber = nextSegmentNumber;
+    this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+  }
+
+  /** Reads the manifest of the directory, or returns an empty one if there is none. */
+  static SegmentManifest read(Path directory) throws IOException {
+    Path path = directory.resolve(FILE_NAME);
+    if (!Files.exists(path)) {
+      return new SegmentManifest(0, 0, 0, Collections.emptyList());
+    }
+    long version = 0;
+    long walGeneration = 0;
+    long nextSegmentNumber = 0;
+    List<Entry> entries = new ArrayList<>();
+    for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+      String[] fields = line.split(" ");
+      switch (fields[0]) {
+        case "version":
+          version = Long.parseLong(fields[1]);
+          break;
+        case "walGeneration":
+          walGeneration = Long.parseLong(fields[1]);
+          break;
+        case "nextSegment":
+          nextSegmentNumber = Long.parseLong(fields[1]);
+          break;
+        case "segment":
+          entries.add(
+              new Entry(fields[1], NO_DELETIONS.equals(fields[2]) ? null : fields[2]));
+          break;
+        default:
+          throw new IOException("Unexpected manifest line: " + line);
+      }
+    }
+    return new SegmentManifest(version, walGeneration, nextSegmentNumber, entries);
+  }
+
+  /** Replaces the manifest of the directory with this one. */
+  void write(Path directory) throws IOException {
+    StringBuilder content = new StringBuilder();
+    content.append("version ").append(version).append('\n');
+    content.append("walGeneration ").append(walGeneration).append('\n');
+    content.append("nextSegment ").append(nextSegmentNumber).append('\n');
+    for (Entry entry : entries) {
+      content
+          .append("segment ")
+          .append(entry.segmentFile)
+          .append(' ')
+          .append(entry.deletionFile == null ? NO_DELETIONS : entry.deletionFile)
+          .append('\n');
+    }
+    Path temporaryPath = directory.resolve(FILE_NAME + ".tmp");
+    writeDurably(temporaryPath, content.toString().getBytes(StandardCharsets.UTF_8));
+    Files.move(temporaryPath, directory.resolve(FILE_NAME), StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Writes the file and forces it to disk. */
+  static void writeDurably(Path path, byte[] content) throws IOException {
+    Files.write(path, content);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.segment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a segment file in the {@link SegmentFormat}. Vectors are streamed to the file as they are
+ * added, ids and documents are buffered until {@link #finish()} writes the tables behind them. The
+ * segment is written to a temporary file that is moved into place once complete, so a segment file
+ * is never seen half written.
+ */
+final class SegmentWriter implements Closeable {
+  private static final int VECTOR_BUFFER_BYTES = 1 << 16;
+
+  private final Path path;
+  private final Path temporaryPath;
+  private final int dimensions;
+  private final FileChannel channel;
+  private final ByteBuffer vectorBuffer;
+  private final List<byte[]> ids = new ArrayList<>();
+  private final ByteArrayOutputStream documents = new ByteArrayOutputStream();
+  private final List<Long> documentOffsets = new ArrayList<>();
+  private boolean isFinished;
+
+  SegmentWriter(Path path, int dimensions) throws IOException {
+    this.path = path;
+    this.temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+    this.dimensions = dimensions;
+    this.channel =
+        FileChannel.open(
+            temporaryPath,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    this.vectorBuffer =
+        ByteBuffer.allocate(Math.max(VECTOR_BUFFER_BYTES, dimensions * Float.BYTES))
+            .order(ByteOrder.LITTLE_ENDIAN);
+    channel.position(SegmentFormat.HEADER_BYTES);
+  }
+
+  /** Returns the number of documents added so far, which is the slot of the next one. */
+  int size() {
+    return ids.size();
+  }
+
+  /**
+   * Adds a document in the next slot.
+   *
+   * @param encodedDocument the document as encoded by {@link DocumentCodec}
+   */
+  void add(String id, float[] vector, byte[] encodedDocument) throws IOException {
+    if (vector.length != dimensions) {
+      throw new IllegalArgumentException(
+          "Vector has " + vector.length + " dimensions, the segment has " + dimensions);
+    }
+    if (vectorBuffer.remaining() < vector.length * Float.BYTES) {
+      flushVectors();
+    }
+    for (float value : vector) {
+      vectorBuffer.putFloat(value);
+    }
+    ids.add(id.getBytes(StandardCharsets.UTF_8));
+    documentOffsets.add((long) documents.size());
+    documents.write(encodedDocument);
+  }
+
+  /** Writes the tables and the header, forces the file to disk and moves it into place. */
+  void finish() throws IOException {
+    flushVectors();
+    int size = ids.size();
+    long idOffsetsOffset = channel.position();
+    ByteBuffer idOffsets = newBuffer((size + 1) * Integer.BYTES);
+    int idOffset = 0;
+    for (byte[] id : ids) {
+      idOffsets.putInt(idOffset);
+      idOffset += id.length;
+    }
+    idOffsets.putInt(idOffset);
+    idOffsets.flip();
+    write(idOffsets);
+
+    long idDataOffset = channel.position();
+    for (byte[] id : ids) {
+      write(ByteBuffer.wrap(id));
+    }
+
+    long sortedSlotsOffset = channel.position();
+    Integer[] sortedSlots = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      sortedSlots[i] = i;
+    }
+    Arrays.sort(sortedSlots, (a, b) -> Arrays.compareUnsigned(ids.get(a), ids.get(b)));
+    ByteBuffer sortedSlotBuffer = newBuffer(size * Integer.BYTES);
+    for (int slot : sortedSlots) {
+      sortedSlotBuffer.putInt(slot);
+    }
+    sortedSlotBuffer.flip();
+    write(sortedSlotBuffer);
+
+    long documentOffsetsOffset = channel.position();
+    ByteBuffer documentOffsetBuffer = newBuffer((size + 1) * Long.BYTES);
+    for (long documentOffset : documentOffsets) {
+      documentOffsetBuffer.putLong(documentOffset);
+    }
+    documentOffsetBuffer.putLong(documents.size());
+    documentOffsetBuffer.flip();
+    write(documentOffsetBuffer);
+
+    long documentDataOffset = channel.position();
+    write(ByteBuffer.wrap(documents.toByteArray()));
+    long fileLength = channel.position();
+
+    ByteBuffer header = newBuffer(SegmentFormat.HEADER_BYTES);
+    header.putInt(SegmentFormat.MAGIC_OFFSET, SegmentFormat.MAGIC);
+    header.putInt(SegmentFormat.VERSION_OFFSET, SegmentFormat.VERSION);
+    header.putInt(SegmentFormat.DIMENSIONS_OFFSET, dimensions);
+    header.putInt(SegmentFormat.SIZE_OFFSET, size);
+    header.putLong(SegmentFormat.ID_OFFSETS_OFFSET, idOffsetsOffset);
+    header.putLong(SegmentFormat.ID_DATA_OFFSET, idDataOffset);
+    header.putLong(SegmentFormat.SORTED_SLOTS_OFFSET, sortedSlotsOffset);
+    header.putLong(SegmentFormat.DOCUMENT_OFFSETS_OFFSET, documentOffsetsOffset);
+    header.putLong(SegmentFormat.DOCUMENT_DATA_OFFSET, documentDataOffset);
+    header.putLong(SegmentFormat.FILE_LENGTH_OFFSET, fileLength);
+    channel.position(0);
+    write(header);
+    channel.force(true);
+    channel.close();
+    Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE);
+    isFinished = true;
+  }
+
+  /** Discards the segment unless it was finished. */
+  @Override
+  public void close() throws IOException {
+    if (!isFinished) {
+      channel.close();
+      Files.deleteIfExists(temporaryPath);
+    }
+  }
+
+  private void flushVectors() throws IOException {
+    vectorBuffer.flip();
+    write(vectorBuffer);
+    vectorBuffer.clear();
+  }
+
+  private void write(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static ByteBuffer newBuffer(int capacity) {
+    return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+  }
+}
@@ -0,0 +1,1060 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.segment;
+
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.embed;
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.getDocuments;
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.getVectors;
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.withIds;
+
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.schema.io.Metadata;
+import ai.knowly.langtorch.store.vectordb.integration.DocumentEmbedder;
+import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.local.MetadataBitmapIndex;
+import ai.knowly.langtorch.store.vectordb.integration.local.TopKHeap;
+import ai.knowly.langtorch.store.vectordb.integration.local.VectorFileException;
+import ai.knowly.langtorch.store.vectordb.integration.local.schema.SegmentedVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategy;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionWriter;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.inject.Inject;
+import lombok.NonNull;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * A vector store that persists its documents in a directory, so that a restarted process serves
+ * queries right away instead of re-embedding or re-downloading its corpus.
+ *
+ * <p>Writes are appended to a write-ahead log and kept in memory. Once the log holds {@code
+ * sealThreshold} writes, they are sealed in the background into an immutable segment file: a
+ * contiguous block of vectors, an id table sorted for lookups and the documents. Segments are
+ * mapped into memory, so opening the store reads their headers, their deletion sets, the metadata
+ * of their documents and the unsealed log, and nothing else. Deleting or replacing a document
+ * marks its slot in the deletion set of its segment. When there are more than {@code maxSegments}
+ * segments, the smallest ones are merged into one in the background, which drops their deleted
+ * slots. A manifest that is replaced atomically lists the live files, so an interrupted seal or
+ * merge leaves the directory as it was before.
+ *
+ * <p>Similarity searches are exact scans of the segments and of the unsealed writes. Every segment
+ * keeps a {@link MetadataBitmapIndex} of the metadata of its documents, built when it is sealed or
+ * opened, so that filtered searches only score the matching slots. Searches run concurrently with
+ * each other, writes are exclusive.
+ */
+public class SegmentedVectorStore implements VectorStore, Closeable {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  // Number of vectors copied out of a segment mapping at a time while scanning.
+  private static final int SCAN_CHUNK_SIZE = 256;
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String LOG_PREFIX = "wal-";
+  private static final String LOG_SUFFIX = ".log";
+  // Bounds of the delay before a failed merge is retried, doubled on every failure.
+  private static final long MIN_MERGE_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long MAX_MERGE_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+  private final DocumentEmbedder documentEmbedder;
+  private final DistanceStrategy distanceStrategy;
+  private final SegmentedVectorStoreSpec segmentedVectorStoreSpec;
+  private final Path directory;
+  private final int dimensions;
+  private final ExecutorService maintenanceExecutor;
+  private final AtomicBoolean isSealScheduled = new AtomicBoolean();
+  private final AtomicBoolean isMergeScheduled = new AtomicBoolean();
+  // The System.nanoTime() before which failed merges are not retried in the background.
+  private volatile long mergeRetryNanos = System.nanoTime();
+  // Only accessed by the maintenance thread.
+  private long mergeBackoffNanos;
+  // Held while writes are logged and applied, so they are applied in the order of the log.
+  private final Object logMonitor = new Object();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // Guarded by the lock. An id is live in at most one segment, or in the unsealed writes.
+  private final List<Segment> segments = new ArrayList<>();
+  // Guarded by the lock. The unsealed writes by id, in the order they were first written.
+  private Map<String, Entry> memtable = new LinkedHashMap<>();
+  // Guarded by the lock. The writes being sealed, shadowed by the memtable, or null.
+  private Map<String, Entry> sealing;
+  // Guarded by the log monitor.
+  private WriteAheadLog writeAheadLog;
+  private long walGeneration;
+  // Guarded by this, which serializes seals and merges.
+  private long manifestVersion;
+  private long sealedWalGeneration;
+  private long nextSegmentNumber;
+  private boolean isClosed;
+
+  /**
+   * Opens the store in the directory of the spec, replaying the writes that were not sealed.
+   *
+   * @throws VectorFileException if the directory cannot be read
+   */
+  @Inject
+  public SegmentedVectorStore(
+      @NonNull EmbeddingProcessor embeddingProcessor,
+      SegmentedVectorStoreSpec segmentedVectorStoreSpec,
+      @NonNull DistanceStrategy distanceStrategy) {
+    if (segmentedVectorStoreSpec.getVectorDimensions() <= 0) {
+      throw new IllegalArgumentException(
+          "vectorDimensions must be greater than 0, was "
+              + segmentedVectorStoreSpec.getVectorDimensions());
+    }
+    if (segmentedVectorStoreSpec.getSealThreshold() <= 0) {
+      throw new IllegalArgumentException(
+          "sealThreshold must be greater than 0, was "
+              + segmentedVectorStoreSpec.getSealThreshold());
+    }
+    if (segmentedVectorStoreSpec.getMaxSegments() <= 0) {
+      throw new IllegalArgumentException(
+          "maxSegments must be greater than 0, was " + segmentedVectorStoreSpec.getMaxSegments());
+    }
+    if (segmentedVectorStoreSpec.getMergeFactor() < 2) {
+      throw new IllegalArgumentException(
+          "mergeFactor must be at least 2, was " + segmentedVectorStoreSpec.getMergeFactor());
+    }
+    if (segmentedVectorStoreSpec.getMaxMergedVectorBytes() <= 0
+        || segmentedVectorStoreSpec.getMaxMergedVectorBytes() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          "maxMergedVectorBytes must be between 1 and Integer.MAX_VALUE, was "
+              + segmentedVectorStoreSpec.getMaxMergedVectorBytes());
+    }
+    this.documentEmbedder =
+        new DocumentEmbedder(
+            embeddingProcessor,
+            segmentedVectorStoreSpec.getModel(),
+            segmentedVectorStoreSpec.getEmbeddingBatchSpec());
+    this.distanceStrategy = distanceStrategy;
+    this.segmentedVectorStoreSpec = segmentedVectorStoreSpec;
+    this.directory = segmentedVectorStoreSpec.getDirectory();
+    this.dimensions = segmentedVectorStoreSpec.getVectorDimensions();
+    this.maintenanceExecutor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("segment-maintenance-%d")
+                .setDaemon(true)
+                .build());
+    try {
+      recover();
+    } catch (IOException e) {
+      throw new VectorFileException(e);
+    }
+    scheduleSealIfNeeded();
+  }
+
+  /**
+   * Adds the documents to the store. Like a primary key, an id can only be added once.
+   *
+   * @return true if all documents were added, false if an id is already taken, in which case no
+   *     document is added
+   */
+  @Override
+  public boolean addDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    List<float[]> vectors = embed(documentEmbedder, identifiedDocuments, dimensions);
+    synchronized (logMonitor) {
+      Set<String> ids = new HashSet<>();
+      for (DomainDocument document : identifiedDocuments) {
+        String id = document.getId().get();
+        if (!ids.add(id) || contains(id)) {
+          return false;
+        }
+      }
+      logAndApply(identifiedDocuments, vectors, Collections.emptyList());
+    }
+    scheduleSealIfNeeded();
+    return true;
+  }
+
+  /**
+   * Performs an exact similarity search over all documents that satisfy the filter and metadata
+   * conditions of the query.
+   *
+   * @throws IllegalArgumentException if the query does not have the dimensions of the store
+   */
+  @Override
+  public List<DomainDocument> similaritySearch(SimilaritySearchQuery similaritySearchQuery) {
+    return similaritySearchBatch(Collections.singletonList(similaritySearchQuery)).get(0);
+  }
+
+  /**
+   * Performs the similarity searches with a single scan of the segments and the memtable: every
+   * vector is read from the mapped files once for all queries. The metadata conditions of a query
+   * are evaluated on the bitmap index of each segment, and few enough matches are read one by one
+   * instead of taking part in the scan.
+   *
+   * @throws IllegalArgumentException if a query does not have the dimensions of the store
+   */
+  @Override
+  public List<List<DomainDocument>> similaritySearchBatch(
+      List<SimilaritySearchQuery> similaritySearchQueries) {
+    int queryCount = similaritySearchQueries.size();
+    float[][] queries = new float[queryCount][];
+    List<List<MetadataCondition>> conditions = new ArrayList<>(queryCount);
+    for (int q = 0; q < queryCount; q++) {
+      queries[q] = similaritySearchQueries.get(q).getQueryVector();
+      if (queries[q].length != dimensions) {
+        throw new IllegalArgumentException(
+            "Query has " + queries[q].length + " dimensions, the store has " + dimensions);
+      }
+      conditions.add(similaritySearchQueries.get(q).getAllMetadataConditions());
+    }
+    lock.readLock().lock();
+    try {
+      List<Entry> unsealedEntries = getUnsealedEntries();
+      int size = getSize(unsealedEntries);
+      TopKHeap[] heaps = new TopKHeap[queryCount];
+      for (int q = 0; q < queryCount; q++) {
+        int k = (int) Math.min(similaritySearchQueries.get(q).getTopK(), size);
+        heaps[q] = new TopKHeap(k, distanceStrategy.isSimilarity());
+      }
+      float[] chunk = new float[SCAN_CHUNK_SIZE * dimensions];
+      // Results are identified by their slot in the concatenation of the segments, followed by the
+      // index of their unsealed entry.
+      int firstSlot = 0;
+      for (Segment segment : segments) {
+        scan(segment, firstSlot, queries, conditions, heaps, chunk);
+        firstSlot += segment.file.size();
+      }
+      for (int i = 0; i < unsealedEntries.size(); i++) {
+        Entry entry = unsealedEntries.get(i);
+        for (int q = 0; q < queryCount; q++) {
+          if (!conditions.get(q).isEmpty() && !matches(entry.document, conditions.get(q))) {
+            continue;
+          }
+          heaps[q].offer(
+              firstSlot + i, distanceStrategy.calculateDistance(queries[q], entry.vector, 0));
+        }
+      }
+      List<List<DomainDocument>> results = new ArrayList<>(queryCount);
+      for (TopKHeap heap : heaps) {
+        heap.sort();
+        List<DomainDocument> result = new ArrayList<>(heap.size());
+        for (int i = 0; i < heap.size(); i++) {
+          int id = heap.getId(i);
+          DomainDocument document =
+              id >= firstSlot ? unsealedEntries.get(id - firstSlot).document : getDocument(id);
+          result.add(
+              document.toBuilder().setSimilarityScore(Optional.of(heap.getScore(i))).build());
+        }
+        results.add(result);
+      }
+      return results;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Replaces the stored documents with the same ids.
+   *
+   * @return true if all documents were updated, false if a document is not stored, in which case
+   *     no document is updated
+   */
+  @Override
+  public boolean updateDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    if (documents.stream().anyMatch(document -> document.getId().isEmpty())) {
+      return false;
+    }
+    List<float[]> vectors = embed(documentEmbedder, documents, dimensions);
+    synchronized (logMonitor) {
+      for (DomainDocument document : documents) {
+        if (!contains(document.getId().get())) {
+          return false;
+        }
+      }
+      logAndApply(documents, vectors, Collections.emptyList());
+    }
+    scheduleSealIfNeeded();
+    return true;
+  }
+
+  @Override
+  public boolean upsertDocuments(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return true;
+    }
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    List<float[]> vectors = embed(documentEmbedder, identifiedDocuments, dimensions);
+    synchronized (logMonitor) {
+      logAndApply(identifiedDocuments, vectors, Collections.emptyList());
+    }
+    scheduleSealIfNeeded();
+    return true;
+  }
+
+  @Override
+  public boolean deleteDocuments(List<DomainDocument> documents) {
+    List<String> documentIds = new ArrayList<>();
+    for (DomainDocument document : documents) {
+      document.getId().ifPresent(documentIds::add);
+    }
+    return deleteDocumentsByIds(documentIds);
+  }
+
+  @Override
+  public boolean deleteDocumentsByIds(List<String> documentsIds) {
+    synchronized (logMonitor) {
+      List<String> storedIds = new ArrayList<>();
+      for (String id : new LinkedHashSet<>(documentsIds)) {
+        if (contains(id)) {
+          storedIds.add(id);
+        }
+      }
+      if (!storedIds.isEmpty()) {
+        logAndApply(Collections.emptyList(), Collections.emptyList(), storedIds);
+      }
+    }
+    scheduleSealIfNeeded();
+    return true;
+  }
+
+  /**
+   * Writes the documents of the segments and the unsealed writes with their vectors. Writes wait
+   * until the export is done, so the export is a consistent snapshot.
+   */
+  @Override
+  public void exportDocuments(VectorCollectionWriter writer) throws IOException {
+    lock.readLock().lock();
+    try {
+      for (Segment segment : segments) {
+        VectorSegment file = segment.file;
+        for (int slot = 0; slot < file.size(); slot++) {
+          if (segment.deleted.get(slot)) {
+            continue;
+          }
+          float[] vector = new float[dimensions];
+          file.readVectors(slot, 1, vector);
+          writer.write(
+              VectorRecord.builder()
+                  .setDocument(file.getDocument(slot))
+                  .setVector(vector)
+                  .build());
+        }
+      }
+      for (Entry entry : getUnsealedEntries()) {
+        writer.write(
+            VectorRecord.builder().setDocument(entry.document).setVector(entry.vector).build());
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Upserts the documents of the chunk with their vectors through the write-ahead log, without
+   * embedding them again.
+   *
+   * @throws IllegalArgumentException if the vectors do not have the dimensions of the store
+   */
+  @Override
+  public long importVectorRecords(List<VectorRecord> vectorRecords) {
+    if (vectorRecords.isEmpty()) {
+      return 0;
+    }
+    List<DomainDocument> documents = getDocuments(vectorRecords);
+    List<float[]> vectors = getVectors(vectorRecords, dimensions);
+    synchronized (logMonitor) {
+      logAndApply(documents, vectors, Collections.emptyList());
+    }
+    scheduleSealIfNeeded();
+    return vectorRecords.size();
+  }
+
+  /** Returns the number of documents in the store. */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return getSize(getUnsealedEntries());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the number of segments the sealed documents are stored in. */
+  public int getSegmentCount() {
+    lock.readLock().lock();
+    try {
+      return segments.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Seals the unsealed writes into a new segment and starts a new write-ahead log. Searches and
+   * writes continue while the segment is written. This runs automatically in the background,
+   * calling it directly is only needed to seal at a specific time.
+   *
+   * @throws VectorFileException if the segment or the manifest cannot be written, in which case the
+   *     writes stay unsealed
+   */
+  public synchronized void seal() {
+    try {
+      sealUnchecked();
+    } catch (IOException e) {
+      throw new VectorFileException(e);
+    }
+  }
+
+  /**
+   * Merges the segments with the fewest live documents, up to {@code mergeFactor} of them, into a
+   * new segment without their deleted slots. Searches and writes continue while the segment is
+   * written. This runs automatically in the background, calling it directly is only needed to merge
+   * at a specific time.
+   *
+   * @return true if segments were merged, false if no two segments fit into {@link
+   *     SegmentedVectorStoreSpec#getMaxMergedVectorBytes()} together
+   * @throws VectorFileException if the segment or the manifest cannot be written
+   */
+  public synchronized boolean merge() {
+    try {
+      return mergeUnchecked();
+    } catch (IOException e) {
+      throw new VectorFileException(e);
+    }
+  }
+
+  /**
+   * Waits for a running seal or merge, seals the unsealed writes so that the next open does not
+   * have to replay them, and closes the write-ahead log.
+   */
+  @Override
+  public void close() throws IOException {
+    maintenanceExecutor.shutdown();
+    synchronized (this) {
+      if (isClosed) {
+        return;
+      }
+      sealUnchecked();
+      isClosed = true;
+      synchronized (logMonitor) {
+        writeAheadLog.close();
+      }
+    }
+  }
+
+  /** Opens the segments of the manifest and replays the logs that are not sealed into them. */
+  private void recover() throws IOException {
+    Files.createDirectories(directory);
+    SegmentManifest manifest = SegmentManifest.read(directory);
+    manifestVersion = manifest.version;
+    sealedWalGeneration = manifest.walGeneration;
+    walGeneration = manifest.walGeneration;
+    nextSegmentNumber = manifest.nextSegmentNumber;
+    for (SegmentManifest.Entry entry : manifest.entries) {
+      VectorSegment file = VectorSegment.open(directory.resolve(entry.segmentFile));
+      if (file.getDimensions() != dimensions) {
+        throw new IllegalArgumentException(
+            "Segment "
+                + entry.segmentFile
+                + " has "
+                + file.getDimensions()
+                + " dimensions, the store has "
+                + dimensions);
+      }
+      BitSet deleted =
+          entry.deletionFile == null
+              ? new BitSet()
+              : BitSet.valueOf(Files.readAllBytes(directory.resolve(entry.deletionFile)));
+      segments.add(new Segment(entry.segmentFile, file, deleted, entry.deletionFile));
+    }
+    deleteUnreferencedFiles();
+
+    List<Long> logGenerations = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, LOG_PREFIX + "*")) {
+      for (Path file : files) {
+        logGenerations.add(getLogGeneration(file.getFileName().toString()));
+      }
+    }
+    Collections.sort(logGenerations);
+    long validLength = 0;
+    WriteAheadLog.Visitor replay =
+        new WriteAheadLog.Visitor() {
+          @Override
+          public void put(String id, float[] vector, byte[] encodedDocument) {
+            ByteBuffer buffer = ByteBuffer.wrap(encodedDocument).order(ByteOrder.LITTLE_ENDIAN);
+            applyPut(DocumentCodec.decode(buffer, 0, id), vector);
+          }
+
+          @Override
+          public void delete(String id) {
+            applyDelete(id);
+          }
+        };
+    for (long generation : logGenerations) {
+      validLength = WriteAheadLog.replay(getLogPath(generation), replay);
+      walGeneration = generation;
+    }
+    writeAheadLog = new WriteAheadLog(getLogPath(walGeneration), validLength);
+  }
+
+  /** Called holding the log monitor. */
+  private void logAndApply(
+      List<DomainDocument> documents, List<float[]> vectors, List<String> deletedIds) {
+    try {
+      for (int i = 0; i < documents.size(); i++) {
+        DomainDocument document = documents.get(i);
+        writeAheadLog.appendPut(
+            document.getId().get(), vectors.get(i), DocumentCodec.encode(document));
+      }
+      for (String id : deletedIds) {
+        writeAheadLog.appendDelete(id);
+      }
+      writeAheadLog.commit(segmentedVectorStoreSpec.isSyncWrites());
+    } catch (IOException e) {
+      throw new VectorFileException(e);
+    }
+    lock.writeLock().lock();
+    try {
+      for (int i = 0; i < documents.size(); i++) {
+        applyPut(documents.get(i), vectors.get(i));
+      }
+      deletedIds.forEach(this::applyDelete);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Called holding the write lock, or while recovering. */
+  private void applyPut(DomainDocument document, float[] vector) {
+    String id = document.getId().get();
+    deleteFromSegments(id);
+    memtable.put(id, new Entry(document, vector));
+  }
+
+  /** Called holding the write lock, or while recovering. */
+  private void applyDelete(String id) {
+    deleteFromSegments(id);
+    memtable.put(id, Entry.DELETED);
+  }
+
+  private void deleteFromSegments(String id) {
+    for (Segment segment : segments) {
+      int slot = segment.file.findSlot(id);
+      if (slot >= 0 && !segment.deleted.get(slot)) {
+        segment.deleted.set(slot);
+        return;
+      }
+    }
+  }
+
+  /** Returns whether a document with the id is stored. Takes the read lock. */
+  private boolean contains(String id) {
+    lock.readLock().lock();
+    try {
+      Entry entry = memtable.get(id);
+      if (entry == null && sealing != null) {
+        entry = sealing.get(id);
+      }
+      if (entry != null) {
+        return entry.document != null;
+      }
+      for (Segment segment : segments) {
+        int slot = segment.file.findSlot(id);
+        if (slot >= 0 && !segment.deleted.get(slot)) {
+          return true;
+        }
+      }
+      return false;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the live unsealed documents. Called holding the lock. */
+  private List<Entry> getUnsealedEntries() {
+    List<Entry> entries = new ArrayList<>();
+    if (sealing != null) {
+      for (Map.Entry<String, Entry> entry : sealing.entrySet()) {
+        if (entry.getValue().document != null && !memtable.containsKey(entry.getKey())) {
+          entries.add(entry.getValue());
+        }
+      }
+    }
+    for (Entry entry : memtable.values()) {
+      if (entry.document != null) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  /** Called holding the lock. */
+  private int getSize(List<Entry> unsealedEntries) {
+    int size = unsealedEntries.size();
+    for (Segment segment : segments) {
+      size += segment.getLiveCount();
+    }
+    return size;
+  }
+
+  /** Called holding the lock. */
+  private void scan(
+      Segment segment,
+      int firstSlot,
+      float[][] queries,
+      List<List<MetadataCondition>> conditions,
+      TopKHeap[] heaps,
+      float[] chunk) {
+    VectorSegment file = segment.file;
+    // The slots matching the conditions of each filtered query, null for unfiltered ones.
+    RoaringBitmap[] candidates = new RoaringBitmap[queries.length];
+    boolean[] isScanned = new boolean[queries.length];
+    boolean isScanNeeded = false;
+    for (int q = 0; q < queries.length; q++) {
+      if (!conditions.get(q).isEmpty()) {
+        candidates[q] = segment.metadataIndex.evaluate(conditions.get(q));
+        if (candidates[q].getLongCardinality()
+            <= segmentedVectorStoreSpec.getBruteForceCandidateLimit()) {
+          scoreCandidates(segment, firstSlot, queries[q], candidates[q], heaps[q], chunk);
+          continue;
+        }
+      }
+      isScanned[q] = true;
+      isScanNeeded = true;
+    }
+    if (!isScanNeeded) {
+      return;
+    }
+    for (int chunkStart = 0; chunkStart < file.size(); chunkStart += SCAN_CHUNK_SIZE) {
+      int count = Math.min(SCAN_CHUNK_SIZE, file.size() - chunkStart);
+      file.readVectors(chunkStart, count, chunk);
+      for (int i = 0; i < count; i++) {
+        int slot = chunkStart + i;
+        if (segment.deleted.get(slot)) {
+          continue;
+        }
+        for (int q = 0; q < queries.length; q++) {
+          if (!isScanned[q] || (candidates[q] != null && !candidates[q].contains(slot))) {
+            continue;
+          }
+          heaps[q].offer(
+              firstSlot + slot,
+              distanceStrategy.calculateDistance(queries[q], chunk, i * dimensions));
+        }
+      }
+    }
+  }
+
+  /** Scores the live candidate slots of a segment one by one. Called holding the lock. */
+  private void scoreCandidates(
+      Segment segment,
+      int firstSlot,
+      float[] query,
+      RoaringBitmap candidates,
+      TopKHeap heap,
+      float[] vector) {
+    PeekableIntIterator slots = candidates.getIntIterator();
+    while (slots.hasNext()) {
+      int slot = slots.next();
+      if (segment.deleted.get(slot)) {
+        continue;
+      }
+      segment.file.readVectors(slot, 1, vector);
+      heap.offer(firstSlot + slot, distanceStrategy.calculateDistance(query, vector, 0));
+    }
+  }
+
+  /** Returns the document in a slot of the concatenated segments. Called holding the lock. */
+  private DomainDocument getDocument(int slot) {
+    for (Segment segment : segments) {
+      if (slot < segment.file.size()) {
+        return segment.file.getDocument(slot);
+      }
+      slot -= segment.file.size();
+    }
+    throw new IllegalStateException("No segment holds slot " + slot);
+  }
+
+  /** Called holding this. */
+  private void sealUnchecked() throws IOException {
+    if (isClosed) {
+      return;
+    }
+    Map<String, Entry> frozen;
+    long sealedGeneration;
+    synchronized (logMonitor) {
+      lock.readLock().lock();
+      try {
+        if (memtable.isEmpty()) {
+          return;
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+      WriteAheadLog nextWriteAheadLog = new WriteAheadLog(getLogPath(walGeneration + 1), 0);
+      lock.writeLock().lock();
+      try {
+        frozen = memtable;
+        sealing = frozen;
+        memtable = new LinkedHashMap<>();
+      } finally {
+        lock.writeLock().unlock();
+      }
+      writeAheadLog.close();
+      writeAheadLog = nextWriteAheadLog;
+      sealedGeneration = ++walGeneration;
+    }
+
+    Segment segment;
+    try {
+      segment = writeSegment(frozen);
+    } catch (IOException | RuntimeException e) {
+      // The writes stay unsealed, and their log is still replayed on the next open.
+      lock.writeLock().lock();
+      try {
+        Map<String, Entry> unsealed = new LinkedHashMap<>(frozen);
+        unsealed.putAll(memtable);
+        memtable = unsealed;
+        sealing = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      throw e;
+    }
+    lock.writeLock().lock();
+    try {
+      if (segment != null) {
+        // Writes since the seal started replace or delete the sealed documents.
+        for (String id : memtable.keySet()) {
+          int slot = segment.file.findSlot(id);
+          if (slot >= 0) {
+            segment.deleted.set(slot);
+          }
+        }
+        segments.add(segment);
+      }
+      sealing = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    writeManifest(sealedGeneration);
+    scheduleMergeIfNeeded();
+  }
+
+  /** Writes the live documents to a new segment, or returns null if there are none. */
+  private Segment writeSegment(Map<String, Entry> writes) throws IOException {
+    String segmentFile = getSegmentFileName(nextSegmentNumber++);
+    Path path = directory.resolve(segmentFile);
+    try (SegmentWriter writer = new SegmentWriter(path, dimensions)) {
+      for (Map.Entry<String, Entry> write : writes.entrySet()) {
+        Entry entry = write.getValue();
+        if (entry.document != null) {
+          writer.add(write.getKey(), entry.vector, DocumentCodec.encode(entry.document));
+        }
+      }
+      if (writer.size() == 0) {
+        return null;
+      }
+      writer.finish();
+    }
+    return new Segment(segmentFile, VectorSegment.open(path), new BitSet(), null);
+  }
+
+  /** Returns whether segments were merged. Called holding this. */
+  private boolean mergeUnchecked() throws IOException {
+    if (isClosed) {
+      return false;
+    }
+    List<Segment> inputs = new ArrayList<>();
+    List<BitSet> deletedAtStart = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      List<Segment> candidates = new ArrayList<>(segments);
+      candidates.sort(Comparator.comparingInt(Segment::getLiveCount));
+      long vectorBytes = 0;
+      for (Segment candidate : candidates) {
+        vectorBytes += (long) candidate.getLiveCount() * dimensions * Float.BYTES;
+        if (inputs.size() == segmentedVectorStoreSpec.getMergeFactor()
+            || vectorBytes > segmentedVectorStoreSpec.getMaxMergedVectorBytes()) {
+          break;
+        }
+        inputs.add(candidate);
+        deletedAtStart.add((BitSet) candidate.deleted.clone());
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (inputs.size() < 2) {
+      return false;
+    }
+
+    String segmentFile = getSegmentFileName(nextSegmentNumber++);
+    Path path = directory.resolve(segmentFile);
+    // The slot of every input slot in the merged segment, -1 for deleted slots.
+    int[][] mergedSlots = new int[inputs.size()][];
+    boolean isEmpty;
+    try (SegmentWriter writer = new SegmentWriter(path, dimensions)) {
+      float[] vector = new float[dimensions];
+      for (int i = 0; i < inputs.size(); i++) {
+        VectorSegment file = inputs.get(i).file;
+        mergedSlots[i] = new int[file.size()];
+        for (int slot = 0; slot < file.size(); slot++) {
+          if (deletedAtStart.get(i).get(slot)) {
+            mergedSlots[i][slot] = -1;
+            continue;
+          }
+          mergedSlots[i][slot] = writer.size();
+          file.readVectors(slot, 1, vector);
+          writer.add(file.getId(slot), vector, file.getEncodedDocument(slot));
+        }
+      }
+      isEmpty = writer.size() == 0;
+      if (!isEmpty) {
+        writer.finish();
+      }
+    }
+    Segment merged =
+        isEmpty ? null : new Segment(segmentFile, VectorSegment.open(path), new BitSet(), null);
+
+    lock.writeLock().lock();
+    try {
+      if (merged != null) {
+        // Carry over the deletions made while the segment was written.
+        for (int i = 0; i < inputs.size(); i++) {
+          BitSet deletedSinceStart = (BitSet) inputs.get(i).deleted.clone();
+          deletedSinceStart.andNot(deletedAtStart.get(i));
+          for (int slot = deletedSinceStart.nextSetBit(0);
+              slot >= 0;
+              slot = deletedSinceStart.nextSetBit(slot + 1)) {
+            merged.deleted.set(mergedSlots[i][slot]);
+          }
+        }
+        segments.add(merged);
+      }
+      segments.removeAll(inputs);
+    } finally {
+      lock.writeLock().unlock();
+    }
+    writeManifest(sealedWalGeneration);
+    return true;
+  }
+
+  /**
+   * Writes the deletion sets that changed and a manifest listing the current segments, then deletes
+   * the files it no longer references. Called holding this.
+   *
+   * @param walGeneration the first log generation that is not sealed into the segments
+   */
+  private void writeManifest(long walGeneration) throws IOException {
+    long version = manifestVersion + 1;
+    List<Segment> currentSegments;
+    List<BitSet> changedDeletions = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      currentSegments = new ArrayList<>(segments);
+      for (Segment segment : currentSegments) {
+        boolean isChanged = segment.deleted.cardinality() != segment.persistedDeletionCount;
+        changedDeletions.add(isChanged ? (BitSet) segment.deleted.clone() : null);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    List<SegmentManifest.Entry> entries = new ArrayList<>();
+    List<String> deletionFiles = new ArrayList<>();
+    for (int i = 0; i < currentSegments.size(); i++) {
+      Segment segment = currentSegments.get(i);
+      BitSet deleted = changedDeletions.get(i);
+      String deletionFile = segment.deletionFile;
+      if (deleted != null) {
+        deletionFile = getDeletionFileName(segment.fileName, version);
+        SegmentManifest.writeDurably(directory.resolve(deletionFile), deleted.toByteArray());
+      }
+      deletionFiles.add(deletionFile);
+      entries.add(new SegmentManifest.Entry(segment.fileName, deletionFile));
+    }
+    new SegmentManifest(version, walGeneration, nextSegmentNumber, entries).write(directory);
+    manifestVersion = version;
+    sealedWalGeneration = walGeneration;
+    for (int i = 0; i < currentSegments.size(); i++) {
+      if (changedDeletions.get(i) != null) {
+        currentSegments.get(i).deletionFile = deletionFiles.get(i);
+        currentSegments.get(i).persistedDeletionCount = changedDeletions.get(i).cardinality();
+      }
+    }
+    deleteUnreferencedFiles();
+  }
+
+  /**
+   * Deletes the segment, deletion and log files that the manifest does not reference, and the
+   * temporary files of interrupted writes. Called holding this, or while recovering.
+   */
+  private void deleteUnreferencedFiles() throws IOException {
+    Set<String> referencedFiles = new HashSet<>();
+    lock.readLock().lock();
+    try {
+      for (Segment segment : segments) {
+        referencedFiles.add(segment.fileName);
+        if (segment.deletionFile != null) {
+          referencedFiles.add(segment.deletionFile);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        boolean isUnreferenced =
+            name.startsWith(SEGMENT_PREFIX) && !referencedFiles.contains(name)
+                || name.startsWith(LOG_PREFIX) && getLogGeneration(name) < sealedWalGeneration
+                || name.equals(SegmentManifest.FILE_NAME + ".tmp");
+        if (isUnreferenced) {
+          try {
+            Files.deleteIfExists(file);
+          } catch (IOException e) {
+            // Segments may still be mapped on platforms that do not allow deleting them.
+            logger.atWarning().withCause(e).log("Failed to delete %s", file);
+          }
+        }
+      }
+    }
+  }
+
+  private void scheduleSealIfNeeded() {
+    if (maintenanceExecutor.isShutdown()) {
+      return;
+    }
+    lock.readLock().lock();
+    try {
+      if (memtable.size() < segmentedVectorStoreSpec.getSealThreshold()) {
+        return;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (!isSealScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    maintenanceExecutor.execute(
+        () -> {
+          try {
+            seal();
+          } catch (RuntimeException e) {
+            logger.atSevere().withCause(e).log("Failed to seal the write-ahead log");
+          } finally {
+            isSealScheduled.set(false);
+          }
+        });
+  }
+
+  private void scheduleMergeIfNeeded() {
+    if (maintenanceExecutor.isShutdown()
+        || getSegmentCount() <= segmentedVectorStoreSpec.getMaxSegments()
+        || System.nanoTime() - mergeRetryNanos < 0
+        || !isMergeScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    maintenanceExecutor.execute(
+        () -> {
+          boolean isMerged = false;
+          try {
+            isMerged = merge();
+            mergeBackoffNanos = 0;
+          } catch (RuntimeException e) {
+            logger.atSevere().withCause(e).log("Failed to merge segments");
+            mergeBackoffNanos =
+                Math.min(
+                    Math.max(2 * mergeBackoffNanos, MIN_MERGE_BACKOFF_NANOS),
+                    MAX_MERGE_BACKOFF_NANOS);
+            mergeRetryNanos = System.nanoTime() + mergeBackoffNanos;
+          } finally {
+            isMergeScheduled.set(false);
+          }
+          // Segments left unmerged are merged after the next seal, only a merge that reduced the
+          // number of segments is followed by another one right away.
+          if (isMerged) {
+            scheduleMergeIfNeeded();
+          }
+        });
+  }
+
+  private Path getLogPath(long generation) {
+    return directory.resolve(String.format("%s%06d%s", LOG_PREFIX, generation, LOG_SUFFIX));
+  }
+
+  private static long getLogGeneration(String logFile) {
+    return Long.parseLong(
+        logFile.substring(LOG_PREFIX.length(), logFile.length() - LOG_SUFFIX.length()));
+  }
+
+  private static String getSegmentFileName(long number) {
+    return String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+  }
+
+  private static String getDeletionFileName(String segmentFile, long version) {
+    return segmentFile.substring(0, segmentFile.length() - SEGMENT_SUFFIX.length())
+        + "."
+        + version
+        + ".del";
+  }
+
+  private static boolean matches(DomainDocument document, List<MetadataCondition> conditions) {
+    return MetadataCondition.testAll(
+        conditions, document.getMetadata().map(Metadata::getValue).orElse(Collections.emptyMap()));
+  }
+
+  /** An unsealed write: a document and its vector, or a deletion if the document is null. */
+  private static final class Entry {
+    private static final Entry DELETED = new Entry(null, null);
+
+    private final DomainDocument document;
+    private final float[] vector;
+
+    private Entry(DomainDocument document, float[] vector) {
+      this.document = document;
+      this.vector = vector;
+    }
+  }
+
+  /** A mapped segment file and the slots deleted from it. */
+  private static final class Segment {
+    private final String fileName;
+    private final VectorSegment file;
+    // Never modified once built, deleted slots are left in it.
+    private final MetadataBitmapIndex metadataIndex = new MetadataBitmapIndex();
+    // Guarded by the lock of the store.
+    private final BitSet deleted;
+    // Guarded by the store. The deletion file of the manifest, and the deletions it holds.
+    private String deletionFile;
+    private int persistedDeletionCount;
+
+    private Segment(String fileName, VectorSegment file, BitSet deleted, String deletionFile) {
+      this.fileName = fileName;
+      this.file = file;
+      this.deleted = deleted;
+      this.deletionFile = deletionFile;
+      this.persistedDeletionCount = deleted.cardinality();
+      for (int slot = 0; slot < file.size(); slot++) {
+        metadataIndex.add(slot, file.getMetadata(slot));
+      }
+    }
+
+    private int getLiveCount() {
+      return file.size() - deleted.cardinality();
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.segment;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * An immutable segment file in the {@link SegmentFormat}, mapped into memory. Opening a segment
+ * reads only its header: vectors are scanned straight from the mapping, ids are looked up by binary
+ * search over the sorted slots and documents are decoded when they are returned, so a segment
+ * serves queries as soon as it is opened and its pages are loaded by the operating system on
+ * demand.
+ *
+ * <p>Segments are safe for concurrent use.
+ */
+final class VectorSegment {
+  private final Path path;
+  private final int dimensions;
+  private final int size;
+  private final FloatBuffer vectors;
+  // The mapped file from the id offsets to the end, positions are relative to tablesOffset.
+  private final ByteBuffer tables;
+  private final int idOffsetsPosition;
+  private final int idDataPosition;
+  private final int sortedSlotsPosition;
+  private final int documentOffsetsPosition;
+  private final int documentDataPosition;
+
+  private VectorSegment(Path path, ByteBuffer header, FileChannel channel) throws IOException {
+    this.path = path;
+    this.dimensions = header.getInt(SegmentFormat.DIMENSIONS_OFFSET);
+    this.size = header.getInt(SegmentFormat.SIZE_OFFSET);
+    long tablesOffset = header.getLong(SegmentFormat.ID_OFFSETS_OFFSET);
+    long fileLength = header.getLong(SegmentFormat.FILE_LENGTH_OFFSET);
+    if (fileLength != channel.size()) {
+      throw new IOException(
+          "Segment " + path + " should have " + fileLength + " bytes, has " + channel.size());
+    }
+    this.vectors =
+        map(channel, SegmentFormat.HEADER_BYTES, (long) size * dimensions * Float.BYTES)
+            .asFloatBuffer();
+    this.tables = map(channel, tablesOffset, fileLength - tablesOffset);
+    this.idOffsetsPosition = 0;
+    this.idDataPosition = toPosition(header.getLong(SegmentFormat.ID_DATA_OFFSET), tablesOffset);
+    this.sortedSlotsPosition =
+        toPosition(header.getLong(SegmentFormat.SORTED_SLOTS_OFFSET), tablesOffset);
+    this.documentOffsetsPosition =
+        toPosition(header.getLong(SegmentFormat.DOCUMENT_OFFSETS_OFFSET), tablesOffset);
+    this.documentDataPosition =
+        toPosition(header.getLong(SegmentFormat.DOCUMENT_DATA_OFFSET), tablesOffset);
+  }
+
+  /**
+   * Maps a segment file into memory.
+   *
+   * @throws IOException if the file cannot be read or is not a segment
+   */
+  static VectorSegment open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header =
+          ByteBuffer.allocate(SegmentFormat.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining()) {
+        if (channel.read(header) < 0) {
+          throw new IOException("Segment " + path + " is truncated");
+        }
+      }
+      if (header.getInt(SegmentFormat.MAGIC_OFFSET) != SegmentFormat.MAGIC) {
+        throw new IOException(path + " is not a segment");
+      }
+      int version = header.getInt(SegmentFormat.VERSION_OFFSET);
+      if (version != SegmentFormat.VERSION) {
+        throw new IOException("Segment " + path + " has unsupported version " + version);
+      }
+      // The mappings stay valid after the channel is closed.
+      return new VectorSegment(path, header, channel);
+    }
+  }
+
+  Path getPath() {
+    return path;
+  }
+
+  int getDimensions() {
+    return dimensions;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Copies the vectors of {@code count} consecutive slots into the start of {@code target}, one
+   * after the other.
+   */
+  void readVectors(int firstSlot, int count, float[] target) {
+    FloatBuffer view = vectors.duplicate();
+    view.position(firstSlot * dimensions);
+    view.get(target, 0, count * dimensions);
+  }
+
+  String getId(int slot) {
+    int start = getIdStart(slot);
+    byte[] id = new byte[getIdStart(slot + 1) - start];
+    ByteBuffer view = tables.duplicate();
+    view.position(idDataPosition + start);
+    view.get(id);
+    return new String(id, StandardCharsets.UTF_8);
+  }
+
+  /** Returns the slot of the document with the given id, or -1 if the segment does not hold it. */
+  int findSlot(String id) {
+    byte[] key = id.getBytes(StandardCharsets.UTF_8);
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int slot = tables.getInt(sortedSlotsPosition + middle * Integer.BYTES);
+      int comparison = compareId(slot, key);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  DomainDocument getDocument(int slot) {
+    return DocumentCodec.decode(tables, getDocumentPosition(slot), getId(slot));
+  }
+
+  /** Returns the metadata of the document in the slot, empty if it has none. */
+  Map<String, String> getMetadata(int slot) {
+    return DocumentCodec.decodeMetadata(tables, getDocumentPosition(slot));
+  }
+
+  /** Returns the document in the slot as encoded by {@link DocumentCodec}. */
+  byte[] getEncodedDocument(int slot) {
+    int position = getDocumentPosition(slot);
+    byte[] document = new byte[getDocumentPosition(slot + 1) - position];
+    ByteBuffer view = tables.duplicate();
+    view.position(position);
+    view.get(document);
+    return document;
+  }
+
+  private int getIdStart(int slot) {
+    return tables.getInt(idOffsetsPosition + slot * Integer.BYTES);
+  }
+
+  private int getDocumentPosition(int slot) {
+    return documentDataPosition
+        + (int) tables.getLong(documentOffsetsPosition + slot * Long.BYTES);
+  }
+
+  /** Compares the id in the slot with the key by their unsigned bytes, as the slots are sorted. */
+  private int compareId(int slot, byte[] key) {
+    int start = idDataPosition + getIdStart(slot);
+    int length = getIdStart(slot + 1) - getIdStart(slot);
+    for (int i = 0; i < Math.min(length, key.length); i++) {
+      int comparison = Byte.toUnsignedInt(tables.get(start + i)) - Byte.toUnsignedInt(key[i]);
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return length - key.length;
+  }
+
+  private static ByteBuffer map(FileChannel channel, long position, long length)
+      throws IOException {
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Segment region of " + length + " bytes cannot be mapped");
+    }
+    return channel
+        .map(FileChannel.MapMode.READ_ONLY, position, length)
+        .order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static int toPosition(long offset, long tablesOffset) {
+    return (int) (offset - tablesOffset);
+  }
+}
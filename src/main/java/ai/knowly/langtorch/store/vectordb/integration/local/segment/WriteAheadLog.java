@@ -0,0 +1,171 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.segment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of the writes that are not sealed into a segment yet. Every record is its
+ * payload length, the CRC-32 of the payload and the payload, little-endian, so a record torn by a
+ * crash is detected and the log is truncated before it when it is reopened.
+ *
+ * <p>Records are buffered by the append methods and written by {@link #commit(boolean)}.
+ */
+final class WriteAheadLog implements Closeable {
+  private static final byte PUT = 1;
+  private static final byte DELETE = 2;
+  private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+  /** Receives the records of a log in the order they were written. */
+  interface Visitor {
+    void put(String id, float[] vector, byte[] encodedDocument);
+
+    void delete(String id);
+  }
+
+  private final FileChannel channel;
+  private ByteBuffer pending = newBuffer(1 << 12);
+
+  /**
+   * Opens the log for appending, after truncating it behind its last complete record.
+   *
+   * @param validLength the length of the complete records, as returned by {@link #replay}
+   */
+  WriteAheadLog(Path path, long validLength) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    channel.truncate(validLength);
+    channel.position(validLength);
+  }
+
+  /**
+   * Passes the complete records of a log to the visitor.
+   *
+   * @return the length of the complete records
+   */
+  static long replay(Path path, Visitor visitor) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Write-ahead log " + path + " is too large to replay");
+      }
+      ByteBuffer log =
+          channel
+              .map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+              .order(ByteOrder.LITTLE_ENDIAN);
+      int position = 0;
+      while (log.limit() - position >= RECORD_HEADER_BYTES) {
+        int length = log.getInt(position);
+        if (length <= 0 || length > log.limit() - position - RECORD_HEADER_BYTES) {
+          break;
+        }
+        byte[] payload = new byte[length];
+        ByteBuffer view = log.duplicate();
+        view.position(position + RECORD_HEADER_BYTES);
+        view.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != log.getInt(position + Integer.BYTES)) {
+          break;
+        }
+        visit(ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN), visitor);
+        position += RECORD_HEADER_BYTES + length;
+      }
+      return position;
+    }
+  }
+
+  void appendPut(String id, float[] vector, byte[] encodedDocument) {
+    byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer payload =
+        newBuffer(
+            1
+                + 3 * Integer.BYTES
+                + idBytes.length
+                + vector.length * Float.BYTES
+                + encodedDocument.length);
+    payload.put(PUT).putInt(idBytes.length).put(idBytes).putInt(vector.length);
+    for (float value : vector) {
+      payload.putFloat(value);
+    }
+    payload.putInt(encodedDocument.length).put(encodedDocument);
+    append(payload);
+  }
+
+  void appendDelete(String id) {
+    byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer payload = newBuffer(1 + Integer.BYTES + idBytes.length);
+    payload.put(DELETE).putInt(idBytes.length).put(idBytes);
+    append(payload);
+  }
+
+  /**
+   * Writes the appended records. If they cannot be written, the log is truncated back to where it
+   * was, so later records are not appended behind a partial one.
+   *
+   * @param sync whether to force them to disk before returning
+   */
+  void commit(boolean sync) throws IOException {
+    long start = channel.position();
+    pending.flip();
+    try {
+      while (pending.hasRemaining()) {
+        channel.write(pending);
+      }
+    } catch (IOException e) {
+      channel.truncate(start);
+      channel.position(start);
+      throw e;
+    } finally {
+      pending.clear();
+    }
+    if (sync) {
+      channel.force(false);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void append(ByteBuffer payload) {
+    CRC32 crc = new CRC32();
+    crc.update(payload.array());
+    int length = payload.capacity();
+    if (pending.remaining() < RECORD_HEADER_BYTES + length) {
+      int required = pending.position() + RECORD_HEADER_BYTES + length;
+      ByteBuffer grown = newBuffer(Math.max(2 * pending.capacity(), required));
+      pending.flip();
+      grown.put(pending);
+      pending = grown;
+    }
+    pending.putInt(length).putInt((int) crc.getValue()).put(payload.array());
+  }
+
+  private static void visit(ByteBuffer payload, Visitor visitor) {
+    byte type = payload.get();
+    byte[] id = new byte[payload.getInt()];
+    payload.get(id);
+    String documentId = new String(id, StandardCharsets.UTF_8);
+    if (type == DELETE) {
+      visitor.delete(documentId);
+      return;
+    }
+    float[] vector = new float[payload.getInt()];
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] = payload.getFloat();
+    }
+    byte[] encodedDocument = new byte[payload.getInt()];
+    payload.get(encodedDocument);
+    visitor.put(documentId, vector, encodedDocument);
+  }
+
+  private static ByteBuffer newBuffer(int capacity) {
+    return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+  }
+}
@@ -0,0 +1,14 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A unit of work executed against a database connection provided by {@link PGVectorService}.
+ *
+ * @param <T> The type of the result.
+ */
+@FunctionalInterface
+public interface ConnectionCallback<T> {
+  T execute(Connection connection) throws SQLException;
+}
@@ -0,0 +1,102 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes rows in the PostgreSQL binary COPY format, as consumed by {@code COPY ... FROM STDIN
+ * (FORMAT BINARY)}. Text and jsonb columns are sent as UTF-8 and vector columns use pgvector's
+ * binary representation, so no value has to be rendered as text or parsed by the server.
+ */
+public class PGBinaryCopyWriter {
+  private static final byte[] SIGNATURE = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0
+  };
+  private static final int NULL_LENGTH = -1;
+  private static final short TRAILER = -1;
+  private static final int VECTOR_HEADER_BYTES = 4;
+  private static final int JSONB_VERSION = 1;
+
+  private final DataOutputStream out;
+
+  /**
+   * Creates a writer and writes the COPY header to the given stream.
+   *
+   * @param outputStream the stream the COPY data is written to
+   * @throws IOException if the header cannot be written
+   */
+  public PGBinaryCopyWriter(OutputStream outputStream) throws IOException {
+    this.out = new DataOutputStream(outputStream);
+    out.write(SIGNATURE);
+    // Flags field and header extension length.
+    out.writeInt(0);
+    out.writeInt(0);
+  }
+
+  /**
+   * Starts a new row.
+   *
+   * @param fieldCount the number of fields that will be written for the row
+   * @throws IOException if the row header cannot be written
+   */
+  public void startRow(int fieldCount) throws IOException {
+    out.writeShort(fieldCount);
+  }
+
+  /**
+   * Writes a text field, or a NULL field if the value is null.
+   *
+   * @param value the value of the field
+   * @throws IOException if the field cannot be written
+   */
+  public void writeText(String value) throws IOException {
+    if (value == null) {
+      out.writeInt(NULL_LENGTH);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Writes a jsonb field: the format version followed by the JSON text.
+   *
+   * @param json the JSON document
+   * @throws IOException if the field cannot be written
+   */
+  public void writeJsonb(String json) throws IOException {
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(1 + bytes.length);
+    out.writeByte(JSONB_VERSION);
+    out.write(bytes);
+  }
+
+  /**
+   * Writes a pgvector field: the dimensions and an unused flag as 16-bit integers followed by the
+   * components as 32-bit floats.
+   *
+   * @param vector the components of the vector
+   * @throws IOException if the field cannot be written
+   */
+  public void writeVector(float[] vector) throws IOException {
+    out.writeInt(VECTOR_HEADER_BYTES + Float.BYTES * vector.length);
+    out.writeShort(vector.length);
+    out.writeShort(0);
+    for (float value : vector) {
+      out.writeFloat(value);
+    }
+  }
+
+  /**
+   * Writes the COPY trailer and flushes the underlying stream. No rows can be written afterwards.
+   *
+   * @throws IOException if the trailer cannot be written
+   */
+  public void finish() throws IOException {
+    out.writeShort(TRAILER);
+    out.flush();
+  }
+}
@@ -0,0 +1,110 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector;
+
+import ai.knowly.langtorch.store.vectordb.integration.sync.FingerprintStore;
+import com.google.common.collect.ImmutableMap;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.regex.Pattern;
+import lombok.NonNull;
+
+/**
+ * A {@link FingerprintStore} kept in a table of the database that holds the vectors, next to the
+ * embeddings table of a {@code PGVectorStore}. Every operation is a single statement: writes and
+ * deletes pass their ids as arrays instead of one parameter per row.
+ */
+public class PGFingerprintStore implements FingerprintStore {
+  private static final Pattern TABLE_NAME_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+  @NonNull private final PGVectorService pgVectorService;
+  private final String tableName;
+
+  /**
+   * Creates the fingerprints table if it does not exist.
+   *
+   * @param tableName the name of the fingerprints table, which must be a plain SQL identifier
+   */
+  public PGFingerprintStore(@NonNull PGVectorService pgVectorService, @NonNull String tableName)
+      throws SQLException {
+    if (!TABLE_NAME_PATTERN.matcher(tableName).matches()) {
+      throw new IllegalArgumentException("Invalid table name: " + tableName);
+    }
+    this.pgVectorService = pgVectorService;
+    this.tableName = tableName;
+    pgVectorService.executeUpdate(
+        "CREATE TABLE IF NOT EXISTS "
+            + tableName
+            + " (id TEXT PRIMARY KEY, fingerprint TEXT NOT NULL)");
+  }
+
+  @Override
+  public Map<String, String> getFingerprints() {
+    try {
+      return pgVectorService.withConnection(
+          connection -> {
+            ImmutableMap.Builder<String, String> fingerprints = ImmutableMap.builder();
+            try (PreparedStatement statement =
+                    connection.prepareStatement("SELECT id, fingerprint FROM " + tableName);
+                ResultSet resultSet = statement.executeQuery()) {
+              while (resultSet.next()) {
+                fingerprints.put(resultSet.getString(1), resultSet.getString(2));
+              }
+            }
+            return fingerprints.build();
+          });
+    } catch (SQLException e) {
+      throw new PGVectorSQLException(e);
+    }
+  }
+
+  @Override
+  public void putFingerprints(Map<String, String> fingerprints) {
+    if (fingerprints.isEmpty()) {
+      return;
+    }
+    String query =
+        "INSERT INTO "
+            + tableName
+            + " (id, fingerprint) SELECT * FROM unnest(?::text[], ?::text[])"
+            + " ON CONFLICT (id) DO UPDATE SET fingerprint = EXCLUDED.fingerprint";
+    try {
+      pgVectorService.withConnection(
+          connection -> {
+            Array ids =
+                connection.createArrayOf("text", fingerprints.keySet().toArray(new String[0]));
+            Array values =
+                connection.createArrayOf("text", fingerprints.values().toArray(new String[0]));
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+              statement.setArray(1, ids);
+              statement.setArray(2, values);
+              return statement.executeUpdate();
+            }
+          });
+    } catch (SQLException e) {
+      throw new PGVectorSQLException(e);
+    }
+  }
+
+  @Override
+  public void removeFingerprints(Collection<String> documentIds) {
+    if (documentIds.isEmpty()) {
+      return;
+    }
+    try {
+      pgVectorService.withConnection(
+          connection -> {
+            try (PreparedStatement statement =
+                connection.prepareStatement("DELETE FROM " + tableName + " WHERE id = ANY(?)")) {
+              statement.setArray(
+                  1, connection.createArrayOf("text", documentIds.toArray(new String[0])));
+              return statement.executeUpdate();
+            }
+          });
+    } catch (SQLException e) {
+      throw new PGVectorSQLException(e);
+    }
+  }
+}
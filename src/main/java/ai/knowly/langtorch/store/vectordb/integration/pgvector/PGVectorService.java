@@ -1,42 +1,87 @@
 package ai.knowly.langtorch.store.vectordb.integration.pgvector;
 
 import ai.knowly.langtorch.store.vectordb.integration.pgvector.exception.PGVectorServiceInstantiationException;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorServiceConfig;
 import com.google.common.flogger.FluentLogger;
 import com.pgvector.PGvector;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.postgresql.PGConnection;
 
 import javax.inject.Inject;
+import javax.sql.DataSource;
 import java.sql.*;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * The PGVectorService class provides methods for interacting with the PostgreSQL Vector extension.
- * It allows executing SQL statements, preparing statements, and querying the database.
+ * It allows executing SQL statements and running units of work on connections borrowed from a
+ * pooled {@link DataSource}, so that it can be shared by concurrent callers.
  */
 public class PGVectorService {
 
   private static final String CREATE_VECTOR_EXTENSION_QUERY =
       "CREATE EXTENSION IF NOT EXISTS vector";
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
-  private final Connection connection;
-  private final Statement defaultStatement;
+  private final DataSource dataSource;
+  // Physical connections the vector type has been registered on. Pooled connections are reused,
+  // so the registration only has to happen once per physical connection.
+  private final Set<PGConnection> vectorTypeConnections =
+      Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 
   /**
-   * Constructs a new PGVectorService instance with the provided database connection.
+   * Constructs a new PGVectorService instance on top of the provided data source. The data source
+   * should be pooled, every call borrows a connection for its duration.
    *
-   * @param connection the database connection
+   * @param dataSource the data source connections are borrowed from
    */
   @Inject
-  public PGVectorService(Connection connection) {
-    this.connection = connection;
+  public PGVectorService(DataSource dataSource) {
+    this.dataSource = dataSource;
     try {
-      PGvector.addVectorType(connection);
-      defaultStatement = connection.createStatement();
-      defaultStatement.executeUpdate(CREATE_VECTOR_EXTENSION_QUERY);
+      executeUpdate(CREATE_VECTOR_EXTENSION_QUERY);
     } catch (SQLException e) {
       logger.atSevere().withCause(e).log("Error while initialising PGVectorService");
       throw new PGVectorServiceInstantiationException(e);
     }
   }
 
+  /**
+   * Constructs a new PGVectorService instance on top of a single database connection. Calls are
+   * serialized on the connection, which stays open when the service is no longer used.
+   *
+   * @param connection the database connection
+   * @deprecated use {@link #PGVectorService(DataSource)} or {@link #create(PGVectorServiceConfig)},
+   *     which can serve concurrent callers
+   */
+  @Deprecated
+  public PGVectorService(Connection connection) {
+    this(new SingleConnectionDataSource(connection));
+  }
+
+  /**
+   * Creates a PGVectorService backed by a bounded connection pool. pgjdbc caches server-prepared
+   * statements per connection, so statements issued repeatedly are only parsed and planned once
+   * per pooled connection.
+   *
+   * @param config the configuration of the connection pool
+   * @return a new PGVectorService
+   */
+  public static PGVectorService create(PGVectorServiceConfig config) {
+    HikariConfig hikariConfig = new HikariConfig();
+    hikariConfig.setJdbcUrl(config.jdbcUrl());
+    config.username().ifPresent(hikariConfig::setUsername);
+    config.password().ifPresent(hikariConfig::setPassword);
+    hikariConfig.setMaximumPoolSize(config.maximumPoolSize());
+    hikariConfig.setConnectionTimeout(config.connectionTimeout().toMillis());
+    hikariConfig.addDataSourceProperty("prepareThreshold", config.prepareThreshold());
+    hikariConfig.addDataSourceProperty(
+        "preparedStatementCacheQueries", config.preparedStatementCacheQueries());
+    return new PGVectorService(new HikariDataSource(hikariConfig));
+  }
+
   /**
    * Executes the given SQL statement and returns the number of affected rows.
    *
@@ -45,28 +90,107 @@ public class PGVectorService {
    * @throws SQLException if a database access error occurs or the SQL statement is invalid
    */
   public int executeUpdate(String sql) throws SQLException {
-    return defaultStatement.executeUpdate(sql);
+    return withConnection(
+        connection -> {
+          try (Statement statement = connection.createStatement()) {
+            return statement.executeUpdate(sql);
+          }
+        });
   }
 
   /**
    * Creates a PreparedStatement object for sending parameterized SQL statements to the database.
+   * Only supported by services constructed from a single connection.
    *
    * @param sql the SQL statement to prepare
    * @return a new PreparedStatement object
    * @throws SQLException if a database access error occurs or the SQL statement is invalid
+   * @throws IllegalStateException if the service is backed by a data source
+   * @deprecated use {@link #withConnection(ConnectionCallback)}, which closes the statement
    */
+  @Deprecated
   public PreparedStatement prepareStatement(String sql) throws SQLException {
-    return connection.prepareStatement(sql);
+    return getSingleConnection().prepareStatement(sql);
   }
 
   /**
-   * Executes the given SQL query and returns the ResultSet object generated by the query.
+   * Executes the given SQL query and returns the ResultSet object generated by the query. Closing
+   * the result set closes its statement. Only supported by services constructed from a single
+   * connection.
    *
    * @param sql the SQL query to execute
    * @return the ResultSet object generated by the query
    * @throws SQLException if a database access error occurs or the SQL statement is invalid
+   * @throws IllegalStateException if the service is backed by a data source
+   * @deprecated use {@link #withConnection(ConnectionCallback)}, which closes the result set
    */
+  @Deprecated
   public ResultSet query(String sql) throws SQLException {
-    return defaultStatement.executeQuery(sql);
+    Statement statement = getSingleConnection().createStatement();
+    statement.closeOnCompletion();
+    return statement.executeQuery(sql);
+  }
+
+  /**
+   * Executes the given callback with a connection borrowed from the pool. The connection is
+   * returned to the pool when the callback completes, so statements and result sets must not
+   * escape the callback.
+   *
+   * @param callback the unit of work to execute
+   * @return the result of the callback
+   * @throws SQLException if a database access error occurs or the callback fails
+   */
+  public <T> T withConnection(ConnectionCallback<T> callback) throws SQLException {
+    try (Connection connection = getConnection()) {
+      return callback.execute(connection);
+    }
+  }
+
+  /**
+   * Executes the given callback inside a transaction on a connection borrowed from the pool. The
+   * transaction is committed when the callback completes and rolled back when it throws.
+   *
+   * @param callback the unit of work to execute
+   * @return the result of the callback
+   * @throws SQLException if a database access error occurs or the callback fails
+   */
+  public <T> T executeInTransaction(ConnectionCallback<T> callback) throws SQLException {
+    try (Connection connection = getConnection()) {
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        T result = callback.execute(connection);
+        connection.commit();
+        return result;
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+  }
+
+  private Connection getSingleConnection() {
+    if (!(dataSource instanceof SingleConnectionDataSource)) {
+      throw new IllegalStateException(
+          "Only supported by a PGVectorService constructed from a single connection");
+    }
+    return ((SingleConnectionDataSource) dataSource).getUnderlyingConnection();
+  }
+
+  private Connection getConnection() throws SQLException {
+    Connection connection = dataSource.getConnection();
+    try {
+      PGConnection pgConnection = connection.unwrap(PGConnection.class);
+      if (!vectorTypeConnections.contains(pgConnection)) {
+        PGvector.addVectorType(connection);
+        vectorTypeConnections.add(pgConnection);
+      }
+    } catch (SQLException e) {
+      connection.close();
+      throw e;
+    }
+    return connection;
   }
 }
@@ -0,0 +1,108 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * A {@link DataSource} that hands out a single shared connection, one borrower at a time. Closing
+ * a borrowed connection returns it instead of closing the underlying connection, which stays
+ * owned by the caller that supplied it.
+ */
+final class SingleConnectionDataSource implements DataSource {
+  private final Connection connection;
+  private final Semaphore available = new Semaphore(1);
+
+  SingleConnectionDataSource(Connection connection) {
+    this.connection = connection;
+  }
+
+  /** Returns the underlying connection, bypassing the borrowing. */
+  Connection getUnderlyingConnection() {
+    return connection;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    try {
+      available.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for the connection", e);
+    }
+    AtomicBoolean returned = new AtomicBoolean();
+    return (Connection)
+        Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+              if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                if (returned.compareAndSet(false, true)) {
+                  available.release();
+                }
+                return null;
+              }
+              if (method.getName().equals("isClosed") && method.getParameterCount() == 0) {
+                return returned.get() || connection.isClosed();
+              }
+              if (returned.get()) {
+                throw new SQLException("The connection has been returned");
+              }
+              try {
+                return method.invoke(connection, args);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+            });
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    throw new SQLFeatureNotSupportedException("The connection is already open");
+  }
+
+  @Override
+  public PrintWriter getLogWriter() {
+    return null;
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) {
+    // Nothing is logged.
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) {
+    // The connection is already open.
+  }
+
+  @Override
+  public int getLoginTimeout() {
+    return 0;
+  }
+
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    throw new SQLException("Not a wrapper for " + iface.getName());
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return iface.isInstance(this);
+  }
+}
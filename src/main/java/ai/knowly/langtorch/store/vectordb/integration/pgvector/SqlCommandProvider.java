@@ -1,9 +1,18 @@
 package ai.knowly.langtorch.store.vectordb.integration.pgvector;
 
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorFilterClause;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorIndexSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorIndexType;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorMetadataLayout;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
-import java.util.List;
 
 /**
  * This class provides SQL commands for creating and querying the embeddings and metadata tables in
@@ -12,6 +21,10 @@ import java.util.List;
 @AllArgsConstructor(access = AccessLevel.PUBLIC)
 public class SqlCommandProvider {
 
+  private static final Gson GSON = new Gson();
+  // Metadata values range conditions can be evaluated on, others never match.
+  private static final String NUMERIC_PATTERN = "'" + MetadataCondition.NUMERIC_REGEX + "'";
+
   /** The name of the database that the embeddings and metadata tables will be created in. */
   @NonNull private final String databaseName;
 
@@ -20,6 +33,9 @@ public class SqlCommandProvider {
    */
   private final boolean overwrite;
 
+  /** Whether metadata is kept in a separate table or in a JSONB column of the embeddings table. */
+  @NonNull private final PGVectorMetadataLayout metadataLayout;
+
   /**
    * Returns a SQL query that will create the embeddings table.
    *
@@ -44,11 +60,29 @@ public class SqlCommandProvider {
             + "embedding vector("
             + vectorDimensions
             + ")"
+            + (metadataLayout == PGVectorMetadataLayout.JSONB
+                ? ", metadata JSONB NOT NULL DEFAULT '{}'"
+                : "")
             + ")";
 
     return query;
   }
 
+  /**
+   * Returns a SQL query that will create the GIN index on the JSONB metadata column. The {@code
+   * jsonb_path_ops} operator class keeps the index small and supports containment ({@code @>})
+   * lookups.
+   *
+   * @return The SQL query.
+   */
+  public String getCreateMetadataIndexQuery() {
+    return "CREATE INDEX IF NOT EXISTS "
+        + getEmbeddingsTableName()
+        + "_metadata_idx ON "
+        + getEmbeddingsTableName()
+        + " USING gin (metadata jsonb_path_ops)";
+  }
+
   /**
    * Returns a SQL query that will create the metadata table.
    *
@@ -109,39 +143,436 @@ public class SqlCommandProvider {
   }
 
   /**
-   * Returns a SQL query that will select a subset of the embeddings and metadata rows.
+   * Returns a SQL query that will insert new rows, including their JSONB metadata, into the
+   * embeddings table.
    *
-   * @param distanceStrategy The distance strategy to use when ordering the results.
-   * @param limit The maximum number of rows to return.
+   * @param parameters The parameters for the insert statement.
    * @return The SQL query.
    */
-  public String getSelectEmbeddingsQuery(String distanceStrategy, long limit) {
-    return "SELECT "
-        + getEmbeddingsTableName()
-        + ".id, embedding, key, value FROM "
-        + "("
-        + "SELECT "
-        + getEmbeddingsTableName()
-        + ".id, embedding "
-        + "FROM "
+  public String getInsertDocumentsQuery(String parameters) {
+    return "INSERT INTO "
         + getEmbeddingsTableName()
         + " "
-        + "LIMIT "
-        + limit
-        + " "
-        + ") AS "
+        + "(id, embedding, metadata) "
+        + "VALUES "
+        + parameters;
+  }
+
+  /**
+   * Returns a SQL query that will replace the embedding and the JSONB metadata of existing rows in
+   * the embeddings table.
+   *
+   * @param parameters The parameters for the update statement.
+   * @return The SQL query.
+   */
+  public String getUpdateDocumentsQuery(String parameters) {
+    return "WITH updated(id, embedding, metadata) AS (VALUES "
+        + parameters
+        + ") "
+        + "UPDATE "
         + getEmbeddingsTableName()
         + " "
-        + "LEFT JOIN "
+        + "SET "
+        + "embedding = updated.embedding, "
+        + "metadata = updated.metadata "
+        + "FROM updated "
+        + "WHERE ("
+        + getEmbeddingsTableName()
+        + ".id = updated.id"
+        + ")";
+  }
+
+  /**
+   * Returns a SQL query that will insert new rows into the embeddings table, replacing the
+   * embedding of the rows that already exist.
+   *
+   * @param parameters The parameters for the insert statement.
+   * @return The SQL query.
+   */
+  public String getUpsertEmbeddingsQuery(String parameters) {
+    return getInsertEmbeddingsQuery(parameters)
+        + " ON CONFLICT (id) DO UPDATE SET embedding = EXCLUDED.embedding";
+  }
+
+  /**
+   * Returns a SQL query that will insert new rows, including their JSONB metadata, into the
+   * embeddings table, replacing the embedding and the metadata of the rows that already exist.
+   *
+   * @param parameters The parameters for the insert statement.
+   * @return The SQL query.
+   */
+  public String getUpsertDocumentsQuery(String parameters) {
+    return getInsertDocumentsQuery(parameters)
+        + " ON CONFLICT (id) DO UPDATE SET "
+        + "embedding = EXCLUDED.embedding, "
+        + "metadata = EXCLUDED.metadata";
+  }
+
+  /**
+   * Returns a SQL query that will delete the metadata rows of the given embeddings.
+   *
+   * @param parameters The placeholders for the embedding ids.
+   * @return The SQL query.
+   */
+  public String getDeleteMetadataByVectorIdsQuery(String parameters) {
+    return "DELETE FROM " + getMetadataTableName() + " WHERE vector_id IN (" + parameters + ")";
+  }
+
+  /**
+   * Returns a SQL command that streams rows, including their JSONB metadata, into the embeddings
+   * table in the binary COPY format.
+   *
+   * @return The SQL command.
+   */
+  public String getCopyDocumentsQuery() {
+    return "COPY "
+        + getEmbeddingsTableName()
+        + " (id, embedding, metadata) FROM STDIN (FORMAT BINARY)";
+  }
+
+  /**
+   * Returns a SQL command that streams rows into the embeddings table in the binary COPY format.
+   *
+   * @return The SQL command.
+   */
+  public String getCopyEmbeddingsQuery() {
+    return "COPY " + getEmbeddingsTableName() + " (id, embedding) FROM STDIN (FORMAT BINARY)";
+  }
+
+  /**
+   * Returns a SQL command that streams rows into the metadata table in the binary COPY format.
+   *
+   * @return The SQL command.
+   */
+  public String getCopyMetadataQuery() {
+    return "COPY "
+        + getMetadataTableName()
+        + " (id, key, value, vector_id) FROM STDIN (FORMAT BINARY)";
+  }
+
+  /**
+   * Returns a SQL query that selects every stored document with its embedding. With the JSONB
+   * layout every document is a single row of id, embedding and metadata. Otherwise every document
+   * has a row of id, embedding, key and value per metadata entry, or a single row with a null key
+   * if it has none, and the rows of a document are consecutive.
+   *
+   * @return The SQL query.
+   */
+  public String getSelectAllDocumentsQuery() {
+    if (metadataLayout == PGVectorMetadataLayout.JSONB) {
+      return "SELECT id, embedding, metadata FROM " + getEmbeddingsTableName();
+    }
+    return "SELECT "
+        + getEmbeddingsTableName()
+        + ".id, embedding, key, value FROM "
+        + getEmbeddingsTableName()
+        + " LEFT JOIN "
         + getMetadataTableName()
         + " ON "
         + getEmbeddingsTableName()
         + ".id = "
         + getMetadataTableName()
-        + ".vector_id "
-        + "ORDER BY embedding "
-        + distanceStrategy
-        + " ? ";
+        + ".vector_id ORDER BY "
+        + getEmbeddingsTableName()
+        + ".id";
+  }
+
+  /**
+   * Returns a SQL query that selects the {@code limit} nearest embeddings to the query vector
+   * together with their metadata rows. The nearest neighbours are ordered by distance before the
+   * limit is applied so that an index on the embedding column can be used, and the metadata table
+   * is only joined for the selected ids. The distance is computed by the database and returned
+   * in place of the raw vector.
+   *
+   * <p>The query vector has to be bound to the first and the last parameter of the returned
+   * statement, the parameters of the filter clause in between.
+   *
+   * @param distanceStrategy The distance operator to use when ordering the results.
+   * @param limit The maximum number of embeddings to return.
+   * @param filterClause The predicate the embeddings are filtered by before the limit is applied.
+   * @return The SQL query.
+   */
+  public String getSelectEmbeddingsQuery(
+      String distanceStrategy, long limit, PGVectorFilterClause filterClause) {
+    return "SELECT "
+        + "nearest.id, nearest.distance, key, value FROM "
+        + "("
+        + getNearestQuery(false, distanceStrategy, "?", String.valueOf(limit), filterClause)
+        + ") AS nearest "
+        + getMetadataJoin()
+        + "ORDER BY nearest.distance, nearest.id";
+  }
+
+  /**
+   * Returns a SQL query that selects the {@code limit} nearest embeddings to the query vector
+   * together with their JSONB metadata, rendered as text. Every hit is a single row.
+   *
+   * <p>The query vector has to be bound to the first and the last parameter of the returned
+   * statement, the parameters of the filter clause in between.
+   *
+   * @param distanceStrategy The distance operator to use when ordering the results.
+   * @param limit The maximum number of embeddings to return.
+   * @param filterClause The predicate the embeddings are filtered by before the limit is applied.
+   * @return The SQL query.
+   */
+  public String getSelectDocumentsQuery(
+      String distanceStrategy, long limit, PGVectorFilterClause filterClause) {
+    return getNearestQuery(true, distanceStrategy, "?", String.valueOf(limit), filterClause);
+  }
+
+  /**
+   * Returns a SQL query like {@link #getSelectEmbeddingsQuery} that first selects {@code
+   * candidates} embeddings by the Hamming distance of their binary quantization, which an index on
+   * {@link #getCreateBinaryQuantizedIndexQuery} serves, and then keeps the {@code limit} nearest of
+   * them by the exact distance.
+   *
+   * <p>The query vector has to be bound to the first and the last parameter of the returned
+   * statement, the parameters of the filter clause in between.
+   *
+   * @param distanceStrategy The distance operator the candidates are rescored with.
+   * @param limit The maximum number of embeddings to return.
+   * @param candidates The number of candidates to rescore.
+   * @param vectorDimensions The dimensions of the embeddings.
+   * @param filterClause The predicate the embeddings are filtered by before the limit is applied.
+   * @return The SQL query.
+   */
+  public String getRescoredSelectEmbeddingsQuery(
+      String distanceStrategy,
+      long limit,
+      long candidates,
+      int vectorDimensions,
+      PGVectorFilterClause filterClause) {
+    return "SELECT "
+        + "nearest.id, nearest.distance, key, value FROM "
+        + "("
+        + getRescoredNearestQuery(
+            false,
+            distanceStrategy,
+            "?",
+            String.valueOf(limit),
+            String.valueOf(candidates),
+            vectorDimensions,
+            filterClause)
+        + ") AS nearest "
+        + getMetadataJoin()
+        + "ORDER BY nearest.distance, nearest.id";
+  }
+
+  /**
+   * Returns a SQL query like {@link #getSelectDocumentsQuery} that first selects {@code
+   * candidates} embeddings by the Hamming distance of their binary quantization, which an index on
+   * {@link #getCreateBinaryQuantizedIndexQuery} serves, and then keeps the {@code limit} nearest of
+   * them by the exact distance.
+   *
+   * <p>The query vector has to be bound to the first and the last parameter of the returned
+   * statement, the parameters of the filter clause in between.
+   *
+   * @param distanceStrategy The distance operator the candidates are rescored with.
+   * @param limit The maximum number of embeddings to return.
+   * @param candidates The number of candidates to rescore.
+   * @param vectorDimensions The dimensions of the embeddings.
+   * @param filterClause The predicate the embeddings are filtered by before the limit is applied.
+   * @return The SQL query.
+   */
+  public String getRescoredSelectDocumentsQuery(
+      String distanceStrategy,
+      long limit,
+      long candidates,
+      int vectorDimensions,
+      PGVectorFilterClause filterClause) {
+    return getRescoredNearestQuery(
+        true,
+        distanceStrategy,
+        "?",
+        String.valueOf(limit),
+        String.valueOf(candidates),
+        vectorDimensions,
+        filterClause);
+  }
+
+  /**
+   * Returns a SQL query that runs one nearest neighbour search per query vector in a single
+   * statement: the list of query vectors is joined LATERAL with the query of {@link
+   * #getSelectEmbeddingsQuery} or {@link #getSelectDocumentsQuery}, depending on the metadata
+   * layout. Every row starts with the position of its query vector in the list, followed by the
+   * columns of the single search, and the rows of a query vector are ordered by distance.
+   *
+   * <p>The query vectors have to be bound to the first {@code limits.size()} parameters of the
+   * returned statement, the parameters of the filter clause after them.
+   *
+   * @param distanceStrategy The distance operator to use when ordering the results.
+   * @param limits The maximum number of embeddings to return for each query vector.
+   * @param filterClause The predicate the embeddings are filtered by before each limit is applied.
+   * @return The SQL query.
+   */
+  public String getBatchSelectQuery(
+      String distanceStrategy, List<Long> limits, PGVectorFilterClause filterClause) {
+    return getBatchQuery(
+        limits,
+        0,
+        getNearestQuery(
+            metadataLayout == PGVectorMetadataLayout.JSONB,
+            distanceStrategy,
+            "queries.query_vector",
+            "queries.k",
+            filterClause));
+  }
+
+  /**
+   * Returns a SQL query like {@link #getBatchSelectQuery} whose searches first select {@code
+   * rescoreFactor} times their limit of candidates by the Hamming distance of their binary
+   * quantization, as {@link #getRescoredSelectEmbeddingsQuery} does.
+   *
+   * <p>The query vectors have to be bound to the first {@code limits.size()} parameters of the
+   * returned statement, the parameters of the filter clause after them.
+   *
+   * @param distanceStrategy The distance operator the candidates are rescored with.
+   * @param limits The maximum number of embeddings to return for each query vector.
+   * @param rescoreFactor The number of candidates rescored per returned embedding.
+   * @param vectorDimensions The dimensions of the embeddings.
+   * @param filterClause The predicate the embeddings are filtered by before each limit is applied.
+   * @return The SQL query.
+   */
+  public String getBatchRescoredSelectQuery(
+      String distanceStrategy,
+      List<Long> limits,
+      int rescoreFactor,
+      int vectorDimensions,
+      PGVectorFilterClause filterClause) {
+    return getBatchQuery(
+        limits,
+        rescoreFactor,
+        getRescoredNearestQuery(
+            metadataLayout == PGVectorMetadataLayout.JSONB,
+            distanceStrategy,
+            "queries.query_vector",
+            "queries.k",
+            "queries.candidate_count",
+            vectorDimensions,
+            filterClause));
+  }
+
+  /**
+   * Returns the predicate that restricts the embeddings table to the rows whose metadata satisfies
+   * all the given conditions. The values of the conditions are bound as parameters. Equality
+   * conditions on the JSONB layout are expressed as containment so that the GIN index can be used.
+   *
+   * @param conditions The conditions on the metadata, combined by AND.
+   * @return The predicate and its parameters, empty if there are no conditions.
+   */
+  public PGVectorFilterClause getFilterClause(List<MetadataCondition> conditions) {
+    StringJoiner predicate = new StringJoiner(" AND ");
+    List<Object> parameters = new ArrayList<>();
+    for (MetadataCondition condition : conditions) {
+      predicate.add(
+          metadataLayout == PGVectorMetadataLayout.JSONB
+              ? getJsonbPredicate(condition, parameters)
+              : getMetadataTablePredicate(condition, parameters));
+    }
+    return PGVectorFilterClause.builder()
+        .setPredicate(predicate.toString())
+        .setParameters(parameters)
+        .build();
+  }
+
+  /**
+   * Returns a SQL query that will create the approximate nearest neighbour index on the embedding
+   * column if it does not exist yet.
+   *
+   * @param indexSpec The type and build parameters of the index.
+   * @param operatorClass The operator class matching the distance strategy of the store.
+   * @return The SQL query.
+   */
+  public String getCreateIndexQuery(PGVectorIndexSpec indexSpec, String operatorClass) {
+    return getCreateIndexQuery(indexSpec, "embedding " + operatorClass);
+  }
+
+  private String getCreateIndexQuery(PGVectorIndexSpec indexSpec, String indexedColumn) {
+    String parameters;
+    if (indexSpec.getType() == PGVectorIndexType.HNSW) {
+      parameters =
+          "m = " + indexSpec.getM() + ", ef_construction = " + indexSpec.getEfConstruction();
+    } else {
+      parameters = "lists = " + indexSpec.getLists();
+    }
+    return "CREATE INDEX IF NOT EXISTS "
+        + getEmbeddingsIndexName()
+        + " ON "
+        + getEmbeddingsTableName()
+        + " USING "
+        + indexSpec.getType().getMethod()
+        + " ("
+        + indexedColumn
+        + ") "
+        + "WITH ("
+        + parameters
+        + ")";
+  }
+
+  /**
+   * Returns a SQL query that will create the approximate nearest neighbour index on the binary
+   * quantization of the embedding column, one bit per dimension compared by Hamming distance, if
+   * it does not exist yet.
+   *
+   * @param indexSpec The type and build parameters of the index.
+   * @param vectorDimensions The dimensions of the embeddings.
+   * @return The SQL query.
+   */
+  public String getCreateBinaryQuantizedIndexQuery(
+      PGVectorIndexSpec indexSpec, int vectorDimensions) {
+    return getCreateIndexQuery(
+        indexSpec, "(" + getBinaryQuantizedEmbedding(vectorDimensions) + ") bit_hamming_ops");
+  }
+
+  /**
+   * Returns a SQL query that will drop the approximate nearest neighbour index on the embedding
+   * column.
+   *
+   * @return The SQL query.
+   */
+  public String getDropIndexQuery() {
+    return "DROP INDEX IF EXISTS " + getEmbeddingsIndexName();
+  }
+
+  /**
+   * Returns a SQL query that sets the HNSW candidate list size for the current transaction.
+   *
+   * @param efSearch The size of the candidate list.
+   * @return The SQL query.
+   */
+  public String getSetEfSearchQuery(int efSearch) {
+    return "SET LOCAL hnsw.ef_search = " + efSearch;
+  }
+
+  /**
+   * Returns a SQL query that sets the number of IVFFlat lists to probe for the current
+   * transaction.
+   *
+   * @param probes The number of lists to probe.
+   * @return The SQL query.
+   */
+  public String getSetProbesQuery(int probes) {
+    return "SET LOCAL ivfflat.probes = " + probes;
+  }
+
+  /**
+   * Returns a SQL query that resets the HNSW candidate list size to its default for the rest of
+   * the current transaction.
+   *
+   * @return The SQL query.
+   */
+  public String getResetEfSearchQuery() {
+    return "SET LOCAL hnsw.ef_search TO DEFAULT";
+  }
+
+  /**
+   * Returns a SQL query that resets the number of IVFFlat lists to probe to its default for the
+   * rest of the current transaction.
+   *
+   * @return The SQL query.
+   */
+  public String getResetProbesQuery() {
+    return "SET LOCAL ivfflat.probes TO DEFAULT";
   }
 
   public String getDeleteEmbeddingsByIdQuery(List<String> embeddingIds) {
@@ -156,14 +587,14 @@ public class SqlCommandProvider {
   }
 
   public String getUpdateEmbeddingsQuery(String parameters) {
-    return "WITH updated(id, embeddings) AS (VALUES "
+    return "WITH updated(id, embedding) AS (VALUES "
         + parameters
         + ") "
         + "UPDATE "
         + getEmbeddingsTableName()
         + " "
         + "SET "
-        + "embeddings = updated.embeddings "
+        + "embedding = updated.embedding "
         + "FROM updated "
         + "WHERE ("
         + getEmbeddingsTableName()
@@ -188,10 +619,203 @@ public class SqlCommandProvider {
         + ")";
   }
 
+  private String getWhereClause(PGVectorFilterClause filterClause) {
+    return filterClause.isEmpty() ? "" : "WHERE " + filterClause.getPredicate() + " ";
+  }
+
+  private String getMetadataTablePredicate(
+      MetadataCondition condition, List<Object> parameters) {
+    parameters.add(condition.getKey());
+    return "EXISTS (SELECT 1 FROM "
+        + getMetadataTableName()
+        + " WHERE "
+        + getMetadataTableName()
+        + ".vector_id = "
+        + getEmbeddingsTableName()
+        + ".id AND key = ? AND "
+        + getValuePredicate("value", condition, parameters)
+        + ")";
+  }
+
+  private String getJsonbPredicate(MetadataCondition condition, List<Object> parameters) {
+    if (condition.getOperator().isRange()) {
+      // The range predicate reads the value twice, once for the pattern and once for the cast.
+      parameters.add(condition.getKey());
+      parameters.add(condition.getKey());
+      return getValuePredicate("(metadata ->> ?)", condition, parameters);
+    }
+    StringJoiner containments = new StringJoiner(" OR ", "(", ")").setEmptyValue("FALSE");
+    for (String value : condition.getValues()) {
+      parameters.add(GSON.toJson(ImmutableMap.of(condition.getKey(), value)));
+      containments.add("metadata @> ?::jsonb");
+    }
+    return containments.toString();
+  }
+
+  private String getValuePredicate(
+      String value, MetadataCondition condition, List<Object> parameters) {
+    switch (condition.getOperator()) {
+      case EQ:
+        parameters.add(condition.getValues().get(0));
+        return value + " = ?";
+      case IN:
+        if (condition.getValues().isEmpty()) {
+          return "FALSE";
+        }
+        StringJoiner placeholders = new StringJoiner(", ", "(", ")");
+        for (String conditionValue : condition.getValues()) {
+          parameters.add(conditionValue);
+          placeholders.add("?");
+        }
+        return value + " IN " + placeholders;
+      default:
+        // A CASE guards the cast, AND does not guarantee the order its operands are evaluated in.
+        parameters.add(condition.getBound());
+        return "CASE WHEN "
+            + value
+            + " ~ "
+            + NUMERIC_PATTERN
+            + " THEN CAST("
+            + value
+            + " AS double precision) END "
+            + getComparisonOperator(condition.getOperator())
+            + " ?";
+    }
+  }
+
+  private static String getComparisonOperator(MetadataCondition.Operator operator) {
+    switch (operator) {
+      case GT:
+        return ">";
+      case GTE:
+        return ">=";
+      case LT:
+        return "<";
+      case LTE:
+        return "<=";
+      default:
+        throw new IllegalArgumentException("Not a range operator: " + operator);
+    }
+  }
+
+  /**
+   * Returns the query that selects the nearest embeddings to {@code queryVector}, a placeholder or
+   * a column of an enclosing query, ordered by distance.
+   */
+  private String getNearestQuery(
+      boolean withMetadata,
+      String distanceStrategy,
+      String queryVector,
+      String limit,
+      PGVectorFilterClause filterClause) {
+    return "SELECT "
+        + "id, embedding "
+        + distanceStrategy
+        + " "
+        + queryVector
+        + " AS distance"
+        + (withMetadata ? ", metadata::text " : " ")
+        + "FROM "
+        + getEmbeddingsTableName()
+        + " "
+        + getWhereClause(filterClause)
+        + "ORDER BY embedding "
+        + distanceStrategy
+        + " "
+        + queryVector
+        + " "
+        + "LIMIT "
+        + limit;
+  }
+
+  private String getRescoredNearestQuery(
+      boolean withMetadata,
+      String distanceStrategy,
+      String queryVector,
+      String limit,
+      String candidates,
+      int vectorDimensions,
+      PGVectorFilterClause filterClause) {
+    return "SELECT "
+        + "id, embedding "
+        + distanceStrategy
+        + " "
+        + queryVector
+        + " AS distance"
+        + (withMetadata ? ", metadata::text " : " ")
+        + "FROM "
+        + "("
+        + "SELECT "
+        + (withMetadata ? "id, embedding, metadata " : "id, embedding ")
+        + "FROM "
+        + getEmbeddingsTableName()
+        + " "
+        + getWhereClause(filterClause)
+        + "ORDER BY "
+        + getBinaryQuantizedEmbedding(vectorDimensions)
+        + " <~> binary_quantize("
+        + queryVector
+        + "::vector) "
+        + "LIMIT "
+        + candidates
+        + ") AS candidates "
+        + "ORDER BY distance, id "
+        + "LIMIT "
+        + limit;
+  }
+
+  /**
+   * Joins the query vectors, each with its limit and, with a {@code rescoreFactor}, its number of
+   * candidates, LATERAL with the nearest neighbour query.
+   */
+  private String getBatchQuery(List<Long> limits, int rescoreFactor, String nearestQuery) {
+    StringJoiner rows = new StringJoiner(", ");
+    for (int i = 0; i < limits.size(); i++) {
+      long limit = limits.get(i);
+      rows.add(
+          "("
+              + i
+              + ", ?::vector, "
+              + limit
+              + (rescoreFactor > 0 ? ", " + limit * rescoreFactor : "")
+              + ")");
+    }
+    boolean isJsonb = metadataLayout == PGVectorMetadataLayout.JSONB;
+    return "SELECT "
+        + "queries.ordinal, nearest.id, nearest.distance, "
+        + (isJsonb ? "nearest.metadata " : "key, value ")
+        + "FROM (VALUES "
+        + rows
+        + ") AS queries (ordinal, query_vector, k"
+        + (rescoreFactor > 0 ? ", candidate_count) " : ") ")
+        + "CROSS JOIN LATERAL ("
+        + nearestQuery
+        + ") AS nearest "
+        + (isJsonb ? "" : getMetadataJoin())
+        + "ORDER BY queries.ordinal, nearest.distance, nearest.id";
+  }
+
+  private String getMetadataJoin() {
+    return "LEFT JOIN "
+        + getMetadataTableName()
+        + " ON "
+        + "nearest.id = "
+        + getMetadataTableName()
+        + ".vector_id ";
+  }
+
+  private static String getBinaryQuantizedEmbedding(int vectorDimensions) {
+    return "binary_quantize(embedding)::bit(" + vectorDimensions + ")";
+  }
+
   private String getEmbeddingsTableName() {
     return databaseName + "_embeddings";
   }
 
+  private String getEmbeddingsIndexName() {
+    return getEmbeddingsTableName() + "_embedding_idx";
+  }
+
   private String getMetadataTableName() {
     return getEmbeddingsTableName() + "_metadata";
   }
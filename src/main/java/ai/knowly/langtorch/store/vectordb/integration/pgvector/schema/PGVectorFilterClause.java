@@ -0,0 +1,22 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector.schema;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Represents the SQL predicate a similarity search is filtered by, together with the values of its
+ * parameters in the order they have to be bound.
+ */
+@Data
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Builder(toBuilder = true, setterPrefix = "set")
+public class PGVectorFilterClause {
+  // Empty when the search is not filtered.
+  @NonNull private final String predicate;
+  @NonNull private final List<Object> parameters;
+
+  public boolean isEmpty() {
+    return predicate.isEmpty();
+  }
+}
@@ -0,0 +1,27 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector.schema;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * Represents the specification of the approximate nearest neighbour index built on the embeddings
+ * table. The operator class of the index is derived from the store's distance strategy.
+ */
+@Data
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Builder(toBuilder = true, setterPrefix = "set")
+public class PGVectorIndexSpec {
+  @NonNull private final PGVectorIndexType type;
+
+  /** The maximum number of connections per layer, only used by HNSW. */
+  @Builder.Default private final int m = 16;
+
+  /** The size of the dynamic candidate list used while building the graph, only used by HNSW. */
+  @Builder.Default private final int efConstruction = 64;
+
+  /** The number of inverted lists, only used by IVFFlat. */
+  @Builder.Default private final int lists = 100;
+}
@@ -0,0 +1,20 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector.schema;
+
+/** The approximate nearest neighbour index types supported by pgvector. */
+public enum PGVectorIndexType {
+  /** Hierarchical navigable small world graph, built with m and ef_construction. */
+  HNSW("hnsw"),
+  /** Inverted file with flat lists, built with the number of lists. */
+  IVFFLAT("ivfflat");
+
+  private final String method;
+
+  PGVectorIndexType(String method) {
+    this.method = method;
+  }
+
+  /** Returns the index access method name used in {@code CREATE INDEX ... USING}. */
+  public String getMethod() {
+    return method;
+  }
+}
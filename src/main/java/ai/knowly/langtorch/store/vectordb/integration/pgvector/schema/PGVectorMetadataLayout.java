@@ -0,0 +1,15 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector.schema;
+
+/** How a PGVector store persists the metadata of its documents. */
+public enum PGVectorMetadataLayout {
+  /**
+   * One row per metadata entry in a separate {@code <db>_embeddings_metadata} table, joined to the
+   * embeddings on every search.
+   */
+  TABLE,
+  /**
+   * A {@code JSONB} column on the embeddings row, indexed with GIN. Searches return one row per
+   * hit and documents are written with a single statement.
+   */
+  JSONB
+}
@@ -0,0 +1,54 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector.schema;
+
+import com.google.auto.value.AutoValue;
+import java.time.Duration;
+import java.util.Optional;
+
+/** Configuration of the connection pool used by a PGVectorService. */
+@AutoValue
+public abstract class PGVectorServiceConfig {
+  public static Builder builder() {
+    return new AutoValue_PGVectorServiceConfig.Builder()
+        .setMaximumPoolSize(10)
+        .setConnectionTimeout(Duration.ofSeconds(30))
+        .setPrepareThreshold(1)
+        .setPreparedStatementCacheQueries(256);
+  }
+
+  public abstract String jdbcUrl();
+
+  public abstract Optional<String> username();
+
+  public abstract Optional<String> password();
+
+  /** The maximum number of pooled connections, i.e. of concurrently executing statements. */
+  public abstract int maximumPoolSize();
+
+  /** How long a caller waits for a pooled connection before failing. */
+  public abstract Duration connectionTimeout();
+
+  /** The number of executions after which pgjdbc switches a statement to a server prepare. */
+  public abstract int prepareThreshold();
+
+  /** The number of server-prepared statements cached per connection. */
+  public abstract int preparedStatementCacheQueries();
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    public abstract Builder setJdbcUrl(String jdbcUrl);
+
+    public abstract Builder setUsername(String username);
+
+    public abstract Builder setPassword(String password);
+
+    public abstract Builder setMaximumPoolSize(int maximumPoolSize);
+
+    public abstract Builder setConnectionTimeout(Duration connectionTimeout);
+
+    public abstract Builder setPrepareThreshold(int prepareThreshold);
+
+    public abstract Builder setPreparedStatementCacheQueries(int preparedStatementCacheQueries);
+
+    public abstract PGVectorServiceConfig build();
+  }
+}
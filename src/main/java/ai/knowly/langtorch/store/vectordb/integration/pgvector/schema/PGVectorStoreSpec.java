@@ -1,5 +1,7 @@
 package ai.knowly.langtorch.store.vectordb.integration.pgvector.schema;
 
+import ai.knowly.langtorch.store.vectordb.integration.quantization.VectorQuantization;
+import ai.knowly.langtorch.store.vectordb.integration.schema.EmbeddingBatchSpec;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NonNull;
@@ -16,8 +18,42 @@ public class PGVectorStoreSpec {
   private final String textKey;
   private final int vectorDimensions;
   private final boolean overwriteExistingTables;
+  private final PGVectorIndexSpec indexSpec;
+
+  @Builder.Default
+  private final PGVectorMetadataLayout metadataLayout = PGVectorMetadataLayout.TABLE;
+
+  // Number of documents embedded and streamed per COPY in bulkAddDocuments.
+  @Builder.Default private final int copyChunkSize = 1000;
+  // Number of documents written per statement in upsertDocuments.
+  @Builder.Default private final int upsertBatchSize = 500;
+
+  /**
+   * With {@link VectorQuantization#BINARY}, searches rank the sign bits of the embeddings by
+   * Hamming distance and rescore the best candidates with the embeddings, and the index is built on
+   * the bits. pgvector has no 8-bit type, so INT8 is not supported.
+   */
+  @Builder.Default private final VectorQuantization quantization = VectorQuantization.NONE;
+
+  /**
+   * Number of binary quantized candidates rescored per requested result, at least 1. With an HNSW
+   * index the candidates are read from the index, which returns at most {@code hnsw.ef_search}
+   * rows (40 by default), so a search for {@code topK * rescoreFactor} candidates above that
+   * rescores fewer and can return fewer results unless {@code efSearch} is raised to match.
+   */
+  @Builder.Default private final int rescoreFactor = 4;
+
+  // Number of threads the asynchronous operations run on, which bounds the connections they use.
+  @Builder.Default private final int maxConcurrentOperations = 4;
+
+  @Builder.Default
+  private final EmbeddingBatchSpec embeddingBatchSpec = EmbeddingBatchSpec.getDefaultInstance();
 
   public Optional<String> getTextKey() {
     return Optional.ofNullable(textKey);
   }
+
+  public Optional<PGVectorIndexSpec> getIndexSpec() {
+    return Optional.ofNullable(indexSpec);
+  }
 }
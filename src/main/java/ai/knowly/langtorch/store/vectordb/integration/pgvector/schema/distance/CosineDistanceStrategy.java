@@ -11,6 +11,11 @@ public class CosineDistanceStrategy implements DistanceStrategy {
     return "<=>";
   }
 
+  @Override
+  public String getOperatorClass() {
+    return "vector_cosine_ops";
+  }
+
   @Override
   public double calculateDistance(double[] vector1, double[] vector2) {
     if (vector1.length != vector2.length) {
@@ -21,9 +26,72 @@ public class CosineDistanceStrategy implements DistanceStrategy {
     double normB = 0.0;
     for (int i = 0; i < vector1.length; i++) {
       dotProduct += vector1[i] * vector2[i];
-      normA += Math.pow(vector1[i], 2);
-      normB += Math.pow(vector2[i], 2);
+      normA += vector1[i] * vector1[i];
+      normB += vector2[i] * vector2[i];
     }
     return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
   }
+
+  @Override
+  public double calculateDistance(float[] vector, float[] vectors, int offset) {
+    return VectorKernels.cosine(vector, 0, vectors, offset, vector.length);
+  }
+
+  /** Computes the norm of the vector once rather than once per other vector. */
+  @Override
+  public void calculateDistances(
+      float[] vector, float[] vectors, int offset, int count, double[] distances) {
+    float vectorNorm = VectorKernels.norm(vector, 0, vector.length);
+    for (int i = 0; i < count; i++) {
+      int vectorOffset = offset + i * vector.length;
+      distances[i] =
+          cosine(
+              vectorNorm,
+              VectorKernels.norm(vectors, vectorOffset, vector.length),
+              VectorKernels.dot(vector, 0, vectors, vectorOffset, vector.length));
+    }
+  }
+
+  /**
+   * Like {@link #calculateDistances(float[], float[], int, int, double[])}, with the norms of the
+   * other vectors precomputed with {@link VectorKernels#norm}, so that only their inner products
+   * with the vector are left to compute.
+   *
+   * @param norms The norms of the other vectors, in the same order.
+   * @param normOffset The index of the norm of the first other vector.
+   */
+  public void calculateDistances(
+      float[] vector,
+      float[] vectors,
+      int offset,
+      float[] norms,
+      int normOffset,
+      int count,
+      double[] distances) {
+    float vectorNorm = VectorKernels.norm(vector, 0, vector.length);
+    for (int i = 0; i < count; i++) {
+      distances[i] =
+          cosine(
+              vectorNorm,
+              norms[normOffset + i],
+              VectorKernels.dot(vector, 0, vectors, offset + i * vector.length, vector.length));
+    }
+  }
+
+  /** The similarity with a zero vector is 0, as in {@link VectorKernels#cosine}. */
+  private static double cosine(float norm1, float norm2, float dotProduct) {
+    float normProduct = norm1 * norm2;
+    return normProduct == 0 ? 0 : dotProduct / normProduct;
+  }
+
+  @Override
+  public boolean isSimilarity() {
+    return true;
+  }
+
+  /** pgvector's {@code <=>} operator returns the cosine distance, i.e. one minus similarity. */
+  @Override
+  public double fromDatabaseDistance(double databaseDistance) {
+    return 1 - databaseDistance;
+  }
 }
@@ -3,6 +3,12 @@ package ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance;
 public interface DistanceStrategy {
   String getSyntax();
 
+  /**
+   * Returns the pgvector operator class an index has to be built with to serve queries ordered by
+   * the {@link #getSyntax()} operator.
+   */
+  String getOperatorClass();
+
   /**
    * Calculates the distance between two vectors based on the specified distance strategy.
    *
@@ -13,4 +19,66 @@ public interface DistanceStrategy {
    *     do not match.
    */
   double calculateDistance(double[] vector1, double[] vector2);
+
+  /**
+   * Calculates the distance between a vector and the vector of the same length stored at {@code
+   * offset} of {@code vectors}, on the same scale as {@link #calculateDistance(double[],
+   * double[])}.
+   *
+   * @param vector The vector.
+   * @param vectors The array the other vector is stored in.
+   * @param offset The index of the first component of the other vector.
+   * @return The calculated distance.
+   */
+  double calculateDistance(float[] vector, float[] vectors, int offset);
+
+  /**
+   * Calculates the distance between two float vectors, on the same scale as {@link
+   * #calculateDistance(double[], double[])}, without converting them to doubles.
+   *
+   * @param vector1 The first vector.
+   * @param vector2 The second vector.
+   * @return The calculated distance.
+   * @throws IllegalArgumentException if the vector dimensions do not match.
+   */
+  default double calculateDistance(float[] vector1, float[] vector2) {
+    if (vector1.length != vector2.length) {
+      throw new IllegalArgumentException("Vector dimensions do not match.");
+    }
+    return calculateDistance(vector1, vector2, 0);
+  }
+
+  /**
+   * Calculates the distances between a vector and {@code count} vectors of the same length that
+   * are stored one after the other from {@code offset} of {@code vectors}, as {@link
+   * #calculateDistance(float[], float[], int)} would for each of them. Implementations can hoist
+   * the work that only depends on the vector out of the loop.
+   *
+   * @param vector The vector.
+   * @param vectors The array the other vectors are stored in.
+   * @param offset The index of the first component of the first other vector.
+   * @param count The number of other vectors.
+   * @param distances The array the distances are written to, from index 0.
+   */
+  default void calculateDistances(
+      float[] vector, float[] vectors, int offset, int count, double[] distances) {
+    for (int i = 0; i < count; i++) {
+      distances[i] = calculateDistance(vector, vectors, offset + i * vector.length);
+    }
+  }
+
+  /**
+   * Returns whether a larger result of {@link #calculateDistance(double[], double[])} means that
+   * the vectors are closer, as it does for similarities.
+   */
+  boolean isSimilarity();
+
+  /**
+   * Converts a distance computed by the database with the {@link #getSyntax()} operator into the
+   * same scale as {@link #calculateDistance(double[], double[])}.
+   *
+   * @param databaseDistance The distance returned by the database.
+   * @return The distance on the scale of {@link #calculateDistance(double[], double[])}.
+   */
+  double fromDatabaseDistance(double databaseDistance);
 }
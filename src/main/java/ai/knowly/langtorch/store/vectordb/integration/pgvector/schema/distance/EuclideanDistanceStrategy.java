@@ -11,6 +11,11 @@ public class EuclideanDistanceStrategy implements DistanceStrategy {
     return "<->";
   }
 
+  @Override
+  public String getOperatorClass() {
+    return "vector_l2_ops";
+  }
+
   @Override
   public double calculateDistance(double[] vector1, double[] vector2) {
     if (vector1.length != vector2.length) {
@@ -23,4 +28,19 @@ public class EuclideanDistanceStrategy implements DistanceStrategy {
     }
     return Math.sqrt(sumOfSquaredDifferences);
   }
+
+  @Override
+  public double calculateDistance(float[] vector, float[] vectors, int offset) {
+    return Math.sqrt(VectorKernels.squaredEuclidean(vector, 0, vectors, offset, vector.length));
+  }
+
+  @Override
+  public boolean isSimilarity() {
+    return false;
+  }
+
+  @Override
+  public double fromDatabaseDistance(double databaseDistance) {
+    return databaseDistance;
+  }
 }
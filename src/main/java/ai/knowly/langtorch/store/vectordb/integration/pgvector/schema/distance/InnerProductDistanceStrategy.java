@@ -11,6 +11,11 @@ public class InnerProductDistanceStrategy implements DistanceStrategy {
     return "<#>";
   }
 
+  @Override
+  public String getOperatorClass() {
+    return "vector_ip_ops";
+  }
+
   @Override
   public double calculateDistance(double[] vector1, double[] vector2) {
     if (vector1.length != vector2.length) {
@@ -22,4 +27,20 @@ public class InnerProductDistanceStrategy implements DistanceStrategy {
     }
     return innerProduct;
   }
+
+  @Override
+  public double calculateDistance(float[] vector, float[] vectors, int offset) {
+    return VectorKernels.dot(vector, 0, vectors, offset, vector.length);
+  }
+
+  @Override
+  public boolean isSimilarity() {
+    return true;
+  }
+
+  /** pgvector's {@code <#>} operator returns the negative inner product. */
+  @Override
+  public double fromDatabaseDistance(double databaseDistance) {
+    return -databaseDistance;
+  }
 }
@@ -0,0 +1,129 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance;
+
+/**
+ * Distance kernels over vectors that are stored at an offset of a larger array, so that vectors
+ * packed into contiguous blocks can be scored without copying them. The loops are unrolled
+ * by four with independent accumulators, which breaks the dependency chain of a single running sum
+ * and lets the CPU keep several multiply-adds in flight.
+ */
+public final class VectorKernels {
+
+  private VectorKernels() {}
+
+  /** Returns the inner product of the {@code length} components at the given offsets. */
+  public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+    float sum0 = 0;
+    float sum1 = 0;
+    float sum2 = 0;
+    float sum3 = 0;
+    int i = 0;
+    for (int upperBound = length & ~3; i < upperBound; i += 4) {
+      sum0 += a[aOffset + i] * b[bOffset + i];
+      sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+      sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+      sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+    }
+    for (; i < length; i++) {
+      sum0 += a[aOffset + i] * b[bOffset + i];
+    }
+    return (sum0 + sum1) + (sum2 + sum3);
+  }
+
+  /** Returns the Euclidean norm of the {@code length} components at the offset. */
+  public static float norm(float[] a, int aOffset, int length) {
+    return (float) Math.sqrt(dot(a, aOffset, a, aOffset, length));
+  }
+
+  /** Returns the squared Euclidean distance of the {@code length} components at the offsets. */
+  public static float squaredEuclidean(float[] a, int aOffset, float[] b, int bOffset, int length) {
+    float sum0 = 0;
+    float sum1 = 0;
+    float sum2 = 0;
+    float sum3 = 0;
+    int i = 0;
+    for (int upperBound = length & ~3; i < upperBound; i += 4) {
+      float difference0 = a[aOffset + i] - b[bOffset + i];
+      float difference1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+      float difference2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+      float difference3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+      sum0 += difference0 * difference0;
+      sum1 += difference1 * difference1;
+      sum2 += difference2 * difference2;
+      sum3 += difference3 * difference3;
+    }
+    for (; i < length; i++) {
+      float difference = a[aOffset + i] - b[bOffset + i];
+      sum0 += difference * difference;
+    }
+    return (sum0 + sum1) + (sum2 + sum3);
+  }
+
+  /**
+   * Returns the cosine similarity of the {@code length} components at the given offsets, computing
+   * the inner product and both norms in a single pass. The similarity with a zero vector is 0.
+   */
+  public static float cosine(float[] a, int aOffset, float[] b, int bOffset, int length) {
+    float dot0 = 0;
+    float dot1 = 0;
+    float normA0 = 0;
+    float normA1 = 0;
+    float normB0 = 0;
+    float normB1 = 0;
+    int i = 0;
+    for (int upperBound = length & ~1; i < upperBound; i += 2) {
+      float a0 = a[aOffset + i];
+      float a1 = a[aOffset + i + 1];
+      float b0 = b[bOffset + i];
+      float b1 = b[bOffset + i + 1];
+      dot0 += a0 * b0;
+      dot1 += a1 * b1;
+      normA0 += a0 * a0;
+      normA1 += a1 * a1;
+      normB0 += b0 * b0;
+      normB1 += b1 * b1;
+    }
+    if (i < length) {
+      float a0 = a[aOffset + i];
+      float b0 = b[bOffset + i];
+      dot0 += a0 * b0;
+      normA0 += a0 * a0;
+      normB0 += b0 * b0;
+    }
+    float normProduct = (normA0 + normA1) * (normB0 + normB1);
+    if (normProduct == 0) {
+      return 0;
+    }
+    return (float) ((dot0 + dot1) / Math.sqrt(normProduct));
+  }
+
+  /**
+   * Returns the inner product of the {@code length} bytes at the given offsets, read as unsigned
+   * 8-bit integers. The sum is exact up to 33025 components.
+   */
+  public static int dotUnsigned(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+    int sum0 = 0;
+    int sum1 = 0;
+    int sum2 = 0;
+    int sum3 = 0;
+    int i = 0;
+    for (int upperBound = length & ~3; i < upperBound; i += 4) {
+      sum0 += (a[aOffset + i] & 0xFF) * (b[bOffset + i] & 0xFF);
+      sum1 += (a[aOffset + i + 1] & 0xFF) * (b[bOffset + i + 1] & 0xFF);
+      sum2 += (a[aOffset + i + 2] & 0xFF) * (b[bOffset + i + 2] & 0xFF);
+      sum3 += (a[aOffset + i + 3] & 0xFF) * (b[bOffset + i + 3] & 0xFF);
+    }
+    for (; i < length; i++) {
+      sum0 += (a[aOffset + i] & 0xFF) * (b[bOffset + i] & 0xFF);
+    }
+    return (sum0 + sum1) + (sum2 + sum3);
+  }
+
+  /** Returns the number of differing bits of the {@code length} words at the given offsets. */
+  public static int hamming(long[] a, int aOffset, long[] b, int bOffset, int length) {
+    int distance = 0;
+    for (int i = 0; i < length; i++) {
+      distance += Long.bitCount(a[aOffset + i] ^ b[bOffset + i]);
+    }
+    return distance;
+  }
+}
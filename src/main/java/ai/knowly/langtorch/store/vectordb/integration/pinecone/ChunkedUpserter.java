@@ -0,0 +1,143 @@
+package ai.knowly.langtorch.store.vectordb.integration.pinecone;
+
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.Vector;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.upsert.UpsertRequest;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.upsert.UpsertResponse;
+import ai.knowly.langtorch.utils.future.InFlightLimiter;
+import ai.knowly.langtorch.utils.future.retry.FutureRetrier;
+import ai.knowly.langtorch.utils.future.retry.RetryConfig;
+import ai.knowly.langtorch.utils.future.retry.strategy.ExponentialBackoffStrategy;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Upserts vectors to Pinecone in chunks that stay below its request limits, capped by the number
+ * of vectors and by their serialized size. The chunks are sent concurrently through the limiter of
+ * the store, and a chunk that fails or upserts fewer vectors than it holds is retried on its own
+ * with exponential backoff. Upserts overwrite by id, so retrying a chunk is safe.
+ */
+final class ChunkedUpserter {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final ObjectMapper OBJECT_MAPPER = PineconeService.defaultObjectMapper();
+  // Room for the fields around the vectors in the request body, such as the namespace.
+  private static final int REQUEST_OVERHEAD_BYTES = 1024;
+  // Only waits out the backoff between retries; the requests themselves are asynchronous.
+  private static final ScheduledExecutorService RETRY_SCHEDULER =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder()
+              .setNameFormat("pinecone-upsert-retry-%d")
+              .setDaemon(true)
+              .build());
+
+  private final PineconeService pineconeService;
+  // Null for the default namespace.
+  private final String namespace;
+  private final int maxVectorsPerRequest;
+  private final long maxRequestBytes;
+  private final InFlightLimiter requestLimiter;
+  private final FutureRetrier futureRetrier;
+
+  ChunkedUpserter(
+      PineconeService pineconeService,
+      String namespace,
+      int maxVectorsPerRequest,
+      long maxRequestBytes,
+      InFlightLimiter requestLimiter,
+      RetryConfig retryConfig) {
+    if (maxVectorsPerRequest <= 0) {
+      throw new IllegalArgumentException(
+          "maxVectorsPerUpsert must be greater than 0, was " + maxVectorsPerRequest);
+    }
+    if (maxRequestBytes <= REQUEST_OVERHEAD_BYTES) {
+      throw new IllegalArgumentException(
+          "maxUpsertBytes must be greater than " + REQUEST_OVERHEAD_BYTES + ", was "
+              + maxRequestBytes);
+    }
+    this.pineconeService = pineconeService;
+    this.namespace = namespace;
+    this.maxVectorsPerRequest = maxVectorsPerRequest;
+    this.maxRequestBytes = maxRequestBytes;
+    this.requestLimiter = requestLimiter;
+    this.futureRetrier =
+        new FutureRetrier(RETRY_SCHEDULER, new ExponentialBackoffStrategy(), retryConfig);
+  }
+
+  /**
+   * Upserts the vectors.
+   *
+   * @return a future of the number of vectors in the chunks that were upserted, which is less than
+   *     the number of vectors if chunks still failed after their retries; the future itself does
+   *     not fail
+   */
+  ListenableFuture<Long> upsert(List<Vector> vectors) {
+    List<ListenableFuture<Long>> upsertedCounts = new ArrayList<>();
+    for (List<Vector> chunk : chunk(vectors)) {
+      UpsertRequest request =
+          UpsertRequest.builder().setVectors(chunk).setNamespace(namespace).build();
+      ListenableFuture<UpsertResponse> response =
+          futureRetrier.runWithRetries(
+              () -> requestLimiter.submit(() -> pineconeService.upsertAsync(request)),
+              upsertResponse -> upsertResponse.getUpsertedCount() == chunk.size());
+      upsertedCounts.add(
+          Futures.catching(
+              Futures.transform(
+                  response, UpsertResponse::getUpsertedCount, MoreExecutors.directExecutor()),
+              Throwable.class,
+              t -> {
+                logger.atSevere().withCause(t).log(
+                    "Failed to upsert a chunk of %d vectors", chunk.size());
+                return 0L;
+              },
+              MoreExecutors.directExecutor()));
+    }
+    return Futures.transform(
+        Futures.allAsList(upsertedCounts),
+        counts -> counts.stream().mapToLong(Long::longValue).sum(),
+        MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Splits the vectors into chunks in order. A vector larger than the byte limit on its own gets a
+   * chunk of its own, which Pinecone is expected to reject.
+   */
+  List<List<Vector>> chunk(List<Vector> vectors) {
+    List<List<Vector>> chunks = new ArrayList<>();
+    List<Vector> currentChunk = new ArrayList<>();
+    long currentBytes = REQUEST_OVERHEAD_BYTES;
+    for (Vector vector : vectors) {
+      // One more byte for the comma between vectors.
+      long bytes = serializedSize(vector) + 1;
+      boolean isFull =
+          currentChunk.size() >= maxVectorsPerRequest || currentBytes + bytes > maxRequestBytes;
+      if (!currentChunk.isEmpty() && isFull) {
+        chunks.add(currentChunk);
+        currentChunk = new ArrayList<>();
+        currentBytes = REQUEST_OVERHEAD_BYTES;
+      }
+      currentChunk.add(vector);
+      currentBytes += bytes;
+    }
+    if (!currentChunk.isEmpty()) {
+      chunks.add(currentChunk);
+    }
+    return chunks;
+  }
+
+  private static long serializedSize(Vector vector) {
+    try {
+      return OBJECT_MAPPER.writeValueAsBytes(vector).length;
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -3,6 +3,7 @@ package ai.knowly.langtorch.store.vectordb.integration.pinecone;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.delete.DeleteRequest;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.delete.DeleteResponse;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.fetch.FetchResponse;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list.ListResponse;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query.QueryRequest;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query.QueryResponse;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.update.UpdateRequest;
@@ -30,6 +31,13 @@ public interface PineconeAPI {
   ListenableFuture<FetchResponse> fetch(
       @Query("namespace") String namespace, @Query("ids") List<String> ids);
 
+  @GET("/vectors/list")
+  ListenableFuture<ListResponse> list(
+      @Query("namespace") String namespace,
+      @Query("prefix") String prefix,
+      @Query("limit") Integer limit,
+      @Query("paginationToken") String paginationToken);
+
   @POST("/vectors/update")
   ListenableFuture<UpdateResponse> update(@Body UpdateRequest request);
 }
@@ -8,6 +8,8 @@ import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.delete
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.delete.DeleteResponse;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.fetch.FetchRequest;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.fetch.FetchResponse;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list.ListRequest;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list.ListResponse;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query.QueryRequest;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query.QueryResponse;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.update.UpdateRequest;
@@ -134,10 +136,16 @@ public class PineconeService {
     return execute(api.delete(request));
   }
 
-  public ListenableFuture<DeleteResponse> queryAsync(DeleteRequest request) {
+  public ListenableFuture<DeleteResponse> deleteAsync(DeleteRequest request) {
     return api.delete(request);
   }
 
+  /** @deprecated Use {@link #deleteAsync(DeleteRequest)}, this overload is misnamed. */
+  @Deprecated
+  public ListenableFuture<DeleteResponse> queryAsync(DeleteRequest request) {
+    return deleteAsync(request);
+  }
+
   public FetchResponse fetch(FetchRequest request) {
     return execute(api.fetch(request.getNamespace(), request.getIds()));
   }
@@ -146,6 +154,19 @@ public class PineconeService {
     return api.fetch(request.getNamespace(), request.getIds());
   }
 
+  /** Lists a page of vector ids. Pinecone only supports listing on serverless indexes. */
+  public ListResponse list(ListRequest request) {
+    return execute(listAsync(request));
+  }
+
+  public ListenableFuture<ListResponse> listAsync(ListRequest request) {
+    return api.list(
+        request.getNamespace(),
+        request.getPrefix(),
+        request.getLimit(),
+        request.getPaginationToken());
+  }
+
   public UpdateResponse update(UpdateRequest request) {
     return execute(api.update(request));
   }
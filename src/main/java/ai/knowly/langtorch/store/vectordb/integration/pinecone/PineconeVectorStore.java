@@ -1,57 +1,89 @@
 package ai.knowly.langtorch.store.vectordb.integration.pinecone;
 
 import ai.knowly.langtorch.processor.EmbeddingProcessor;
-import ai.knowly.langtorch.schema.embeddings.EmbeddingInput;
-import ai.knowly.langtorch.schema.embeddings.EmbeddingOutput;
+import ai.knowly.langtorch.schema.embeddings.Embedding;
 import ai.knowly.langtorch.schema.io.DomainDocument;
 import ai.knowly.langtorch.schema.io.Metadata;
+import ai.knowly.langtorch.store.vectordb.integration.DocumentEmbedder;
 import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.PineconeVectorStoreSpec;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.Vector;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.delete.DeleteRequest;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.fetch.FetchRequest;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.fetch.FetchResponse;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list.ListItem;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list.ListRequest;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list.ListResponse;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query.Match;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query.QueryRequest;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query.QueryResponse;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.update.UpdateRequest;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.update.UpdateResponse;
-import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.upsert.UpsertRequest;
-import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.upsert.UpsertResponse;
 import com.google.common.collect.ImmutableList;
 
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
 import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionReader;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionWriter;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import ai.knowly.langtorch.utils.future.InFlightLimiter;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.NonNull;
 
 import javax.inject.Inject;
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.*;
 
 /**
  * The PineconeVectorStore class is an implementation of the VectorStore interface, which provides
  * integration with the Pinecone service for storing and querying vectors.
+ *
+ * <p>The asynchronous operations compose the embedding requests with the asynchronous Pinecone
+ * requests, so no thread waits on either, and keep at most {@code maxInFlightRequests} Pinecone
+ * requests of the store in flight.
  */
 public class PineconeVectorStore implements VectorStore {
 
-  private static final long UPDATE_TIMEOUT_SECONDS = 20;
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  // The largest page Pinecone lists.
+  private static final int LIST_PAGE_SIZE = 100;
 
-  private final EmbeddingProcessor embeddingProcessor;
+  private final DocumentEmbedder documentEmbedder;
   private final PineconeVectorStoreSpec pineconeVectorStoreSpec;
   @NonNull private final PineconeService pineconeService;
-  private Optional<ExecutorService> executorService = Optional.empty();
+  private final InFlightLimiter requestLimiter;
+  private final ChunkedUpserter chunkedUpserter;
 
   @Inject
   public PineconeVectorStore(
       EmbeddingProcessor embeddingProcessor,
       PineconeVectorStoreSpec pineconeVectorStoreSpec,
       @NonNull PineconeService pineconeService) {
-    this.embeddingProcessor = embeddingProcessor;
     this.pineconeVectorStoreSpec = pineconeVectorStoreSpec;
+    this.documentEmbedder =
+        new DocumentEmbedder(
+            embeddingProcessor,
+            pineconeVectorStoreSpec.getModel(),
+            pineconeVectorStoreSpec.getEmbeddingBatchSpec());
     this.pineconeService = pineconeService;
+    this.requestLimiter = new InFlightLimiter(pineconeVectorStoreSpec.getMaxInFlightRequests());
+    this.chunkedUpserter =
+        new ChunkedUpserter(
+            pineconeService,
+            pineconeVectorStoreSpec.getNamespace().orElse(null),
+            pineconeVectorStoreSpec.getMaxVectorsPerUpsert(),
+            pineconeVectorStoreSpec.getMaxUpsertBytes(),
+            requestLimiter,
+            pineconeVectorStoreSpec.getUpsertRetryConfig());
   }
 
   /**
-   * Adds the specified documents to the Pinecone vector store database.
+   * Adds the specified documents to the Pinecone vector store database. The vectors are upserted
+   * in concurrent chunks below Pinecone's request limits, and failed chunks are retried.
    *
    * @return true if documents added successfully, otherwise false
    */
@@ -61,8 +93,32 @@ public class PineconeVectorStore implements VectorStore {
       return true;
     }
 
-    return addVectors(
-        documents.stream().map(this::createVector).collect(ImmutableList.toImmutableList()));
+    return addVectors(createVectors(documents));
+  }
+
+  @Override
+  public ListenableFuture<Boolean> addDocumentsAsync(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return Futures.immediateFuture(true);
+    }
+    return Futures.transformAsync(
+        createVectorsAsync(documents), this::addVectorsAsync, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Upserts the specified documents. Pinecone's upsert overwrites the vectors with the same ids, so
+   * this is the same request as {@link #addDocuments(List)}.
+   *
+   * @return true if documents upserted successfully, otherwise false
+   */
+  @Override
+  public boolean upsertDocuments(List<DomainDocument> documents) {
+    return addDocuments(documents);
+  }
+
+  @Override
+  public ListenableFuture<Boolean> upsertDocumentsAsync(List<DomainDocument> documents) {
+    return addDocumentsAsync(documents);
   }
 
   /**
@@ -71,50 +127,234 @@ public class PineconeVectorStore implements VectorStore {
    * @return true if vectors added successfully, otherwise false
    */
   private boolean addVectors(List<Vector> vectors) {
-    UpsertRequest.UpsertRequestBuilder upsertRequestBuilder =
-        UpsertRequest.builder().setVectors(vectors);
-    this.pineconeVectorStoreSpec.getNamespace().ifPresent(upsertRequestBuilder::setNamespace);
-    UpsertResponse response = this.pineconeService.upsert(upsertRequestBuilder.build());
-    return response.getUpsertedCount() == vectors.size();
+    return PineconeService.execute(addVectorsAsync(vectors));
+  }
+
+  private ListenableFuture<Boolean> addVectorsAsync(List<Vector> vectors) {
+    return Futures.transform(
+        chunkedUpserter.upsert(vectors),
+        upsertedCount -> upsertedCount == vectors.size(),
+        MoreExecutors.directExecutor());
   }
 
   /**
-   * Creates an instance of Vector from given DomainDocument
+   * Creates instances of Vector from the given DomainDocuments, embedding them in batches.
    *
-   * @param document the document from which a Vector will be created
-   * @return an instance of {@link Vector}
+   * @param documents the documents from which the Vectors will be created
+   * @return the {@link Vector}s, in the same order as the documents
+   */
+  private List<Vector> createVectors(List<DomainDocument> documents) {
+    return toVectors(documents, documentEmbedder.embed(documents));
+  }
+
+  private ListenableFuture<List<Vector>> createVectorsAsync(List<DomainDocument> documents) {
+    return Futures.transform(
+        documentEmbedder.embedAsync(documents),
+        embeddings -> toVectors(documents, embeddings),
+        MoreExecutors.directExecutor());
+  }
+
+  private static List<Vector> toVectors(
+      List<DomainDocument> documents, List<Embedding> embeddings) {
+    ImmutableList.Builder<Vector> vectors = ImmutableList.builder();
+    for (int i = 0; i < documents.size(); i++) {
+      DomainDocument document = documents.get(i);
+      vectors.add(
+          Vector.builder()
+              .setId(document.getId().orElse(UUID.randomUUID().toString()))
+              .setMetadata(document.getMetadata().orElse(Metadata.getDefaultInstance()).getValue())
+              .setValues(embeddings.get(i).toFloatArray())
+              .build());
+    }
+    return vectors.build();
+  }
+
+  /**
+   * Writes every vector of the namespace with its metadata. The ids are listed a page at a time and
+   * the vectors of a page are fetched while the next page is listed. The page content of a document
+   * is taken from the metadata under the text key, if any. Pinecone only lists the ids of
+   * serverless indexes.
    */
-  private Vector createVector(DomainDocument document) {
-    EmbeddingOutput embeddingOutput =
-        embeddingProcessor.run(
-            EmbeddingInput.builder()
-                .setModel(pineconeVectorStoreSpec.getModel())
-                .setInput(Collections.singletonList(document.getPageContent()))
-                .build());
-    return Vector.builder()
-        .setId(document.getId().orElse(UUID.randomUUID().toString()))
-        .setMetadata(document.getMetadata().orElse(Metadata.getDefaultInstance()).getValue())
-        .setValues(embeddingOutput.getValue().get(0).getVector())
+  @Override
+  public void exportDocuments(VectorCollectionWriter writer) throws IOException {
+    ListResponse page = pineconeService.list(createListRequest(null));
+    while (true) {
+      List<String> ids = new ArrayList<>();
+      if (page.getVectors() != null) {
+        for (ListItem item : page.getVectors()) {
+          ids.add(item.getId());
+        }
+      }
+      ListenableFuture<FetchResponse> fetched =
+          ids.isEmpty()
+              ? null
+              : requestLimiter.submit(() -> pineconeService.fetchAsync(createFetchRequest(ids)));
+      String nextToken = page.getPagination() == null ? null : page.getPagination().getNext();
+      ListenableFuture<ListResponse> nextPage =
+          nextToken == null
+              ? null
+              : requestLimiter.submit(
+                  () -> pineconeService.listAsync(createListRequest(nextToken)));
+      if (fetched != null) {
+        writeVectors(ids, PineconeService.execute(fetched), writer);
+      }
+      if (nextPage == null) {
+        return;
+      }
+      page = PineconeService.execute(nextPage);
+    }
+  }
+
+  private void writeVectors(List<String> ids, FetchResponse response, VectorCollectionWriter writer)
+      throws IOException {
+    Map<String, Vector> vectors =
+        response.getVectors() == null ? Collections.emptyMap() : response.getVectors();
+    for (String id : ids) {
+      Vector vector = vectors.get(id);
+      // Deleted since it was listed.
+      if (vector == null) {
+        continue;
+      }
+      Map<String, String> metadata =
+          vector.getMetadata() == null ? new HashMap<>() : new HashMap<>(vector.getMetadata());
+      String pageContent = pineconeVectorStoreSpec.getTextKey().map(metadata::get).orElse("");
+      writer.write(
+          VectorRecord.builder()
+              .setDocument(
+                  DomainDocument.builder()
+                      .setId(id)
+                      .setPageContent(pageContent)
+                      .setMetadata(Metadata.builder().setValue(metadata).build())
+                      .build())
+              .setVector(vector.getValues())
+              .build());
+    }
+  }
+
+  private ListRequest createListRequest(String paginationToken) {
+    return ListRequest.builder()
+        .setNamespace(pineconeVectorStoreSpec.getNamespace().orElse(null))
+        .setLimit(LIST_PAGE_SIZE)
+        .setPaginationToken(paginationToken)
         .build();
   }
 
+  private FetchRequest createFetchRequest(List<String> ids) {
+    return FetchRequest.builder()
+        .setIds(ids)
+        .setNamespace(pineconeVectorStoreSpec.getNamespace().orElse(null))
+        .build();
+  }
+
+  /**
+   * Upserts the vectors of the collection without embedding the documents, through the same
+   * chunked upserts as {@link #addDocuments(List)}. The next chunk of the collection is read while
+   * the previous one is upserted. Since searches take the page content from the metadata, it is
+   * added there under the text key unless the metadata already has that key.
+   *
+   * @return the number of vectors upserted, which is less than the size of the collection if
+   *     chunks still failed after their retries
+   */
+  @Override
+  public long importDocuments(VectorCollectionReader reader) throws IOException {
+    long upsertedCount = 0;
+    ListenableFuture<Long> previousChunk = null;
+    List<VectorRecord> chunk;
+    while (!(chunk = reader.readChunk()).isEmpty()) {
+      ListenableFuture<Long> currentChunk = chunkedUpserter.upsert(toVectors(chunk));
+      if (previousChunk != null) {
+        upsertedCount += PineconeService.execute(previousChunk);
+      }
+      previousChunk = currentChunk;
+    }
+    if (previousChunk != null) {
+      upsertedCount += PineconeService.execute(previousChunk);
+    }
+    return upsertedCount;
+  }
+
+  /**
+   * Upserts the vectors of the chunk through the same chunked upserts as {@link
+   * #addDocuments(List)}.
+   *
+   * @return the number of vectors upserted
+   */
+  @Override
+  public long importVectorRecords(List<VectorRecord> vectorRecords) {
+    return PineconeService.execute(chunkedUpserter.upsert(toVectors(vectorRecords)));
+  }
+
+  private List<Vector> toVectors(List<VectorRecord> vectorRecords) {
+    ImmutableList.Builder<Vector> vectors = ImmutableList.builder();
+    for (VectorRecord vectorRecord : vectorRecords) {
+      DomainDocument document = vectorRecord.getDocument();
+      Map<String, String> metadata =
+          new HashMap<>(document.getMetadata().map(Metadata::getValue).orElse(new HashMap<>()));
+      pineconeVectorStoreSpec
+          .getTextKey()
+          .ifPresent(textKey -> metadata.putIfAbsent(textKey, document.getPageContent()));
+      vectors.add(
+          Vector.builder()
+              .setId(document.getId().get())
+              .setMetadata(metadata)
+              .setValues(vectorRecord.getVector())
+              .build());
+    }
+    return vectors.build();
+  }
+
   /**
    * Performs a similarity search using a vector query and returns a list of pairs containing the
    * schema documents and their corresponding similarity scores.
    */
   @Override
   public List<DomainDocument> similaritySearch(SimilaritySearchQuery similaritySearchQuery) {
+    return toDocuments(pineconeService.query(createQueryRequest(similaritySearchQuery)));
+  }
+
+  @Override
+  public ListenableFuture<List<DomainDocument>> similaritySearchAsync(
+      SimilaritySearchQuery similaritySearchQuery) {
+    QueryRequest request = createQueryRequest(similaritySearchQuery);
+    return Futures.transform(
+        requestLimiter.submit(() -> pineconeService.queryAsync(request)),
+        this::toDocuments,
+        MoreExecutors.directExecutor());
+  }
 
+  /**
+   * Sends the queries concurrently and waits for all of them, so a batch takes about as long as its
+   * slowest query instead of the sum of all of them.
+   */
+  @Override
+  public List<List<DomainDocument>> similaritySearchBatch(
+      List<SimilaritySearchQuery> similaritySearchQueries) {
+    return PineconeService.execute(similaritySearchBatchAsync(similaritySearchQueries));
+  }
+
+  @Override
+  public ListenableFuture<List<List<DomainDocument>>> similaritySearchBatchAsync(
+      List<SimilaritySearchQuery> similaritySearchQueries) {
+    List<ListenableFuture<List<DomainDocument>>> results = new ArrayList<>();
+    for (SimilaritySearchQuery similaritySearchQuery : similaritySearchQueries) {
+      results.add(similaritySearchAsync(similaritySearchQuery));
+    }
+    return Futures.allAsList(results);
+  }
+
+  private QueryRequest createQueryRequest(SimilaritySearchQuery similaritySearchQuery) {
     QueryRequest.QueryRequestBuilder requestBuilder =
         QueryRequest.builder()
             .setIncludeMetadata(true)
             .setTopK(similaritySearchQuery.getTopK())
-            .setVector(similaritySearchQuery.getQuery())
-            .setFilter(similaritySearchQuery.getFilter());
+            .setVector(similaritySearchQuery.getQueryVector())
+            .setFilter(getFilter(similaritySearchQuery));
 
     pineconeVectorStoreSpec.getNamespace().ifPresent(requestBuilder::setNamespace);
-    QueryResponse response = pineconeService.query(requestBuilder.build());
+    return requestBuilder.build();
+  }
 
+  private List<DomainDocument> toDocuments(QueryResponse response) {
     List<DomainDocument> result = new ArrayList<>();
 
     // create mapping of PineCone metadata to schema meta data
@@ -131,6 +371,7 @@ public class PineconeVectorStore implements VectorStore {
         if (match.getScore() != null) {
           result.add(
               DomainDocument.builder()
+                  .setId(match.getId())
                   .setPageContent(
                       metadata.getValue().get(this.pineconeVectorStoreSpec.getTextKey().get()))
                   .setMetadata(metadata)
@@ -143,49 +384,86 @@ public class PineconeVectorStore implements VectorStore {
     return result;
   }
 
+  /**
+   * Translates the filter and the metadata conditions of the query into Pinecone's metadata filter
+   * language. Pinecone only compares numbers with range operators, so range conditions do not
+   * match metadata stored as strings.
+   */
+  private Map<String, Object> getFilter(SimilaritySearchQuery similaritySearchQuery) {
+    if (similaritySearchQuery.getMetadataConditions().isEmpty()) {
+      return new HashMap<>(similaritySearchQuery.getFilter());
+    }
+    List<Map<String, Object>> clauses = new ArrayList<>();
+    for (MetadataCondition condition : similaritySearchQuery.getAllMetadataConditions()) {
+      clauses.add(ImmutableMap.of(condition.getKey(), getFilterOperand(condition)));
+    }
+    if (clauses.size() == 1) {
+      return clauses.get(0);
+    }
+    return ImmutableMap.of("$and", clauses);
+  }
+
+  private static Map<String, Object> getFilterOperand(MetadataCondition condition) {
+    switch (condition.getOperator()) {
+      case EQ:
+        return ImmutableMap.of("$eq", condition.getValues().get(0));
+      case IN:
+        return ImmutableMap.of("$in", condition.getValues());
+      case GT:
+        return ImmutableMap.of("$gt", condition.getBound());
+      case GTE:
+        return ImmutableMap.of("$gte", condition.getBound());
+      case LT:
+        return ImmutableMap.of("$lt", condition.getBound());
+      case LTE:
+        return ImmutableMap.of("$lte", condition.getBound());
+      default:
+        throw new IllegalArgumentException("Unsupported operator: " + condition.getOperator());
+    }
+  }
+
+  /**
+   * Updates the documents with one request per document, sent concurrently.
+   *
+   * @return true if all documents were updated, false if a request failed
+   */
   @Override
   public boolean updateDocuments(List<DomainDocument> documents) {
-    if (!this.executorService.isPresent()) {
-      this.executorService = Optional.of(Executors.newFixedThreadPool(16));
-    }
-    ExecutorService localExecutorService = this.executorService.get();
-    int responseCount = 0;
-
-    CompletionService<UpdateResponse> updateCompletionService =
-        new ExecutorCompletionService<>(localExecutorService);
-    submitDocumentUpdateRequests(updateCompletionService, documents);
-
-    while (responseCount < documents.size()) {
-      try {
-        updateCompletionService.take().get(UPDATE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-        responseCount++;
-      } catch (Exception e) {
-        logger.atSevere().withCause(e).log(
-            "Failed to update documents at document: " + documents.get(responseCount));
-        Thread.currentThread().interrupt();
-        return false;
-      }
+    try {
+      return PineconeService.execute(updateDocumentsAsync(documents));
+    } catch (RuntimeException e) {
+      logger.atSevere().withCause(e).log("Failed to update documents");
+      return false;
     }
-
-    return true;
   }
 
-  private void submitDocumentUpdateRequests(
-      CompletionService<UpdateResponse> updateCompletionService, List<DomainDocument> documents) {
-    for (DomainDocument document : documents) {
-      updateCompletionService.submit(
-          () -> {
-            UpdateRequest.UpdateRequestBuilder requestBuilder = UpdateRequest.builder();
-            pineconeVectorStoreSpec.getNamespace().ifPresent(requestBuilder::setNamespace);
-            Vector vector = createVector(document);
-            requestBuilder
-                .setValues(vector.getValues())
-                .setId(vector.getId())
-                .setSetMetadata(vector.getMetadata())
-                .build();
-            return pineconeService.updateAsync(requestBuilder.build()).get();
-          });
+  @Override
+  public ListenableFuture<Boolean> updateDocumentsAsync(List<DomainDocument> documents) {
+    if (documents.isEmpty()) {
+      return Futures.immediateFuture(true);
     }
+    return Futures.transformAsync(
+        createVectorsAsync(documents),
+        vectors -> {
+          List<ListenableFuture<UpdateResponse>> responses = new ArrayList<>(vectors.size());
+          for (Vector vector : vectors) {
+            UpdateRequest request = createUpdateRequest(vector);
+            responses.add(requestLimiter.submit(() -> pineconeService.updateAsync(request)));
+          }
+          return Futures.transform(
+              Futures.allAsList(responses), updated -> true, MoreExecutors.directExecutor());
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  private UpdateRequest createUpdateRequest(Vector vector) {
+    UpdateRequest.UpdateRequestBuilder requestBuilder = UpdateRequest.builder();
+    pineconeVectorStoreSpec.getNamespace().ifPresent(requestBuilder::setNamespace);
+    return requestBuilder
+        .setValues(vector.getValues())
+        .setId(vector.getId())
+        .setSetMetadata(vector.getMetadata())
+        .build();
   }
 
   @Override
@@ -201,15 +479,49 @@ public class PineconeVectorStore implements VectorStore {
   public boolean deleteDocumentsByIds(List<String> documentsIds) {
     if (documentsIds.isEmpty()) return false;
 
-    DeleteRequest.DeleteRequestBuilder requestBuilder =
-        DeleteRequest.builder().setIds(documentsIds);
-    pineconeVectorStoreSpec.getNamespace().ifPresent(requestBuilder::setNamespace);
     try {
-      pineconeService.delete(requestBuilder.build());
+      pineconeService.delete(createDeleteRequest(documentsIds));
     } catch (Exception e) {
       logger.atSevere().withCause(e).log("Failed to delete documents");
       return false;
     }
     return true;
   }
+
+  @Override
+  public ListenableFuture<Boolean> deleteDocumentsAsync(List<DomainDocument> documents) {
+    List<String> documentIds = new ArrayList<>();
+    for (DomainDocument document : documents) {
+      document.getId().ifPresent(documentIds::add);
+    }
+    return deleteDocumentsByIdsAsync(documentIds);
+  }
+
+  @Override
+  public ListenableFuture<Boolean> deleteDocumentsByIdsAsync(List<String> documentsIds) {
+    if (documentsIds.isEmpty()) {
+      return Futures.immediateFuture(false);
+    }
+    DeleteRequest request = createDeleteRequest(documentsIds);
+    ListenableFuture<Boolean> deleted =
+        Futures.transform(
+            requestLimiter.submit(() -> pineconeService.deleteAsync(request)),
+            response -> true,
+            MoreExecutors.directExecutor());
+    return Futures.catching(
+        deleted,
+        Exception.class,
+        e -> {
+          logger.atSevere().withCause(e).log("Failed to delete documents");
+          return false;
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  private DeleteRequest createDeleteRequest(List<String> documentsIds) {
+    DeleteRequest.DeleteRequestBuilder requestBuilder =
+        DeleteRequest.builder().setIds(documentsIds);
+    pineconeVectorStoreSpec.getNamespace().ifPresent(requestBuilder::setNamespace);
+    return requestBuilder.build();
+  }
 }
@@ -1,5 +1,7 @@
 package ai.knowly.langtorch.store.vectordb.integration.pinecone.schema;
 
+import ai.knowly.langtorch.store.vectordb.integration.schema.EmbeddingBatchSpec;
+import ai.knowly.langtorch.utils.future.retry.RetryConfig;
 import lombok.Builder;
 import lombok.Data;
 
@@ -12,6 +14,24 @@ public class PineconeVectorStoreSpec {
   private final String textKey;
   @Builder.Default private final String model = "text-embedding-ada-002";
 
+  @Builder.Default
+  private final EmbeddingBatchSpec embeddingBatchSpec = EmbeddingBatchSpec.getDefaultInstance();
+
+  /**
+   * The maximum number of requests the store keeps in flight at the same time, which includes the
+   * chunks of an upsert.
+   */
+  @Builder.Default private final int maxInFlightRequests = 16;
+
+  /** The maximum number of vectors sent in one upsert request, as recommended by Pinecone. */
+  @Builder.Default private final int maxVectorsPerUpsert = 100;
+
+  /** The maximum serialized size of one upsert request, below Pinecone's 2 MB request limit. */
+  @Builder.Default private final long maxUpsertBytes = 2_000_000;
+
+  /** How often and after how long a failed upsert chunk is retried. */
+  @Builder.Default private final RetryConfig upsertRetryConfig = RetryConfig.getDefaultInstance();
+
   public Optional<String> getNamespace() {
     return Optional.ofNullable(namespace);
   }
@@ -1,7 +1,8 @@
 package ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto;
 
+import ai.knowly.langtorch.utils.json.FloatArrayDeserializer;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import java.util.List;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import java.util.Map;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,7 +18,8 @@ public class Vector {
   private String id;
 
   @JsonProperty("values")
-  private List<Double> values;
+  @JsonDeserialize(using = FloatArrayDeserializer.class)
+  private float[] values;
 
   @JsonProperty("sparseValues")
   private SparseValues sparseValues;
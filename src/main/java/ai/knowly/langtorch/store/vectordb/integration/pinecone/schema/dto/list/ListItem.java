@@ -0,0 +1,14 @@
+package ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListItem {
+  @JsonProperty("id")
+  private String id;
+}
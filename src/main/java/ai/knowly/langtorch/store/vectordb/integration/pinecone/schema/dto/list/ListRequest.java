@@ -0,0 +1,21 @@
+package ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder(toBuilder = true, setterPrefix = "set")
+public class ListRequest {
+  @JsonProperty("namespace")
+  private String namespace;
+
+  @JsonProperty("prefix")
+  private String prefix;
+
+  @JsonProperty("limit")
+  private Integer limit;
+
+  @JsonProperty("paginationToken")
+  private String paginationToken;
+}
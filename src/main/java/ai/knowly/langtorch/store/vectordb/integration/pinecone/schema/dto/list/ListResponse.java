@@ -0,0 +1,21 @@
+package ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListResponse {
+  @JsonProperty("vectors")
+  private List<ListItem> vectors;
+
+  @JsonProperty("pagination")
+  private Pagination pagination;
+
+  @JsonProperty("namespace")
+  private String namespace;
+}
@@ -0,0 +1,15 @@
+package ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Pagination {
+  /** The token of the next page, null on the last page. */
+  @JsonProperty("next")
+  private String next;
+}
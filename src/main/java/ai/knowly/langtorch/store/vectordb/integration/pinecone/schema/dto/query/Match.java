@@ -1,8 +1,9 @@
 package ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query;
 
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.SparseValues;
+import ai.knowly.langtorch.utils.json.FloatArrayDeserializer;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import java.util.List;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import java.util.Map;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -19,7 +20,8 @@ public class Match {
   private Double score;
 
   @JsonProperty("values")
-  private List<Double> values;
+  @JsonDeserialize(using = FloatArrayDeserializer.class)
+  private float[] values;
 
   @JsonProperty("sparseValues")
   private SparseValues sparseValues;
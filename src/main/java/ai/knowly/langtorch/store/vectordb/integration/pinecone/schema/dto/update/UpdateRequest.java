@@ -2,7 +2,6 @@ package ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.updat
 
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.SparseValues;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import java.util.List;
 import java.util.Map;
 import lombok.Builder;
 import lombok.Data;
@@ -16,7 +15,7 @@ public class UpdateRequest {
   private String id;
 
   @JsonProperty("values")
-  private List<Double> values;
+  private float[] values;
 
   @JsonProperty("sparseValues")
   private SparseValues sparseValues;
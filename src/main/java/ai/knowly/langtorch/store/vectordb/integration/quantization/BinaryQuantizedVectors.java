@@ -0,0 +1,62 @@
+package ai.knowly.langtorch.store.vectordb.integration.quantization;
+
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.VectorKernels;
+import java.util.Arrays;
+
+/**
+ * Vectors compressed to the sign of each component, packed 64 to a {@code long}. The estimated
+ * distance is the Hamming distance of the signs, which follows the angle between vectors. It ranks
+ * well for embeddings whose components are centered around zero, such as those of OpenAI, and is
+ * the same estimate for every distance strategy, so it should always be rescored.
+ */
+public final class BinaryQuantizedVectors implements QuantizedVectors {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final int dimensions;
+  private final int words;
+  private long[] bits = new long[0];
+
+  public BinaryQuantizedVectors(int dimensions) {
+    this.dimensions = dimensions;
+    this.words = (dimensions + Long.SIZE - 1) / Long.SIZE;
+  }
+
+  @Override
+  public void set(int slot, float[] vector) {
+    ensureCapacity(slot + 1);
+    encode(vector, bits, slot * words);
+  }
+
+  @Override
+  public void move(int fromSlot, int toSlot) {
+    System.arraycopy(bits, fromSlot * words, bits, toSlot * words, words);
+  }
+
+  @Override
+  public Scorer newScorer(float[] query) {
+    long[] queryBits = new long[words];
+    encode(query, queryBits, 0);
+    return slot -> VectorKernels.hamming(queryBits, 0, bits, slot * words, words);
+  }
+
+  /** Returns the number of bytes held per vector. */
+  public int getBytesPerVector() {
+    return words * Long.BYTES;
+  }
+
+  private void encode(float[] vector, long[] target, int wordOffset) {
+    Arrays.fill(target, wordOffset, wordOffset + words, 0);
+    for (int i = 0; i < dimensions; i++) {
+      if (vector[i] > 0) {
+        target[wordOffset + i / Long.SIZE] |= 1L << (i % Long.SIZE);
+      }
+    }
+  }
+
+  private void ensureCapacity(int slots) {
+    int capacity = bits.length / words;
+    if (slots > capacity) {
+      bits = Arrays.copyOf(bits, Math.max(slots, Math.max(INITIAL_CAPACITY, capacity * 2)) * words);
+    }
+  }
+}
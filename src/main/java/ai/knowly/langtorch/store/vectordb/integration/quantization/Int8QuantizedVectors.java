@@ -0,0 +1,138 @@
+package ai.knowly.langtorch.store.vectordb.integration.quantization;
+
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.CosineDistanceStrategy;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategy;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.VectorKernels;
+import java.util.Arrays;
+
+/**
+ * Vectors compressed to one unsigned byte per component. Each vector is mapped linearly from its
+ * own [min, max] range onto [0, 255], so a component is restored as {@code offset + scale * code}.
+ *
+ * <p>The query is compressed the same way, and the inner product of two restored vectors is
+ * expanded into an integer inner product of their codes plus terms precomputed per vector:
+ *
+ * <pre>
+ * dot(a, b) = n * oa * ob + oa * sb * sum(cb) + ob * sa * sum(ca) + sa * sb * dot(ca, cb)
+ * </pre>
+ *
+ * so that scoring a vector reads only its bytes and four scalars. Euclidean and cosine distances
+ * follow from the inner product and the precomputed squared norms.
+ */
+public final class Int8QuantizedVectors implements QuantizedVectors {
+  private static final int LEVELS = 255;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final int dimensions;
+  private final boolean isEuclidean;
+  private final boolean isCosine;
+  private byte[] codes = new byte[0];
+  private float[] scales = new float[0];
+  private float[] offsets = new float[0];
+  private int[] codeSums = new int[0];
+  // The squared norms of the restored vectors.
+  private float[] squaredNorms = new float[0];
+
+  public Int8QuantizedVectors(int dimensions, DistanceStrategy distanceStrategy) {
+    this.dimensions = dimensions;
+    this.isEuclidean = !distanceStrategy.isSimilarity();
+    this.isCosine = distanceStrategy instanceof CosineDistanceStrategy;
+  }
+
+  @Override
+  public void set(int slot, float[] vector) {
+    ensureCapacity(slot + 1);
+    Encoding encoding = encode(vector, codes, slot * dimensions);
+    scales[slot] = encoding.scale;
+    offsets[slot] = encoding.offset;
+    codeSums[slot] = encoding.codeSum;
+    squaredNorms[slot] = encoding.squaredNorm;
+  }
+
+  @Override
+  public void move(int fromSlot, int toSlot) {
+    System.arraycopy(codes, fromSlot * dimensions, codes, toSlot * dimensions, dimensions);
+    scales[toSlot] = scales[fromSlot];
+    offsets[toSlot] = offsets[fromSlot];
+    codeSums[toSlot] = codeSums[fromSlot];
+    squaredNorms[toSlot] = squaredNorms[fromSlot];
+  }
+
+  @Override
+  public Scorer newScorer(float[] query) {
+    byte[] queryCodes = new byte[dimensions];
+    Encoding encoding = encode(query, queryCodes, 0);
+    float sq = encoding.scale;
+    float oq = encoding.offset;
+    float nq = encoding.squaredNorm;
+    int cq = encoding.codeSum;
+    return slot -> {
+      float sx = scales[slot];
+      float ox = offsets[slot];
+      int codeDot = VectorKernels.dotUnsigned(queryCodes, 0, codes, slot * dimensions, dimensions);
+      float dot =
+          dimensions * oq * ox + oq * sx * codeSums[slot] + ox * sq * cq + sq * sx * codeDot;
+      if (isEuclidean) {
+        return nq + squaredNorms[slot] - 2 * dot;
+      }
+      if (isCosine) {
+        float normProduct = nq * squaredNorms[slot];
+        return normProduct == 0 ? 0 : (float) (-dot / Math.sqrt(normProduct));
+      }
+      return -dot;
+    };
+  }
+
+  /** Returns the number of bytes held per vector, codes and scalars. */
+  public int getBytesPerVector() {
+    return dimensions + 4 * Float.BYTES;
+  }
+
+  /** Writes the codes of the vector at the offset and returns its scalars. */
+  private Encoding encode(float[] vector, byte[] targetCodes, int codeOffset) {
+    float min = Float.POSITIVE_INFINITY;
+    float max = Float.NEGATIVE_INFINITY;
+    for (float value : vector) {
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+    float scale = (max - min) / LEVELS;
+    int codeSum = 0;
+    double squaredNorm = 0;
+    for (int i = 0; i < dimensions; i++) {
+      int code = scale == 0 ? 0 : Math.min(LEVELS, Math.round((vector[i] - min) / scale));
+      targetCodes[codeOffset + i] = (byte) code;
+      codeSum += code;
+      double restored = min + (double) scale * code;
+      squaredNorm += restored * restored;
+    }
+    return new Encoding(scale, min, codeSum, (float) squaredNorm);
+  }
+
+  private void ensureCapacity(int slots) {
+    int capacity = scales.length;
+    if (slots <= capacity) {
+      return;
+    }
+    int newCapacity = Math.max(slots, Math.max(INITIAL_CAPACITY, capacity * 2));
+    codes = Arrays.copyOf(codes, newCapacity * dimensions);
+    scales = Arrays.copyOf(scales, newCapacity);
+    offsets = Arrays.copyOf(offsets, newCapacity);
+    codeSums = Arrays.copyOf(codeSums, newCapacity);
+    squaredNorms = Arrays.copyOf(squaredNorms, newCapacity);
+  }
+
+  private static final class Encoding {
+    private final float scale;
+    private final float offset;
+    private final int codeSum;
+    private final float squaredNorm;
+
+    private Encoding(float scale, float offset, int codeSum, float squaredNorm) {
+      this.scale = scale;
+      this.offset = offset;
+      this.codeSum = codeSum;
+      this.squaredNorm = squaredNorm;
+    }
+  }
+}
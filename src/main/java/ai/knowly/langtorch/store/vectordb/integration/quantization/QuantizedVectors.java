@@ -0,0 +1,48 @@
+package ai.knowly.langtorch.store.vectordb.integration.quantization;
+
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategy;
+
+/**
+ * A growable collection of compressed vectors addressed by slot. Compressed distances are only
+ * estimates for ranking candidates, which are meant to be rescored with the full-precision vectors.
+ *
+ * <p>Implementations are not thread-safe, writes have to be synchronized with scorers by the
+ * caller.
+ */
+public interface QuantizedVectors {
+
+  /** Compresses the vector into the slot, growing the collection if needed. */
+  void set(int slot, float[] vector);
+
+  /** Copies the compressed vector of a slot into another slot. */
+  void move(int fromSlot, int toSlot);
+
+  /** Returns a scorer of the stored vectors against the query. */
+  Scorer newScorer(float[] query);
+
+  /** Estimates the distance of stored vectors to a query. */
+  @FunctionalInterface
+  interface Scorer {
+    /** Returns the estimated distance to the vector in the slot, smaller is closer. */
+    float distance(int slot);
+  }
+
+  /**
+   * Creates an empty collection.
+   *
+   * @param quantization the compression, not {@link VectorQuantization#NONE}
+   * @param dimensions the dimensions of the vectors
+   * @param distanceStrategy the distance the estimates approximate the ranking of
+   */
+  static QuantizedVectors create(
+      VectorQuantization quantization, int dimensions, DistanceStrategy distanceStrategy) {
+    switch (quantization) {
+      case INT8:
+        return new Int8QuantizedVectors(dimensions, distanceStrategy);
+      case BINARY:
+        return new BinaryQuantizedVectors(dimensions);
+      default:
+        throw new IllegalArgumentException("Not a quantization: " + quantization);
+    }
+  }
+}
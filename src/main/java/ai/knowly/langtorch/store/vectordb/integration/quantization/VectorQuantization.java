@@ -0,0 +1,11 @@
+package ai.knowly.langtorch.store.vectordb.integration.quantization;
+
+/** How a vector store compresses the vectors it scans. */
+public enum VectorQuantization {
+  /** Full-precision 32-bit floats. */
+  NONE,
+  /** One unsigned byte per component, with a scale and an offset per vector: 4x smaller. */
+  INT8,
+  /** One sign bit per component: 32x smaller, suited to embeddings centered around zero. */
+  BINARY
+}
@@ -0,0 +1,27 @@
+package ai.knowly.langtorch.store.vectordb.integration.schema;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/** Specification of how documents are grouped into embedding requests during ingestion. */
+@Data
+@Builder(toBuilder = true, setterPrefix = "set")
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class EmbeddingBatchSpec {
+  private static final EmbeddingBatchSpec DEFAULT_INSTANCE = EmbeddingBatchSpec.builder().build();
+
+  /** The maximum number of inputs sent in one embedding request. */
+  @Builder.Default private final int maxInputsPerBatch = 256;
+
+  /** The maximum number of estimated tokens sent in one embedding request. */
+  @Builder.Default private final long maxTokensPerBatch = 100_000;
+
+  /** The maximum number of embedding requests in flight at the same time. */
+  @Builder.Default private final int maxConcurrentBatches = 4;
+
+  public static EmbeddingBatchSpec getDefaultInstance() {
+    return DEFAULT_INSTANCE;
+  }
+}
@@ -0,0 +1,122 @@
+package ai.knowly.langtorch.store.vectordb.integration.schema;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * A predicate on a single metadata key that a document has to satisfy to be returned by a
+ * similarity search. Metadata values are strings, range operators compare them numerically and
+ * never match values that are not decimal numbers as matched by {@link #NUMERIC_REGEX}.
+ */
+@Data
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class MetadataCondition {
+  /**
+   * The metadata values range conditions are evaluated on: decimal numbers with an optional
+   * exponent, surrounded by optional whitespace. Unlike {@link Double#parseDouble(String)} it
+   * rejects {@code NaN}, {@code Infinity}, hexadecimal numbers and type suffixes, and it is also
+   * valid as a PostgreSQL regular expression, so every store agrees on which values are numbers.
+   */
+  public static final String NUMERIC_REGEX =
+      "^\\s*[-+]?([0-9]+\\.?[0-9]*|\\.[0-9]+)([eE][-+]?[0-9]+)?\\s*$";
+
+  private static final Pattern NUMERIC = Pattern.compile(NUMERIC_REGEX);
+
+  /** The comparison applied to the metadata value. */
+  public enum Operator {
+    EQ,
+    IN,
+    GT,
+    GTE,
+    LT,
+    LTE;
+
+    public boolean isRange() {
+      return this != EQ && this != IN;
+    }
+  }
+
+  @NonNull private final String key;
+  @NonNull private final Operator operator;
+  // A single value for every operator but IN.
+  @NonNull private final List<String> values;
+
+  public static MetadataCondition eq(String key, String value) {
+    return new MetadataCondition(key, Operator.EQ, ImmutableList.of(value));
+  }
+
+  public static MetadataCondition in(String key, Collection<String> values) {
+    return new MetadataCondition(key, Operator.IN, ImmutableList.copyOf(values));
+  }
+
+  public static MetadataCondition gt(String key, double value) {
+    return range(key, Operator.GT, value);
+  }
+
+  public static MetadataCondition gte(String key, double value) {
+    return range(key, Operator.GTE, value);
+  }
+
+  public static MetadataCondition lt(String key, double value) {
+    return range(key, Operator.LT, value);
+  }
+
+  public static MetadataCondition lte(String key, double value) {
+    return range(key, Operator.LTE, value);
+  }
+
+  /** Returns whether the given metadata satisfies all the conditions. */
+  public static boolean testAll(List<MetadataCondition> conditions, Map<String, String> metadata) {
+    for (MetadataCondition condition : conditions) {
+      if (!condition.test(metadata)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns whether the given metadata satisfies this condition. */
+  public boolean test(Map<String, String> metadata) {
+    String value = metadata.get(key);
+    if (value == null) {
+      return false;
+    }
+    if (!operator.isRange()) {
+      return values.contains(value);
+    }
+    if (!NUMERIC.matcher(value).matches()) {
+      return false;
+    }
+    double number = Double.parseDouble(value.trim());
+    double bound = getBound();
+    switch (operator) {
+      case GT:
+        return number > bound;
+      case GTE:
+        return number >= bound;
+      case LT:
+        return number < bound;
+      default:
+        return number <= bound;
+    }
+  }
+
+  /** Returns the bound of a range condition. */
+  public double getBound() {
+    return Double.parseDouble(values.get(0));
+  }
+
+  private static MetadataCondition range(String key, Operator operator, double value) {
+    checkArgument(Double.isFinite(value), "The bound of a range condition must be finite");
+    return new MetadataCondition(key, operator, ImmutableList.of(String.valueOf(value)));
+  }
+}
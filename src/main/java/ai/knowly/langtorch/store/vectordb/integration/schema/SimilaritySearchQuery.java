@@ -1,8 +1,12 @@
 package ai.knowly.langtorch.store.vectordb.integration.schema;
 
+import ai.knowly.langtorch.schema.embeddings.Embedding;
+import com.google.common.primitives.Floats;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,7 +17,68 @@ import lombok.NonNull;
 @Builder(toBuilder = true, setterPrefix = "set")
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class SimilaritySearchQuery {
+  // Metadata values the results have to be equal to.
   @Builder.Default Map<String, String> filter = new HashMap<>();
-  @NonNull private List<Double> query;
+
+  /** Further conditions on the metadata of the results, combined with the filter by AND. */
+  @Builder.Default private List<MetadataCondition> metadataConditions = new ArrayList<>();
+
+  // The query vector, which the builder also accepts as a List<Double>.
+  @NonNull private float[] query;
+
   @NonNull private Long topK;
+
+  /** The size of the HNSW candidate list, a larger value trades speed for recall. */
+  private Integer efSearch;
+
+  /** The number of IVFFlat or IVF-PQ lists to probe, a larger value trades speed for recall. */
+  private Integer probes;
+
+  /**
+   * The text the query vector was embedded from, which stores that also search lexically, such as
+   * the hybrid one, match against the page content of the documents.
+   */
+  private String queryText;
+
+  /** Returns the filter and the metadata conditions as a single list of conditions. */
+  public List<MetadataCondition> getAllMetadataConditions() {
+    List<MetadataCondition> conditions = new ArrayList<>();
+    filter.forEach((key, value) -> conditions.add(MetadataCondition.eq(key, value)));
+    conditions.addAll(metadataConditions);
+    return conditions;
+  }
+
+  /** Returns a read-only view of the query vector as doubles. */
+  public List<Double> getQuery() {
+    return Embedding.of(query).getVector();
+  }
+
+  /** Returns a copy of the query vector. */
+  public float[] getQueryVector() {
+    return query.clone();
+  }
+
+  public Optional<Integer> getEfSearch() {
+    return Optional.ofNullable(efSearch);
+  }
+
+  public Optional<Integer> getProbes() {
+    return Optional.ofNullable(probes);
+  }
+
+  public Optional<String> getQueryText() {
+    return Optional.ofNullable(queryText);
+  }
+
+  public static class SimilaritySearchQueryBuilder {
+    public SimilaritySearchQueryBuilder setQuery(@NonNull float[] query) {
+      this.query = query;
+      return this;
+    }
+
+    public SimilaritySearchQueryBuilder setQuery(@NonNull List<Double> query) {
+      this.query = Floats.toArray(query);
+      return this;
+    }
+  }
 }
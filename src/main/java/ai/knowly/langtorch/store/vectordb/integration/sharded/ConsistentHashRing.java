@@ -0,0 +1,113 @@
+package ai.knowly.langtorch.store.vectordb.integration.sharded;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable consistent hash ring that maps keys to shards. Every shard is placed on the ring at
+ * {@code virtualNodes} points, and a key belongs to the shard of the first point at or after its
+ * hash. Adding a shard to a ring of n shards only moves about 1/(n+1) of the keys, all of them to
+ * the new shard.
+ */
+public final class ConsistentHashRing {
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private final ImmutableList<String> shards;
+  private final int virtualNodes;
+  // The points of the ring in ascending order, and the shard each point belongs to.
+  private final long[] points;
+  private final String[] owners;
+
+  private ConsistentHashRing(List<String> shards, int virtualNodes) {
+    this.shards = ImmutableList.copyOf(shards);
+    this.virtualNodes = virtualNodes;
+    List<Point> ringPoints = new ArrayList<>(shards.size() * virtualNodes);
+    for (String shard : shards) {
+      for (int i = 0; i < virtualNodes; i++) {
+        ringPoints.add(new Point(hash(shard + "#" + i), shard));
+      }
+    }
+    // Ties between points are broken by shard name, so the ring does not depend on shard order.
+    ringPoints.sort(
+        Comparator.comparingLong((Point point) -> point.hash).thenComparing(point -> point.shard));
+    this.points = new long[ringPoints.size()];
+    this.owners = new String[ringPoints.size()];
+    for (int i = 0; i < ringPoints.size(); i++) {
+      points[i] = ringPoints.get(i).hash;
+      owners[i] = ringPoints.get(i).shard;
+    }
+  }
+
+  /**
+   * Creates a ring over the given shards.
+   *
+   * @param shards the names of the shards, which must be unique
+   * @param virtualNodes the number of points per shard, more points spread the keys more evenly
+   */
+  public static ConsistentHashRing create(List<String> shards, int virtualNodes) {
+    if (virtualNodes <= 0) {
+      throw new IllegalArgumentException(
+          "virtualNodes must be greater than 0, was " + virtualNodes);
+    }
+    if (shards.stream().distinct().count() != shards.size()) {
+      throw new IllegalArgumentException("Shard names must be unique: " + shards);
+    }
+    return new ConsistentHashRing(shards, virtualNodes);
+  }
+
+  /** Returns a ring that also contains the given shard. */
+  public ConsistentHashRing withShard(String shard) {
+    if (shards.contains(shard)) {
+      throw new IllegalArgumentException("Shard already exists: " + shard);
+    }
+    return new ConsistentHashRing(
+        ImmutableList.<String>builder().addAll(shards).add(shard).build(), virtualNodes);
+  }
+
+  public ImmutableList<String> getShards() {
+    return shards;
+  }
+
+  /**
+   * Returns the shard the key belongs to.
+   *
+   * @throws IllegalStateException if the ring has no shards
+   */
+  public String getShard(String key) {
+    if (points.length == 0) {
+      throw new IllegalStateException("The ring has no shards");
+    }
+    long hash = hash(key);
+    int index = Arrays.binarySearch(points, hash);
+    if (index < 0) {
+      index = -index - 1;
+    } else {
+      // Equal points are sorted together, the first of them owns the hash.
+      while (index > 0 && points[index - 1] == hash) {
+        index--;
+      }
+    }
+    // Hashes after the last point wrap around to the first.
+    return owners[index == points.length ? 0 : index];
+  }
+
+  private static long hash(String value) {
+    return HASH_FUNCTION.hashString(value, StandardCharsets.UTF_8).asLong();
+  }
+
+  private static final class Point {
+    private final long hash;
+    private final String shard;
+
+    private Point(long hash, String shard) {
+      this.hash = hash;
+      this.shard = shard;
+    }
+  }
+}
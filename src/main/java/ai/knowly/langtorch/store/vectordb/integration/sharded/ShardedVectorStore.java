@@ -0,0 +1,608 @@
+package ai.knowly.langtorch.store.vectordb.integration.sharded;
+
+import static ai.knowly.langtorch.store.vectordb.integration.local.LocalVectorStoreUtils.withIds;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategy;
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.sharded.schema.ShardedVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionReader;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionWriter;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import lombok.NonNull;
+
+/**
+ * A vector store that spreads its documents over several underlying vector stores, such as
+ * pgvector tables, Pinecone namespaces or in-process stores. Every document is written to the shard
+ * its id maps to on a {@link ConsistentHashRing}; documents without an id are given a random one.
+ * Searches are sent to all shards concurrently and their results merged into a global top k by
+ * similarity score, so all shards have to score documents on the same scale.
+ *
+ * <p>Every operation is composed from the asynchronous variants of the shards, started on a thread
+ * of the store so that shards which block in them still run concurrently, and the blocking
+ * operations wait for their asynchronous variant. A search waits for the shards up to the search
+ * timeout of the spec. Shards that time out or fail are logged and left out, so the results are
+ * partial rather than missing; only a search no shard answers throws.
+ *
+ * <p>Shards are added with {@link #addShard(String, VectorStore)}, which moves about 1/(n+1) of
+ * the ids to the new shard. {@link #rebalance()} moves the documents themselves by streaming the
+ * export of every previous shard into the new shards with their vectors; shards that cannot export
+ * their documents are rebalanced with {@link #rebalance(List)} instead, which embeds them again.
+ * {@link #finishRebalance()} ends the move. Until then, writes of a moved id also delete it from
+ * its previous shard, and searches drop the duplicates a half-finished move leaves.
+ */
+public class ShardedVectorStore implements VectorStore, Closeable {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final DistanceStrategy distanceStrategy;
+  private final Duration searchTimeout;
+  private final ExecutorService executor;
+  private final ScheduledExecutorService timeoutExecutor;
+  // Replaced as a whole, so every operation sees a consistent set of shards and rings.
+  private volatile Topology topology;
+
+  /**
+   * @param shards the shards by name; the names place the shards on the ring, so they must stay
+   *     the same across restarts for documents to be found again
+   * @param distanceStrategy the distance strategy of the shards, which decides whether a higher
+   *     similarity score is better
+   */
+  public ShardedVectorStore(
+      @NonNull Map<String, ? extends VectorStore> shards,
+      @NonNull ShardedVectorStoreSpec shardedVectorStoreSpec,
+      @NonNull DistanceStrategy distanceStrategy) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("A sharded vector store needs at least one shard");
+    }
+    this.distanceStrategy = distanceStrategy;
+    this.searchTimeout = shardedVectorStoreSpec.getSearchTimeout();
+    this.topology =
+        new Topology(
+            ImmutableMap.copyOf(shards),
+            ConsistentHashRing.create(
+                ImmutableList.copyOf(shards.keySet()), shardedVectorStoreSpec.getVirtualNodes()),
+            null);
+    this.executor =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("vector-shard-%d").setDaemon(true).build());
+    this.timeoutExecutor =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("vector-shard-timeout")
+                .setDaemon(true)
+                .build());
+  }
+
+  /**
+   * Adds the documents to the shards their ids map to.
+   *
+   * @return true if every shard added its documents
+   */
+  @Override
+  public boolean addDocuments(List<DomainDocument> documents) {
+    return await(addDocumentsAsync(documents), "writing to the shards");
+  }
+
+  @Override
+  public ListenableFuture<Boolean> addDocumentsAsync(List<DomainDocument> documents) {
+    Topology current = topology;
+    return write(
+        current, current.groupByShard(withIds(documents)), VectorStore::addDocumentsAsync);
+  }
+
+  /**
+   * Performs the similarity search on every shard and returns the best {@code topK} documents of
+   * the shards that answered in time.
+   *
+   * @throws ShardedVectorStoreException if no shard answered
+   */
+  @Override
+  public List<DomainDocument> similaritySearch(SimilaritySearchQuery similaritySearchQuery) {
+    return similaritySearchBatch(ImmutableList.of(similaritySearchQuery)).get(0);
+  }
+
+  /**
+   * Sends the whole batch to every shard, so that shards which share work between queries do so,
+   * and merges the results of every query separately.
+   *
+   * @throws ShardedVectorStoreException if no shard answered
+   */
+  @Override
+  public List<List<DomainDocument>> similaritySearchBatch(
+      List<SimilaritySearchQuery> similaritySearchQueries) {
+    return await(similaritySearchBatchAsync(similaritySearchQueries), "searching the shards");
+  }
+
+  @Override
+  public ListenableFuture<List<DomainDocument>> similaritySearchAsync(
+      SimilaritySearchQuery similaritySearchQuery) {
+    return Futures.transform(
+        similaritySearchBatchAsync(ImmutableList.of(similaritySearchQuery)),
+        results -> results.get(0),
+        MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Sends the whole batch to every shard, and fails with a {@link ShardedVectorStoreException} if
+   * no shard answered. Shards that did not answer within the search timeout are cancelled.
+   */
+  @Override
+  public ListenableFuture<List<List<DomainDocument>>> similaritySearchBatchAsync(
+      List<SimilaritySearchQuery> similaritySearchQueries) {
+    if (similaritySearchQueries.isEmpty()) {
+      return Futures.immediateFuture(new ArrayList<>());
+    }
+    Topology current = topology;
+    List<String> names = current.ring.getShards();
+    List<ListenableFuture<List<List<DomainDocument>>>> futures = new ArrayList<>(names.size());
+    for (String name : names) {
+      VectorStore shard = current.shards.get(name);
+      futures.add(
+          Futures.withTimeout(
+              Futures.submitAsync(
+                  () -> shard.similaritySearchBatchAsync(similaritySearchQueries), executor),
+              searchTimeout,
+              timeoutExecutor));
+    }
+    return Futures.transform(
+        Futures.successfulAsList(futures),
+        answers -> merge(names, futures, answers, similaritySearchQueries),
+        MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Updates the documents on the shards their ids map to. While a rebalance is in progress,
+   * documents whose shard changed are upserted on their new shard and deleted from the previous
+   * one.
+   *
+   * @return false if a document has no id or a shard did not update its documents
+   */
+  @Override
+  public boolean updateDocuments(List<DomainDocument> documents) {
+    return await(updateDocumentsAsync(documents), "writing to the shards");
+  }
+
+  @Override
+  public ListenableFuture<Boolean> updateDocumentsAsync(List<DomainDocument> documents) {
+    if (documents.stream().anyMatch(document -> document.getId().isEmpty())) {
+      return Futures.immediateFuture(false);
+    }
+    Topology current = topology;
+    List<DomainDocument> moved = current.moved(documents);
+    if (moved.isEmpty()) {
+      return write(current, current.groupByShard(documents), VectorStore::updateDocumentsAsync);
+    }
+    Set<DomainDocument> movedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+    movedSet.addAll(moved);
+    List<DomainDocument> unmoved = new ArrayList<>(documents.size() - moved.size());
+    for (DomainDocument document : documents) {
+      if (!movedSet.contains(document)) {
+        unmoved.add(document);
+      }
+    }
+    return andThen(
+        write(current, current.groupByShard(unmoved), VectorStore::updateDocumentsAsync),
+        () -> move(current, moved));
+  }
+
+  @Override
+  public boolean upsertDocuments(List<DomainDocument> documents) {
+    return await(upsertDocumentsAsync(documents), "writing to the shards");
+  }
+
+  @Override
+  public ListenableFuture<Boolean> upsertDocumentsAsync(List<DomainDocument> documents) {
+    Topology current = topology;
+    List<DomainDocument> identifiedDocuments = withIds(documents);
+    return andThen(
+        write(
+            current, current.groupByShard(identifiedDocuments), VectorStore::upsertDocumentsAsync),
+        () -> deleteFromPreviousShards(current, current.moved(identifiedDocuments)));
+  }
+
+  @Override
+  public boolean deleteDocuments(List<DomainDocument> documents) {
+    return await(deleteDocumentsAsync(documents), "writing to the shards");
+  }
+
+  @Override
+  public ListenableFuture<Boolean> deleteDocumentsAsync(List<DomainDocument> documents) {
+    List<String> documentIds = new ArrayList<>();
+    for (DomainDocument document : documents) {
+      document.getId().ifPresent(documentIds::add);
+    }
+    return deleteDocumentsByIdsAsync(documentIds);
+  }
+
+  /** Deletes the ids from the shards they map to and, during a rebalance, their previous shards. */
+  @Override
+  public boolean deleteDocumentsByIds(List<String> documentsIds) {
+    return await(deleteDocumentsByIdsAsync(documentsIds), "writing to the shards");
+  }
+
+  @Override
+  public ListenableFuture<Boolean> deleteDocumentsByIdsAsync(List<String> documentsIds) {
+    Topology current = topology;
+    Map<String, Set<String>> idsByShard = new LinkedHashMap<>();
+    for (String id : documentsIds) {
+      idsByShard.computeIfAbsent(current.ring.getShard(id), name -> new LinkedHashSet<>()).add(id);
+      if (current.previousRing != null) {
+        idsByShard
+            .computeIfAbsent(current.previousRing.getShard(id), name -> new LinkedHashSet<>())
+            .add(id);
+      }
+    }
+    Map<String, List<String>> ids = new LinkedHashMap<>();
+    idsByShard.forEach((name, shardIds) -> ids.put(name, new ArrayList<>(shardIds)));
+    return write(current, ids, VectorStore::deleteDocumentsByIdsAsync);
+  }
+
+  /**
+   * Exports the shards one after the other into the writer. During a rebalance, a document that
+   * was not yet deleted from its previous shard is written twice.
+   *
+   * @throws UnsupportedOperationException if a shard cannot enumerate its documents
+   */
+  @Override
+  public void exportDocuments(VectorCollectionWriter writer) throws IOException {
+    Topology current = topology;
+    for (String name : current.ring.getShards()) {
+      current.shards.get(name).exportDocuments(writer);
+    }
+  }
+
+  /**
+   * Imports the documents of the chunk into the shards their ids map to, concurrently. While a
+   * rebalance is in progress, moved ids are also deleted from their previous shard.
+   */
+  @Override
+  public long importVectorRecords(List<VectorRecord> vectorRecords) {
+    Topology current = topology;
+    Map<String, List<VectorRecord>> recordsByShard = new LinkedHashMap<>();
+    List<DomainDocument> documents = new ArrayList<>(vectorRecords.size());
+    for (VectorRecord vectorRecord : vectorRecords) {
+      DomainDocument document = vectorRecord.getDocument();
+      recordsByShard
+          .computeIfAbsent(current.ring.getShard(document.getId().get()), name -> new ArrayList<>())
+          .add(vectorRecord);
+      documents.add(document);
+    }
+    AtomicLong count = new AtomicLong();
+    await(
+        andThen(
+            write(
+                current,
+                recordsByShard,
+                (shard, records) -> {
+                  count.addAndGet(shard.importVectorRecords(records));
+                  return Futures.immediateFuture(true);
+                }),
+            () -> deleteFromPreviousShards(current, current.moved(documents))),
+        "writing to the shards");
+    return count.get();
+  }
+
+  /**
+   * Adds a shard and starts a rebalance: the ids the new shard takes over are written to it from
+   * now on, while their documents stay on their previous shards until {@link #rebalance()} moves
+   * them. Shards can be added again before the rebalance is finished.
+   *
+   * @throws IllegalArgumentException if there already is a shard with the name
+   */
+  public synchronized void addShard(@NonNull String name, @NonNull VectorStore shard) {
+    Topology current = topology;
+    topology =
+        new Topology(
+            ImmutableMap.<String, VectorStore>builder()
+                .putAll(current.shards)
+                .put(name, shard)
+                .build(),
+            current.ring.withShard(name),
+            current.previousRing == null ? current.ring : current.previousRing);
+  }
+
+  /**
+   * Moves the documents whose shard changed since the rebalance started to their new shard, with
+   * their vectors, so that nothing is embedded again. The shards the rebalance started with are
+   * exported one after the other, each spooled through a temporary file; a chunk at a time, the
+   * records of moved ids are imported into their new shard and then deleted from their previous
+   * one. A moved document written while its previous shard is exported may be overwritten by its
+   * exported version, so this is meant to be called while moved ids are not written.
+   *
+   * @return the number of documents moved
+   * @throws UnsupportedOperationException if a shard cannot export or import documents
+   */
+  public long rebalance() throws IOException {
+    Topology current = topology;
+    if (current.previousRing == null) {
+      return 0;
+    }
+    long count = 0;
+    for (String name : current.previousRing.getShards()) {
+      Path file = Files.createTempFile("sharded-rebalance-", ".vectors");
+      try {
+        try (VectorCollectionWriter writer =
+            new VectorCollectionWriter(new BufferedOutputStream(Files.newOutputStream(file)))) {
+          current.shards.get(name).exportDocuments(writer);
+        }
+        try (VectorCollectionReader reader =
+            new VectorCollectionReader(new BufferedInputStream(Files.newInputStream(file)))) {
+          List<VectorRecord> chunk;
+          while (!(chunk = reader.readChunk()).isEmpty()) {
+            List<VectorRecord> moved = new ArrayList<>();
+            for (VectorRecord vectorRecord : chunk) {
+              if (!current.ring.getShard(vectorRecord.getDocument().getId().get()).equals(name)) {
+                moved.add(vectorRecord);
+              }
+            }
+            count += importVectorRecords(moved);
+          }
+        }
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Moves those of the documents whose shard changed since the rebalance started to their new
+   * shard, for shards that cannot export their documents to {@link #rebalance()}. Documents are
+   * moved by an upsert, which embeds them again, followed by a delete from their previous shard.
+   * The documents have to be passed in from their source, such as the documents that were added to
+   * the store, and can be passed in batches.
+   *
+   * @return true if every moved document was written to its new shard and deleted from its previous
+   *     one, or if no rebalance is in progress
+   */
+  public boolean rebalance(List<DomainDocument> documents) {
+    Topology current = topology;
+    return await(move(current, current.moved(documents)), "writing to the shards");
+  }
+
+  /**
+   * Ends the rebalance once {@link #rebalance()} returned, or all documents were passed to {@link
+   * #rebalance(List)}. From then on, writes no longer touch the previous shards of moved ids.
+   */
+  public synchronized void finishRebalance() {
+    Topology current = topology;
+    topology = new Topology(current.shards, current.ring, null);
+  }
+
+  /** Returns whether shards were added since the last {@link #finishRebalance()}. */
+  public boolean isRebalancing() {
+    return topology.previousRing != null;
+  }
+
+  /** Returns the name of the shard documents with the id are written to. */
+  public String getShard(String documentId) {
+    return topology.ring.getShard(documentId);
+  }
+
+  /** Stops the threads that run the shard operations. The shards themselves are not closed. */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    timeoutExecutor.shutdownNow();
+  }
+
+  private ListenableFuture<Boolean> move(Topology topology, List<DomainDocument> moved) {
+    return andThen(
+        write(topology, topology.groupByShard(moved), VectorStore::upsertDocumentsAsync),
+        () -> deleteFromPreviousShards(topology, moved));
+  }
+
+  private ListenableFuture<Boolean> deleteFromPreviousShards(
+      Topology topology, List<DomainDocument> moved) {
+    Map<String, List<String>> idsByShard = new LinkedHashMap<>();
+    for (DomainDocument document : moved) {
+      String id = document.getId().get();
+      idsByShard
+          .computeIfAbsent(topology.previousRing.getShard(id), name -> new ArrayList<>())
+          .add(id);
+    }
+    return write(topology, idsByShard, VectorStore::deleteDocumentsByIdsAsync);
+  }
+
+  /**
+   * Starts the write on every shard concurrently.
+   *
+   * @return a future of whether every shard returned true, failing if a shard failed
+   */
+  private <T> ListenableFuture<Boolean> write(
+      Topology topology,
+      Map<String, List<T>> itemsByShard,
+      BiFunction<VectorStore, List<T>, ListenableFuture<Boolean>> operation) {
+    if (itemsByShard.isEmpty()) {
+      return Futures.immediateFuture(true);
+    }
+    if (itemsByShard.size() == 1) {
+      Map.Entry<String, List<T>> entry = itemsByShard.entrySet().iterator().next();
+      return operation.apply(topology.shards.get(entry.getKey()), entry.getValue());
+    }
+    List<ListenableFuture<Boolean>> futures = new ArrayList<>(itemsByShard.size());
+    itemsByShard.forEach(
+        (name, items) ->
+            futures.add(
+                Futures.submitAsync(
+                    () -> operation.apply(topology.shards.get(name), items), executor)));
+    return Futures.transform(
+        Futures.allAsList(futures),
+        results -> results.stream().allMatch(Boolean::booleanValue),
+        MoreExecutors.directExecutor());
+  }
+
+  /** Starts the next write once the first one returned true, or returns false. */
+  private static ListenableFuture<Boolean> andThen(
+      ListenableFuture<Boolean> first, Supplier<ListenableFuture<Boolean>> next) {
+    return Futures.transformAsync(
+        first,
+        isSuccessful -> isSuccessful ? next.get() : Futures.immediateFuture(false),
+        MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Waits for the future of a blocking operation, rethrowing its unchecked failures as they are.
+   * The future is cancelled if the waiting thread is interrupted.
+   */
+  private static <T> T await(ListenableFuture<T> future, String activity) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new ShardedVectorStoreException("Interrupted while " + activity, e);
+    } catch (ExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new ShardedVectorStoreException("Failed while " + activity, e.getCause());
+    }
+  }
+
+  /**
+   * Merges the answers of the shards to every query, logging the shards that timed out or failed.
+   *
+   * @param answers the results of every shard, null for the shards that did not answer
+   * @throws ShardedVectorStoreException if no shard answered
+   */
+  private List<List<DomainDocument>> merge(
+      List<String> names,
+      List<ListenableFuture<List<List<DomainDocument>>>> futures,
+      List<List<List<DomainDocument>>> answers,
+      List<SimilaritySearchQuery> similaritySearchQueries) {
+    List<List<List<DomainDocument>>> shardResults = new ArrayList<>(names.size());
+    for (int i = 0; i < answers.size(); i++) {
+      if (answers.get(i) != null) {
+        shardResults.add(answers.get(i));
+        continue;
+      }
+      try {
+        Futures.getDone(futures.get(i));
+      } catch (CancellationException e) {
+        logger.atWarning().log("Shard %s was cancelled, searching without it", names.get(i));
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof TimeoutException) {
+          logger.atWarning().log(
+              "Shard %s did not answer within %s, searching without it",
+              names.get(i),
+              searchTimeout);
+        } else {
+          logger.atWarning().withCause(e.getCause()).log(
+              "Shard %s failed, searching without it", names.get(i));
+        }
+      }
+    }
+    if (shardResults.isEmpty()) {
+      throw new ShardedVectorStoreException("None of the " + names.size() + " shards answered");
+    }
+
+    List<List<DomainDocument>> results = new ArrayList<>(similaritySearchQueries.size());
+    for (int q = 0; q < similaritySearchQueries.size(); q++) {
+      List<List<DomainDocument>> rankings = new ArrayList<>(shardResults.size());
+      for (List<List<DomainDocument>> shardResult : shardResults) {
+        rankings.add(shardResult.get(q));
+      }
+      results.add(merge(rankings, similaritySearchQueries.get(q).getTopK()));
+    }
+    return results;
+  }
+
+  /**
+   * Merges the rankings of the shards into the best {@code topK} documents. Documents without a
+   * similarity score come last, and of the documents with the same id only the best is kept.
+   */
+  private List<DomainDocument> merge(List<List<DomainDocument>> rankings, long topK) {
+    List<DomainDocument> candidates = new ArrayList<>();
+    for (List<DomainDocument> ranking : rankings) {
+      candidates.addAll(ranking);
+    }
+    Comparator<Double> scoreOrder =
+        distanceStrategy.isSimilarity() ? Comparator.reverseOrder() : Comparator.naturalOrder();
+    candidates.sort(
+        Comparator.comparing(
+            (DomainDocument document) -> document.getSimilarityScore().orElse(null),
+            Comparator.nullsLast(scoreOrder)));
+    List<DomainDocument> merged = new ArrayList<>((int) Math.min(topK, candidates.size()));
+    Set<String> ids = new HashSet<>();
+    for (DomainDocument document : candidates) {
+      if (merged.size() == topK) {
+        break;
+      }
+      if (document.getId().map(ids::add).orElse(true)) {
+        merged.add(document);
+      }
+    }
+    return merged;
+  }
+
+  /** The shards and the rings that map ids to them. */
+  private static final class Topology {
+    private final ImmutableMap<String, VectorStore> shards;
+    private final ConsistentHashRing ring;
+    // The ring before the first shard added since the last finished rebalance, or null.
+    private final ConsistentHashRing previousRing;
+
+    private Topology(
+        ImmutableMap<String, VectorStore> shards,
+        ConsistentHashRing ring,
+        ConsistentHashRing previousRing) {
+      this.shards = shards;
+      this.ring = ring;
+      this.previousRing = previousRing;
+    }
+
+    /** Groups documents that have ids by the shard their id maps to. */
+    private Map<String, List<DomainDocument>> groupByShard(List<DomainDocument> documents) {
+      Map<String, List<DomainDocument>> documentsByShard = new LinkedHashMap<>();
+      for (DomainDocument document : documents) {
+        documentsByShard
+            .computeIfAbsent(ring.getShard(document.getId().get()), name -> new ArrayList<>())
+            .add(document);
+      }
+      return documentsByShard;
+    }
+
+    /** Returns the documents whose id maps to another shard than before the rebalance. */
+    private List<DomainDocument> moved(List<DomainDocument> documents) {
+      List<DomainDocument> moved = new ArrayList<>();
+      if (previousRing == null) {
+        return moved;
+      }
+      for (DomainDocument document : documents) {
+        if (document.getId().isEmpty()) {
+          continue;
+        }
+        String id = document.getId().get();
+        if (!ring.getShard(id).equals(previousRing.getShard(id))) {
+          moved.add(document);
+        }
+      }
+      return moved;
+    }
+  }
+}
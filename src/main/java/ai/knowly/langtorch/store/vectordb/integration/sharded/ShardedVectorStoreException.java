@@ -0,0 +1,12 @@
+package ai.knowly.langtorch.store.vectordb.integration.sharded;
+
+/** Thrown when a sharded vector store cannot get an answer from its shards. */
+public class ShardedVectorStoreException extends RuntimeException {
+  public ShardedVectorStoreException(String message) {
+    super(message);
+  }
+
+  public ShardedVectorStoreException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,24 @@
+package ai.knowly.langtorch.store.vectordb.integration.sharded.schema;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+/** Represents the specification for a vector store that spreads documents over several shards. */
+@Data
+@Builder(toBuilder = true, setterPrefix = "set")
+public class ShardedVectorStoreSpec {
+
+  /**
+   * The number of points every shard has on the consistent hash ring. More points spread the
+   * documents more evenly over the shards. Changing it moves documents between shards.
+   */
+  @Builder.Default private final int virtualNodes = 128;
+
+  /**
+   * How long a search waits for the shards. Shards that have not answered by then are left out of
+   * the results, which are then partial.
+   */
+  @NonNull @Builder.Default private final Duration searchTimeout = Duration.ofSeconds(10);
+}
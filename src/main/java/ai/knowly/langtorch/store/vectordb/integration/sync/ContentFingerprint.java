@@ -0,0 +1,43 @@
+package ai.knowly.langtorch.store.vectordb.integration.sync;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.schema.io.Metadata;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Computes the fingerprint of a document as stored in a vector store: the SHA-256 of the embedding
+ * model, the page content and the metadata. Two documents with the same fingerprint get the same
+ * embedding and the same stored metadata, so one of them does not need to be written again.
+ */
+public final class ContentFingerprint {
+  private static final HashFunction HASH_FUNCTION = Hashing.sha256();
+
+  private ContentFingerprint() {}
+
+  /** Returns the fingerprint of the document embedded with the given model, as a hex string. */
+  public static String of(String model, DomainDocument document) {
+    Hasher hasher = HASH_FUNCTION.newHasher();
+    // Every string is prefixed with its length, so that moving characters from one to the next
+    // changes the fingerprint.
+    putString(hasher, model);
+    putString(hasher, document.getPageContent());
+    // The metadata is hashed in key order, the order of a hash map is not stable.
+    Map<String, String> metadata =
+        new TreeMap<>(document.getMetadata().map(Metadata::getValue).orElse(Map.of()));
+    hasher.putInt(metadata.size());
+    for (Map.Entry<String, String> entry : metadata.entrySet()) {
+      putString(hasher, entry.getKey());
+      putString(hasher, entry.getValue());
+    }
+    return hasher.hash().toString();
+  }
+
+  private static void putString(Hasher hasher, String value) {
+    hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,8 @@
+package ai.knowly.langtorch.store.vectordb.integration.sync;
+
+/** Thrown when a {@link DocumentSynchronizer} cannot write the changes to the vector store. */
+public class DocumentSyncException extends RuntimeException {
+  public DocumentSyncException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,111 @@
+package ai.knowly.langtorch.store.vectordb.integration.sync;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.sync.schema.SyncResult;
+import com.google.common.flogger.FluentLogger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+
+/**
+ * Brings a vector store in line with a corpus while only paying for what changed. The fingerprint
+ * of every document is compared with the one recorded when it was last written: new and changed
+ * documents are upserted, which embeds them, unchanged ones are skipped, and documents that are no
+ * longer in the corpus are deleted.
+ *
+ * <p>The store is written before the fingerprints, so a sync that fails halfway writes the
+ * remaining documents again on the next run rather than skipping them. Syncs of the same store
+ * must not run concurrently.
+ */
+public class DocumentSynchronizer {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final VectorStore vectorStore;
+  private final FingerprintStore fingerprintStore;
+  private final String model;
+
+  /**
+   * @param vectorStore the store to keep in line with the corpus
+   * @param fingerprintStore the fingerprints of the documents written to the store
+   * @param model the embedding model of the store, changing it writes every document again
+   */
+  public DocumentSynchronizer(
+      @NonNull VectorStore vectorStore,
+      @NonNull FingerprintStore fingerprintStore,
+      @NonNull String model) {
+    this.vectorStore = vectorStore;
+    this.fingerprintStore = fingerprintStore;
+    this.model = model;
+  }
+
+  /**
+   * Synchronizes the store with the given documents, which are the whole corpus: stored documents
+   * missing from them are deleted. When several documents share an id, the last one wins.
+   *
+   * @param documents the documents of the corpus, which must all have an id
+   * @return the number of documents added, updated, skipped and deleted
+   * @throws IllegalArgumentException if a document has no id
+   * @throws DocumentSyncException if the store fails to write or delete documents
+   */
+  public SyncResult sync(List<DomainDocument> documents) {
+    Map<String, DomainDocument> documentsById = new LinkedHashMap<>();
+    for (DomainDocument document : documents) {
+      String id =
+          document
+              .getId()
+              .orElseThrow(() -> new IllegalArgumentException("Documents must have an id to sync"));
+      documentsById.put(id, document);
+    }
+    Map<String, String> storedFingerprints = fingerprintStore.getFingerprints();
+
+    List<DomainDocument> changedDocuments = new ArrayList<>();
+    Map<String, String> changedFingerprints = new LinkedHashMap<>();
+    int addedCount = 0;
+    for (Map.Entry<String, DomainDocument> entry : documentsById.entrySet()) {
+      String fingerprint = ContentFingerprint.of(model, entry.getValue());
+      String storedFingerprint = storedFingerprints.get(entry.getKey());
+      if (fingerprint.equals(storedFingerprint)) {
+        continue;
+      }
+      if (storedFingerprint == null) {
+        addedCount++;
+      }
+      changedDocuments.add(entry.getValue());
+      changedFingerprints.put(entry.getKey(), fingerprint);
+    }
+    List<String> deletedIds = new ArrayList<>();
+    for (String id : storedFingerprints.keySet()) {
+      if (!documentsById.containsKey(id)) {
+        deletedIds.add(id);
+      }
+    }
+
+    if (!changedDocuments.isEmpty()) {
+      if (!vectorStore.upsertDocuments(changedDocuments)) {
+        throw new DocumentSyncException(
+            "Failed to write " + changedDocuments.size() + " changed documents");
+      }
+      fingerprintStore.putFingerprints(changedFingerprints);
+    }
+    if (!deletedIds.isEmpty()) {
+      if (!vectorStore.deleteDocumentsByIds(deletedIds)) {
+        throw new DocumentSyncException(
+            "Failed to delete " + deletedIds.size() + " removed documents");
+      }
+      fingerprintStore.removeFingerprints(deletedIds);
+    }
+
+    SyncResult result =
+        SyncResult.builder()
+            .setAddedCount(addedCount)
+            .setUpdatedCount(changedDocuments.size() - addedCount)
+            .setUnchangedCount(documentsById.size() - changedDocuments.size())
+            .setDeletedCount(deletedIds.size())
+            .build();
+    logger.atInfo().log("Synchronized documents: %s", result);
+    return result;
+  }
+}
@@ -0,0 +1,21 @@
+package ai.knowly.langtorch.store.vectordb.integration.sync;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Keeps the {@link ContentFingerprint} of every document written to a vector store, by document
+ * id. Implementations read all fingerprints in bulk, so that a {@link DocumentSynchronizer} can
+ * diff a corpus against the store in a single round trip.
+ */
+public interface FingerprintStore {
+
+  /** Returns the fingerprints of all documents, by document id. */
+  Map<String, String> getFingerprints();
+
+  /** Sets the fingerprints of the given document ids, replacing their previous fingerprints. */
+  void putFingerprints(Map<String, String> fingerprints);
+
+  /** Removes the fingerprints of the given document ids, ids without one are ignored. */
+  void removeFingerprints(Collection<String> documentIds);
+}
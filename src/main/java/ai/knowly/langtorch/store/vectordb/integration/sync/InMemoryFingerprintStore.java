@@ -0,0 +1,29 @@
+package ai.knowly.langtorch.store.vectordb.integration.sync;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link FingerprintStore} kept in memory, for vector stores that live in the same process such
+ * as the local ones. The fingerprints are lost with the process.
+ */
+public final class InMemoryFingerprintStore implements FingerprintStore {
+  private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+
+  @Override
+  public Map<String, String> getFingerprints() {
+    return ImmutableMap.copyOf(fingerprints);
+  }
+
+  @Override
+  public void putFingerprints(Map<String, String> fingerprints) {
+    this.fingerprints.putAll(fingerprints);
+  }
+
+  @Override
+  public void removeFingerprints(Collection<String> documentIds) {
+    documentIds.forEach(fingerprints::remove);
+  }
+}
@@ -0,0 +1,21 @@
+package ai.knowly.langtorch.store.vectordb.integration.sync.schema;
+
+import lombok.Builder;
+import lombok.Data;
+
+/** Represents the number of documents each step of a synchronization touched. */
+@Data
+@Builder(toBuilder = true, setterPrefix = "set")
+public class SyncResult {
+  /** The documents that had no fingerprint, which were embedded and written. */
+  private final int addedCount;
+
+  /** The documents whose fingerprint changed, which were embedded and written again. */
+  private final int updatedCount;
+
+  /** The documents whose fingerprint did not change, which were skipped. */
+  private final int unchangedCount;
+
+  /** The documents that were no longer in the corpus, which were deleted. */
+  private final int deletedCount;
+}
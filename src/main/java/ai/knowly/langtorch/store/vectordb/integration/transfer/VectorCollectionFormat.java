@@ -0,0 +1,33 @@
+package ai.knowly.langtorch.store.vectordb.integration.transfer;
+
+/**
+ * The layout of an exported vector collection, a stream of chunks of records stored column by
+ * column. All numbers are little-endian.
+ *
+ * <pre>
+ *   header                 HEADER_BYTES: magic, version and vector dimensions
+ *   chunks                 one or more, the last one with a count of 0
+ *     count                int, the number of records in the chunk
+ *     payload length       int
+ *     payload              the columns below
+ *       vectors            count * dimensions floats
+ *       ids                count + 1 int offsets into the UTF-8 bytes that follow
+ *       page contents      count + 1 int offsets into the UTF-8 bytes that follow
+ *       metadata sizes     count ints, the number of entries of every record, -1 for none
+ *       metadata keys      entries + 1 int offsets into the UTF-8 bytes that follow
+ *       metadata values    entries + 1 int offsets into the UTF-8 bytes that follow
+ *     checksum             int, the CRC32 of the payload
+ * </pre>
+ *
+ * A chunk is written once it is full, so neither side ever holds more than one chunk of the
+ * collection, and the vectors of a chunk are one block of floats that is read with a single copy.
+ */
+final class VectorCollectionFormat {
+  static final int MAGIC = 0x4C545643;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 3 * Integer.BYTES;
+  static final int CHUNK_HEADER_BYTES = 2 * Integer.BYTES;
+  static final int NO_METADATA = -1;
+
+  private VectorCollectionFormat() {}
+}
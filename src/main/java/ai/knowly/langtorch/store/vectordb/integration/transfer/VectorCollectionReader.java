@@ -0,0 +1,151 @@
+package ai.knowly.langtorch.store.vectordb.integration.transfer;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.schema.io.Metadata;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import lombok.NonNull;
+
+/**
+ * Reads the records of a vector collection written by a {@link VectorCollectionWriter}, one chunk
+ * at a time, so that a collection of any size can be imported with the memory of one chunk.
+ *
+ * <p>Not thread-safe. Closing the reader closes the stream.
+ */
+public final class VectorCollectionReader implements Closeable {
+  private final DataInputStream inputStream;
+  private final int dimensions;
+  private boolean isFinished;
+
+  /**
+   * Reads the header of the collection from the stream.
+   *
+   * @throws IOException if the stream does not start with a vector collection of a known version
+   */
+  public VectorCollectionReader(@NonNull InputStream inputStream) throws IOException {
+    this.inputStream = new DataInputStream(inputStream);
+    ByteBuffer header = read(VectorCollectionFormat.HEADER_BYTES);
+    if (header.getInt() != VectorCollectionFormat.MAGIC) {
+      throw new IOException("The stream is not a vector collection");
+    }
+    int version = header.getInt();
+    if (version != VectorCollectionFormat.VERSION) {
+      throw new IOException("Unsupported vector collection version " + version);
+    }
+    this.dimensions = header.getInt();
+  }
+
+  /** Returns the dimensions of the vectors, 0 for an empty collection. */
+  public int getDimensions() {
+    return dimensions;
+  }
+
+  /**
+   * Reads the next chunk of records.
+   *
+   * @return the records of the chunk, or an empty list once the collection is read
+   * @throws IOException if the stream is truncated or a chunk does not match its checksum
+   */
+  public List<VectorRecord> readChunk() throws IOException {
+    if (isFinished) {
+      return new ArrayList<>();
+    }
+    ByteBuffer chunkHeader = read(VectorCollectionFormat.CHUNK_HEADER_BYTES);
+    int count = chunkHeader.getInt();
+    int payloadLength = chunkHeader.getInt();
+    if (count < 0 || payloadLength < 0) {
+      throw new IOException("A chunk of the vector collection has a negative length");
+    }
+    if (count == 0) {
+      isFinished = true;
+      return new ArrayList<>();
+    }
+    ByteBuffer payload = read(payloadLength);
+    int expectedChecksum = read(Integer.BYTES).getInt();
+    CRC32 checksum = new CRC32();
+    checksum.update(payload.array());
+    if ((int) checksum.getValue() != expectedChecksum) {
+      throw new IOException("A chunk of the vector collection does not match its checksum");
+    }
+    return decode(payload, count);
+  }
+
+  @Override
+  public void close() throws IOException {
+    inputStream.close();
+  }
+
+  private List<VectorRecord> decode(ByteBuffer payload, int count) {
+    List<float[]> vectors = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      float[] vector = new float[dimensions];
+      payload.asFloatBuffer().get(vector);
+      payload.position(payload.position() + dimensions * Float.BYTES);
+      vectors.add(vector);
+    }
+    List<String> ids = getColumn(payload, count);
+    List<String> pageContents = getColumn(payload, count);
+    int[] metadataSizes = new int[count];
+    int entryCount = 0;
+    for (int i = 0; i < count; i++) {
+      metadataSizes[i] = payload.getInt();
+      entryCount += Math.max(0, metadataSizes[i]);
+    }
+    List<String> keys = getColumn(payload, entryCount);
+    List<String> values = getColumn(payload, entryCount);
+
+    List<VectorRecord> records = new ArrayList<>(count);
+    int entry = 0;
+    for (int i = 0; i < count; i++) {
+      DomainDocument.DomainDocumentBuilder document =
+          DomainDocument.builder().setId(ids.get(i)).setPageContent(pageContents.get(i));
+      if (metadataSizes[i] != VectorCollectionFormat.NO_METADATA) {
+        Map<String, String> metadata = new HashMap<>();
+        for (int j = 0; j < metadataSizes[i]; j++, entry++) {
+          metadata.put(keys.get(entry), values.get(entry));
+        }
+        document.setMetadata(Metadata.builder().setValue(metadata).build());
+      }
+      records.add(
+          VectorRecord.builder().setDocument(document.build()).setVector(vectors.get(i)).build());
+    }
+    return records;
+  }
+
+  /** Reads a column of strings written as their end offsets followed by their bytes. */
+  private static List<String> getColumn(ByteBuffer buffer, int count) {
+    int[] offsets = new int[count + 1];
+    for (int i = 0; i <= count; i++) {
+      offsets[i] = buffer.getInt();
+    }
+    int dataStart = buffer.position();
+    List<String> strings = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      strings.add(
+          new String(
+              buffer.array(),
+              dataStart + offsets[i],
+              offsets[i + 1] - offsets[i],
+              StandardCharsets.UTF_8));
+    }
+    buffer.position(dataStart + offsets[count]);
+    return strings;
+  }
+
+  private ByteBuffer read(int length) throws IOException {
+    byte[] bytes = new byte[length];
+    inputStream.readFully(bytes);
+    return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+  }
+}
@@ -0,0 +1,196 @@
+package ai.knowly.langtorch.store.vectordb.integration.transfer;
+
+import ai.knowly.langtorch.schema.io.Metadata;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import lombok.NonNull;
+
+/**
+ * Writes the records of a vector collection to a stream in the {@link VectorCollectionFormat}.
+ * Records are buffered until a chunk is full, so memory stays bounded by the chunk size whatever
+ * the size of the collection. The vector dimensions are taken from the first record.
+ *
+ * <p>Not thread-safe. Closing the writer writes the last chunk and closes the stream.
+ */
+public final class VectorCollectionWriter implements Closeable {
+  public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+  private final OutputStream outputStream;
+  private final int chunkSize;
+  private final List<VectorRecord> chunk;
+  // -1 until the header is written.
+  private int dimensions = -1;
+  private long recordCount;
+  private boolean isClosed;
+
+  public VectorCollectionWriter(@NonNull OutputStream outputStream) {
+    this(outputStream, DEFAULT_CHUNK_SIZE);
+  }
+
+  public VectorCollectionWriter(@NonNull OutputStream outputStream, int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunkSize must be greater than 0, was " + chunkSize);
+    }
+    this.outputStream = outputStream;
+    this.chunkSize = chunkSize;
+    this.chunk = new ArrayList<>(chunkSize);
+  }
+
+  /**
+   * Appends the record to the collection.
+   *
+   * @throws IllegalArgumentException if the document has no id or the vector does not have the
+   *     dimensions of the first record
+   */
+  public void write(@NonNull VectorRecord vectorRecord) throws IOException {
+    if (isClosed) {
+      throw new IllegalStateException("The writer is closed");
+    }
+    if (vectorRecord.getDocument().getId().isEmpty()) {
+      throw new IllegalArgumentException("Exported documents must have ids");
+    }
+    if (dimensions < 0) {
+      writeHeader(vectorRecord.getVector().length);
+    } else if (vectorRecord.getVector().length != dimensions) {
+      throw new IllegalArgumentException(
+          "Vector has " + vectorRecord.getVector().length + " dimensions, the collection has "
+              + dimensions);
+    }
+    chunk.add(vectorRecord);
+    recordCount++;
+    if (chunk.size() == chunkSize) {
+      writeChunk();
+    }
+  }
+
+  /** Returns the number of records written so far. */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    try {
+      if (dimensions < 0) {
+        writeHeader(0);
+      }
+      if (!chunk.isEmpty()) {
+        writeChunk();
+      }
+      // The empty chunk that ends the collection.
+      outputStream.write(newBuffer(VectorCollectionFormat.CHUNK_HEADER_BYTES).array());
+      outputStream.flush();
+    } finally {
+      outputStream.close();
+    }
+  }
+
+  private void writeHeader(int vectorDimensions) throws IOException {
+    ByteBuffer header = newBuffer(VectorCollectionFormat.HEADER_BYTES);
+    header.putInt(VectorCollectionFormat.MAGIC);
+    header.putInt(VectorCollectionFormat.VERSION);
+    header.putInt(vectorDimensions);
+    outputStream.write(header.array());
+    dimensions = vectorDimensions;
+  }
+
+  private void writeChunk() throws IOException {
+    int count = chunk.size();
+    List<byte[]> ids = new ArrayList<>(count);
+    List<byte[]> pageContents = new ArrayList<>(count);
+    List<byte[]> keys = new ArrayList<>();
+    List<byte[]> values = new ArrayList<>();
+    int[] metadataSizes = new int[count];
+    for (int i = 0; i < count; i++) {
+      VectorRecord vectorRecord = chunk.get(i);
+      ids.add(toBytes(vectorRecord.getDocument().getId().get()));
+      pageContents.add(toBytes(vectorRecord.getDocument().getPageContent()));
+      Map<String, String> metadata =
+          vectorRecord.getDocument().getMetadata().map(Metadata::getValue).orElse(null);
+      if (metadata == null) {
+        metadataSizes[i] = VectorCollectionFormat.NO_METADATA;
+        continue;
+      }
+      metadataSizes[i] = metadata.size();
+      for (Map.Entry<String, String> entry : metadata.entrySet()) {
+        keys.add(toBytes(entry.getKey()));
+        values.add(toBytes(entry.getValue()));
+      }
+    }
+    long payloadLength =
+        (long) count * dimensions * Float.BYTES
+            + getColumnLength(ids)
+            + getColumnLength(pageContents)
+            + (long) count * Integer.BYTES
+            + getColumnLength(keys)
+            + getColumnLength(values);
+    if (payloadLength > Integer.MAX_VALUE - VectorCollectionFormat.CHUNK_HEADER_BYTES) {
+      throw new IllegalStateException(
+          "A chunk of " + count + " records takes " + payloadLength + " bytes, use smaller chunks");
+    }
+    ByteBuffer payload = newBuffer((int) payloadLength);
+    for (VectorRecord vectorRecord : chunk) {
+      payload.asFloatBuffer().put(vectorRecord.getVector());
+      payload.position(payload.position() + dimensions * Float.BYTES);
+    }
+    putColumn(payload, ids);
+    putColumn(payload, pageContents);
+    for (int metadataSize : metadataSizes) {
+      payload.putInt(metadataSize);
+    }
+    putColumn(payload, keys);
+    putColumn(payload, values);
+    CRC32 checksum = new CRC32();
+    checksum.update(payload.array());
+
+    ByteBuffer chunkHeader = newBuffer(VectorCollectionFormat.CHUNK_HEADER_BYTES);
+    chunkHeader.putInt(count);
+    chunkHeader.putInt(payload.capacity());
+    outputStream.write(chunkHeader.array());
+    outputStream.write(payload.array());
+    outputStream.write(newBuffer(Integer.BYTES).putInt((int) checksum.getValue()).array());
+    chunk.clear();
+  }
+
+  private static long getColumnLength(List<byte[]> strings) {
+    long length = (strings.size() + 1L) * Integer.BYTES;
+    for (byte[] string : strings) {
+      length += string.length;
+    }
+    return length;
+  }
+
+  /** Writes the end offsets of the strings, starting with 0, followed by their bytes. */
+  private static void putColumn(ByteBuffer buffer, List<byte[]> strings) {
+    int offset = 0;
+    buffer.putInt(offset);
+    for (byte[] string : strings) {
+      offset += string.length;
+      buffer.putInt(offset);
+    }
+    for (byte[] string : strings) {
+      buffer.put(string);
+    }
+  }
+
+  private static byte[] toBytes(String string) {
+    return string.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static ByteBuffer newBuffer(int capacity) {
+    return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+  }
+}
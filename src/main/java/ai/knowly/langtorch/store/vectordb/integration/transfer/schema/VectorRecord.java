@@ -0,0 +1,15 @@
+package ai.knowly.langtorch.store.vectordb.integration.transfer.schema;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import lombok.*;
+
+/** Represents a stored document together with its vector, as exported from a vector store. */
+@Data
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Builder(toBuilder = true, setterPrefix = "set")
+public class VectorRecord {
+  /** The document, which has to have an id. */
+  @NonNull private final DomainDocument document;
+
+  private final float @NonNull [] vector;
+}
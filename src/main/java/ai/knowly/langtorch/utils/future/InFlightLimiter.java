@@ -0,0 +1,101 @@
+package ai.knowly.langtorch.utils.future;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the number of asynchronous operations in flight without blocking any thread. Operations
+ * submitted beyond the limit are queued and started, in submission order, as earlier ones complete.
+ *
+ * <p>Queued operations are started on the thread that completes an earlier one, so suppliers must
+ * only start their operation and not block.
+ */
+public final class InFlightLimiter {
+  private final int maxInFlight;
+  private final Object lock = new Object();
+  // Guarded by the lock.
+  private final Deque<Runnable> waiting = new ArrayDeque<>();
+  // Guarded by the lock.
+  private int inFlight;
+  // Guarded by the lock. Set while a thread starts queued operations, so that operations which
+  // complete immediately do not start the next one recursively.
+  private boolean isDraining;
+
+  public InFlightLimiter(int maxInFlight) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException("maxInFlight must be greater than 0, was " + maxInFlight);
+    }
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Starts the operation once fewer than the maximum number of operations are in flight.
+   *
+   * @return a future of the result of the operation; cancelling it before the operation started
+   *     keeps the operation from starting
+   */
+  public <T> ListenableFuture<T> submit(Supplier<ListenableFuture<T>> operation) {
+    SettableFuture<T> result = SettableFuture.create();
+    Runnable start =
+        () -> {
+          if (result.isDone()) {
+            release();
+            return;
+          }
+          ListenableFuture<T> future;
+          try {
+            future = operation.get();
+          } catch (RuntimeException | Error e) {
+            future = Futures.immediateFailedFuture(e);
+          }
+          future.addListener(this::release, MoreExecutors.directExecutor());
+          result.setFuture(future);
+        };
+    synchronized (lock) {
+      waiting.addLast(start);
+    }
+    drain();
+    return result;
+  }
+
+  /** Returns the number of operations started and not completed yet. */
+  public int getInFlight() {
+    synchronized (lock) {
+      return inFlight;
+    }
+  }
+
+  private void release() {
+    synchronized (lock) {
+      inFlight--;
+    }
+    drain();
+  }
+
+  /** Starts queued operations while there is room for them. */
+  private void drain() {
+    synchronized (lock) {
+      if (isDraining) {
+        return;
+      }
+      isDraining = true;
+    }
+    while (true) {
+      Runnable next;
+      synchronized (lock) {
+        if (inFlight >= maxInFlight || waiting.isEmpty()) {
+          isDraining = false;
+          return;
+        }
+        inFlight++;
+        next = waiting.removeFirst();
+      }
+      next.run();
+    }
+  }
+}
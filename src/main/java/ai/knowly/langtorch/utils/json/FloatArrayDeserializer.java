@@ -0,0 +1,77 @@
+package ai.knowly.langtorch.utils.json;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Deserializes an embedding vector into a {@code float[]}, either from a JSON array of numbers or
+ * from a base64 string of little-endian 32-bit floats, the format embedding APIs return for {@code
+ * encoding_format=base64}.
+ *
+ * <p>Array components are read token by token into a per-thread scratch buffer which grows to the
+ * largest vector seen, so every vector of a response costs a single array of its exact length and
+ * no component is boxed.
+ */
+public class FloatArrayDeserializer extends StdDeserializer<float[]> {
+  private static final long serialVersionUID = 1L;
+  private static final int INITIAL_CAPACITY = 1536;
+  private static final ThreadLocal<float[]> SCRATCH =
+      ThreadLocal.withInitial(() -> new float[INITIAL_CAPACITY]);
+
+  public FloatArrayDeserializer() {
+    super(float[].class);
+  }
+
+  @Override
+  public float[] deserialize(JsonParser parser, DeserializationContext context)
+      throws IOException {
+    if (parser.hasToken(JsonToken.START_ARRAY)) {
+      return readArray(parser, context);
+    }
+    if (parser.hasToken(JsonToken.VALUE_STRING)) {
+      return readBase64(parser, context);
+    }
+    return (float[]) context.handleUnexpectedToken(float[].class, parser);
+  }
+
+  private static float[] readArray(JsonParser parser, DeserializationContext context)
+      throws IOException {
+    float[] buffer = SCRATCH.get();
+    int size = 0;
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      if (token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_NUMBER_INT) {
+        return (float[]) context.handleUnexpectedToken(float[].class, parser);
+      }
+      if (size == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        SCRATCH.set(buffer);
+      }
+      buffer[size++] = parser.getFloatValue();
+    }
+    return Arrays.copyOf(buffer, size);
+  }
+
+  private static float[] readBase64(JsonParser parser, DeserializationContext context)
+      throws IOException {
+    byte[] bytes = parser.getBinaryValue(Base64Variants.MIME_NO_LINEFEEDS);
+    if (bytes.length % Float.BYTES != 0) {
+      return (float[])
+          context.handleWeirdStringValue(
+              float[].class,
+              parser.getText(),
+              "base64 payload of %d bytes is not a sequence of 32-bit floats",
+              bytes.length);
+    }
+    float[] vector = new float[bytes.length / Float.BYTES];
+    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+    return vector;
+  }
+}
@@ -0,0 +1,173 @@
+package ai.knowly.langtorch.hub.module.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.knowly.langtorch.llm.openai.OpenAIService;
+import ai.knowly.langtorch.llm.openai.schema.dto.completion.CompletionChoice;
+import ai.knowly.langtorch.llm.openai.schema.dto.completion.CompletionRequest;
+import ai.knowly.langtorch.llm.openai.schema.dto.completion.CompletionResult;
+import ai.knowly.langtorch.llm.openai.schema.dto.completion.chat.ChatCompletionChoice;
+import ai.knowly.langtorch.llm.openai.schema.dto.completion.chat.ChatCompletionRequest;
+import ai.knowly.langtorch.llm.openai.schema.dto.completion.chat.ChatCompletionResult;
+import ai.knowly.langtorch.schema.chat.ChatMessage;
+import ai.knowly.langtorch.schema.chat.Role;
+import ai.knowly.langtorch.store.cache.Cache;
+import ai.knowly.langtorch.store.cache.inmemory.exact.InMemoryExactMatchCache;
+import ai.knowly.langtorch.store.cache.inmemory.exact.InMemoryExactMatchCacheSpec;
+import ai.knowly.langtorch.store.cache.inmemory.exact.schema.LLMRequestCacheKey;
+import ai.knowly.langtorch.store.cache.inmemory.exact.schema.LLMResponseCacheValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.lang.reflect.Method;
+import java.util.List;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class LLMCacheInterceptorTest {
+  private LLMCacheInterceptor interceptor;
+
+  @BeforeEach
+  void setUp() {
+    Cache<LLMRequestCacheKey, LLMResponseCacheValue> cache =
+        new InMemoryExactMatchCache<>(InMemoryExactMatchCacheSpec.getDefaultInstance());
+    interceptor = new LLMCacheInterceptor(() -> cache);
+  }
+
+  @Test
+  void testInvoke_completionHitDoesNotProceed() throws Throwable {
+    MethodInvocation first =
+        completionInvocation(
+            completionRequest(50).user("alice").logitBias(ImmutableMap.of("1", 1, "2", -1)),
+            "Hello");
+    MethodInvocation second =
+        completionInvocation(
+            completionRequest(50).user("bob").logitBias(ImmutableMap.of("2", -1, "1", 1)),
+            "Unused");
+
+    // Act.
+    CompletionResult firstResult = getResult(interceptor.invoke(first));
+    CompletionResult secondResult = getResult(interceptor.invoke(second));
+
+    // Assert.
+    verify(first).proceed();
+    verify(second, times(0)).proceed();
+    assertThat(secondResult.getChoices().get(0).getText()).isEqualTo("Hello");
+    assertThat(secondResult).isNotSameInstanceAs(firstResult);
+  }
+
+  @Test
+  void testInvoke_generationParametersAreKeyed() throws Throwable {
+    MethodInvocation first = completionInvocation(completionRequest(50), "Hello");
+    MethodInvocation second = completionInvocation(completionRequest(10), "Hi");
+    MethodInvocation third =
+        completionInvocation(completionRequest(50).stop(ImmutableList.of("\n")), "Hey");
+
+    // Act.
+    interceptor.invoke(first);
+    CompletionResult secondResult = getResult(interceptor.invoke(second));
+    CompletionResult thirdResult = getResult(interceptor.invoke(third));
+
+    // Assert.
+    verify(second).proceed();
+    verify(third).proceed();
+    assertThat(secondResult.getChoices().get(0).getText()).isEqualTo("Hi");
+    assertThat(thirdResult.getChoices().get(0).getText()).isEqualTo("Hey");
+  }
+
+  @Test
+  void testInvoke_sampledCompletionIsNotCached() throws Throwable {
+    MethodInvocation first = completionInvocation(completionRequest(50).temperature(0.9), "Hello");
+    MethodInvocation second = completionInvocation(completionRequest(50).temperature(0.9), "Hi");
+
+    // Act.
+    interceptor.invoke(first);
+    CompletionResult secondResult = getResult(interceptor.invoke(second));
+
+    // Assert.
+    verify(second).proceed();
+    assertThat(secondResult.getChoices().get(0).getText()).isEqualTo("Hi");
+  }
+
+  @Test
+  void testInvoke_chatCompletionHitDoesNotProceed() throws Throwable {
+    MethodInvocation first = chatCompletionInvocation(chatCompletionRequest("Hi there"), "Hello");
+    MethodInvocation second = chatCompletionInvocation(chatCompletionRequest("Hi there"), "Unused");
+    MethodInvocation other = chatCompletionInvocation(chatCompletionRequest("Bye"), "Goodbye");
+
+    // Act.
+    interceptor.invoke(first);
+    ChatCompletionResult secondResult = getResult(interceptor.invoke(second));
+    ChatCompletionResult otherResult = getResult(interceptor.invoke(other));
+
+    // Assert.
+    verify(second, times(0)).proceed();
+    verify(other).proceed();
+    assertThat(secondResult.getChoices().get(0).getMessage().getContent()).isEqualTo("Hello");
+    assertThat(secondResult.getChoices().get(0).getMessage().getRole()).isEqualTo(Role.ASSISTANT);
+    assertThat(otherResult.getChoices().get(0).getMessage().getContent()).isEqualTo("Goodbye");
+  }
+
+  private static CompletionRequest.CompletionRequestBuilder completionRequest(int maxTokens) {
+    return CompletionRequest.builder()
+        .model("text-davinci-003")
+        .prompt("Say hello")
+        .maxTokens(maxTokens)
+        .temperature(0.0);
+  }
+
+  private static ChatCompletionRequest chatCompletionRequest(String content) {
+    return ChatCompletionRequest.builder()
+        .setModel("gpt-3.5-turbo")
+        .setMessages(
+            List.of(
+                new ChatMessage("You are polite.", Role.SYSTEM, null, null),
+                new ChatMessage(content, Role.USER, null, null)))
+        .setTemperature(0.0)
+        .build();
+  }
+
+  private static MethodInvocation completionInvocation(
+      CompletionRequest.CompletionRequestBuilder request, String text) throws Throwable {
+    CompletionChoice choice = new CompletionChoice();
+    choice.setText(text);
+    CompletionResult result = new CompletionResult();
+    result.setChoices(List.of(choice));
+    return invocation(
+        OpenAIService.class.getMethod("createCompletionAsync", CompletionRequest.class),
+        request.build(),
+        result);
+  }
+
+  private static MethodInvocation chatCompletionInvocation(
+      ChatCompletionRequest request, String content) throws Throwable {
+    ChatCompletionChoice choice = new ChatCompletionChoice();
+    choice.setMessage(new ChatMessage(content, Role.ASSISTANT, null, null));
+    ChatCompletionResult result = new ChatCompletionResult();
+    result.setChoices(List.of(choice));
+    return invocation(
+        OpenAIService.class.getMethod("createChatCompletionAsync", ChatCompletionRequest.class),
+        request,
+        result);
+  }
+
+  private static MethodInvocation invocation(
+      Method method, Object request, Object result) throws Throwable {
+    MethodInvocation invocation = Mockito.mock(MethodInvocation.class);
+    when(invocation.getMethod()).thenReturn(method);
+    when(invocation.getArguments()).thenReturn(new Object[] {request});
+    when(invocation.proceed()).thenReturn(Futures.immediateFuture(result));
+    return invocation;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T getResult(Object future) throws Exception {
+    return ((ListenableFuture<T>) future).get();
+  }
+}
@@ -1,6 +1,7 @@
 package ai.knowly.langtorch.llm.openai;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import ai.knowly.langtorch.llm.openai.schema.dto.embedding.Embedding;
 import ai.knowly.langtorch.llm.openai.schema.dto.embedding.EmbeddingRequest;
@@ -34,6 +35,6 @@ class EmbeddingTest {
     List<Embedding> embeddings = service.createEmbeddings(embeddingRequest).getData();
 
     assertFalse(embeddings.isEmpty());
-    assertFalse(embeddings.get(0).getValue().isEmpty());
+    assertTrue(embeddings.get(0).getValue().length > 0);
   }
 }
@@ -41,8 +41,8 @@ class MiniMaxEmbeddingProcessorTest {
   void testRunWithChatProcessorConfig() {
     // Arrange
     EmbeddingResult embeddingResult = new EmbeddingResult();
-    List<List<Float>> vectors =
-        ImmutableList.of(ImmutableList.of(1.0f, 2.0f, 3.0f), ImmutableList.of(1.0f, 2.0f, 3.0f));
+    List<float[]> vectors =
+        ImmutableList.of(new float[] {1.0f, 2.0f, 3.0f}, new float[] {1.0f, 2.0f, 3.0f});
     embeddingResult.setVectors(vectors);
     when(miniMaxService.createEmbeddings(any())).thenReturn(embeddingResult);
 
@@ -56,6 +56,6 @@ class MiniMaxEmbeddingProcessorTest {
 
     // Assert
     assertThat(output.getType()).isEqualTo(MINI_MAX);
-    assertThat(output.getValue().get(0).getFloatVector()).containsExactlyElementsIn(vectors.get(0));
+    assertThat(output.getValue().get(0).toFloatArray()).isEqualTo(vectors.get(0));
   }
 }
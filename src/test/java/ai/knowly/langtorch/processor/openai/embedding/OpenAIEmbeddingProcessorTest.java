@@ -36,7 +36,7 @@ final class OpenAIEmbeddingProcessorTest {
     EmbeddingResult embeddingResult = new EmbeddingResult();
     Embedding embedding = new Embedding();
     embedding.setIndex(1);
-    embedding.setValue(ImmutableList.of(1.0, 2.0, 3.0));
+    embedding.setValue(new float[] {1.0f, 2.0f, 3.0f});
     embeddingResult.setData(ImmutableList.of(embedding));
     embeddingResult.setModel("some-awesome-model");
     when(openAIService.createEmbeddings(any())).thenReturn(embeddingResult);
@@ -51,7 +51,6 @@ final class OpenAIEmbeddingProcessorTest {
 
     // Assert
     assertThat(output.getType()).isEqualTo(OPEN_AI);
-    assertThat(output.getValue().get(0).getVector())
-        .containsExactlyElementsIn(embedding.getValue());
+    assertThat(output.getValue().get(0).getVector()).containsExactly(1.0, 2.0, 3.0).inOrder();
   }
 }
@@ -0,0 +1,46 @@
+package ai.knowly.langtorch.schema.embeddings;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+final class EmbeddingTest {
+
+  @Test
+  void testListFactoryRoundsComponentsToFloats() {
+    // Act.
+    Embedding embedding = Embedding.of(Arrays.asList(0.5, 0.1, -2.0));
+
+    // Assert.
+    assertThat(embedding.getDimensions()).isEqualTo(3);
+    assertThat(embedding.toFloatArray()).isEqualTo(new float[] {0.5f, 0.1f, -2.0f});
+    assertThat(embedding.getVector()).containsExactly(0.5, (double) 0.1f, -2.0).inOrder();
+    assertThat(embedding.getFloatVector()).containsExactly(0.5f, 0.1f, -2.0f).inOrder();
+  }
+
+  @Test
+  void testToFloatArrayReturnsCopy() {
+    Embedding embedding = Embedding.of(new float[] {1.0f, 2.0f});
+
+    // Act.
+    float[] values = embedding.toFloatArray();
+    values[0] = 5.0f;
+
+    // Assert.
+    assertThat(embedding.getFloatVector()).containsExactly(1.0f, 2.0f).inOrder();
+    assertThat(embedding.asFloatBuffer().isReadOnly()).isTrue();
+  }
+
+  @Test
+  void testSimilaritySearchQueryAcceptsDoubleList() {
+    // Act.
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder().setQuery(Arrays.asList(1.0, 2.0)).setTopK(1L).build();
+
+    // Assert.
+    assertThat(query.getQueryVector()).isEqualTo(new float[] {1.0f, 2.0f});
+    assertThat(query.getQuery()).containsExactly(1.0, 2.0).inOrder();
+  }
+}
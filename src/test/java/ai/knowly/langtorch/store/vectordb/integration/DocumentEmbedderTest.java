@@ -0,0 +1,141 @@
+package ai.knowly.langtorch.store.vectordb.integration;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.processor.ProcessorExecutionException;
+import ai.knowly.langtorch.schema.embeddings.Embedding;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingInput;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingOutput;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingType;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.schema.EmbeddingBatchSpec;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+final class DocumentEmbedderTest {
+  private static final String MODEL = "text-embedding-ada-002";
+
+  private EmbeddingProcessor embeddingProcessor;
+
+  @BeforeEach
+  void setUp() {
+    embeddingProcessor = Mockito.mock(EmbeddingProcessor.class);
+  }
+
+  @Test
+  void testEmbed_splitsByInputCountAndKeepsOrder() {
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embedByLength(invocation.getArgument(0)));
+    DocumentEmbedder documentEmbedder =
+        new DocumentEmbedder(
+            embeddingProcessor,
+            MODEL,
+            EmbeddingBatchSpec.builder()
+                .setMaxInputsPerBatch(2)
+                .setMaxConcurrentBatches(2)
+                .build());
+
+    // Act.
+    List<Embedding> embeddings = documentEmbedder.embed(getDocuments(5));
+    // Assert.
+    verify(embeddingProcessor, times(3)).runAsync(ArgumentMatchers.any());
+    assertThat(embeddings).hasSize(5);
+    for (int i = 0; i < embeddings.size(); i++) {
+      assertThat(embeddings.get(i).getVector()).containsExactly((double) (i + 1));
+    }
+  }
+
+  @Test
+  void testEmbed_splitsByEstimatedTokens() {
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embedByLength(invocation.getArgument(0)));
+    DocumentEmbedder documentEmbedder =
+        new DocumentEmbedder(
+            embeddingProcessor,
+            MODEL,
+            EmbeddingBatchSpec.builder().setMaxTokensPerBatch(1).build());
+
+    // Act.
+    List<Embedding> embeddings = documentEmbedder.embed(getDocuments(3));
+    // Assert.
+    verify(embeddingProcessor, times(3)).runAsync(ArgumentMatchers.any());
+    assertThat(embeddings).hasSize(3);
+  }
+
+  @Test
+  void testEmbed_throwsWhenEmbeddingCountDoesNotMatch() {
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenReturn(
+            Futures.immediateFuture(
+                EmbeddingOutput.of(EmbeddingType.OPEN_AI, Collections.emptyList())));
+    DocumentEmbedder documentEmbedder =
+        new DocumentEmbedder(embeddingProcessor, MODEL, EmbeddingBatchSpec.getDefaultInstance());
+
+    // Act & Assert.
+    assertThrows(
+        ProcessorExecutionException.class, () -> documentEmbedder.embed(getDocuments(2)));
+  }
+
+  @Test
+  void testEmbedAsync_boundsConcurrentBatches() throws Exception {
+    List<EmbeddingInput> inputs = new ArrayList<>();
+    List<SettableFuture<EmbeddingOutput>> outputs = new ArrayList<>();
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              inputs.add(invocation.getArgument(0));
+              outputs.add(SettableFuture.create());
+              return outputs.get(outputs.size() - 1);
+            });
+    DocumentEmbedder documentEmbedder =
+        new DocumentEmbedder(
+            embeddingProcessor,
+            MODEL,
+            EmbeddingBatchSpec.builder()
+                .setMaxInputsPerBatch(1)
+                .setMaxConcurrentBatches(2)
+                .build());
+
+    // Act.
+    ListenableFuture<List<Embedding>> embeddings = documentEmbedder.embedAsync(getDocuments(4));
+    // Assert.
+    assertThat(outputs).hasSize(2);
+    outputs.get(1).setFuture(embedByLength(inputs.get(1)));
+    assertThat(outputs).hasSize(3);
+    for (int i = 0; i < 4; i++) {
+      outputs.get(i).setFuture(embedByLength(inputs.get(i)));
+    }
+    assertThat(embeddings.get()).hasSize(4);
+    assertThat(embeddings.get().get(3).getVector()).containsExactly(4.0);
+  }
+
+  private static ListenableFuture<EmbeddingOutput> embedByLength(EmbeddingInput embeddingInput) {
+    List<Embedding> embeddings = new ArrayList<>();
+    for (String input : embeddingInput.getInput()) {
+      embeddings.add(Embedding.of(ImmutableList.of((double) input.length())));
+    }
+    return Futures.immediateFuture(EmbeddingOutput.of(EmbeddingType.OPEN_AI, embeddings));
+  }
+
+  private static List<DomainDocument> getDocuments(int count) {
+    List<DomainDocument> documents = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      documents.add(DomainDocument.builder().setPageContent("c".repeat(i + 1)).build());
+    }
+    return documents;
+  }
+}
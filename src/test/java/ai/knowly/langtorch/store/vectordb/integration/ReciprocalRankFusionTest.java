@@ -0,0 +1,67 @@
+package ai.knowly.langtorch.store.vectordb.integration;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+final class ReciprocalRankFusionTest {
+
+  @Test
+  void testDocumentsRankedByManyQueriesComeFirst() {
+    List<List<DomainDocument>> rankings =
+        ImmutableList.of(
+            ImmutableList.of(document("a", 0.1), document("b", 0.2), document("c", 0.3)),
+            ImmutableList.of(document("b", 5.0), document("c", 6.0)),
+            ImmutableList.of(document("d", 0.9), document("b", 0.8)));
+
+    // Act.
+    List<DomainDocument> fused = ReciprocalRankFusion.fuse(rankings, 3);
+    // Assert.
+    assertThat(ids(fused)).containsExactly("b", "c", "a").inOrder();
+    double expected = 1.0 / 62 + 1.0 / 61 + 1.0 / 62;
+    assertThat(fused.get(0).getSimilarityScore().orElse(-1.0)).isWithin(1e-12).of(expected);
+  }
+
+  @Test
+  void testTiesKeepOrderOfFirstAppearance() {
+    List<List<DomainDocument>> rankings =
+        ImmutableList.of(
+            ImmutableList.of(document("a", 0.1)), ImmutableList.of(document("b", 0.1)));
+
+    // Act.
+    List<DomainDocument> fused = ReciprocalRankFusion.fuse(rankings, 10, 0);
+    // Assert.
+    assertThat(ids(fused)).containsExactly("a", "b").inOrder();
+    assertThat(fused.get(1).getSimilarityScore().orElse(-1.0)).isEqualTo(1.0);
+  }
+
+  @Test
+  void testDocumentsWithoutIdsAreIdentifiedByContent() {
+    DomainDocument first = DomainDocument.builder().setPageContent("same").build();
+    DomainDocument second = DomainDocument.builder().setPageContent("same").build();
+
+    // Act.
+    List<DomainDocument> fused =
+        ReciprocalRankFusion.fuse(
+            ImmutableList.of(ImmutableList.of(first), ImmutableList.of(second)), 5);
+    // Assert.
+    assertThat(fused).hasSize(1);
+  }
+
+  private static DomainDocument document(String id, double score) {
+    return DomainDocument.builder()
+        .setId(id)
+        .setPageContent(id)
+        .setSimilarityScore(Optional.of(score))
+        .build();
+  }
+
+  private static List<String> ids(List<DomainDocument> documents) {
+    return documents.stream().map(document -> document.getId().get()).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,149 @@
+package ai.knowly.langtorch.store.vectordb.integration.hybrid;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.schema.io.Metadata;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+final class Bm25IndexTest {
+  private Bm25Index bm25Index;
+
+  @BeforeEach
+  void setUp() {
+    bm25Index = new Bm25Index();
+    bm25Index.addDocuments(
+        ImmutableList.of(
+            document("1", "The printer shows error ERR-1042 when the paper is jammed."),
+            document("2", "The printer is out of paper."),
+            document("3", "Reset the router to fix connection errors."),
+            document("4", "ERR-2001 appears when the router overheats.")));
+  }
+
+  @Test
+  void testTokenize_keepsIdentifiersWholeAndSplit() {
+    // Act.
+    List<String> terms = LexicalTokenizer.tokenize("Order SKU_77-B failed: ERR-1042.");
+
+    // Assert.
+    assertThat(terms)
+        .containsExactly("order", "sku_77-b", "sku", "77", "b", "failed", "err-1042", "err", "1042")
+        .inOrder();
+  }
+
+  @Test
+  void testSearch_ranksExactIdentifierFirst() {
+    // Act.
+    List<DomainDocument> results = bm25Index.search("err-1042", 10);
+
+    // Assert.
+    assertThat(ids(results)).containsExactly("1", "4").inOrder();
+    assertThat(results.get(0).getSimilarityScore().get())
+        .isGreaterThan(results.get(1).getSimilarityScore().get());
+  }
+
+  @Test
+  void testSearch_returnsOnlyMatchingDocuments() {
+    // Act.
+    List<DomainDocument> results = bm25Index.search("paper", 10);
+
+    // Assert.
+    assertThat(ids(results)).containsExactly("2", "1").inOrder();
+  }
+
+  @Test
+  void testSearch_appliesMetadataConditions() {
+    bm25Index.addDocuments(
+        ImmutableList.of(
+            DomainDocument.builder()
+                .setId("5")
+                .setPageContent("The printer needs new paper.")
+                .setMetadata(
+                    Metadata.builder()
+                        .setValue(new HashMap<>(ImmutableMap.of("lang", "en")))
+                        .build())
+                .build()));
+
+    // Act.
+    List<DomainDocument> results =
+        bm25Index.search("paper", 10, ImmutableList.of(MetadataCondition.eq("lang", "en")));
+
+    // Assert.
+    assertThat(ids(results)).containsExactly("5");
+  }
+
+  @Test
+  void testAddDocuments_replacesDocumentsWithTheSameId() {
+    // Act.
+    bm25Index.addDocuments(ImmutableList.of(document("2", "The printer is out of toner.")));
+
+    // Assert.
+    assertThat(bm25Index.size()).isEqualTo(4);
+    assertThat(ids(bm25Index.search("toner", 10))).containsExactly("2");
+    assertThat(ids(bm25Index.search("paper", 10))).containsExactly("1");
+  }
+
+  @Test
+  void testDeleteDocuments() {
+    // Act.
+    bm25Index.deleteDocuments(ImmutableList.of("1", "unknown"));
+
+    // Assert.
+    assertThat(bm25Index.size()).isEqualTo(3);
+    assertThat(ids(bm25Index.search("err-1042", 10))).containsExactly("4");
+  }
+
+  @Test
+  void testSearch_staysExactAcrossAddsAndDeletes() {
+    Bm25Index index = new Bm25Index();
+    Map<String, String> expected = new HashMap<>();
+    Random random = new Random(7);
+    for (int round = 0; round < 20; round++) {
+      List<DomainDocument> added = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        String id = "doc-" + random.nextInt(1000);
+        String text = "term" + random.nextInt(20) + " term" + random.nextInt(20);
+        added.add(document(id, text));
+        expected.put(id, text);
+      }
+      index.addDocuments(added);
+      List<String> deleted = new ArrayList<>();
+      for (int i = 0; i < 80; i++) {
+        String id = "doc-" + random.nextInt(1000);
+        deleted.add(id);
+        expected.remove(id);
+      }
+      index.deleteDocuments(deleted);
+    }
+
+    // Act.
+    List<DomainDocument> results = index.search("term3", 1000);
+
+    // Assert.
+    assertThat(index.size()).isEqualTo(expected.size());
+    assertThat(ids(results))
+        .containsExactlyElementsIn(
+            expected.entrySet().stream()
+                .filter(entry -> ImmutableList.of(entry.getValue().split(" ")).contains("term3"))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList()));
+  }
+
+  private static DomainDocument document(String id, String pageContent) {
+    return DomainDocument.builder().setId(id).setPageContent(pageContent).build();
+  }
+
+  private static List<String> ids(List<DomainDocument> documents) {
+    return documents.stream().map(document -> document.getId().get()).collect(Collectors.toList());
+  }
+}
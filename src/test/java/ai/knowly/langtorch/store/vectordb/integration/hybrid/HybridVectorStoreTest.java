@@ -0,0 +1,281 @@
+package ai.knowly.langtorch.store.vectordb.integration.hybrid;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.schema.embeddings.Embedding;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingInput;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingOutput;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingType;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.hybrid.schema.HybridFusion;
+import ai.knowly.langtorch.store.vectordb.integration.hybrid.schema.HybridVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.PineconeService;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.PineconeVectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.PineconeVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.SparseValues;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query.Match;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query.QueryResponse;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.upsert.UpsertRequest;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.upsert.UpsertResponse;
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionWriter;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+final class HybridVectorStoreTest {
+  private static final String TEXT_KEY = "text";
+  private static final DomainDocument JAMMED =
+      document("1", "The printer shows error ERR-1042 when the paper is jammed.");
+  private static final DomainDocument OUT_OF_PAPER = document("2", "The printer is out of paper.");
+  private static final DomainDocument ROUTER =
+      document("3", "Reset the router to fix connection errors.");
+
+  private VectorStore vectorStore;
+
+  @BeforeEach
+  void setUp() {
+    vectorStore = Mockito.mock(VectorStore.class);
+    when(vectorStore.addDocuments(any())).thenReturn(true);
+    when(vectorStore.deleteDocumentsByIds(any())).thenReturn(true);
+    // The vector search misses the error code and ranks by distance, lower is better.
+    when(vectorStore.similaritySearchAsync(any()))
+        .thenReturn(
+            Futures.immediateFuture(
+                ImmutableList.of(withScore(ROUTER, 0.1), withScore(OUT_OF_PAPER, 0.4))));
+  }
+
+  @Test
+  void testSimilaritySearch_fusesLexicalAndVectorRankings() {
+    HybridVectorStore store = createStore(HybridFusion.RECIPROCAL_RANK);
+    store.addDocuments(ImmutableList.of(JAMMED, OUT_OF_PAPER, ROUTER));
+
+    // Act.
+    List<DomainDocument> results = store.similaritySearch(query("paper jammed ERR-1042", 3));
+
+    // Assert.
+    // The error code lifts the jammed printer, which the vector search missed, into the results.
+    assertThat(ids(results)).containsExactly("2", "3", "1").inOrder();
+    ArgumentCaptor<SimilaritySearchQuery> vectorQuery =
+        ArgumentCaptor.forClass(SimilaritySearchQuery.class);
+    verify(vectorStore).similaritySearchAsync(vectorQuery.capture());
+    assertThat(vectorQuery.getValue().getTopK()).isEqualTo(6L);
+  }
+
+  @Test
+  void testSimilaritySearch_weightedScoresNormalizeDistances() {
+    HybridVectorStore store = createStore(HybridFusion.WEIGHTED_SCORE);
+    store.addDocuments(ImmutableList.of(JAMMED, OUT_OF_PAPER, ROUTER));
+
+    // Act.
+    List<DomainDocument> results = store.similaritySearch(query("ERR-1042", 2));
+
+    // Assert.
+    assertThat(ids(results)).containsExactly("3", "1").inOrder();
+    assertThat(results.get(0).getSimilarityScore().get()).isEqualTo(0.5);
+  }
+
+  @Test
+  void testSimilaritySearch_withoutQueryTextIsAVectorSearch() {
+    HybridVectorStore store = createStore(HybridFusion.RECIPROCAL_RANK);
+    store.addDocuments(ImmutableList.of(JAMMED, OUT_OF_PAPER, ROUTER));
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder().setQuery(new float[] {1, 0}).setTopK(2L).build();
+
+    // Act.
+    List<DomainDocument> results = store.similaritySearch(query);
+
+    // Assert.
+    assertThat(ids(results)).containsExactly("3", "2").inOrder();
+    verify(vectorStore).similaritySearchAsync(query);
+  }
+
+  @Test
+  void testSimilaritySearch_overlapsSearchesWithSynchronousStore() {
+    CountDownLatch lexicalSearchStarted = new CountDownLatch(1);
+    Executor lexicalSearchExecutor =
+        command ->
+            new Thread(
+                    () -> {
+                      lexicalSearchStarted.countDown();
+                      command.run();
+                    })
+                .start();
+    when(vectorStore.similaritySearchAsync(any())).thenCallRealMethod();
+    // A store without asynchronous searches searches on the calling thread.
+    when(vectorStore.similaritySearch(any()))
+        .thenAnswer(
+            invocation -> {
+              assertThat(lexicalSearchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+              return ImmutableList.of(withScore(ROUTER, 0.1), withScore(OUT_OF_PAPER, 0.4));
+            });
+    HybridVectorStore store =
+        new HybridVectorStore(
+            vectorStore,
+            HybridVectorStoreSpec.builder()
+                .setLexicalSearchExecutor(lexicalSearchExecutor)
+                .build());
+    store.addDocuments(ImmutableList.of(JAMMED, OUT_OF_PAPER, ROUTER));
+
+    // Act.
+    List<DomainDocument> results = store.similaritySearch(query("paper jammed ERR-1042", 3));
+
+    // Assert.
+    assertThat(ids(results)).containsExactly("2", "3", "1").inOrder();
+  }
+
+  @Test
+  void testSimilaritySearch_fusesRankingsOfPineconeByItsIds() {
+    PineconeService pineconeService = Mockito.mock(PineconeService.class);
+    EmbeddingProcessor embeddingProcessor = Mockito.mock(EmbeddingProcessor.class);
+    when(embeddingProcessor.runAsync(any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
+    when(pineconeService.upsertAsync(any()))
+        .thenAnswer(
+            invocation ->
+                Futures.immediateFuture(
+                    new UpsertResponse(
+                        invocation.<UpsertRequest>getArgument(0).getVectors().size())));
+    // Pinecone returns the page content in the metadata and the id next to it.
+    when(pineconeService.queryAsync(any()))
+        .thenReturn(
+            Futures.immediateFuture(
+                new QueryResponse(
+                    ImmutableList.of(match(ROUTER, 0.9), match(OUT_OF_PAPER, 0.6)), "")));
+    HybridVectorStore store =
+        new HybridVectorStore(
+            new PineconeVectorStore(
+                embeddingProcessor,
+                PineconeVectorStoreSpec.builder().setTextKey(TEXT_KEY).build(),
+                pineconeService),
+            HybridVectorStoreSpec.builder().build());
+    store.addDocuments(ImmutableList.of(JAMMED, OUT_OF_PAPER, ROUTER));
+
+    // Act.
+    List<DomainDocument> results = store.similaritySearch(query("paper jammed ERR-1042", 3));
+
+    // Assert.
+    // The out of paper printer is found by both searches and is ranked first, once.
+    assertThat(ids(results)).containsExactly("2", "3", "1").inOrder();
+  }
+
+  @Test
+  void testWrites_reachTheIndexOnlyWhenTheStoreSucceeds() {
+    HybridVectorStore store = createStore(HybridFusion.RECIPROCAL_RANK);
+    store.addDocuments(ImmutableList.of(JAMMED, OUT_OF_PAPER));
+    when(vectorStore.addDocuments(any())).thenReturn(false);
+
+    // Act.
+    boolean isAdded = store.addDocuments(ImmutableList.of(ROUTER));
+    boolean isDeleted = store.deleteDocumentsByIds(ImmutableList.of("1"));
+
+    // Assert.
+    assertThat(isAdded).isFalse();
+    assertThat(isDeleted).isTrue();
+    assertThat(store.getIndexedDocumentCount()).isEqualTo(1);
+  }
+
+  @Test
+  void testAddDocuments_indexesDocumentsWithoutIdsUnderTheIdOfTheStore() {
+    HybridVectorStore store = createStore(HybridFusion.RECIPROCAL_RANK);
+    DomainDocument withoutId =
+        DomainDocument.builder().setPageContent("Replace the toner.").build();
+
+    // Act.
+    store.addDocuments(ImmutableList.of(withoutId));
+
+    // Assert.
+    ArgumentCaptor<List<DomainDocument>> added = ArgumentCaptor.forClass(List.class);
+    verify(vectorStore).addDocuments(added.capture());
+    String id = added.getValue().get(0).getId().get();
+    assertThat(store.getIndexedDocumentCount()).isEqualTo(1);
+    store.deleteDocumentsByIds(ImmutableList.of(id));
+    assertThat(store.getIndexedDocumentCount()).isEqualTo(0);
+  }
+
+  @Test
+  void testRebuildIndex_indexesTheExportedDocuments() throws IOException {
+    Mockito.doAnswer(
+            invocation -> {
+              VectorCollectionWriter writer = invocation.getArgument(0);
+              for (DomainDocument document : ImmutableList.of(JAMMED, OUT_OF_PAPER, ROUTER)) {
+                writer.write(
+                    VectorRecord.builder().setDocument(document).setVector(new float[2]).build());
+              }
+              return null;
+            })
+        .when(vectorStore)
+        .exportDocuments(any());
+    HybridVectorStore store = createStore(HybridFusion.RECIPROCAL_RANK);
+
+    // Act.
+    long indexedCount = store.rebuildIndex();
+
+    // Assert.
+    assertThat(indexedCount).isEqualTo(3);
+    assertThat(store.getIndexedDocumentCount()).isEqualTo(3);
+    assertThat(ids(store.similaritySearch(query("ERR-1042", 3)))).contains("1");
+  }
+
+  private HybridVectorStore createStore(HybridFusion fusion) {
+    return new HybridVectorStore(
+        vectorStore, HybridVectorStoreSpec.builder().setFusion(fusion).build());
+  }
+
+  private static Match match(DomainDocument document, double score) {
+    return new Match(
+        document.getId().get(),
+        score,
+        new float[0],
+        SparseValues.builder().build(),
+        ImmutableMap.of(TEXT_KEY, document.getPageContent()));
+  }
+
+  private static ListenableFuture<EmbeddingOutput> embed(EmbeddingInput embeddingInput) {
+    List<Embedding> embeddings = new ArrayList<>();
+    for (int i = 0; i < embeddingInput.getInput().size(); i++) {
+      embeddings.add(Embedding.of(Arrays.asList(1.0, 0.0)));
+    }
+    return Futures.immediateFuture(EmbeddingOutput.of(EmbeddingType.OPEN_AI, embeddings));
+  }
+
+  private static SimilaritySearchQuery query(String text, long topK) {
+    return SimilaritySearchQuery.builder()
+        .setQuery(new float[] {1, 0})
+        .setQueryText(text)
+        .setTopK(topK)
+        .build();
+  }
+
+  private static DomainDocument document(String id, String pageContent) {
+    return DomainDocument.builder().setId(id).setPageContent(pageContent).build();
+  }
+
+  private static DomainDocument withScore(DomainDocument document, double score) {
+    return document.toBuilder().setSimilarityScore(Optional.of(score)).build();
+  }
+
+  private static List<String> ids(List<DomainDocument> documents) {
+    return documents.stream().map(document -> document.getId().get()).collect(Collectors.toList());
+  }
+}
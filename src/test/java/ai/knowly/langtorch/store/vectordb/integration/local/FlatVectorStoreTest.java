@@ -0,0 +1,378 @@
+package ai.knowly.langtorch.store.vectordb.integration.local;
+
+import static ai.knowly.langtorch.util.LocalVectorStoreTestingUtils.contentEmbeddingProcessor;
+import static ai.knowly.langtorch.util.LocalVectorStoreTestingUtils.document;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.local.schema.FlatVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategies;
+import ai.knowly.langtorch.store.vectordb.integration.quantization.VectorQuantization;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionReader;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionWriter;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+final class FlatVectorStoreTest {
+
+  private EmbeddingProcessor embeddingProcessor;
+  private FlatVectorStore flatVectorStore;
+
+  @BeforeEach
+  void setUp() {
+    embeddingProcessor = contentEmbeddingProcessor();
+    // Two vectors per block, so the tests cross block boundaries.
+    flatVectorStore =
+        new FlatVectorStore(
+            embeddingProcessor,
+            FlatVectorStoreSpec.builder().setVectorDimensions(2).setBlockSize(2).build(),
+            DistanceStrategies.euclidean());
+  }
+
+  @Test
+  void testSimilaritySearchReturnsNearestFirst() {
+    flatVectorStore.addDocuments(
+        ImmutableList.of(
+            document("a", "0,0"),
+            document("b", "5,5"),
+            document("c", "1,1"),
+            document("d", "9,9")));
+
+    // Act.
+    List<DomainDocument> result = flatVectorStore.similaritySearch(query(2, 0.5, 0.0));
+    // Assert.
+    assertThat(ids(result)).containsExactly("a", "c").inOrder();
+    assertThat(result.get(0).getSimilarityScore().orElse(-1.0)).isEqualTo(0.5);
+    assertThat(result.get(0).getPageContent()).isEqualTo("0,0");
+  }
+
+  @Test
+  void testSimilaritySearchWithSimilarityOrdersHighestFirst() {
+    flatVectorStore =
+        new FlatVectorStore(
+            embeddingProcessor,
+            FlatVectorStoreSpec.builder().setVectorDimensions(2).build(),
+            DistanceStrategies.cosine());
+    flatVectorStore.addDocuments(
+        ImmutableList.of(document("a", "1,0"), document("b", "0,1"), document("c", "1,1")));
+
+    // Act.
+    List<DomainDocument> result = flatVectorStore.similaritySearch(query(3, 1.0, 0.1));
+    // Assert.
+    assertThat(ids(result)).containsExactly("a", "c", "b").inOrder();
+  }
+
+  @Test
+  void testSimilaritySearchAppliesMetadataConditions() {
+    flatVectorStore.addDocuments(
+        ImmutableList.of(
+            document("a", "0,0", ImmutableMap.of("year", "2019")),
+            document("b", "1,1", ImmutableMap.of("year", "2021")),
+            document("c", "2,2", ImmutableMap.of("year", "2022"))));
+    SimilaritySearchQuery query =
+        query(1, 0.0, 0.0).toBuilder()
+            .setMetadataConditions(Arrays.asList(MetadataCondition.gt("year", 2020)))
+            .build();
+
+    // Act.
+    List<DomainDocument> result = flatVectorStore.similaritySearch(query);
+    // Assert.
+    assertThat(ids(result)).containsExactly("b");
+  }
+
+  @Test
+  void testSimilaritySearchBatchMatchesSingleSearches() {
+    List<DomainDocument> documents = new ArrayList<>();
+    for (int i = 0; i < 9; i++) {
+      documents.add(document("d" + i, i + "," + (i % 3), ImmutableMap.of("year", "" + (2015 + i))));
+    }
+    flatVectorStore.addDocuments(documents);
+    List<SimilaritySearchQuery> queries =
+        ImmutableList.of(
+            query(3, 0.0, 0.0),
+            query(2, 8.0, 2.0),
+            query(4, 4.0, 1.0).toBuilder()
+                .setMetadataConditions(Arrays.asList(MetadataCondition.lt("year", 2020)))
+                .build());
+
+    // Act.
+    List<List<DomainDocument>> results = flatVectorStore.similaritySearchBatch(queries);
+    // Assert.
+    assertThat(results).hasSize(3);
+    for (int i = 0; i < queries.size(); i++) {
+      assertThat(results.get(i)).isEqualTo(flatVectorStore.similaritySearch(queries.get(i)));
+    }
+    assertThat(ids(results.get(0))).containsExactly("d0", "d1", "d2").inOrder();
+    assertThat(ids(results.get(2))).containsExactly("d4", "d3", "d2", "d1").inOrder();
+  }
+
+  @Test
+  void testAddDocumentsRejectsTakenIds() {
+    flatVectorStore.addDocuments(ImmutableList.of(document("a", "0,0")));
+
+    // Act.
+    boolean isSuccessful =
+        flatVectorStore.addDocuments(ImmutableList.of(document("b", "1,1"), document("a", "2,2")));
+    // Assert.
+    assertThat(isSuccessful).isFalse();
+    assertThat(flatVectorStore.size()).isEqualTo(1);
+  }
+
+  @Test
+  void testUpsertDocumentsReplacesVector() {
+    flatVectorStore.addDocuments(ImmutableList.of(document("a", "0,0"), document("b", "3,3")));
+
+    // Act.
+    boolean isSuccessful =
+        flatVectorStore.upsertDocuments(
+            ImmutableList.of(document("a", "9,9"), document("c", "4,4")));
+    // Assert.
+    assertThat(isSuccessful).isTrue();
+    assertThat(flatVectorStore.size()).isEqualTo(3);
+    assertThat(ids(flatVectorStore.similaritySearch(query(3, 0.0, 0.0))))
+        .containsExactly("b", "c", "a")
+        .inOrder();
+  }
+
+  @Test
+  void testUpdateDocumentsRequiresStoredIds() {
+    flatVectorStore.addDocuments(ImmutableList.of(document("a", "0,0")));
+
+    // Act.
+    boolean isSuccessful =
+        flatVectorStore.updateDocuments(
+            ImmutableList.of(document("a", "9,9"), document("x", "1,1")));
+    // Assert.
+    assertThat(isSuccessful).isFalse();
+    assertThat(flatVectorStore.similaritySearch(query(1, 0.0, 0.0)).get(0).getPageContent())
+        .isEqualTo("0,0");
+  }
+
+  @Test
+  void testDeleteDocumentsKeepsRemainingVectors() {
+    List<DomainDocument> documents = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      documents.add(document("d" + i, i + "," + i));
+    }
+    flatVectorStore.addDocuments(documents);
+
+    // Act.
+    flatVectorStore.deleteDocumentsByIds(ImmutableList.of("d1", "d4", "missing"));
+    // Assert.
+    assertThat(flatVectorStore.size()).isEqualTo(3);
+    assertThat(ids(flatVectorStore.similaritySearch(query(5, 0.0, 0.0))))
+        .containsExactly("d0", "d2", "d3")
+        .inOrder();
+    assertThat(ids(flatVectorStore.similaritySearch(query(1, 3.0, 3.0)))).containsExactly("d3");
+  }
+
+  @Test
+  void testSimilaritySearchAppliesMetadataConditionsAfterDeletes() {
+    List<DomainDocument> documents = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      String tenant = i % 2 == 0 ? "acme" : "globex";
+      documents.add(document("d" + i, i + "," + i, ImmutableMap.of("tenant", tenant)));
+    }
+    flatVectorStore.addDocuments(documents);
+    // Deleting d1 moves d5 into its slot.
+    flatVectorStore.deleteDocumentsByIds(ImmutableList.of("d1", "d2"));
+    flatVectorStore.upsertDocuments(
+        ImmutableList.of(document("d3", "3,3", ImmutableMap.of("tenant", "acme"))));
+    SimilaritySearchQuery query =
+        query(5, 5.0, 5.0).toBuilder()
+            .setMetadataConditions(Arrays.asList(MetadataCondition.eq("tenant", "acme")))
+            .build();
+
+    // Act.
+    List<DomainDocument> result = flatVectorStore.similaritySearch(query);
+    // Assert.
+    assertThat(ids(result)).containsExactly("d4", "d3", "d0").inOrder();
+  }
+
+  @Test
+  void testSimilaritySearchRejectsWrongDimensions() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> flatVectorStore.similaritySearch(query(1, 1.0, 2.0, 3.0)));
+  }
+
+  @Test
+  void testSimilaritySearchWithInt8QuantizationRescoresCandidates() {
+    flatVectorStore =
+        new FlatVectorStore(
+            embeddingProcessor,
+            FlatVectorStoreSpec.builder()
+                .setVectorDimensions(2)
+                .setBlockSize(2)
+                .setQuantization(VectorQuantization.INT8)
+                .build(),
+            DistanceStrategies.euclidean());
+    flatVectorStore.addDocuments(
+        ImmutableList.of(
+            document("a", "0,0"),
+            document("b", "5,5"),
+            document("c", "1,1"),
+            document("d", "9,9")));
+
+    // Act.
+    List<DomainDocument> result = flatVectorStore.similaritySearch(query(2, 0.5, 0.0));
+    // Assert.
+    assertThat(ids(result)).containsExactly("a", "c").inOrder();
+    assertThat(result.get(0).getSimilarityScore().orElse(-1.0)).isEqualTo(0.5);
+  }
+
+  @Test
+  void testSimilaritySearchBatchWithInt8QuantizationRescoresEachQuery() {
+    flatVectorStore =
+        new FlatVectorStore(
+            embeddingProcessor,
+            FlatVectorStoreSpec.builder()
+                .setVectorDimensions(2)
+                .setQuantization(VectorQuantization.INT8)
+                .build(),
+            DistanceStrategies.euclidean());
+    flatVectorStore.addDocuments(
+        ImmutableList.of(
+            document("a", "0,0"),
+            document("b", "5,5"),
+            document("c", "1,1"),
+            document("d", "9,9")));
+
+    // Act.
+    List<List<DomainDocument>> results =
+        flatVectorStore.similaritySearchBatch(
+            ImmutableList.of(query(2, 0.5, 0.0), query(1, 8.0, 8.0)));
+    // Assert.
+    assertThat(ids(results.get(0))).containsExactly("a", "c").inOrder();
+    assertThat(ids(results.get(1))).containsExactly("d");
+    assertThat(results.get(1).get(0).getSimilarityScore().orElse(-1.0))
+        .isWithin(1e-6)
+        .of(Math.sqrt(2));
+  }
+
+  @Test
+  void testBinaryQuantizationWithRawVectorFileKeepsVectorsAfterDeletes(@TempDir Path directory)
+      throws IOException {
+    try (FlatVectorStore store =
+        new FlatVectorStore(
+            embeddingProcessor,
+            FlatVectorStoreSpec.builder()
+                .setVectorDimensions(2)
+                .setBlockSize(2)
+                .setQuantization(VectorQuantization.BINARY)
+                .setRescoreFactor(5)
+                .setRawVectorPath(directory.resolve("vectors.bin"))
+                .build(),
+            DistanceStrategies.euclidean())) {
+      List<DomainDocument> documents = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        documents.add(document("d" + i, i + "," + i));
+      }
+      store.addDocuments(documents);
+
+      // Act.
+      store.deleteDocumentsByIds(ImmutableList.of("d1", "d4"));
+      List<DomainDocument> result = store.similaritySearch(query(3, 3.0, 3.0));
+      // Assert.
+      assertThat(ids(result)).containsExactly("d3", "d2", "d0").inOrder();
+      assertThat(result.get(1).getSimilarityScore().orElse(-1.0)).isWithin(1e-6).of(Math.sqrt(2));
+    }
+  }
+
+  @Test
+  void testRawVectorPathRequiresQuantization(@TempDir Path directory) {
+    FlatVectorStoreSpec spec =
+        FlatVectorStoreSpec.builder()
+            .setVectorDimensions(2)
+            .setRawVectorPath(directory.resolve("vectors.bin"))
+            .build();
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new FlatVectorStore(embeddingProcessor, spec, DistanceStrategies.euclidean()));
+  }
+
+  @Test
+  void testExportedDocumentsImportWithoutEmbedding() throws IOException {
+    flatVectorStore.addDocuments(
+        ImmutableList.of(
+            document("a", "0,0", ImmutableMap.of("lang", "en")),
+            document("b", "5,5"),
+            document("c", "1,1", ImmutableMap.of("lang", "de")),
+            document("d", "9,9"),
+            document("e", "2,2", ImmutableMap.of("lang", "en"))));
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (VectorCollectionWriter writer = new VectorCollectionWriter(outputStream, 2)) {
+      flatVectorStore.exportDocuments(writer);
+    }
+    EmbeddingProcessor importingProcessor = Mockito.mock(EmbeddingProcessor.class);
+    FlatVectorStore importingStore =
+        new FlatVectorStore(
+            importingProcessor,
+            FlatVectorStoreSpec.builder().setVectorDimensions(2).build(),
+            DistanceStrategies.euclidean());
+
+    // Act.
+    long importedCount;
+    try (VectorCollectionReader reader =
+        new VectorCollectionReader(new ByteArrayInputStream(outputStream.toByteArray()))) {
+      importedCount = importingStore.importDocuments(reader);
+    }
+    // Assert.
+    assertThat(importedCount).isEqualTo(5);
+    assertThat(ids(importingStore.similaritySearch(query(5, 1.2, 1.2))))
+        .containsExactlyElementsIn(ids(flatVectorStore.similaritySearch(query(5, 1.2, 1.2))))
+        .inOrder();
+    List<DomainDocument> english =
+        importingStore.similaritySearch(
+            SimilaritySearchQuery.builder()
+                .setTopK(5L)
+                .setQuery(new float[] {0, 0})
+                .setMetadataConditions(Arrays.asList(MetadataCondition.eq("lang", "en")))
+                .build());
+    assertThat(ids(english)).containsExactly("a", "e").inOrder();
+    assertThat(english.get(1).getPageContent()).isEqualTo("2,2");
+    Mockito.verifyNoInteractions(importingProcessor);
+  }
+
+  @Test
+  void testImportDocumentsRejectsWrongDimensions() throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (VectorCollectionWriter writer = new VectorCollectionWriter(outputStream)) {
+      writer.write(
+          VectorRecord.builder()
+              .setDocument(document("a", "0,0,0"))
+              .setVector(new float[] {0, 0, 0})
+              .build());
+    }
+    VectorCollectionReader reader =
+        new VectorCollectionReader(new ByteArrayInputStream(outputStream.toByteArray()));
+
+    assertThrows(IllegalArgumentException.class, () -> flatVectorStore.importDocuments(reader));
+  }
+
+  private static SimilaritySearchQuery query(long topK, Double... vector) {
+    return SimilaritySearchQuery.builder().setTopK(topK).setQuery(Arrays.asList(vector)).build();
+  }
+
+  private static List<String> ids(List<DomainDocument> documents) {
+    return documents.stream().map(document -> document.getId().get()).collect(Collectors.toList());
+  }
+}
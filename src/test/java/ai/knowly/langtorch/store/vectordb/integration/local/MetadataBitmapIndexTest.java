@@ -0,0 +1,92 @@
+package ai.knowly.langtorch.store.vectordb.integration.local;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.schema.io.Metadata;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+final class MetadataBitmapIndexTest {
+  private static final DomainDocument ACME_2019 = document("acme", "2019");
+  private static final DomainDocument ACME_2021 = document("acme", "2021");
+  private static final DomainDocument GLOBEX_2022 = document("globex", "2022");
+
+  private MetadataBitmapIndex metadataIndex;
+
+  @BeforeEach
+  void setUp() {
+    metadataIndex = new MetadataBitmapIndex();
+    metadataIndex.add(0, ACME_2019);
+    metadataIndex.add(1, ACME_2021);
+    metadataIndex.add(2, GLOBEX_2022);
+    metadataIndex.add(3, DomainDocument.builder().setPageContent("no metadata").build());
+  }
+
+  @Test
+  void testEvaluate_eq() {
+    // Act & Assert.
+    assertThat(metadataIndex.evaluate(ImmutableList.of(MetadataCondition.eq("tenant", "acme"))))
+        .containsExactly(0, 1);
+  }
+
+  @Test
+  void testEvaluate_in() {
+    // Act & Assert.
+    assertThat(
+            metadataIndex.evaluate(
+                ImmutableList.of(
+                    MetadataCondition.in("year", ImmutableList.of("2019", "2022", "2030")))))
+        .containsExactly(0, 2);
+  }
+
+  @Test
+  void testEvaluate_intersectsRangeAndEq() {
+    // Act & Assert.
+    assertThat(
+            metadataIndex.evaluate(
+                ImmutableList.of(
+                    MetadataCondition.eq("tenant", "acme"), MetadataCondition.gt("year", 2020))))
+        .containsExactly(1);
+  }
+
+  @Test
+  void testEvaluate_unknownKeyMatchesNothing() {
+    // Act & Assert.
+    assertThat(metadataIndex.evaluate(ImmutableList.of(MetadataCondition.eq("region", "eu"))))
+        .isEmpty();
+  }
+
+  @Test
+  void testEvaluate_rejectsEmptyConditions() {
+    // Act & Assert.
+    assertThrows(IllegalArgumentException.class, () -> metadataIndex.evaluate(ImmutableList.of()));
+  }
+
+  @Test
+  void testRemoveAndMove() {
+    // Act.
+    metadataIndex.remove(0, ACME_2019);
+    metadataIndex.move(2, 0, GLOBEX_2022);
+
+    // Assert.
+    assertThat(metadataIndex.evaluate(ImmutableList.of(MetadataCondition.eq("tenant", "acme"))))
+        .containsExactly(1);
+    assertThat(metadataIndex.evaluate(ImmutableList.of(MetadataCondition.eq("tenant", "globex"))))
+        .containsExactly(0);
+    assertThat(metadataIndex.evaluate(ImmutableList.of(MetadataCondition.lt("year", 2020))))
+        .isEmpty();
+  }
+
+  private static DomainDocument document(String tenant, String year) {
+    return DomainDocument.builder()
+        .setPageContent(tenant + " " + year)
+        .setMetadata(
+            Metadata.builder().setValue(ImmutableMap.of("tenant", tenant, "year", year)).build())
+        .build();
+  }
+}
@@ -0,0 +1,54 @@
+package ai.knowly.langtorch.store.vectordb.integration.local;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+final class TopKHeapTest {
+
+  @Test
+  void testKeepsLowestScoresSorted() {
+    TopKHeap heap = new TopKHeap(3, false);
+    double[] scores = {5, 1, 4, 2, 8, 0.5, 3};
+
+    // Act.
+    for (int i = 0; i < scores.length; i++) {
+      heap.offer(i, scores[i]);
+    }
+    heap.sort();
+    // Assert.
+    assertThat(heap.size()).isEqualTo(3);
+    assertThat(new int[] {heap.getId(0), heap.getId(1), heap.getId(2)})
+        .isEqualTo(new int[] {5, 1, 3});
+    assertThat(heap.getScore(0)).isEqualTo(0.5);
+  }
+
+  @Test
+  void testKeepsHighestScoresAndBreaksTiesById() {
+    TopKHeap heap = new TopKHeap(2, true);
+
+    // Act.
+    heap.offer(7, 1.0);
+    heap.offer(3, 1.0);
+    heap.offer(5, 1.0);
+    heap.offer(9, Double.NaN);
+    heap.sort();
+    // Assert.
+    assertThat(heap.size()).isEqualTo(2);
+    assertThat(heap.getId(0)).isEqualTo(3);
+    assertThat(heap.getId(1)).isEqualTo(5);
+  }
+
+  @Test
+  void testRejectsEntriesThatCannotMakeTheTopK() {
+    TopKHeap heap = new TopKHeap(1, true);
+    heap.offer(0, 0.9);
+
+    // Act.
+    boolean isKept = heap.offer(1, 0.1);
+    // Assert.
+    assertThat(isKept).isFalse();
+    assertThat(heap.isCandidate(0.95)).isTrue();
+    assertThat(heap.isCandidate(0.5)).isFalse();
+  }
+}
@@ -0,0 +1,326 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.hnsw;
+
+import static ai.knowly.langtorch.util.LocalVectorStoreTestingUtils.contentEmbeddingProcessor;
+import static ai.knowly.langtorch.util.LocalVectorStoreTestingUtils.document;
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.exportCollection;
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.openCollection;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.local.FlatVectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.local.schema.FlatVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.local.schema.HnswVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategies;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class HnswVectorStoreTest {
+  private static final int DIMENSIONS = 8;
+
+  private EmbeddingProcessor embeddingProcessor;
+  private HnswVectorStore hnswVectorStore;
+
+  @BeforeEach
+  void setUp() {
+    embeddingProcessor = contentEmbeddingProcessor();
+    hnswVectorStore = newStore(2, 1.0);
+  }
+
+  @Test
+  void testSimilaritySearchReturnsNearestFirst() {
+    hnswVectorStore.addDocuments(
+        ImmutableList.of(
+            document("a", "0,0"),
+            document("b", "5,5"),
+            document("c", "1,1"),
+            document("d", "9,9")));
+
+    // Act.
+    List<DomainDocument> result = hnswVectorStore.similaritySearch(query(2, 0.5, 0.0));
+    // Assert.
+    assertThat(ids(result)).containsExactly("a", "c").inOrder();
+    assertThat(result.get(0).getSimilarityScore().orElse(-1.0)).isEqualTo(0.5);
+  }
+
+  @Test
+  void testSimilaritySearchMatchesExactSearch() {
+    hnswVectorStore = newStore(DIMENSIONS, 1.0);
+    FlatVectorStore flatVectorStore =
+        new FlatVectorStore(
+            embeddingProcessor,
+            FlatVectorStoreSpec.builder().setVectorDimensions(DIMENSIONS).build(),
+            DistanceStrategies.euclidean());
+    Random random = new Random(42);
+    List<DomainDocument> documents = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      documents.add(document("d" + i, randomContent(random)));
+    }
+    hnswVectorStore.addDocuments(documents);
+    flatVectorStore.addDocuments(documents);
+
+    // Act.
+    int found = 0;
+    for (int i = 0; i < 20; i++) {
+      SimilaritySearchQuery query = query(10, randomVector(random));
+      Set<String> expected = new HashSet<>(ids(flatVectorStore.similaritySearch(query)));
+      for (String id : ids(hnswVectorStore.similaritySearch(query))) {
+        found += expected.contains(id) ? 1 : 0;
+      }
+    }
+    // Assert.
+    assertThat(found / 200.0).isAtLeast(0.95);
+  }
+
+  @Test
+  void testSimilaritySearchAppliesMetadataConditions() {
+    hnswVectorStore.addDocuments(
+        ImmutableList.of(
+            document("a", "0,0", ImmutableMap.of("year", "2019")),
+            document("b", "1,1", ImmutableMap.of("year", "2021")),
+            document("c", "2,2", ImmutableMap.of("year", "2022"))));
+    SimilaritySearchQuery query =
+        query(1, 0.0, 0.0).toBuilder()
+            .setMetadataConditions(Arrays.asList(MetadataCondition.gt("year", 2020)))
+            .build();
+
+    // Act.
+    List<DomainDocument> result = hnswVectorStore.similaritySearch(query);
+    // Assert.
+    assertThat(ids(result)).containsExactly("b");
+  }
+
+  @Test
+  void testSimilaritySearchWithSelectiveConditionIsExact() {
+    hnswVectorStore = newStore(DIMENSIONS, 1.0);
+    Random random = new Random(42);
+    List<DomainDocument> documents = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      documents.add(
+          document("d" + i, randomContent(random), ImmutableMap.of("tenant", "t" + i % 100)));
+    }
+    hnswVectorStore.addDocuments(documents);
+    Double[] vector = randomVector(random);
+    List<String> expected =
+        documents.stream()
+            .filter(document -> document.getMetadata().get().getValue().get("tenant").equals("t7"))
+            .sorted(
+                Comparator.comparingDouble(
+                    document -> squaredDistance(document.getPageContent(), vector)))
+            .limit(5)
+            .map(document -> document.getId().get())
+            .collect(Collectors.toList());
+    SimilaritySearchQuery query =
+        query(5, vector).toBuilder()
+            .setMetadataConditions(Arrays.asList(MetadataCondition.eq("tenant", "t7")))
+            .build();
+
+    // Act.
+    List<DomainDocument> result = hnswVectorStore.similaritySearch(query);
+    // Assert.
+    assertThat(ids(result)).containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test
+  void testSimilaritySearchTraversesGraphAboveBruteForceCandidateLimit() {
+    hnswVectorStore =
+        new HnswVectorStore(
+            embeddingProcessor,
+            HnswVectorStoreSpec.builder()
+                .setVectorDimensions(2)
+                .setBruteForceCandidateLimit(0)
+                .build(),
+            DistanceStrategies.euclidean());
+    List<DomainDocument> documents = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      documents.add(
+          document("d" + i, i + "," + i, ImmutableMap.of("parity", i % 2 == 0 ? "even" : "odd")));
+    }
+    hnswVectorStore.addDocuments(documents);
+    hnswVectorStore.upsertDocuments(
+        ImmutableList.of(document("d4", "4,4", ImmutableMap.of("parity", "odd"))));
+    SimilaritySearchQuery query =
+        query(3, 4.4, 4.4).toBuilder()
+            .setMetadataConditions(Arrays.asList(MetadataCondition.eq("parity", "even")))
+            .build();
+
+    // Act.
+    List<DomainDocument> result = hnswVectorStore.similaritySearch(query);
+    // Assert.
+    assertThat(ids(result)).containsExactly("d6", "d2", "d8").inOrder();
+  }
+
+  @Test
+  void testAddDocumentsRejectsTakenIds() {
+    hnswVectorStore.addDocuments(ImmutableList.of(document("a", "0,0")));
+
+    // Act.
+    boolean isSuccessful =
+        hnswVectorStore.addDocuments(ImmutableList.of(document("b", "1,1"), document("a", "2,2")));
+    // Assert.
+    assertThat(isSuccessful).isFalse();
+    assertThat(hnswVectorStore.size()).isEqualTo(2);
+    assertThat(hnswVectorStore.similaritySearch(query(1, 2.0, 2.0)).get(0).getId().get())
+        .isEqualTo("b");
+  }
+
+  @Test
+  void testUpsertDocumentsReplacesVector() {
+    hnswVectorStore.addDocuments(ImmutableList.of(document("a", "0,0"), document("b", "3,3")));
+
+    // Act.
+    boolean isSuccessful =
+        hnswVectorStore.upsertDocuments(
+            ImmutableList.of(document("a", "9,9"), document("c", "4,4")));
+    // Assert.
+    assertThat(isSuccessful).isTrue();
+    assertThat(hnswVectorStore.size()).isEqualTo(3);
+    assertThat(ids(hnswVectorStore.similaritySearch(query(3, 0.0, 0.0))))
+        .containsExactly("b", "c", "a")
+        .inOrder();
+  }
+
+  @Test
+  void testUpdateDocumentsRequiresStoredIds() {
+    hnswVectorStore.addDocuments(ImmutableList.of(document("a", "0,0")));
+
+    // Act.
+    boolean isSuccessful =
+        hnswVectorStore.updateDocuments(
+            ImmutableList.of(document("a", "9,9"), document("x", "1,1")));
+    // Assert.
+    assertThat(isSuccessful).isFalse();
+    assertThat(hnswVectorStore.similaritySearch(query(1, 0.0, 0.0)).get(0).getPageContent())
+        .isEqualTo("0,0");
+  }
+
+  @Test
+  void testDeletedDocumentsAreNotReturned() {
+    List<DomainDocument> documents = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      documents.add(document("d" + i, i + "," + i));
+    }
+    hnswVectorStore.addDocuments(documents);
+
+    // Act.
+    hnswVectorStore.deleteDocumentsByIds(ImmutableList.of("d1", "d4", "missing"));
+    // Assert.
+    assertThat(hnswVectorStore.size()).isEqualTo(3);
+    assertThat(ids(hnswVectorStore.similaritySearch(query(5, 0.0, 0.0))))
+        .containsExactly("d0", "d2", "d3")
+        .inOrder();
+  }
+
+  @Test
+  void testCompactKeepsLiveDocuments() {
+    List<DomainDocument> documents = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      documents.add(document("d" + i, i + "," + i));
+    }
+    hnswVectorStore.addDocuments(documents);
+    List<String> deletedIds = new ArrayList<>();
+    for (int i = 0; i < 50; i += 2) {
+      deletedIds.add("d" + i);
+    }
+    hnswVectorStore.deleteDocumentsByIds(deletedIds);
+    hnswVectorStore.upsertDocuments(ImmutableList.of(document("d1", "100,100")));
+
+    // Act.
+    hnswVectorStore.compact();
+    // Assert.
+    assertThat(hnswVectorStore.size()).isEqualTo(25);
+    assertThat(ids(hnswVectorStore.similaritySearch(query(2, 0.0, 0.0))))
+        .containsExactly("d3", "d5")
+        .inOrder();
+    assertThat(ids(hnswVectorStore.similaritySearch(query(1, 100.0, 100.0))))
+        .containsExactly("d1");
+  }
+
+  @Test
+  void testExportedLiveDocumentsImportWithoutEmbedding() throws IOException {
+    hnswVectorStore.addDocuments(
+        ImmutableList.of(
+            document("a", "0,0", ImmutableMap.of("lang", "en")),
+            document("b", "5,5"),
+            document("c", "1,1"),
+            document("d", "9,9")));
+    hnswVectorStore.deleteDocumentsByIds(ImmutableList.of("b"));
+    byte[] collection = exportCollection(hnswVectorStore);
+    embeddingProcessor = Mockito.mock(EmbeddingProcessor.class);
+    HnswVectorStore importingStore = newStore(2, 1.0);
+
+    // Act.
+    long importedCount = importingStore.importDocuments(openCollection(collection));
+    // Assert.
+    assertThat(importedCount).isEqualTo(3);
+    assertThat(importingStore.size()).isEqualTo(3);
+    List<DomainDocument> result = importingStore.similaritySearch(query(3, 0.0, 0.0));
+    assertThat(ids(result)).containsExactly("a", "c", "d").inOrder();
+    assertThat(result.get(0).getMetadata().get().getValue()).containsExactly("lang", "en");
+    Mockito.verifyNoInteractions(embeddingProcessor);
+  }
+
+  @Test
+  void testSimilaritySearchRejectsWrongDimensions() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> hnswVectorStore.similaritySearch(query(1, 1.0, 2.0, 3.0)));
+  }
+
+  private HnswVectorStore newStore(int dimensions, double compactionThreshold) {
+    return new HnswVectorStore(
+        embeddingProcessor,
+        HnswVectorStoreSpec.builder()
+            .setVectorDimensions(dimensions)
+            .setCompactionThreshold(compactionThreshold)
+            .build(),
+        DistanceStrategies.euclidean());
+  }
+
+  private static SimilaritySearchQuery query(long topK, Double... vector) {
+    return SimilaritySearchQuery.builder().setTopK(topK).setQuery(Arrays.asList(vector)).build();
+  }
+
+  private static Double[] randomVector(Random random) {
+    Double[] vector = new Double[DIMENSIONS];
+    for (int i = 0; i < DIMENSIONS; i++) {
+      vector[i] = random.nextDouble();
+    }
+    return vector;
+  }
+
+  private static double squaredDistance(String content, Double[] vector) {
+    String[] values = content.split(",");
+    double distance = 0;
+    for (int i = 0; i < vector.length; i++) {
+      double difference = Double.parseDouble(values[i]) - vector[i];
+      distance += difference * difference;
+    }
+    return distance;
+  }
+
+  private static String randomContent(Random random) {
+    return Arrays.stream(randomVector(random))
+        .map(String::valueOf)
+        .collect(Collectors.joining(","));
+  }
+
+  private static List<String> ids(List<DomainDocument> documents) {
+    return documents.stream().map(document -> document.getId().get()).collect(Collectors.toList());
+  }
+}
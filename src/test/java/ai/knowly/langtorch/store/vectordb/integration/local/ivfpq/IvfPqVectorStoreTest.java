@@ -0,0 +1,213 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.ivfpq;
+
+import static ai.knowly.langtorch.util.LocalVectorStoreTestingUtils.contentEmbeddingProcessor;
+import static ai.knowly.langtorch.util.LocalVectorStoreTestingUtils.document;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.local.FlatVectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.local.schema.FlatVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.local.schema.IvfPqVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategies;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class IvfPqVectorStoreTest {
+  private static final int DIMENSIONS = 8;
+
+  @TempDir Path temporaryDirectory;
+
+  private EmbeddingProcessor embeddingProcessor;
+  private IvfPqVectorStore ivfPqVectorStore;
+  private List<DomainDocument> trainingDocuments;
+
+  @BeforeEach
+  void setUp() {
+    embeddingProcessor = contentEmbeddingProcessor();
+    ivfPqVectorStore =
+        new IvfPqVectorStore(
+            embeddingProcessor,
+            spec().setRawVectorPath(temporaryDirectory.resolve("vectors.bin")).build(),
+            DistanceStrategies.euclidean());
+    Random random = new Random(42);
+    trainingDocuments = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      trainingDocuments.add(
+          document("t" + i, randomContent(random), ImmutableMap.of("index", String.valueOf(i))));
+    }
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    ivfPqVectorStore.close();
+  }
+
+  @Test
+  void testAddDocumentsRequiresTraining() {
+    assertThrows(
+        IllegalStateException.class,
+        () -> ivfPqVectorStore.addDocuments(ImmutableList.of(document("a", zeros()))));
+  }
+
+  @Test
+  void testTrainAddsDocuments() {
+    // Act.
+    boolean isSuccessful = ivfPqVectorStore.train(trainingDocuments);
+    // Assert.
+    assertThat(isSuccessful).isTrue();
+    assertThat(ivfPqVectorStore.isTrained()).isTrue();
+    assertThat(ivfPqVectorStore.size()).isEqualTo(300);
+    assertThrows(IllegalStateException.class, () -> ivfPqVectorStore.train(trainingDocuments));
+  }
+
+  @Test
+  void testRerankedSearchMatchesExactSearch() {
+    ivfPqVectorStore.train(trainingDocuments);
+    FlatVectorStore flatVectorStore =
+        new FlatVectorStore(
+            embeddingProcessor,
+            FlatVectorStoreSpec.builder().setVectorDimensions(DIMENSIONS).build(),
+            DistanceStrategies.euclidean());
+    flatVectorStore.addDocuments(trainingDocuments);
+    Random random = new Random(7);
+
+    for (int i = 0; i < 10; i++) {
+      // Probing every list leaves only the compression as a source of error.
+      SimilaritySearchQuery query =
+          query(5, randomVector(random)).toBuilder().setProbes(4).build();
+
+      // Act.
+      List<DomainDocument> result = ivfPqVectorStore.similaritySearch(query);
+      // Assert.
+      List<DomainDocument> expected = flatVectorStore.similaritySearch(query);
+      assertThat(ids(result)).containsExactlyElementsIn(ids(expected)).inOrder();
+      assertThat(result.get(0).getSimilarityScore().orElse(-1.0))
+          .isWithin(1e-6)
+          .of(expected.get(0).getSimilarityScore().orElse(-1.0));
+    }
+  }
+
+  @Test
+  void testApproximateSearchReturnsStoredDocuments() throws Exception {
+    ivfPqVectorStore.close();
+    ivfPqVectorStore =
+        new IvfPqVectorStore(embeddingProcessor, spec().build(), DistanceStrategies.euclidean());
+    ivfPqVectorStore.train(trainingDocuments);
+
+    // Act.
+    List<DomainDocument> result =
+        ivfPqVectorStore.similaritySearch(query(10, randomVector(new Random(7))));
+    // Assert.
+    assertThat(result).hasSize(10);
+    for (int i = 1; i < result.size(); i++) {
+      assertThat(result.get(i).getSimilarityScore().orElse(-1.0))
+          .isAtLeast(result.get(i - 1).getSimilarityScore().orElse(-1.0));
+    }
+  }
+
+  @Test
+  void testSimilaritySearchAppliesMetadataConditions() {
+    ivfPqVectorStore.train(trainingDocuments);
+    SimilaritySearchQuery query =
+        query(300, randomVector(new Random(7))).toBuilder()
+            .setProbes(4)
+            .setMetadataConditions(Arrays.asList(MetadataCondition.lt("index", 3)))
+            .build();
+
+    // Act.
+    List<DomainDocument> result = ivfPqVectorStore.similaritySearch(query);
+    // Assert.
+    assertThat(ids(result)).containsExactly("t0", "t1", "t2");
+  }
+
+  @Test
+  void testUpsertAndDeleteDocuments() {
+    ivfPqVectorStore.train(trainingDocuments);
+    String content = trainingDocuments.get(0).getPageContent();
+
+    // Act.
+    ivfPqVectorStore.deleteDocumentsByIds(ImmutableList.of("t0", "t1", "missing"));
+    ivfPqVectorStore.upsertDocuments(
+        ImmutableList.of(document("t2", content), document("new", zeros())));
+    // Assert.
+    assertThat(ivfPqVectorStore.size()).isEqualTo(299);
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder()
+            .setTopK(1L)
+            .setProbes(4)
+            .setQuery(
+                Arrays.stream(content.split(",")).map(Double::valueOf).collect(Collectors.toList()))
+            .build();
+    assertThat(ids(ivfPqVectorStore.similaritySearch(query))).containsExactly("t2");
+  }
+
+  @Test
+  void testUpdateDocumentsRequiresStoredIds() {
+    ivfPqVectorStore.train(trainingDocuments);
+
+    // Act.
+    boolean isSuccessful =
+        ivfPqVectorStore.updateDocuments(
+            ImmutableList.of(document("t0", zeros()), document("missing", zeros())));
+    // Assert.
+    assertThat(isSuccessful).isFalse();
+    assertThat(ivfPqVectorStore.size()).isEqualTo(300);
+  }
+
+  @Test
+  void testSimilaritySearchRejectsWrongDimensions() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> ivfPqVectorStore.similaritySearch(query(1, 1.0, 2.0, 3.0)));
+  }
+
+  private static IvfPqVectorStoreSpec.IvfPqVectorStoreSpecBuilder spec() {
+    return IvfPqVectorStoreSpec.builder()
+        .setVectorDimensions(DIMENSIONS)
+        .setLists(4)
+        .setSubQuantizers(4)
+        .setProbes(2)
+        .setRerankCandidates(50);
+  }
+
+  private static SimilaritySearchQuery query(long topK, Double... vector) {
+    return SimilaritySearchQuery.builder().setTopK(topK).setQuery(Arrays.asList(vector)).build();
+  }
+
+  private static Double[] randomVector(Random random) {
+    Double[] vector = new Double[DIMENSIONS];
+    for (int i = 0; i < DIMENSIONS; i++) {
+      vector[i] = random.nextDouble();
+    }
+    return vector;
+  }
+
+  private static String randomContent(Random random) {
+    return Arrays.stream(randomVector(random))
+        .map(String::valueOf)
+        .collect(Collectors.joining(","));
+  }
+
+  private static String zeros() {
+    return String.join(",", Collections.nCopies(DIMENSIONS, "0"));
+  }
+
+  private static List<String> ids(List<DomainDocument> documents) {
+    return documents.stream().map(document -> document.getId().get()).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,280 @@
+package ai.knowly.langtorch.store.vectordb.integration.local.segment;
+
+import static ai.knowly.langtorch.util.LocalVectorStoreTestingUtils.contentEmbeddingProcessor;
+import static ai.knowly.langtorch.util.LocalVectorStoreTestingUtils.document;
+import static com.google.common.truth.Truth.assertThat;
+
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.local.schema.SegmentedVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategies;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class SegmentedVectorStoreTest {
+  @TempDir Path directory;
+
+  private EmbeddingProcessor embeddingProcessor;
+  private final List<SegmentedVectorStore> openStores = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    embeddingProcessor = contentEmbeddingProcessor();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    for (SegmentedVectorStore store : openStores) {
+      store.close();
+    }
+  }
+
+  @Test
+  void testSimilaritySearchCoversSegmentsAndUnsealedWrites() {
+    SegmentedVectorStore store = open();
+    store.addDocuments(
+        ImmutableList.of(
+            document("a", "0,0", ImmutableMap.of("year", "2019")),
+            document("b", "5,5", ImmutableMap.of("year", "2021"))));
+    store.seal();
+    store.addDocuments(
+        ImmutableList.of(
+            document("c", "1,1", ImmutableMap.of("year", "2022")),
+            document("d", "9,9", ImmutableMap.of("year", "2023"))));
+
+    // Act.
+    List<DomainDocument> result = store.similaritySearch(query(2, 0.5, 0.0));
+    // Assert.
+    assertThat(store.getSegmentCount()).isEqualTo(1);
+    assertThat(ids(result)).containsExactly("a", "c").inOrder();
+    assertThat(result.get(0).getSimilarityScore().orElse(-1.0)).isEqualTo(0.5);
+    assertThat(result.get(0).getMetadata().get().getValue()).containsExactly("year", "2019");
+  }
+
+  @Test
+  void testSimilaritySearchAppliesMetadataConditionsToSegments() {
+    SegmentedVectorStore store = open();
+    store.addDocuments(
+        ImmutableList.of(
+            document("a", "0,0", ImmutableMap.of("year", "2019")),
+            document("b", "1,1", ImmutableMap.of("year", "2021"))));
+    store.seal();
+    SimilaritySearchQuery query =
+        query(2, 0.0, 0.0).toBuilder()
+            .setMetadataConditions(Arrays.asList(MetadataCondition.gt("year", 2020)))
+            .build();
+
+    // Act.
+    List<DomainDocument> result = store.similaritySearch(query);
+    // Assert.
+    assertThat(ids(result)).containsExactly("b");
+  }
+
+  @Test
+  void testSimilaritySearchScoresLiveMatchesOfReopenedSegments() throws IOException {
+    SegmentedVectorStore store = open();
+    store.addDocuments(
+        ImmutableList.of(
+            document("a", "0,0", ImmutableMap.of("year", "2019")),
+            document("b", "1,1", ImmutableMap.of("year", "2021")),
+            document("c", "4,4", ImmutableMap.of("year", "2022"))));
+    store.seal();
+    store.deleteDocumentsByIds(ImmutableList.of("b"));
+    store.close();
+    SimilaritySearchQuery query =
+        query(3, 0.0, 0.0).toBuilder()
+            .setMetadataConditions(Arrays.asList(MetadataCondition.gt("year", 2020)))
+            .build();
+
+    // Act.
+    SegmentedVectorStore reopenedStore = open();
+    List<DomainDocument> scored = reopenedStore.similaritySearch(query);
+    reopenedStore.close();
+    List<DomainDocument> scanned =
+        open(newSpec().setBruteForceCandidateLimit(0).build()).similaritySearch(query);
+    // Assert.
+    assertThat(ids(scored)).containsExactly("c");
+    assertThat(scanned).isEqualTo(scored);
+  }
+
+  @Test
+  void testSimilaritySearchBatchScansSegmentsOnceForAllQueries() {
+    SegmentedVectorStore store = open();
+    store.addDocuments(
+        ImmutableList.of(
+            document("a", "0,0", ImmutableMap.of("year", "2019")),
+            document("b", "5,5", ImmutableMap.of("year", "2021"))));
+    store.seal();
+    store.addDocuments(
+        ImmutableList.of(
+            document("c", "1,1", ImmutableMap.of("year", "2022")),
+            document("d", "9,9", ImmutableMap.of("year", "2023"))));
+    List<SimilaritySearchQuery> queries =
+        ImmutableList.of(
+            query(2, 0.5, 0.0),
+            query(1, 0.0, 0.0).toBuilder()
+                .setMetadataConditions(Arrays.asList(MetadataCondition.gt("year", 2020)))
+                .build());
+
+    // Act.
+    List<List<DomainDocument>> results = store.similaritySearchBatch(queries);
+    // Assert.
+    assertThat(ids(results.get(0))).containsExactly("a", "c").inOrder();
+    assertThat(ids(results.get(1))).containsExactly("c");
+    assertThat(results.get(1)).isEqualTo(store.similaritySearch(queries.get(1)));
+  }
+
+  @Test
+  void testWritesReplaceAndDeleteSealedDocuments() {
+    SegmentedVectorStore store = open();
+    store.addDocuments(ImmutableList.of(document("a", "0,0"), document("b", "3,3")));
+    store.seal();
+
+    // Act.
+    boolean isAdded = store.addDocuments(ImmutableList.of(document("a", "1,1")));
+    store.upsertDocuments(ImmutableList.of(document("a", "9,9")));
+    store.deleteDocumentsByIds(ImmutableList.of("b"));
+    // Assert.
+    assertThat(isAdded).isFalse();
+    assertThat(store.size()).isEqualTo(1);
+    assertThat(store.similaritySearch(query(2, 0.0, 0.0)).get(0).getPageContent())
+        .isEqualTo("9,9");
+  }
+
+  @Test
+  void testReopenedStoreServesSealedDocuments() throws IOException {
+    SegmentedVectorStore store = open();
+    store.addDocuments(ImmutableList.of(document("a", "0,0"), document("b", "5,5")));
+    store.deleteDocumentsByIds(ImmutableList.of("b"));
+    store.close();
+
+    // Act.
+    SegmentedVectorStore reopenedStore = open();
+    // Assert.
+    assertThat(reopenedStore.getSegmentCount()).isEqualTo(1);
+    assertThat(ids(reopenedStore.similaritySearch(query(2, 5.0, 5.0)))).containsExactly("a");
+  }
+
+  @Test
+  void testReopenedStoreReplaysUnsealedWrites() {
+    SegmentedVectorStore store = open();
+    store.addDocuments(ImmutableList.of(document("a", "0,0"), document("b", "5,5")));
+    store.seal();
+    store.upsertDocuments(ImmutableList.of(document("a", "7,7")));
+    store.deleteDocumentsByIds(ImmutableList.of("b"));
+
+    crash(store);
+
+    // Act.
+    SegmentedVectorStore reopenedStore = open();
+    // Assert.
+    assertThat(reopenedStore.size()).isEqualTo(1);
+    assertThat(reopenedStore.similaritySearch(query(2, 0.0, 0.0)).get(0).getPageContent())
+        .isEqualTo("7,7");
+  }
+
+  @Test
+  void testReopenedStoreDropsTornLogRecord() throws IOException {
+    SegmentedVectorStore store = open();
+    store.addDocuments(ImmutableList.of(document("a", "0,0")));
+    store.addDocuments(ImmutableList.of(document("b", "5,5")));
+    try (FileChannel log =
+        FileChannel.open(directory.resolve("wal-000000.log"), StandardOpenOption.WRITE)) {
+      log.truncate(log.size() - 1);
+    }
+    crash(store);
+
+    // Act.
+    SegmentedVectorStore reopenedStore = open();
+    reopenedStore.addDocuments(ImmutableList.of(document("c", "1,1")));
+    reopenedStore.close();
+    // Assert.
+    assertThat(ids(open().similaritySearch(query(3, 0.0, 0.0))))
+        .containsExactly("a", "c")
+        .inOrder();
+  }
+
+  @Test
+  void testMergeDropsDeletedDocuments() {
+    SegmentedVectorStore store = open();
+    for (int i = 0; i < 3; i++) {
+      store.addDocuments(ImmutableList.of(document("d" + i, i + "," + i)));
+      store.seal();
+    }
+    store.deleteDocumentsByIds(ImmutableList.of("d1"));
+
+    // Act.
+    boolean isMerged = store.merge();
+    // Assert.
+    assertThat(isMerged).isTrue();
+    assertThat(store.getSegmentCount()).isEqualTo(1);
+    assertThat(ids(store.similaritySearch(query(3, 0.0, 0.0))))
+        .containsExactly("d0", "d2")
+        .inOrder();
+  }
+
+  @Test
+  void testSegmentsTooLargeToMergeAreLeftAsIs() {
+    // Every segment holds one vector of 8 bytes, no two of them fit into 12 bytes.
+    SegmentedVectorStore store =
+        open(newSpec().setMaxSegments(1).setMaxMergedVectorBytes(12).build());
+    for (int i = 0; i < 3; i++) {
+      store.addDocuments(ImmutableList.of(document("d" + i, i + "," + i)));
+      store.seal();
+    }
+
+    // Act.
+    boolean isMerged = store.merge();
+    // Assert.
+    assertThat(isMerged).isFalse();
+    assertThat(store.getSegmentCount()).isEqualTo(3);
+    assertThat(ids(store.similaritySearch(query(3, 0.0, 0.0))))
+        .containsExactly("d0", "d1", "d2")
+        .inOrder();
+  }
+
+  private SegmentedVectorStore open() {
+    return open(newSpec().build());
+  }
+
+  private SegmentedVectorStore open(SegmentedVectorStoreSpec spec) {
+    SegmentedVectorStore store =
+        new SegmentedVectorStore(embeddingProcessor, spec, DistanceStrategies.euclidean());
+    openStores.add(store);
+    return store;
+  }
+
+  private SegmentedVectorStoreSpec.SegmentedVectorStoreSpecBuilder newSpec() {
+    return SegmentedVectorStoreSpec.builder()
+        .setVectorDimensions(2)
+        .setDirectory(directory)
+        .setMergeFactor(4);
+  }
+
+  /** Leaves the store open without closing it, as if its process crashed. */
+  private void crash(SegmentedVectorStore store) {
+    openStores.remove(store);
+  }
+
+  private static SimilaritySearchQuery query(long topK, Double... vector) {
+    return SimilaritySearchQuery.builder().setTopK(topK).setQuery(Arrays.asList(vector)).build();
+  }
+
+  private static List<String> ids(List<DomainDocument> documents) {
+    return documents.stream().map(document -> document.getId().get()).collect(Collectors.toList());
+  }
+}
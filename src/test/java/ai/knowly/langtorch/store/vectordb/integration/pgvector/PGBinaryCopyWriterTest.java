@@ -0,0 +1,72 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+final class PGBinaryCopyWriterTest {
+
+  @Test
+  void testWritesHeaderRowsAndTrailer() throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    PGBinaryCopyWriter writer = new PGBinaryCopyWriter(outputStream);
+
+    // Act.
+    writer.startRow(3);
+    writer.writeText("id-1");
+    writer.writeVector(new float[] {1.5f, -2f});
+    writer.writeText(null);
+    writer.finish();
+
+    // Assert.
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+    byte[] signature = new byte[11];
+    in.readFully(signature);
+    assertThat(signature)
+        .isEqualTo(new byte[] {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0});
+    assertThat(in.readInt()).isEqualTo(0);
+    assertThat(in.readInt()).isEqualTo(0);
+
+    assertThat(in.readShort()).isEqualTo(3);
+    assertThat(in.readInt()).isEqualTo(4);
+    byte[] id = new byte[4];
+    in.readFully(id);
+    assertThat(new String(id, StandardCharsets.UTF_8)).isEqualTo("id-1");
+    assertThat(in.readInt()).isEqualTo(12);
+    assertThat(in.readShort()).isEqualTo(2);
+    assertThat(in.readShort()).isEqualTo(0);
+    assertThat(in.readFloat()).isEqualTo(1.5f);
+    assertThat(in.readFloat()).isEqualTo(-2f);
+    assertThat(in.readInt()).isEqualTo(-1);
+
+    assertThat(in.readShort()).isEqualTo(-1);
+    assertThat(in.available()).isEqualTo(0);
+  }
+
+  @Test
+  void testWritesJsonbWithFormatVersion() throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    PGBinaryCopyWriter writer = new PGBinaryCopyWriter(outputStream);
+
+    // Act.
+    writer.startRow(1);
+    writer.writeJsonb("{\"k\":\"v\"}");
+    writer.finish();
+
+    // Assert.
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+    in.skipBytes(19);
+    assertThat(in.readShort()).isEqualTo(1);
+    assertThat(in.readInt()).isEqualTo(10);
+    assertThat(in.readByte()).isEqualTo(1);
+    byte[] json = new byte[9];
+    in.readFully(json);
+    assertThat(new String(json, StandardCharsets.UTF_8)).isEqualTo("{\"k\":\"v\"}");
+    assertThat(in.readShort()).isEqualTo(-1);
+  }
+}
@@ -2,33 +2,57 @@ package ai.knowly.langtorch.store.vectordb.integration.pgvector;
 
 import ai.knowly.langtorch.processor.EmbeddingProcessor;
 import ai.knowly.langtorch.schema.embeddings.Embedding;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingInput;
 import ai.knowly.langtorch.schema.embeddings.EmbeddingOutput;
 import ai.knowly.langtorch.schema.embeddings.EmbeddingType;
 import ai.knowly.langtorch.schema.io.DomainDocument;
 import ai.knowly.langtorch.schema.io.Metadata;
 import ai.knowly.langtorch.store.vectordb.PGVectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorIndexSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorIndexType;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorMetadataLayout;
 import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.PGVectorStoreSpec;
 import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategies;
+import ai.knowly.langtorch.store.vectordb.integration.quantization.VectorQuantization;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
 import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.pgvector.PGvector;
 import kotlin.Triple;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
 
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.exportCollection;
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.openCollection;
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.readCollection;
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.vectorRecord;
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.writeCollection;
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +67,7 @@ final class PGVectorStoreTest {
   private PGVectorStore pgVectorStore;
   private String textKey;
 
+  private Connection connection;
   private PreparedStatement preparedStatement;
 
   @BeforeEach
@@ -50,7 +75,19 @@ final class PGVectorStoreTest {
     textKey = "text_key";
     embeddingProcessor = Mockito.mock(EmbeddingProcessor.class);
     pgVectorService = Mockito.mock(PGVectorService.class);
+    connection = Mockito.mock(Connection.class);
     preparedStatement = Mockito.mock(PreparedStatement.class);
+    lenient()
+        .when(pgVectorService.withConnection(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> invocation.<ConnectionCallback<?>>getArgument(0).execute(connection));
+    lenient()
+        .when(pgVectorService.executeInTransaction(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> invocation.<ConnectionCallback<?>>getArgument(0).execute(connection));
+    lenient()
+        .when(connection.prepareStatement(ArgumentMatchers.any()))
+        .thenReturn(preparedStatement);
 
     pgVectorStoreSpec =
         PGVectorStoreSpec.builder()
@@ -66,9 +103,8 @@ final class PGVectorStoreTest {
 
   @Test
   void testAddDocuments() throws SQLException {
-    EmbeddingOutput embeddingOutput = EmbeddingOutput.of(EmbeddingType.OPEN_AI, getEmbeddings());
-    when(embeddingProcessor.run(ArgumentMatchers.any())).thenReturn(embeddingOutput);
-    when(pgVectorService.prepareStatement(ArgumentMatchers.any())).thenReturn(preparedStatement);
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
     when(preparedStatement.executeUpdate()).thenReturn(DOCUMENT_COUNT, DOCUMENT_COUNT);
 
     // Act.
@@ -83,7 +119,8 @@ final class PGVectorStoreTest {
         new PGVectorStore(
             embeddingProcessor, pgVectorStoreSpec, pgVectorService, DistanceStrategies.euclidean());
 
-    Triple<String, String, SimilaritySearchQuery> queryData = prepareSimilaritySearchQuery();
+    Triple<String, String, SimilaritySearchQuery> queryData =
+        prepareSimilaritySearchQuery(0.0, 2.0785, 6.9282);
     SimilaritySearchQuery query = queryData.getThird();
     String firstPageContent = queryData.getFirst();
     String secondPageContent = queryData.getSecond();
@@ -111,7 +148,8 @@ final class PGVectorStoreTest {
             pgVectorService,
             DistanceStrategies.innerProduct());
 
-    Triple<String, String, SimilaritySearchQuery> queryData = prepareSimilaritySearchQuery();
+    Triple<String, String, SimilaritySearchQuery> queryData =
+        prepareSimilaritySearchQuery(-6.6, -3.0, 9.0);
     SimilaritySearchQuery query = queryData.getThird();
     String firstPageContent = queryData.getFirst();
     String secondPageContent = queryData.getSecond();
@@ -124,8 +162,8 @@ final class PGVectorStoreTest {
     String firstDocumentPageContent = documentsWithScores.get(0).getPageContent();
     String secondDocumentPageContent = documentsWithScores.get(1).getPageContent();
     assertThat(documentsWithScores.size()).isEqualTo(3);
-    assertThat(firstDocumentScore).isEqualTo(3);
-    assertThat(firstDocumentScore).isLessThan(secondDocumentScore);
+    assertThat(firstDocumentScore).isEqualTo(6.6);
+    assertThat(firstDocumentScore).isGreaterThan(secondDocumentScore);
     assertThat(firstDocumentPageContent).isEqualTo(firstPageContent);
     assertThat(secondDocumentPageContent).isEqualTo(secondPageContent);
   }
@@ -136,7 +174,8 @@ final class PGVectorStoreTest {
         new PGVectorStore(
             embeddingProcessor, pgVectorStoreSpec, pgVectorService, DistanceStrategies.cosine());
 
-    Triple<String, String, SimilaritySearchQuery> queryData = prepareSimilaritySearchQuery();
+    Triple<String, String, SimilaritySearchQuery> queryData =
+        prepareSimilaritySearchQuery(0.0, 0.0017, 2.0);
     SimilaritySearchQuery query = queryData.getThird();
     String firstPageContent = queryData.getFirst();
     String secondPageContent = queryData.getSecond();
@@ -155,11 +194,309 @@ final class PGVectorStoreTest {
     assertThat(secondDocumentPageContent).isEqualTo(secondPageContent);
   }
 
+  @Test
+  void testSimilaritySearchOrdersByDistanceBeforeLimit() throws SQLException {
+    prepareSimilaritySearchQuery(0.0, 1.0, 2.0);
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder().setTopK(5L).setQuery(Arrays.asList(1.0, 1.0, 1.0)).build();
+
+    // Act.
+    pgVectorStore.similaritySearch(query);
+    // Assert.
+    ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(connection).prepareStatement(sqlCaptor.capture());
+    assertThat(sqlCaptor.getValue()).contains("ORDER BY embedding <=> ? LIMIT 5");
+    assertThat(sqlCaptor.getValue()).doesNotContain("SELECT test_embeddings.id, embedding");
+    Mockito.verify(preparedStatement).setObject(ArgumentMatchers.eq(1), ArgumentMatchers.any());
+    Mockito.verify(preparedStatement).setObject(ArgumentMatchers.eq(2), ArgumentMatchers.any());
+  }
+
+  @Test
+  void testSimilaritySearchSetsSearchParametersInTransaction() throws SQLException {
+    Statement statement = Mockito.mock(Statement.class);
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(connection.createStatement()).thenReturn(statement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(false);
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder()
+            .setTopK(5L)
+            .setQuery(Arrays.asList(1.0, 1.0, 1.0))
+            .setEfSearch(100)
+            .setProbes(10)
+            .build();
+
+    // Act.
+    List<DomainDocument> documents = pgVectorStore.similaritySearch(query);
+    // Assert.
+    assertThat(documents).isEmpty();
+    Mockito.verify(statement).execute("SET LOCAL hnsw.ef_search = 100");
+    Mockito.verify(statement).execute("SET LOCAL ivfflat.probes = 10");
+  }
+
+  @Test
+  void testSimilaritySearchPushesFilterIntoNearestNeighbourQuery() throws SQLException {
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(false);
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder()
+            .setTopK(5L)
+            .setQuery(Arrays.asList(1.0, 1.0, 1.0))
+            .setFilter(new HashMap<>(ImmutableMap.of("source", "a")))
+            .setMetadataConditions(Arrays.asList(MetadataCondition.gte("year", 2020)))
+            .build();
+
+    // Act.
+    pgVectorStore.similaritySearch(query);
+    // Assert.
+    ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(connection).prepareStatement(sqlCaptor.capture());
+    String sql = sqlCaptor.getValue();
+    assertThat(sql)
+        .contains(
+            "FROM test_embeddings WHERE EXISTS (SELECT 1 FROM test_embeddings_metadata "
+                + "WHERE test_embeddings_metadata.vector_id = test_embeddings.id "
+                + "AND key = ? AND value = ?) AND EXISTS");
+    assertThat(sql).contains("THEN CAST(value AS double precision) END >= ?) ORDER BY embedding");
+    Mockito.verify(preparedStatement).setObject(2, "source");
+    Mockito.verify(preparedStatement).setObject(3, "a");
+    Mockito.verify(preparedStatement).setObject(4, "year");
+    Mockito.verify(preparedStatement).setObject(5, 2020.0);
+    Mockito.verify(preparedStatement)
+        .setObject(ArgumentMatchers.eq(6), ArgumentMatchers.any(PGvector.class));
+  }
+
+  @Test
+  void testSimilaritySearchWithJsonbMetadataFiltersByContainment() throws SQLException {
+    pgVectorStore = createJsonbStore();
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(false);
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder()
+            .setTopK(5L)
+            .setQuery(Arrays.asList(1.0, 1.0, 1.0))
+            .setMetadataConditions(
+                Arrays.asList(MetadataCondition.in("source", Arrays.asList("a", "b"))))
+            .build();
+
+    // Act.
+    pgVectorStore.similaritySearch(query);
+    // Assert.
+    ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(connection).prepareStatement(sqlCaptor.capture());
+    assertThat(sqlCaptor.getValue())
+        .contains(
+            "FROM test_embeddings WHERE (metadata @> ?::jsonb OR metadata @> ?::jsonb) "
+                + "ORDER BY embedding <=> ? LIMIT 5");
+    Mockito.verify(preparedStatement).setObject(2, "{\"source\":\"a\"}");
+    Mockito.verify(preparedStatement).setObject(3, "{\"source\":\"b\"}");
+  }
+
+  @Test
+  void testSimilaritySearchBatchJoinsQueriesLaterally() throws SQLException {
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(resultSet.getInt(1)).thenReturn(1, 0);
+    when(resultSet.getString(2)).thenReturn("id-1", "id-0");
+    when(resultSet.getDouble(3)).thenReturn(0.25, 0.5);
+    when(resultSet.getString(4)).thenReturn(textKey);
+    when(resultSet.getString(5)).thenReturn("content 1", "content 0");
+    List<SimilaritySearchQuery> queries =
+        Arrays.asList(
+            SimilaritySearchQuery.builder()
+                .setTopK(2L)
+                .setQuery(Arrays.asList(1.0, 1.0, 1.0))
+                .build(),
+            SimilaritySearchQuery.builder()
+                .setTopK(3L)
+                .setQuery(Arrays.asList(1.0, 0.0, 0.0))
+                .build());
+
+    // Act.
+    List<List<DomainDocument>> results = pgVectorStore.similaritySearchBatch(queries);
+    // Assert.
+    assertThat(results).hasSize(2);
+    assertThat(results.get(0).get(0).getId().orElse(null)).isEqualTo("id-0");
+    assertThat(results.get(0).get(0).getPageContent()).isEqualTo("content 0");
+    assertThat(results.get(1).get(0).getPageContent()).isEqualTo("content 1");
+    assertThat(results.get(1).get(0).getSimilarityScore().orElse(-1.0)).isEqualTo(0.75);
+    ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(connection).prepareStatement(sqlCaptor.capture());
+    assertThat(sqlCaptor.getValue())
+        .contains(
+            "FROM (VALUES (0, ?::vector, 2), (1, ?::vector, 3)) "
+                + "AS queries (ordinal, query_vector, k) CROSS JOIN LATERAL (SELECT id, "
+                + "embedding <=> queries.query_vector AS distance FROM test_embeddings "
+                + "ORDER BY embedding <=> queries.query_vector LIMIT queries.k) AS nearest");
+    Mockito.verify(preparedStatement)
+        .setObject(ArgumentMatchers.eq(1), ArgumentMatchers.any(PGvector.class));
+    Mockito.verify(preparedStatement)
+        .setObject(ArgumentMatchers.eq(2), ArgumentMatchers.any(PGvector.class));
+  }
+
+  @Test
+  void testSimilaritySearchBatchRunsOneStatementPerFilter() throws SQLException {
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(false);
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder().setTopK(2L).setQuery(Arrays.asList(1.0, 1.0, 1.0)).build();
+    SimilaritySearchQuery filteredQuery =
+        query.toBuilder().setFilter(new HashMap<>(ImmutableMap.of("source", "a"))).build();
+
+    // Act.
+    List<List<DomainDocument>> results =
+        pgVectorStore.similaritySearchBatch(Arrays.asList(query, filteredQuery, query));
+    // Assert.
+    assertThat(results).hasSize(3);
+    ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(connection, Mockito.times(2)).prepareStatement(sqlCaptor.capture());
+    assertThat(sqlCaptor.getAllValues().get(0)).contains("(0, ?::vector, 2), (1, ?::vector, 2)");
+    assertThat(sqlCaptor.getAllValues().get(1)).contains("WHERE EXISTS");
+    Mockito.verify(preparedStatement).setObject(2, "source");
+  }
+
+  @Test
+  void testSimilaritySearchBatchResetsSearchParametersBetweenGroups() throws SQLException {
+    Statement statement = Mockito.mock(Statement.class);
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(connection.createStatement()).thenReturn(statement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(false);
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder().setTopK(2L).setQuery(Arrays.asList(1.0, 1.0, 1.0)).build();
+
+    // Act.
+    List<List<DomainDocument>> results =
+        pgVectorStore.similaritySearchBatch(
+            Arrays.asList(
+                query.toBuilder().setEfSearch(100).build(),
+                query.toBuilder().setProbes(10).build()));
+    // Assert.
+    assertThat(results).hasSize(2);
+    Mockito.verify(pgVectorService).executeInTransaction(ArgumentMatchers.any());
+    InOrder inOrder = Mockito.inOrder(statement);
+    inOrder.verify(statement).execute("SET LOCAL hnsw.ef_search = 100");
+    inOrder.verify(statement).execute("SET LOCAL ivfflat.probes TO DEFAULT");
+    inOrder.verify(statement).execute("SET LOCAL hnsw.ef_search TO DEFAULT");
+    inOrder.verify(statement).execute("SET LOCAL ivfflat.probes = 10");
+  }
+
+  @Test
+  void testCreateIndex() throws SQLException {
+    pgVectorStore =
+        new PGVectorStore(
+            embeddingProcessor,
+            pgVectorStoreSpec.toBuilder()
+                .setIndexSpec(PGVectorIndexSpec.builder().setType(PGVectorIndexType.HNSW).build())
+                .build(),
+            pgVectorService,
+            DistanceStrategies.cosine());
+
+    // Act.
+    boolean isSuccess = pgVectorStore.createIndex();
+    // Assert.
+    assertThat(isSuccess).isTrue();
+    Mockito.verify(pgVectorService)
+        .executeUpdate(
+            "CREATE INDEX IF NOT EXISTS test_embeddings_embedding_idx ON test_embeddings "
+                + "USING hnsw (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64)");
+  }
+
+  @Test
+  void testCreateIndexWithBinaryQuantizationIndexesBits() throws SQLException {
+    pgVectorStore =
+        new PGVectorStore(
+            embeddingProcessor,
+            pgVectorStoreSpec.toBuilder()
+                .setIndexSpec(PGVectorIndexSpec.builder().setType(PGVectorIndexType.HNSW).build())
+                .setQuantization(VectorQuantization.BINARY)
+                .build(),
+            pgVectorService,
+            DistanceStrategies.cosine());
+
+    // Act.
+    boolean isSuccess = pgVectorStore.createIndex();
+    // Assert.
+    assertThat(isSuccess).isTrue();
+    Mockito.verify(pgVectorService)
+        .executeUpdate(
+            "CREATE INDEX IF NOT EXISTS test_embeddings_embedding_idx ON test_embeddings "
+                + "USING hnsw ((binary_quantize(embedding)::bit(3)) bit_hamming_ops) "
+                + "WITH (m = 16, ef_construction = 64)");
+  }
+
+  @Test
+  void testSimilaritySearchWithBinaryQuantizationRescoresCandidates() throws SQLException {
+    pgVectorStore =
+        new PGVectorStore(
+            embeddingProcessor,
+            pgVectorStoreSpec.toBuilder()
+                .setMetadataLayout(PGVectorMetadataLayout.JSONB)
+                .setQuantization(VectorQuantization.BINARY)
+                .build(),
+            pgVectorService,
+            DistanceStrategies.cosine());
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(false);
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder()
+            .setTopK(5L)
+            .setQuery(Arrays.asList(1.0, 1.0, 1.0))
+            .setFilter(new HashMap<>(ImmutableMap.of("source", "a")))
+            .build();
+
+    // Act.
+    pgVectorStore.similaritySearch(query);
+    // Assert.
+    ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(connection).prepareStatement(sqlCaptor.capture());
+    assertThat(sqlCaptor.getValue())
+        .isEqualTo(
+            "SELECT id, embedding <=> ? AS distance, metadata::text FROM "
+                + "(SELECT id, embedding, metadata FROM test_embeddings "
+                + "WHERE (metadata @> ?::jsonb) "
+                + "ORDER BY binary_quantize(embedding)::bit(3) <~> binary_quantize(?::vector) "
+                + "LIMIT 20) AS candidates ORDER BY distance, id LIMIT 5");
+    Mockito.verify(preparedStatement)
+        .setObject(ArgumentMatchers.eq(1), ArgumentMatchers.any(PGvector.class));
+    Mockito.verify(preparedStatement).setObject(2, "{\"source\":\"a\"}");
+    Mockito.verify(preparedStatement)
+        .setObject(ArgumentMatchers.eq(3), ArgumentMatchers.any(PGvector.class));
+  }
+
+  @Test
+  void testInt8QuantizationIsRejected() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new PGVectorStore(
+                embeddingProcessor,
+                pgVectorStoreSpec.toBuilder().setQuantization(VectorQuantization.INT8).build(),
+                pgVectorService,
+                DistanceStrategies.cosine()));
+  }
+
+  @Test
+  void testRescoreFactorBelowOneIsRejected() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new PGVectorStore(
+                embeddingProcessor,
+                pgVectorStoreSpec.toBuilder().setRescoreFactor(0).build(),
+                pgVectorService,
+                DistanceStrategies.cosine()));
+  }
+
   @Test
   void testUpdateDocuments() throws SQLException {
-    EmbeddingOutput embeddingOutput = EmbeddingOutput.of(EmbeddingType.OPEN_AI, getEmbeddings());
-    when(embeddingProcessor.run(ArgumentMatchers.any())).thenReturn(embeddingOutput);
-    when(pgVectorService.prepareStatement(ArgumentMatchers.any())).thenReturn(preparedStatement);
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
     when(preparedStatement.executeUpdate()).thenReturn(DOCUMENT_COUNT, DOCUMENT_COUNT);
 
     // Act.
@@ -168,6 +505,139 @@ final class PGVectorStoreTest {
     assertThat(isSuccess).isTrue();
   }
 
+  @Test
+  void testAddDocumentsWithJsonbMetadataUsesSingleStatement() throws SQLException {
+    pgVectorStore = createJsonbStore();
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
+    when(preparedStatement.executeUpdate()).thenReturn(DOCUMENT_COUNT);
+
+    // Act.
+    boolean isSuccessful = pgVectorStore.addDocuments(getDocuments());
+    // Assert.
+    assertThat(isSuccessful).isTrue();
+    ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(connection).prepareStatement(sqlCaptor.capture());
+    assertThat(sqlCaptor.getValue())
+        .startsWith(
+            "INSERT INTO test_embeddings (id, embedding, metadata) VALUES (?, ?, ?::jsonb)");
+    Mockito.verify(preparedStatement).setString(3, "{\"key\":\"val\"}");
+    Mockito.verify(pgVectorService)
+        .executeUpdate(
+            "CREATE INDEX IF NOT EXISTS test_embeddings_metadata_idx ON test_embeddings "
+                + "USING gin (metadata jsonb_path_ops)");
+  }
+
+  @Test
+  void testSimilaritySearchWithJsonbMetadataReadsOneRowPerHit() throws SQLException {
+    pgVectorStore = createJsonbStore();
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(resultSet.getString(1)).thenReturn("id-0", "id-1");
+    when(resultSet.getDouble(2)).thenReturn(0.0, 0.5);
+    when(resultSet.getString(3))
+        .thenReturn(
+            "{\"" + textKey + "\": \"content 0\", \"source\": \"a\"}",
+            "{\"" + textKey + "\": \"content 1\", \"source\": \"b\"}");
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder().setTopK(2L).setQuery(Arrays.asList(1.0, 1.0, 1.0)).build();
+
+    // Act.
+    List<DomainDocument> documents = pgVectorStore.similaritySearch(query);
+    // Assert.
+    assertThat(documents).hasSize(2);
+    assertThat(documents.get(0).getId().orElse(null)).isEqualTo("id-0");
+    assertThat(documents.get(0).getPageContent()).isEqualTo("content 0");
+    assertThat(documents.get(0).getSimilarityScore().orElse(-1.0)).isEqualTo(1.0);
+    assertThat(documents.get(1).getPageContent()).isEqualTo("content 1");
+    assertThat(documents.get(1).getMetadata().get().getValue()).containsEntry("source", "b");
+    ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(connection).prepareStatement(sqlCaptor.capture());
+    assertThat(sqlCaptor.getValue()).doesNotContain("JOIN");
+  }
+
+  @Test
+  void testUpdateDocumentsUpdatesEmbeddingColumn() throws SQLException {
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
+    when(preparedStatement.executeUpdate()).thenReturn(DOCUMENT_COUNT, DOCUMENT_COUNT);
+
+    // Act.
+    pgVectorStore.updateDocuments(getDocuments());
+    // Assert.
+    ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(connection, Mockito.times(2)).prepareStatement(sqlCaptor.capture());
+    assertThat(sqlCaptor.getAllValues().get(0))
+        .contains("SET embedding = updated.embedding FROM updated");
+    Mockito.verify(preparedStatement, Mockito.times(2)).executeUpdate();
+  }
+
+  @Test
+  void testUpsertDocuments() throws SQLException {
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
+    when(preparedStatement.executeUpdate()).thenReturn(DOCUMENT_COUNT);
+
+    // Act.
+    boolean isSuccess = pgVectorStore.upsertDocuments(getDocuments());
+    // Assert.
+    assertThat(isSuccess).isTrue();
+    ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(connection, Mockito.times(3)).prepareStatement(sqlCaptor.capture());
+    assertThat(sqlCaptor.getAllValues())
+        .containsExactly(
+            "INSERT INTO test_embeddings (id, embedding) VALUES (?, ?), (?, ?), (?, ?) "
+                + "ON CONFLICT (id) DO UPDATE SET embedding = EXCLUDED.embedding",
+            "DELETE FROM test_embeddings_metadata WHERE vector_id IN (?, ?, ?)",
+            "INSERT INTO test_embeddings_metadata (id, key, value, vector_id) VALUES "
+                + "(?, ?, ?, ?), (?, ?, ?, ?), (?, ?, ?, ?)")
+        .inOrder();
+  }
+
+  @Test
+  void testUpsertDocumentsKeepsLastDocumentPerIdAndBatches() throws SQLException {
+    pgVectorStore =
+        new PGVectorStore(
+            embeddingProcessor,
+            pgVectorStoreSpec.toBuilder()
+                .setMetadataLayout(PGVectorMetadataLayout.JSONB)
+                .setUpsertBatchSize(2)
+                .build(),
+            pgVectorService,
+            DistanceStrategies.cosine());
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
+    when(preparedStatement.executeUpdate()).thenReturn(2, 1);
+    List<DomainDocument> documents = getDocuments();
+    documents.add(documents.get(0).toBuilder().setPageContent("changed").build());
+
+    // Act.
+    boolean isSuccess = pgVectorStore.upsertDocuments(documents);
+    // Assert.
+    assertThat(isSuccess).isTrue();
+    ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(connection, Mockito.times(2)).prepareStatement(sqlCaptor.capture());
+    assertThat(sqlCaptor.getAllValues().get(0))
+        .isEqualTo(
+            "INSERT INTO test_embeddings (id, embedding, metadata) VALUES "
+                + "(?, ?, ?::jsonb), (?, ?, ?::jsonb) ON CONFLICT (id) DO UPDATE SET "
+                + "embedding = EXCLUDED.embedding, metadata = EXCLUDED.metadata");
+    Mockito.verify(pgVectorService).executeInTransaction(ArgumentMatchers.any());
+  }
+
+  @Test
+  void testUpsertDocumentsFailsWhenBatchIsIncomplete() throws SQLException {
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
+    when(preparedStatement.executeUpdate()).thenReturn(DOCUMENT_COUNT - 1);
+
+    // Act.
+    boolean isSuccess = pgVectorStore.upsertDocuments(getDocuments());
+    // Assert.
+    assertThat(isSuccess).isFalse();
+  }
+
   @Test
   void testDeleteDocuments() throws SQLException {
     List<DomainDocument> documents = getDocuments();
@@ -180,6 +650,156 @@ final class PGVectorStoreTest {
     assertThat(isSuccess).isTrue();
   }
 
+  @Test
+  void testDeleteDocumentsAsyncRunsOnTheStoreExecutor() throws Exception {
+    List<String> threadNames = new ArrayList<>();
+    Mockito.when(pgVectorService.executeUpdate(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              threadNames.add(Thread.currentThread().getName());
+              return DOCUMENT_COUNT;
+            });
+
+    // Act.
+    boolean isSuccess = pgVectorStore.deleteDocumentsAsync(getDocuments()).get();
+    // Assert.
+    assertThat(isSuccess).isTrue();
+    assertThat(threadNames).hasSize(1);
+    assertThat(threadNames.get(0)).startsWith("pgvector-store-");
+  }
+
+  @Test
+  void testBulkAddDocumentsCopiesInChunks() throws SQLException {
+    PGConnection pgConnection = Mockito.mock(PGConnection.class);
+    CopyManager copyManager = Mockito.mock(CopyManager.class);
+    CopyIn copyIn = Mockito.mock(CopyIn.class);
+    when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+    when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+    when(copyManager.copyIn(ArgumentMatchers.anyString())).thenReturn(copyIn);
+    // Every chunk copies its embeddings and then its metadata, only the embeddings are counted.
+    lenient().when(copyIn.endCopy()).thenReturn(2L, 2L, 2L, 2L, 1L, 1L);
+    lenient().when(copyIn.getHandledRowCount()).thenReturn(2L, 2L, 2L, 2L, 1L, 1L);
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
+    pgVectorStore =
+        new PGVectorStore(
+            embeddingProcessor,
+            pgVectorStoreSpec.toBuilder().setCopyChunkSize(2).build(),
+            pgVectorService,
+            DistanceStrategies.cosine());
+    List<DomainDocument> documents = new ArrayList<>(getDocuments());
+    documents.addAll(getDocuments().subList(0, 2));
+
+    // Act.
+    long rowCount = pgVectorStore.bulkAddDocuments(documents);
+    // Assert.
+    ArgumentCaptor<String> copyQueries = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(copyManager, Mockito.times(6)).copyIn(copyQueries.capture());
+    Mockito.verify(pgVectorService).executeInTransaction(ArgumentMatchers.any());
+    assertThat(rowCount).isEqualTo(5);
+    for (int i = 0; i < copyQueries.getAllValues().size(); i += 2) {
+      assertThat(copyQueries.getAllValues().get(i)).contains("(id, embedding)");
+      assertThat(copyQueries.getAllValues().get(i + 1)).contains("(id, key, value, vector_id)");
+    }
+  }
+
+  @Test
+  void testBulkAddDocumentsWithoutDocumentsDoesNotCopy() {
+    // Act.
+    long rowCount = pgVectorStore.bulkAddDocuments(new ArrayList<>());
+    // Assert.
+    assertThat(rowCount).isEqualTo(0);
+    Mockito.verifyNoInteractions(pgVectorService);
+  }
+
+  @Test
+  void testExportDocumentsGroupsMetadataRowsById() throws Exception {
+    Statement statement = Mockito.mock(Statement.class);
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(ArgumentMatchers.anyString())).thenReturn(resultSet);
+    // Document a has two metadata rows, document b none.
+    when(resultSet.next()).thenReturn(true, true, true, false);
+    when(resultSet.getString(1)).thenReturn("a", "a", "b");
+    when(resultSet.getObject(2))
+        .thenReturn(new PGvector(new float[] {1, 2, 3}), new PGvector(new float[] {4, 5, 6}));
+    when(resultSet.getString(3)).thenReturn(textKey, "lang", null);
+    when(resultSet.getString(4)).thenReturn("content a", "en");
+
+    // Act.
+    List<VectorRecord> vectorRecords = readCollection(exportCollection(pgVectorStore));
+    // Assert.
+    Mockito.verify(statement).setFetchSize(pgVectorStoreSpec.getCopyChunkSize());
+    assertThat(vectorRecords).hasSize(2);
+    DomainDocument first = vectorRecords.get(0).getDocument();
+    assertThat(first.getId().get()).isEqualTo("a");
+    assertThat(first.getPageContent()).isEqualTo("content a");
+    assertThat(first.getMetadata().get().getValue())
+        .containsExactly(textKey, "content a", "lang", "en");
+    assertThat(vectorRecords.get(0).getVector()).isEqualTo(new float[] {1, 2, 3});
+    DomainDocument second = vectorRecords.get(1).getDocument();
+    assertThat(second.getId().get()).isEqualTo("b");
+    assertThat(second.getPageContent()).isEmpty();
+    assertThat(second.getMetadata().get().getValue()).isEmpty();
+    assertThat(vectorRecords.get(1).getVector()).isEqualTo(new float[] {4, 5, 6});
+  }
+
+  @Test
+  void testExportDocumentsWithJsonbMetadataReadsOneRowPerDocument() throws Exception {
+    pgVectorStore = createJsonbStore();
+    Statement statement = Mockito.mock(Statement.class);
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(ArgumentMatchers.anyString())).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, false);
+    when(resultSet.getString(1)).thenReturn("a");
+    when(resultSet.getObject(2)).thenReturn(new PGvector(new float[] {1, 2, 3}));
+    when(resultSet.getString(3)).thenReturn("{\"text_key\": \"content a\", \"lang\": \"en\"}");
+
+    // Act.
+    List<VectorRecord> vectorRecords = readCollection(exportCollection(pgVectorStore));
+    // Assert.
+    assertThat(vectorRecords).hasSize(1);
+    assertThat(vectorRecords.get(0).getDocument().getPageContent()).isEqualTo("content a");
+    assertThat(vectorRecords.get(0).getDocument().getMetadata().get().getValue())
+        .containsExactly(textKey, "content a", "lang", "en");
+  }
+
+  @Test
+  void testImportDocumentsCopiesChunksInOneTransaction() throws Exception {
+    PGConnection pgConnection = Mockito.mock(PGConnection.class);
+    CopyManager copyManager = Mockito.mock(CopyManager.class);
+    CopyIn copyIn = Mockito.mock(CopyIn.class);
+    when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+    when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+    when(copyManager.copyIn(ArgumentMatchers.anyString())).thenReturn(copyIn);
+    lenient().when(copyIn.endCopy()).thenReturn(2L, 2L, 1L, 1L);
+    lenient().when(copyIn.getHandledRowCount()).thenReturn(2L, 2L, 1L, 1L);
+    byte[] collection =
+        writeCollection(
+            Arrays.asList(
+                vectorRecord("a", "content a", ImmutableMap.of(), 1, 2, 3),
+                vectorRecord("b", "content b", ImmutableMap.of("lang", "en"), 4, 5, 6),
+                vectorRecord("c", "content c", ImmutableMap.of(), 7, 8, 9)),
+            2);
+
+    // Act.
+    long rowCount = pgVectorStore.importDocuments(openCollection(collection));
+    // Assert.
+    assertThat(rowCount).isEqualTo(3);
+    Mockito.verify(pgVectorService).executeInTransaction(ArgumentMatchers.any());
+    Mockito.verify(copyManager, Mockito.times(4)).copyIn(ArgumentMatchers.anyString());
+    Mockito.verifyNoInteractions(embeddingProcessor);
+  }
+
+  private PGVectorStore createJsonbStore() throws SQLException {
+    return new PGVectorStore(
+        embeddingProcessor,
+        pgVectorStoreSpec.toBuilder().setMetadataLayout(PGVectorMetadataLayout.JSONB).build(),
+        pgVectorService,
+        DistanceStrategies.cosine());
+  }
+
   private List<DomainDocument> getDocuments() {
     ArrayList<DomainDocument> documents = new ArrayList<>();
     for (int i = 0; i < DOCUMENT_COUNT; i++) {
@@ -194,32 +814,29 @@ final class PGVectorStoreTest {
     return documents;
   }
 
-  private List<Embedding> getEmbeddings() {
+  private ListenableFuture<EmbeddingOutput> embed(EmbeddingInput embeddingInput) {
     ArrayList<Embedding> embeddings = new ArrayList<>();
-    embeddings.add(Embedding.of(Arrays.asList(0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8)));
-    return embeddings;
+    for (int i = 0; i < embeddingInput.getInput().size(); i++) {
+      embeddings.add(Embedding.of(Arrays.asList(0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8)));
+    }
+    return Futures.immediateFuture(EmbeddingOutput.of(EmbeddingType.OPEN_AI, embeddings));
   }
 
-  private Triple<String, String, SimilaritySearchQuery> prepareSimilaritySearchQuery()
-      throws SQLException {
+  private Triple<String, String, SimilaritySearchQuery> prepareSimilaritySearchQuery(
+      double firstDistance, double secondDistance, double thirdDistance) throws SQLException {
     String firstPageContent = "content 0";
     String secondPageContent = "content 1";
     ResultSet resultSet = Mockito.mock(ResultSet.class);
-    when(pgVectorService.prepareStatement(ArgumentMatchers.any())).thenReturn(preparedStatement);
     when(preparedStatement.executeQuery()).thenReturn(resultSet);
     when(resultSet.next()).thenReturn(true, true, true, false);
-    when(resultSet.getObject(1))
+    when(resultSet.getString(1))
         .thenReturn(
             UUID.randomUUID().toString(),
             UUID.randomUUID().toString(),
             UUID.randomUUID().toString());
-    when(resultSet.getObject(2))
-        .thenReturn(
-            new PGvector(new float[] {TOP_VECTOR_VALUE, TOP_VECTOR_VALUE, TOP_VECTOR_VALUE}),
-            new PGvector(new float[] {2.1f, 2.2f, 2.3f}),
-            new PGvector(new float[] {-3, -3, -3}));
-    when(resultSet.getObject(3)).thenReturn(textKey);
-    when(resultSet.getObject(4)).thenReturn(firstPageContent, secondPageContent);
+    when(resultSet.getDouble(2)).thenReturn(firstDistance, secondDistance, thirdDistance);
+    when(resultSet.getString(3)).thenReturn(textKey);
+    when(resultSet.getString(4)).thenReturn(firstPageContent, secondPageContent);
     double v = TOP_VECTOR_VALUE;
     SimilaritySearchQuery query =
         SimilaritySearchQuery.builder().setTopK(0L).setQuery(Arrays.asList(v, v, v)).build();
@@ -0,0 +1,65 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+final class DistanceStrategyTest {
+
+  private static final float[] QUERY = {1, 2, 3};
+  // Three rows after a one component offset, the last one a zero vector.
+  private static final float[] ROWS = {9, 2, 0, 1, -1, 4, 2, 0, 0, 0};
+
+  @Test
+  void testCalculateDistancesMatchesSingleDistances() {
+    for (DistanceStrategy distanceStrategy :
+        ImmutableList.of(
+            DistanceStrategies.cosine(),
+            DistanceStrategies.euclidean(),
+            DistanceStrategies.innerProduct())) {
+      double[] distances = new double[3];
+
+      // Act.
+      distanceStrategy.calculateDistances(QUERY, ROWS, 1, 3, distances);
+      // Assert.
+      for (int row = 0; row < 3; row++) {
+        assertThat(distances[row])
+            .isWithin(1e-6)
+            .of(distanceStrategy.calculateDistance(QUERY, ROWS, 1 + row * 3));
+      }
+    }
+  }
+
+  @Test
+  void testCosineCalculateDistancesWithPrecomputedNorms() {
+    CosineDistanceStrategy cosine = (CosineDistanceStrategy) DistanceStrategies.cosine();
+    float[] norms = new float[4];
+    for (int row = 0; row < 3; row++) {
+      norms[row + 1] = VectorKernels.norm(ROWS, 1 + row * 3, 3);
+    }
+    double[] distances = new double[3];
+
+    // Act.
+    cosine.calculateDistances(QUERY, ROWS, 1, norms, 1, 3, distances);
+    // Assert.
+    assertThat(distances[0])
+        .isWithin(1e-6)
+        .of(cosine.calculateDistance(new double[] {1, 2, 3}, new double[] {2, 0, 1}));
+    assertThat(distances[1])
+        .isWithin(1e-6)
+        .of(cosine.calculateDistance(new double[] {1, 2, 3}, new double[] {-1, 4, 2}));
+    assertThat(distances[2]).isEqualTo(0.0);
+  }
+
+  @Test
+  void testCalculateDistanceOfFloatArrays() {
+    // Act & Assert.
+    assertThat(DistanceStrategies.euclidean().calculateDistance(QUERY, new float[] {1, 2, 7}))
+        .isEqualTo(4.0);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> DistanceStrategies.euclidean().calculateDistance(QUERY, new float[] {1, 2}));
+  }
+}
@@ -0,0 +1,63 @@
+package ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+final class VectorKernelsTest {
+
+  // Five components, so both the unrolled loop and the remainder are exercised.
+  private static final float[] VECTOR = {1, 2, 3, 4, 5};
+  private static final float[] BLOCK = {9, 9, 2, 0, 1, 1, 2};
+
+  @Test
+  void testDotReadsAtOffset() {
+    assertThat(VectorKernels.dot(VECTOR, 0, BLOCK, 2, 5)).isEqualTo(2f + 0 + 3 + 4 + 10);
+  }
+
+  @Test
+  void testSquaredEuclideanReadsAtOffset() {
+    assertThat(VectorKernels.squaredEuclidean(VECTOR, 0, BLOCK, 2, 5))
+        .isEqualTo(1f + 4 + 4 + 9 + 9);
+  }
+
+  @Test
+  void testNormReadsAtOffset() {
+    assertThat(VectorKernels.norm(BLOCK, 2, 5)).isEqualTo((float) Math.sqrt(4 + 0 + 1 + 1 + 4));
+  }
+
+  @Test
+  void testCosineMatchesDoubleStrategy() {
+    double expected =
+        DistanceStrategies.cosine()
+            .calculateDistance(new double[] {1, 2, 3, 4, 5}, new double[] {2, 0, 1, 1, 2});
+
+    // Act.
+    float cosine = VectorKernels.cosine(VECTOR, 0, BLOCK, 2, 5);
+    // Assert.
+    assertThat((double) cosine).isWithin(1e-6).of(expected);
+    assertThat(VectorKernels.cosine(VECTOR, 0, new float[5], 0, 5)).isEqualTo(0f);
+  }
+
+  @Test
+  void testDotUnsignedReadsBytesAsUnsigned() {
+    byte[] a = {(byte) 255, 1, 2, 3, 4};
+    byte[] b = {7, (byte) 200, 2, 1, 1, 1, 1};
+
+    // Act.
+    int dot = VectorKernels.dotUnsigned(a, 0, b, 1, 5);
+    // Assert.
+    assertThat(dot).isEqualTo(255 * 200 + 2 + 2 + 3 + 4);
+  }
+
+  @Test
+  void testHammingCountsDifferingBits() {
+    long[] a = {0b1011L, -1L};
+    long[] b = {0L, 0b0001L, 0L};
+
+    // Act.
+    int distance = VectorKernels.hamming(a, 0, b, 1, 2);
+    // Assert.
+    assertThat(distance).isEqualTo(2 + 64);
+  }
+}
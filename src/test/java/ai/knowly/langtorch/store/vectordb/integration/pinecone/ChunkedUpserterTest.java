@@ -0,0 +1,164 @@
+package ai.knowly.langtorch.store.vectordb.integration.pinecone;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.when;
+
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.Vector;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.upsert.UpsertRequest;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.upsert.UpsertResponse;
+import ai.knowly.langtorch.utils.future.InFlightLimiter;
+import ai.knowly.langtorch.utils.future.retry.RetryConfig;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+final class ChunkedUpserterTest {
+  private static final RetryConfig RETRY_CONFIG =
+      RetryConfig.builder().setMaxRetries(2).setRetryIntervalMillis(1).build();
+
+  private PineconeAPI pineconeApi;
+  private PineconeService pineconeService;
+  private List<UpsertRequest> requests;
+
+  @BeforeEach
+  void setUp() {
+    pineconeApi = Mockito.mock(PineconeAPI.class);
+    pineconeService = PineconeService.create(pineconeApi);
+    requests = Collections.synchronizedList(new ArrayList<>());
+    when(pineconeApi.upsert(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              UpsertRequest request = invocation.getArgument(0);
+              requests.add(request);
+              return Futures.immediateFuture(new UpsertResponse(request.getVectors().size()));
+            });
+  }
+
+  @Test
+  void testChunksByVectorCount() throws Exception {
+    ChunkedUpserter upserter = newUpserter(100, 2_000_000);
+
+    // Act.
+    long upsertedCount = upserter.upsert(vectors(250, 4)).get();
+
+    // Assert.
+    assertThat(upsertedCount).isEqualTo(250);
+    assertThat(requests.stream().map(request -> request.getVectors().size()))
+        .containsExactly(100, 100, 50);
+    assertThat(requests.get(0).getNamespace()).isEqualTo("namespace");
+  }
+
+  @Test
+  void testChunksBySerializedSize() throws Exception {
+    long maxBytes = 20_000;
+    ChunkedUpserter upserter = newUpserter(1000, maxBytes);
+    List<Vector> vectors = vectors(200, 64);
+
+    // Act.
+    long upsertedCount = upserter.upsert(vectors).get();
+
+    // Assert.
+    assertThat(upsertedCount).isEqualTo(200);
+    assertThat(requests.size()).isGreaterThan(1);
+    List<String> sentIds = new ArrayList<>();
+    for (UpsertRequest request : requests) {
+      assertThat((long) serializedSize(request)).isAtMost(maxBytes);
+      request.getVectors().forEach(vector -> sentIds.add(vector.getId()));
+    }
+    assertThat(sentIds)
+        .containsExactlyElementsIn(
+            vectors.stream().map(Vector::getId).collect(Collectors.toList()))
+        .inOrder();
+  }
+
+  @Test
+  void testRetriesFailedChunksOnTheirOwn() throws Exception {
+    Set<String> failedOnce = Collections.synchronizedSet(new HashSet<>());
+    when(pineconeApi.upsert(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              UpsertRequest request = invocation.getArgument(0);
+              requests.add(request);
+              String firstId = request.getVectors().get(0).getId();
+              if (firstId.equals("vector-10") && failedOnce.add(firstId)) {
+                return Futures.immediateFailedFuture(new IOException("connection reset"));
+              }
+              if (firstId.equals("vector-20") && failedOnce.add(firstId)) {
+                return Futures.immediateFuture(new UpsertResponse(3));
+              }
+              return Futures.immediateFuture(new UpsertResponse(request.getVectors().size()));
+            });
+    ChunkedUpserter upserter = newUpserter(10, 2_000_000);
+
+    // Act.
+    long upsertedCount = upserter.upsert(vectors(30, 4)).get();
+
+    // Assert.
+    assertThat(upsertedCount).isEqualTo(30);
+    assertThat(requests).hasSize(5);
+  }
+
+  @Test
+  void testChunksFailingAllRetriesAreLeftOutOfTheCount() throws Exception {
+    when(pineconeApi.upsert(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              UpsertRequest request = invocation.getArgument(0);
+              requests.add(request);
+              if (request.getVectors().get(0).getId().equals("vector-0")) {
+                return Futures.immediateFailedFuture(new IOException("unavailable"));
+              }
+              return Futures.immediateFuture(new UpsertResponse(request.getVectors().size()));
+            });
+    ChunkedUpserter upserter = newUpserter(10, 2_000_000);
+
+    // Act.
+    long upsertedCount = upserter.upsert(vectors(25, 4)).get();
+
+    // Assert.
+    assertThat(upsertedCount).isEqualTo(15);
+    // The first chunk is sent once and retried twice.
+    assertThat(requests).hasSize(5);
+  }
+
+  private ChunkedUpserter newUpserter(int maxVectorsPerRequest, long maxRequestBytes) {
+    return new ChunkedUpserter(
+        pineconeService,
+        "namespace",
+        maxVectorsPerRequest,
+        maxRequestBytes,
+        new InFlightLimiter(4),
+        RETRY_CONFIG);
+  }
+
+  private static List<Vector> vectors(int count, int dimensions) {
+    List<Vector> vectors = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      float[] values = new float[dimensions];
+      for (int d = 0; d < dimensions; d++) {
+        values[d] = (i + 1) / (float) (d + 3);
+      }
+      vectors.add(
+          Vector.builder()
+              .setId("vector-" + i)
+              .setValues(values)
+              .setMetadata(ImmutableMap.of("text", "document " + i))
+              .build());
+    }
+    return vectors;
+  }
+
+  private static int serializedSize(UpsertRequest request) throws IOException {
+    return PineconeService.defaultObjectMapper().writeValueAsBytes(request).length;
+  }
+}
@@ -28,7 +28,7 @@ final class DeleteTest {
                 Arrays.asList(
                     Vector.builder()
                         .setId("test2")
-                        .setValues(Arrays.asList(0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8))
+                        .setValues(new float[] {0.1f, 0.2f, 0.3f, 0.4f, 0.5f, 0.6f, 0.7f, 0.8f})
                         .setMetadata(ImmutableMap.of("key", "val"))
                         .build()))
             .setNamespace("namespace")
@@ -1,29 +1,49 @@
 package ai.knowly.langtorch.store.vectordb.integration.pinecone;
 
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.exportCollection;
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.openCollection;
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.readCollection;
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.vectorRecord;
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.writeCollection;
 import static com.google.common.truth.Truth.assertThat;
 import static java.util.Collections.emptyList;
 
 import ai.knowly.langtorch.processor.EmbeddingProcessor;
 import ai.knowly.langtorch.schema.embeddings.Embedding;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingInput;
 import ai.knowly.langtorch.schema.embeddings.EmbeddingOutput;
 import ai.knowly.langtorch.schema.embeddings.EmbeddingType;
 import ai.knowly.langtorch.schema.io.DomainDocument;
 import ai.knowly.langtorch.schema.io.Metadata;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.PineconeVectorStoreSpec;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.SparseValues;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.Vector;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.delete.DeleteResponse;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.fetch.FetchRequest;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.fetch.FetchResponse;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list.ListItem;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list.ListRequest;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list.ListResponse;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.list.Pagination;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query.Match;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query.QueryRequest;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.query.QueryResponse;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.update.UpdateResponse;
+import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.upsert.UpsertRequest;
 import ai.knowly.langtorch.store.vectordb.integration.pinecone.schema.dto.upsert.UpsertResponse;
+import ai.knowly.langtorch.store.vectordb.integration.schema.MetadataCondition;
 import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.io.IOException;
 import java.util.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -56,10 +76,11 @@ final class PineconeVectorStoreTest {
 
   @Test
   void testAddDocuments() {
-    EmbeddingOutput embeddingOutput = EmbeddingOutput.of(EmbeddingType.OPEN_AI, getEmbeddings());
-    Mockito.when(embeddingProcessor.run(ArgumentMatchers.any())).thenReturn(embeddingOutput);
+    Mockito.when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
     UpsertResponse upsertResponse = new UpsertResponse(DOCUMENT_COUNT);
-    Mockito.when(pineconeService.upsert(ArgumentMatchers.any())).thenReturn(upsertResponse);
+    Mockito.when(pineconeService.upsertAsync(ArgumentMatchers.any()))
+        .thenReturn(Futures.immediateFuture(upsertResponse));
 
     // Act.
     boolean isSuccessful = pineconeVectorStore.addDocuments(getDocuments());
@@ -67,6 +88,20 @@ final class PineconeVectorStoreTest {
     assertThat(isSuccessful).isEqualTo(true);
   }
 
+  @Test
+  void testUpsertDocuments() {
+    Mockito.when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
+    UpsertResponse upsertResponse = new UpsertResponse(DOCUMENT_COUNT);
+    Mockito.when(pineconeService.upsertAsync(ArgumentMatchers.any()))
+        .thenReturn(Futures.immediateFuture(upsertResponse));
+
+    // Act.
+    boolean isSuccessful = pineconeVectorStore.upsertDocuments(getDocuments());
+    // Assert.
+    assertThat(isSuccessful).isTrue();
+  }
+
   @Test
   void testSimilaritySearchVectorWithScore() {
     double score = 0.5;
@@ -77,7 +112,7 @@ final class PineconeVectorStoreTest {
     map.put(textKey, content);
     Match match =
         new Match(
-            UUID.randomUUID().toString(), score, emptyList(), SparseValues.builder().build(), map);
+            UUID.randomUUID().toString(), score, new float[0], SparseValues.builder().build(), map);
     matches.add(match);
 
     QueryResponse queryResponse = new QueryResponse(matches, "");
@@ -105,10 +140,59 @@ final class PineconeVectorStoreTest {
     assertThat(result).isEmpty();
   }
 
+  @Test
+  void testSimilaritySearchBatchSendsQueriesConcurrently() {
+    Map<String, String> metadata = new HashMap<>();
+    metadata.put(textKey, "Content");
+    Match match = new Match("id", 0.5, null, null, metadata);
+    Mockito.when(pineconeService.queryAsync(ArgumentMatchers.any(QueryRequest.class)))
+        .thenReturn(
+            Futures.immediateFuture(new QueryResponse(Arrays.asList(match), "")),
+            Futures.immediateFuture(new QueryResponse(null, "")));
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder().setQuery(Arrays.asList(1.0, 2.0)).setTopK(1L).build();
+
+    // Act.
+    List<List<DomainDocument>> results =
+        pineconeVectorStore.similaritySearchBatch(Arrays.asList(query, query));
+    // Assert.
+    assertThat(results).hasSize(2);
+    assertThat(results.get(0).get(0).getPageContent()).isEqualTo("Content");
+    assertThat(results.get(1)).isEmpty();
+    Mockito.verify(pineconeService, Mockito.times(2))
+        .queryAsync(ArgumentMatchers.any(QueryRequest.class));
+    Mockito.verify(pineconeService, Mockito.never()).query(ArgumentMatchers.any());
+  }
+
+  @Test
+  void testSimilaritySearchTranslatesMetadataConditions() {
+    Mockito.when(pineconeService.query(ArgumentMatchers.any()))
+        .thenReturn(new QueryResponse(null, null));
+    SimilaritySearchQuery query =
+        SimilaritySearchQuery.builder()
+            .setQuery(emptyList())
+            .setTopK(1L)
+            .setFilter(new HashMap<>(ImmutableMap.of("source", "a")))
+            .setMetadataConditions(Arrays.asList(MetadataCondition.gte("year", 2020)))
+            .build();
+
+    // Act.
+    pineconeVectorStore.similaritySearch(query);
+    // Assert.
+    ArgumentCaptor<QueryRequest> requestCaptor = ArgumentCaptor.forClass(QueryRequest.class);
+    Mockito.verify(pineconeService).query(requestCaptor.capture());
+    assertThat(requestCaptor.getValue().getFilter())
+        .containsExactly(
+            "$and",
+            Arrays.asList(
+                ImmutableMap.of("source", ImmutableMap.of("$eq", "a")),
+                ImmutableMap.of("year", ImmutableMap.of("$gte", 2020.0))));
+  }
+
   @Test
   void testUpdateDocuments() {
-    EmbeddingOutput embeddingOutput = EmbeddingOutput.of(EmbeddingType.OPEN_AI, getEmbeddings());
-    Mockito.when(embeddingProcessor.run(ArgumentMatchers.any())).thenReturn(embeddingOutput);
+    Mockito.when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
     ListenableFuture<UpdateResponse> future = Futures.immediateFuture(new UpdateResponse());
     Mockito.when(pineconeService.updateAsync(ArgumentMatchers.any())).thenReturn(future);
 
@@ -118,6 +202,58 @@ final class PineconeVectorStoreTest {
     assertThat(isSuccess).isTrue();
   }
 
+  @Test
+  void testUpdateDocumentsAsyncBoundsInFlightRequests() throws Exception {
+    pineconeVectorStore =
+        new PineconeVectorStore(
+            embeddingProcessor,
+            PineconeVectorStoreSpec.builder().setTextKey(textKey).setMaxInFlightRequests(2).build(),
+            pineconeService);
+    Mockito.when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embed(invocation.getArgument(0)));
+    List<SettableFuture<UpdateResponse>> responses = new ArrayList<>();
+    Mockito.when(pineconeService.updateAsync(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              SettableFuture<UpdateResponse> response = SettableFuture.create();
+              responses.add(response);
+              return response;
+            });
+
+    // Act.
+    ListenableFuture<Boolean> isSuccess = pineconeVectorStore.updateDocumentsAsync(getDocuments());
+    // Assert.
+    assertThat(responses).hasSize(2);
+    responses.get(0).set(new UpdateResponse());
+    assertThat(responses).hasSize(DOCUMENT_COUNT);
+    assertThat(isSuccess.isDone()).isFalse();
+    responses.forEach(response -> response.set(new UpdateResponse()));
+    assertThat(isSuccess.get()).isTrue();
+  }
+
+  @Test
+  void testAddDocumentsAsyncComposesEmbeddingAndUpsert() throws Exception {
+    List<EmbeddingInput> inputs = new ArrayList<>();
+    SettableFuture<EmbeddingOutput> embeddingOutput = SettableFuture.create();
+    Mockito.when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              inputs.add(invocation.getArgument(0));
+              return embeddingOutput;
+            });
+    Mockito.when(pineconeService.upsertAsync(ArgumentMatchers.any()))
+        .thenReturn(Futures.immediateFuture(new UpsertResponse(DOCUMENT_COUNT)));
+
+    // Act.
+    ListenableFuture<Boolean> isSuccessful = pineconeVectorStore.addDocumentsAsync(getDocuments());
+    // Assert.
+    assertThat(isSuccessful.isDone()).isFalse();
+    Mockito.verify(pineconeService, Mockito.never()).upsertAsync(ArgumentMatchers.any());
+    embeddingOutput.setFuture(embed(inputs.get(0)));
+    assertThat(isSuccessful.get()).isTrue();
+    Mockito.verify(pineconeService, Mockito.never()).upsert(ArgumentMatchers.any());
+  }
+
   @Test
   void testDeleteDocuments() {
     Mockito.when(pineconeService.delete(ArgumentMatchers.any())).thenReturn(new DeleteResponse());
@@ -128,6 +264,85 @@ final class PineconeVectorStoreTest {
     assertThat(isSuccess).isTrue();
   }
 
+  @Test
+  void testExportDocumentsFetchesEveryListedPage() throws IOException {
+    Mockito.when(pineconeService.list(ArgumentMatchers.any()))
+        .thenReturn(
+            new ListResponse(
+                Arrays.asList(new ListItem("a"), new ListItem("b")), new Pagination("next"), null));
+    Mockito.when(pineconeService.listAsync(ArgumentMatchers.any()))
+        .thenReturn(
+            Futures.immediateFuture(
+                new ListResponse(Collections.singletonList(new ListItem("c")), null, null)));
+    // Vector b was deleted after it was listed.
+    Map<String, Vector> storedVectors =
+        ImmutableMap.of(
+            "a", vector("a", ImmutableMap.of(textKey, "content a"), 1, 2),
+            "c", vector("c", ImmutableMap.of(textKey, "content c", "lang", "en"), 3, 4));
+    Mockito.when(pineconeService.fetchAsync(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              Map<String, Vector> vectors = new HashMap<>();
+              for (String id : invocation.<FetchRequest>getArgument(0).getIds()) {
+                if (storedVectors.containsKey(id)) {
+                  vectors.put(id, storedVectors.get(id));
+                }
+              }
+              return Futures.immediateFuture(new FetchResponse(vectors, null));
+            });
+
+    // Act.
+    List<VectorRecord> vectorRecords = readCollection(exportCollection(pineconeVectorStore));
+    // Assert.
+    ArgumentCaptor<ListRequest> nextPageRequest = ArgumentCaptor.forClass(ListRequest.class);
+    Mockito.verify(pineconeService).listAsync(nextPageRequest.capture());
+    assertThat(nextPageRequest.getValue().getPaginationToken()).isEqualTo("next");
+    Mockito.verify(pineconeService, Mockito.times(2)).fetchAsync(ArgumentMatchers.any());
+    assertThat(vectorRecords).hasSize(2);
+    assertThat(vectorRecords.get(0).getDocument().getPageContent()).isEqualTo("content a");
+    assertThat(vectorRecords.get(0).getVector()).isEqualTo(new float[] {1, 2});
+    DomainDocument document = vectorRecords.get(1).getDocument();
+    assertThat(document.getId().get()).isEqualTo("c");
+    assertThat(document.getPageContent()).isEqualTo("content c");
+    assertThat(document.getMetadata().get().getValue()).containsEntry("lang", "en");
+  }
+
+  @Test
+  void testImportDocumentsUpsertsVectorsWithoutEmbedding() throws IOException {
+    List<UpsertRequest> requests = Collections.synchronizedList(new ArrayList<>());
+    Mockito.when(pineconeService.upsertAsync(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              UpsertRequest request = invocation.getArgument(0);
+              requests.add(request);
+              return Futures.immediateFuture(new UpsertResponse(request.getVectors().size()));
+            });
+    byte[] collection =
+        writeCollection(
+            Arrays.asList(
+                vectorRecord("a", "content a", ImmutableMap.of("lang", "en"), 1, 2),
+                vectorRecord("b", "content b", ImmutableMap.of(), 3, 4),
+                vectorRecord("c", "content c", ImmutableMap.of(), 5, 6)),
+            2);
+
+    // Act.
+    long upsertedCount = pineconeVectorStore.importDocuments(openCollection(collection));
+    // Assert.
+    assertThat(upsertedCount).isEqualTo(3);
+    List<Vector> vectors = new ArrayList<>();
+    requests.forEach(request -> vectors.addAll(request.getVectors()));
+    assertThat(vectors).hasSize(3);
+    vectors.sort(Comparator.comparing(Vector::getId));
+    assertThat(vectors.get(0).getMetadata()).containsExactly("lang", "en", textKey, "content a");
+    assertThat(vectors.get(0).getValues()).isEqualTo(new float[] {1, 2});
+    assertThat(vectors.get(2).getId()).isEqualTo("c");
+    Mockito.verifyNoInteractions(embeddingProcessor);
+  }
+
+  private static Vector vector(String id, ImmutableMap<String, String> metadata, float... values) {
+    return Vector.builder().setId(id).setMetadata(metadata).setValues(values).build();
+  }
+
   private List<DomainDocument> getDocuments() {
     ArrayList<DomainDocument> documents = new ArrayList<>();
     for (int i = 0; i < DOCUMENT_COUNT; i++) {
@@ -142,9 +357,11 @@ final class PineconeVectorStoreTest {
     return documents;
   }
 
-  private List<Embedding> getEmbeddings() {
+  private ListenableFuture<EmbeddingOutput> embed(EmbeddingInput embeddingInput) {
     ArrayList<Embedding> embeddings = new ArrayList<>();
-    embeddings.add(Embedding.of(Arrays.asList(0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8)));
-    return embeddings;
+    for (int i = 0; i < embeddingInput.getInput().size(); i++) {
+      embeddings.add(Embedding.of(Arrays.asList(0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8)));
+    }
+    return Futures.immediateFuture(EmbeddingOutput.of(EmbeddingType.OPEN_AI, embeddings));
   }
 }
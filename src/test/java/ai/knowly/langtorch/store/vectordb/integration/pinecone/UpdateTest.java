@@ -28,7 +28,7 @@ class UpdateTest {
                 Arrays.asList(
                     Vector.builder()
                         .setId("test2")
-                        .setValues(Arrays.asList(0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8))
+                        .setValues(new float[] {0.1f, 0.2f, 0.3f, 0.4f, 0.5f, 0.6f, 0.7f, 0.8f})
                         .setMetadata(ImmutableMap.of("key", "val"))
                         .build()))
             .setNamespace("testr2")
@@ -37,7 +37,7 @@ class UpdateTest {
     UpdateRequest updateRequest =
         UpdateRequest.builder()
             .setId("test2")
-            .setValues(Arrays.asList(0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.9))
+            .setValues(new float[] {0.1f, 0.2f, 0.3f, 0.4f, 0.5f, 0.6f, 0.7f, 0.9f})
             .setNamespace("testr2")
             .build();
 
@@ -51,6 +51,6 @@ class UpdateTest {
     // Assert.
     assertThat(response.getUpsertedCount()).isEqualTo(1);
     assertThat(fetchResponse.getVectors().get("test2").getValues())
-        .isEqualTo(Arrays.asList(0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.9));
+        .isEqualTo(new float[] {0.1f, 0.2f, 0.3f, 0.4f, 0.5f, 0.6f, 0.7f, 0.9f});
   }
 }
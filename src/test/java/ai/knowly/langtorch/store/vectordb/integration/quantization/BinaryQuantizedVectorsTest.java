@@ -0,0 +1,48 @@
+package ai.knowly.langtorch.store.vectordb.integration.quantization;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+final class BinaryQuantizedVectorsTest {
+
+  @Test
+  void testDistanceCountsDifferingSigns() {
+    // 70 dimensions, so the codes span two words.
+    BinaryQuantizedVectors quantizedVectors = new BinaryQuantizedVectors(70);
+    float[] positive = filled(70, 1);
+    float[] mixed = filled(70, 1);
+    mixed[3] = -1;
+    mixed[69] = -2;
+    quantizedVectors.set(0, positive);
+    quantizedVectors.set(1, mixed);
+    quantizedVectors.set(2, filled(70, -1));
+
+    // Act.
+    QuantizedVectors.Scorer scorer = quantizedVectors.newScorer(positive);
+    // Assert.
+    assertThat(scorer.distance(0)).isEqualTo(0f);
+    assertThat(scorer.distance(1)).isEqualTo(2f);
+    assertThat(scorer.distance(2)).isEqualTo(70f);
+    assertThat(quantizedVectors.getBytesPerVector()).isEqualTo(16);
+  }
+
+  @Test
+  void testMoveCopiesCode() {
+    BinaryQuantizedVectors quantizedVectors = new BinaryQuantizedVectors(8);
+    quantizedVectors.set(0, filled(8, 1));
+    quantizedVectors.set(1, filled(8, -1));
+
+    // Act.
+    quantizedVectors.move(1, 0);
+    // Assert.
+    assertThat(quantizedVectors.newScorer(filled(8, -1)).distance(0)).isEqualTo(0f);
+  }
+
+  private static float[] filled(int dimensions, float value) {
+    float[] vector = new float[dimensions];
+    Arrays.fill(vector, value);
+    return vector;
+  }
+}
@@ -0,0 +1,90 @@
+package ai.knowly.langtorch.store.vectordb.integration.quantization;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategies;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.VectorKernels;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+final class Int8QuantizedVectorsTest {
+  private static final int DIMENSIONS = 64;
+
+  @Test
+  void testEuclideanEstimateIsCloseToSquaredDistance() {
+    float[][] vectors = randomVectors(20);
+    Int8QuantizedVectors quantizedVectors =
+        new Int8QuantizedVectors(DIMENSIONS, DistanceStrategies.euclidean());
+    for (int i = 0; i < vectors.length; i++) {
+      quantizedVectors.set(i, vectors[i]);
+    }
+
+    // Act.
+    QuantizedVectors.Scorer scorer = quantizedVectors.newScorer(vectors[0]);
+    // Assert.
+    for (int i = 0; i < vectors.length; i++) {
+      float expected = VectorKernels.squaredEuclidean(vectors[0], 0, vectors[i], 0, DIMENSIONS);
+      assertThat(scorer.distance(i)).isWithin(0.01f * expected + 0.01f).of(expected);
+    }
+  }
+
+  @Test
+  void testCosineEstimateIsCloseToNegatedSimilarity() {
+    float[][] vectors = randomVectors(20);
+    Int8QuantizedVectors quantizedVectors =
+        new Int8QuantizedVectors(DIMENSIONS, DistanceStrategies.cosine());
+    for (int i = 0; i < vectors.length; i++) {
+      quantizedVectors.set(i, vectors[i]);
+    }
+
+    // Act.
+    QuantizedVectors.Scorer scorer = quantizedVectors.newScorer(vectors[3]);
+    // Assert.
+    for (int i = 0; i < vectors.length; i++) {
+      float expected = -VectorKernels.cosine(vectors[3], 0, vectors[i], 0, DIMENSIONS);
+      assertThat(scorer.distance(i)).isWithin(0.01f).of(expected);
+    }
+  }
+
+  @Test
+  void testMoveCopiesCodeAndScalars() {
+    float[][] vectors = randomVectors(3);
+    Int8QuantizedVectors quantizedVectors =
+        new Int8QuantizedVectors(DIMENSIONS, DistanceStrategies.innerProduct());
+    for (int i = 0; i < vectors.length; i++) {
+      quantizedVectors.set(i, vectors[i]);
+    }
+    QuantizedVectors.Scorer scorer = quantizedVectors.newScorer(vectors[1]);
+    float expected = scorer.distance(2);
+
+    // Act.
+    quantizedVectors.move(2, 0);
+    // Assert.
+    assertThat(scorer.distance(0)).isEqualTo(expected);
+  }
+
+  @Test
+  void testConstantVectorIsEncodedExactly() {
+    float[] constant = new float[DIMENSIONS];
+    Arrays.fill(constant, 0.5f);
+    Int8QuantizedVectors quantizedVectors =
+        new Int8QuantizedVectors(DIMENSIONS, DistanceStrategies.euclidean());
+
+    // Act.
+    quantizedVectors.set(0, constant);
+    // Assert.
+    assertThat(quantizedVectors.newScorer(constant).distance(0)).isWithin(1e-5f).of(0f);
+  }
+
+  private static float[][] randomVectors(int count) {
+    Random random = new Random(42);
+    float[][] vectors = new float[count][DIMENSIONS];
+    for (float[] vector : vectors) {
+      for (int i = 0; i < DIMENSIONS; i++) {
+        vector[i] = (float) random.nextGaussian();
+      }
+    }
+    return vectors;
+  }
+}
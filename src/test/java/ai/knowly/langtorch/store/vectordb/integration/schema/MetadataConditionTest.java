@@ -0,0 +1,41 @@
+package ai.knowly.langtorch.store.vectordb.integration.schema;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+final class MetadataConditionTest {
+
+  @Test
+  void testRangeConditionMatchesDecimalNumbers() {
+    MetadataCondition condition = MetadataCondition.gt("year", 2020);
+
+    // Act & Assert.
+    assertThat(condition.test(ImmutableMap.of("year", "2021"))).isTrue();
+    assertThat(condition.test(ImmutableMap.of("year", " 2.021e3 "))).isTrue();
+    assertThat(condition.test(ImmutableMap.of("year", "2019.5"))).isFalse();
+  }
+
+  @Test
+  void testRangeConditionRejectsValuesPostgresDoesNotTreatAsNumbers() {
+    MetadataCondition condition = MetadataCondition.gt("year", 2020);
+
+    // Act & Assert.
+    assertThat(condition.test(ImmutableMap.of("year", "Infinity"))).isFalse();
+    assertThat(condition.test(ImmutableMap.of("year", "NaN"))).isFalse();
+    assertThat(condition.test(ImmutableMap.of("year", "0x1p12"))).isFalse();
+    assertThat(condition.test(ImmutableMap.of("year", "2021d"))).isFalse();
+    assertThat(condition.test(ImmutableMap.of("year", "2021f"))).isFalse();
+  }
+
+  @Test
+  void testRangeConditionRejectsNonFiniteBound() {
+    // Act & Assert.
+    assertThrows(IllegalArgumentException.class, () -> MetadataCondition.lt("year", Double.NaN));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MetadataCondition.gte("year", Double.POSITIVE_INFINITY));
+  }
+}
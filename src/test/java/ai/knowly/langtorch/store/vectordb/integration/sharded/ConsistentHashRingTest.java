@@ -0,0 +1,74 @@
+package ai.knowly.langtorch.store.vectordb.integration.sharded;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+final class ConsistentHashRingTest {
+  private static final int KEYS = 20_000;
+
+  @Test
+  void testKeysAreSpreadOverAllShards() {
+    ConsistentHashRing ring = ConsistentHashRing.create(ImmutableList.of("a", "b", "c", "d"), 128);
+
+    // Act.
+    Map<String, Integer> counts = new HashMap<>();
+    for (int i = 0; i < KEYS; i++) {
+      counts.merge(ring.getShard("key-" + i), 1, Integer::sum);
+    }
+
+    // Assert.
+    assertThat(counts.keySet()).containsExactly("a", "b", "c", "d");
+    for (int count : counts.values()) {
+      assertThat(count).isIn(Range.closed(KEYS / 8, KEYS / 2));
+    }
+  }
+
+  @Test
+  void testAddingAShardOnlyMovesKeysToIt() {
+    ConsistentHashRing ring = ConsistentHashRing.create(ImmutableList.of("a", "b", "c"), 128);
+
+    // Act.
+    ConsistentHashRing grown = ring.withShard("d");
+
+    // Assert.
+    int moved = 0;
+    for (int i = 0; i < KEYS; i++) {
+      String before = ring.getShard("key-" + i);
+      String after = grown.getShard("key-" + i);
+      if (!before.equals(after)) {
+        assertThat(after).isEqualTo("d");
+        moved++;
+      }
+    }
+    assertThat(moved).isGreaterThan(KEYS / 8);
+    assertThat(moved).isLessThan(KEYS / 2);
+  }
+
+  @Test
+  void testShardOrderDoesNotMatter() {
+    ConsistentHashRing ring = ConsistentHashRing.create(ImmutableList.of("a", "b", "c"), 16);
+    ConsistentHashRing reordered = ConsistentHashRing.create(ImmutableList.of("c", "a", "b"), 16);
+
+    // Act and assert.
+    for (int i = 0; i < 1000; i++) {
+      assertThat(reordered.getShard("key-" + i)).isEqualTo(ring.getShard("key-" + i));
+    }
+  }
+
+  @Test
+  void testRejectsDuplicateShards() {
+    ConsistentHashRing ring = ConsistentHashRing.create(ImmutableList.of("a"), 16);
+
+    // Act and assert.
+    assertThrows(IllegalArgumentException.class, () -> ring.withShard("a"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> ConsistentHashRing.create(ImmutableList.of("a", "a"), 16));
+  }
+}
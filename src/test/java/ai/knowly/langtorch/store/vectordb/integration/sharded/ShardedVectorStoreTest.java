@@ -0,0 +1,312 @@
+package ai.knowly.langtorch.store.vectordb.integration.sharded;
+
+import static ai.knowly.langtorch.util.LocalVectorStoreTestingUtils.contentEmbeddingProcessor;
+import static ai.knowly.langtorch.util.LocalVectorStoreTestingUtils.document;
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.exportCollection;
+import static ai.knowly.langtorch.util.VectorCollectionTestingUtils.openCollection;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.local.FlatVectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.local.schema.FlatVectorStoreSpec;
+import ai.knowly.langtorch.store.vectordb.integration.pgvector.schema.distance.DistanceStrategies;
+import ai.knowly.langtorch.store.vectordb.integration.schema.SimilaritySearchQuery;
+import ai.knowly.langtorch.store.vectordb.integration.sharded.schema.ShardedVectorStoreSpec;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+final class ShardedVectorStoreTest {
+
+  private EmbeddingProcessor embeddingProcessor;
+  private Map<String, FlatVectorStore> shards;
+  private ShardedVectorStore shardedVectorStore;
+
+  @BeforeEach
+  void setUp() {
+    embeddingProcessor = contentEmbeddingProcessor();
+    shards = new LinkedHashMap<>();
+    for (String name : ImmutableList.of("shard-0", "shard-1", "shard-2")) {
+      shards.put(name, newShard());
+    }
+    shardedVectorStore =
+        new ShardedVectorStore(
+            ImmutableMap.copyOf(shards),
+            ShardedVectorStoreSpec.builder().build(),
+            DistanceStrategies.euclidean());
+  }
+
+  @AfterEach
+  void tearDown() {
+    shardedVectorStore.close();
+  }
+
+  @Test
+  void testDocumentsAreWrittenToTheShardOfTheirId() {
+    // Act.
+    shardedVectorStore.addDocuments(grid(10));
+
+    // Assert.
+    int total = 0;
+    for (FlatVectorStore shard : shards.values()) {
+      assertThat(shard.size()).isGreaterThan(0);
+      total += shard.size();
+    }
+    assertThat(total).isEqualTo(100);
+    String shard = shardedVectorStore.getShard("3-4");
+    assertThat(ids(shards.get(shard).similaritySearch(query(1, 3.0, 4.0))))
+        .containsExactly("3-4");
+  }
+
+  @Test
+  void testSimilaritySearchMergesTheShardsIntoAGlobalTopK() {
+    FlatVectorStore unsharded = newShard();
+    unsharded.addDocuments(grid(10));
+    shardedVectorStore.addDocuments(grid(10));
+    ImmutableList<SimilaritySearchQuery> queries =
+        ImmutableList.of(query(7, 2.17, 3.91), query(3, 8.63, 0.42), query(12, 5.31, 4.77));
+
+    // Act.
+    List<List<DomainDocument>> results = shardedVectorStore.similaritySearchBatch(queries);
+
+    // Assert.
+    for (int q = 0; q < queries.size(); q++) {
+      assertThat(ids(results.get(q)))
+          .containsExactlyElementsIn(ids(unsharded.similaritySearch(queries.get(q))))
+          .inOrder();
+    }
+  }
+
+  @Test
+  void testSlowShardsAreLeftOutOfTheResults() {
+    CountDownLatch neverReleased = new CountDownLatch(1);
+    VectorStore slowShard = Mockito.mock(VectorStore.class);
+    when(slowShard.similaritySearchBatchAsync(ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              neverReleased.await();
+              return Futures.immediateFuture(ImmutableList.of());
+            });
+    FlatVectorStore fastShard = newShard();
+    fastShard.addDocuments(ImmutableList.of(document("a", "1,1"), document("b", "2,2")));
+    shardedVectorStore.close();
+    shardedVectorStore =
+        new ShardedVectorStore(
+            ImmutableMap.of("fast", fastShard, "slow", slowShard),
+            ShardedVectorStoreSpec.builder().setSearchTimeout(Duration.ofMillis(200)).build(),
+            DistanceStrategies.euclidean());
+
+    // Act.
+    List<DomainDocument> result = shardedVectorStore.similaritySearch(query(5, 0.0, 0.0));
+
+    // Assert.
+    assertThat(ids(result)).containsExactly("a", "b").inOrder();
+  }
+
+  @Test
+  void testSimilaritySearchThrowsIfNoShardAnswers() {
+    VectorStore failingShard = Mockito.mock(VectorStore.class);
+    when(failingShard.similaritySearchBatchAsync(ArgumentMatchers.any()))
+        .thenReturn(Futures.immediateFailedFuture(new IllegalStateException("unavailable")));
+    shardedVectorStore.close();
+    shardedVectorStore =
+        new ShardedVectorStore(
+            ImmutableMap.of("failing", failingShard),
+            ShardedVectorStoreSpec.builder().build(),
+            DistanceStrategies.euclidean());
+
+    // Act and assert.
+    assertThrows(
+        ShardedVectorStoreException.class,
+        () -> shardedVectorStore.similaritySearch(query(1, 0.0, 0.0)));
+  }
+
+  @Test
+  void testSimilaritySearchAsyncWaitsForTheAsyncSearchesOfTheShards() throws Exception {
+    SettableFuture<List<List<DomainDocument>>> remoteResult = SettableFuture.create();
+    VectorStore remoteShard = Mockito.mock(VectorStore.class);
+    when(remoteShard.similaritySearchBatchAsync(ArgumentMatchers.any())).thenReturn(remoteResult);
+    FlatVectorStore localShard = newShard();
+    localShard.addDocuments(ImmutableList.of(document("a", "1,1"), document("c", "3,3")));
+    shardedVectorStore.close();
+    shardedVectorStore =
+        new ShardedVectorStore(
+            ImmutableMap.of("local", localShard, "remote", remoteShard),
+            ShardedVectorStoreSpec.builder().build(),
+            DistanceStrategies.euclidean());
+
+    // Act.
+    ListenableFuture<List<DomainDocument>> result =
+        shardedVectorStore.similaritySearchAsync(query(2, 0.0, 0.0));
+    boolean isDoneBeforeRemoteAnswered = result.isDone();
+    remoteResult.set(
+        ImmutableList.of(
+            ImmutableList.of(
+                document("b", "2,2").toBuilder().setSimilarityScore(Optional.of(2.5)).build())));
+
+    // Assert.
+    assertThat(isDoneBeforeRemoteAnswered).isFalse();
+    assertThat(ids(result.get())).containsExactly("a", "b").inOrder();
+  }
+
+  @Test
+  void testAddShardRebalancesTheMovedDocuments() {
+    List<DomainDocument> documents = grid(10);
+    shardedVectorStore.addDocuments(documents);
+    FlatVectorStore newShard = newShard();
+
+    // Act.
+    shardedVectorStore.addShard("shard-3", newShard);
+    List<String> duringRebalance = ids(shardedVectorStore.similaritySearch(query(100, 0.0, 0.0)));
+    boolean isRebalanced = shardedVectorStore.rebalance(documents);
+    shardedVectorStore.finishRebalance();
+
+    // Assert.
+    assertThat(duringRebalance).hasSize(100);
+    assertThat(isRebalanced).isTrue();
+    assertThat(shardedVectorStore.isRebalancing()).isFalse();
+    assertThat(newShard.size()).isGreaterThan(0);
+    int total = newShard.size();
+    for (FlatVectorStore shard : shards.values()) {
+      total += shard.size();
+    }
+    assertThat(total).isEqualTo(100);
+    assertThat(ids(shardedVectorStore.similaritySearch(query(100, 0.0, 0.0))))
+        .containsExactlyElementsIn(duringRebalance);
+  }
+
+  @Test
+  void testRebalanceMovesTheExportedVectorsWithoutEmbeddingThem() throws IOException {
+    shardedVectorStore.addDocuments(grid(10));
+    List<String> beforeRebalance = ids(shardedVectorStore.similaritySearch(query(100, 0.0, 0.0)));
+    FlatVectorStore newShard = newShard();
+    Mockito.clearInvocations(embeddingProcessor);
+
+    // Act.
+    shardedVectorStore.addShard("shard-3", newShard);
+    long movedCount = shardedVectorStore.rebalance();
+    shardedVectorStore.finishRebalance();
+
+    // Assert.
+    verifyNoInteractions(embeddingProcessor);
+    assertThat(movedCount).isEqualTo(newShard.size());
+    assertThat(newShard.size()).isGreaterThan(0);
+    int total = newShard.size();
+    for (FlatVectorStore shard : shards.values()) {
+      total += shard.size();
+    }
+    assertThat(total).isEqualTo(100);
+    assertThat(ids(shardedVectorStore.similaritySearch(query(100, 0.0, 0.0))))
+        .containsExactlyElementsIn(beforeRebalance);
+  }
+
+  @Test
+  void testWritesDuringARebalanceLeaveNoDuplicates() {
+    shardedVectorStore.addDocuments(grid(10));
+    FlatVectorStore newShard = newShard();
+    shardedVectorStore.addShard("shard-3", newShard);
+    String movedId =
+        grid(10).stream()
+            .map(document -> document.getId().get())
+            .filter(id -> shardedVectorStore.getShard(id).equals("shard-3"))
+            .findFirst()
+            .get();
+
+    // Act.
+    shardedVectorStore.upsertDocuments(ImmutableList.of(document(movedId, "20,20")));
+    List<DomainDocument> result = shardedVectorStore.similaritySearch(query(100, 0.0, 0.0));
+
+    // Assert.
+    assertThat(ids(result)).containsNoDuplicates();
+    assertThat(result).hasSize(100);
+    assertThat(newShard.size()).isEqualTo(1);
+    assertThat(ids(result).get(99)).isEqualTo(movedId);
+  }
+
+  @Test
+  void testDeleteDocumentsByIdsRemovesThemFromEveryShard() {
+    shardedVectorStore.addDocuments(grid(3));
+
+    // Act.
+    shardedVectorStore.deleteDocumentsByIds(ImmutableList.of("0-0", "1-2", "2-1"));
+
+    // Assert.
+    assertThat(ids(shardedVectorStore.similaritySearch(query(100, 0.0, 0.0))))
+        .containsExactly("0-1", "1-0", "1-1", "0-2", "2-0", "2-2");
+  }
+
+  @Test
+  void testExportedShardsImportIntoTheShardOfEveryId() throws IOException {
+    shardedVectorStore.addDocuments(grid(5));
+    byte[] collection = exportCollection(shardedVectorStore);
+    Map<String, FlatVectorStore> importingShards = new LinkedHashMap<>();
+    for (String name : shards.keySet()) {
+      importingShards.put(name, newShard());
+    }
+    ShardedVectorStore importingStore =
+        new ShardedVectorStore(
+            ImmutableMap.copyOf(importingShards),
+            ShardedVectorStoreSpec.builder().build(),
+            DistanceStrategies.euclidean());
+
+    // Act.
+    long importedCount = importingStore.importDocuments(openCollection(collection));
+    // Assert.
+    assertThat(importedCount).isEqualTo(25);
+    for (String name : shards.keySet()) {
+      assertThat(importingShards.get(name).size()).isEqualTo(shards.get(name).size());
+    }
+    String shard = importingStore.getShard("3-4");
+    assertThat(ids(importingShards.get(shard).similaritySearch(query(1, 3.0, 4.0))))
+        .containsExactly("3-4");
+    importingStore.close();
+  }
+
+  private FlatVectorStore newShard() {
+    return new FlatVectorStore(
+        embeddingProcessor,
+        FlatVectorStoreSpec.builder().setVectorDimensions(2).build(),
+        DistanceStrategies.euclidean());
+  }
+
+  /** Returns a document for every point of a size by size grid, identified by its coordinates. */
+  private static List<DomainDocument> grid(int size) {
+    List<DomainDocument> documents = new ArrayList<>();
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        documents.add(document(x + "-" + y, x + "," + y));
+      }
+    }
+    return documents;
+  }
+
+  private static SimilaritySearchQuery query(long topK, Double... vector) {
+    return SimilaritySearchQuery.builder().setTopK(topK).setQuery(Arrays.asList(vector)).build();
+  }
+
+  private static List<String> ids(List<DomainDocument> documents) {
+    return documents.stream().map(document -> document.getId().get()).collect(Collectors.toList());
+  }
+}
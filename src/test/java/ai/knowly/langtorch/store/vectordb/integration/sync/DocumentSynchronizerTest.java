@@ -0,0 +1,122 @@
+package ai.knowly.langtorch.store.vectordb.integration.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.schema.io.Metadata;
+import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.sync.schema.SyncResult;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class DocumentSynchronizerTest {
+  private static final String MODEL = "text-embedding-ada-002";
+
+  private VectorStore vectorStore;
+  private InMemoryFingerprintStore fingerprintStore;
+  private DocumentSynchronizer synchronizer;
+
+  @BeforeEach
+  void setUp() {
+    vectorStore = Mockito.mock(VectorStore.class);
+    when(vectorStore.upsertDocuments(any())).thenReturn(true);
+    when(vectorStore.deleteDocumentsByIds(any())).thenReturn(true);
+    fingerprintStore = new InMemoryFingerprintStore();
+    synchronizer = new DocumentSynchronizer(vectorStore, fingerprintStore, MODEL);
+  }
+
+  @Test
+  void testSync_writesOnlyChangedDocumentsAndDeletesVanishedOnes() {
+    synchronizer.sync(
+        ImmutableList.of(document("a", "alpha"), document("b", "beta"), document("c", "gamma")));
+    Mockito.clearInvocations(vectorStore);
+    DomainDocument changed = document("b", "beta, revised");
+    DomainDocument added = document("d", "delta");
+
+    // Act.
+    SyncResult result =
+        synchronizer.sync(ImmutableList.of(document("a", "alpha"), changed, added));
+
+    // Assert.
+    assertThat(result)
+        .isEqualTo(
+            SyncResult.builder()
+                .setAddedCount(1)
+                .setUpdatedCount(1)
+                .setUnchangedCount(1)
+                .setDeletedCount(1)
+                .build());
+    verify(vectorStore).upsertDocuments(ImmutableList.of(changed, added));
+    verify(vectorStore).deleteDocumentsByIds(ImmutableList.of("c"));
+    assertThat(fingerprintStore.getFingerprints().keySet()).containsExactly("a", "b", "d");
+  }
+
+  @Test
+  void testSync_unchangedCorpusWritesNothing() {
+    List<DomainDocument> documents =
+        ImmutableList.of(document("a", "alpha"), document("b", "beta"));
+    synchronizer.sync(documents);
+    Mockito.clearInvocations(vectorStore);
+
+    // Act.
+    SyncResult result = synchronizer.sync(documents);
+
+    // Assert.
+    assertThat(result.getUnchangedCount()).isEqualTo(2);
+    verify(vectorStore, never()).upsertDocuments(any());
+    verify(vectorStore, never()).deleteDocumentsByIds(any());
+  }
+
+  @Test
+  void testContentFingerprint_coversModelAndMetadata() {
+    DomainDocument document = document("a", "alpha");
+    DomainDocument withMetadata =
+        document.toBuilder()
+            .setMetadata(
+                Metadata.builder().setValue(new HashMap<>(ImmutableMap.of("k", "v"))).build())
+            .build();
+
+    // Act.
+    String fingerprint = ContentFingerprint.of(MODEL, document);
+
+    // Assert.
+    assertThat(ContentFingerprint.of(MODEL, document("a", "alpha"))).isEqualTo(fingerprint);
+    assertThat(ContentFingerprint.of(MODEL, withMetadata)).isNotEqualTo(fingerprint);
+    assertThat(ContentFingerprint.of("text-embedding-3-small", document))
+        .isNotEqualTo(fingerprint);
+  }
+
+  @Test
+  void testSync_failedWriteKeepsFingerprints() {
+    when(vectorStore.upsertDocuments(any())).thenReturn(false);
+
+    // Act & Assert.
+    assertThrows(
+        DocumentSyncException.class,
+        () -> synchronizer.sync(ImmutableList.of(document("a", "alpha"))));
+    assertThat(fingerprintStore.getFingerprints()).isEmpty();
+  }
+
+  @Test
+  void testSync_documentWithoutIdIsRejected() {
+    DomainDocument document = DomainDocument.builder().setPageContent("alpha").build();
+
+    // Act & Assert.
+    assertThrows(
+        IllegalArgumentException.class, () -> synchronizer.sync(ImmutableList.of(document)));
+  }
+
+  private static DomainDocument document(String id, String pageContent) {
+    return DomainDocument.builder().setId(id).setPageContent(pageContent).build();
+  }
+}
@@ -0,0 +1,150 @@
+package ai.knowly.langtorch.store.vectordb.integration.transfer;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.schema.io.Metadata;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+final class VectorCollectionTest {
+
+  @Test
+  void testRecordsRoundTripAcrossChunks() throws IOException {
+    List<VectorRecord> records = new ArrayList<>();
+    for (int i = 0; i < 7; i++) {
+      records.add(
+          vectorRecord(
+              "doc-" + i,
+              "P\u00e2ge " + i,
+              i % 2 == 0 ? ImmutableMap.of("tenant", "acme", "index", String.valueOf(i)) : null,
+              new float[] {i, -i, i / 2f}));
+    }
+    byte[] collection = write(records, 3);
+
+    // Act.
+    List<List<VectorRecord>> chunks = new ArrayList<>();
+    try (VectorCollectionReader reader =
+        new VectorCollectionReader(new ByteArrayInputStream(collection))) {
+      assertThat(reader.getDimensions()).isEqualTo(3);
+      List<VectorRecord> chunk;
+      while (!(chunk = reader.readChunk()).isEmpty()) {
+        chunks.add(chunk);
+      }
+    }
+
+    // Assert.
+    assertThat(chunks).hasSize(3);
+    List<VectorRecord> readRecords = new ArrayList<>();
+    chunks.forEach(readRecords::addAll);
+    assertThat(readRecords).hasSize(records.size());
+    for (int i = 0; i < records.size(); i++) {
+      DomainDocument expected = records.get(i).getDocument();
+      DomainDocument actual = readRecords.get(i).getDocument();
+      assertThat(actual.getId()).isEqualTo(expected.getId());
+      assertThat(actual.getPageContent()).isEqualTo(expected.getPageContent());
+      assertThat(actual.getMetadata().map(Metadata::getValue))
+          .isEqualTo(expected.getMetadata().map(Metadata::getValue));
+      assertThat(readRecords.get(i).getVector())
+          .usingExactEquality()
+          .containsExactly(records.get(i).getVector())
+          .inOrder();
+    }
+  }
+
+  @Test
+  void testEmptyMetadataIsKeptApartFromNoMetadata() throws IOException {
+    byte[] collection =
+        write(
+            List.of(
+                vectorRecord("a", "", ImmutableMap.of(), new float[] {1}),
+                vectorRecord("b", "", null, new float[] {2})),
+            10);
+
+    // Act.
+    List<VectorRecord> records;
+    try (VectorCollectionReader reader =
+        new VectorCollectionReader(new ByteArrayInputStream(collection))) {
+      records = reader.readChunk();
+    }
+
+    // Assert.
+    assertThat(records.get(0).getDocument().getMetadata().get().getValue()).isEmpty();
+    assertThat(records.get(1).getDocument().getMetadata().isPresent()).isFalse();
+  }
+
+  @Test
+  void testEmptyCollection() throws IOException {
+    byte[] collection = write(List.of(), 10);
+
+    // Act.
+    try (VectorCollectionReader reader =
+        new VectorCollectionReader(new ByteArrayInputStream(collection))) {
+      // Assert.
+      assertThat(reader.getDimensions()).isEqualTo(0);
+      assertThat(reader.readChunk()).isEmpty();
+      assertThat(reader.readChunk()).isEmpty();
+    }
+  }
+
+  @Test
+  void testWriteRejectsMismatchedDimensions() throws IOException {
+    VectorCollectionWriter writer = new VectorCollectionWriter(new ByteArrayOutputStream());
+    writer.write(vectorRecord("a", "", null, new float[] {1, 2}));
+
+    // Act & Assert.
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> writer.write(vectorRecord("b", "", null, new float[] {1, 2, 3})));
+  }
+
+  @Test
+  void testReadChunkRejectsCorruptedChunk() throws IOException {
+    byte[] collection = write(List.of(vectorRecord("a", "text", null, new float[] {1, 2})), 10);
+    // Flips a bit of the first vector.
+    int firstVectorByte =
+        VectorCollectionFormat.HEADER_BYTES + VectorCollectionFormat.CHUNK_HEADER_BYTES;
+    collection[firstVectorByte] ^= 1;
+    VectorCollectionReader reader =
+        new VectorCollectionReader(new ByteArrayInputStream(collection));
+
+    // Act & Assert.
+    assertThrows(IOException.class, reader::readChunk);
+  }
+
+  @Test
+  void testReaderRejectsOtherStreams() {
+    // Act & Assert.
+    assertThrows(
+        IOException.class,
+        () -> new VectorCollectionReader(new ByteArrayInputStream(new byte[16])));
+  }
+
+  private static byte[] write(List<VectorRecord> records, int chunkSize) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (VectorCollectionWriter writer = new VectorCollectionWriter(outputStream, chunkSize)) {
+      for (VectorRecord vectorRecord : records) {
+        writer.write(vectorRecord);
+      }
+    }
+    return outputStream.toByteArray();
+  }
+
+  private static VectorRecord vectorRecord(
+      String id, String pageContent, ImmutableMap<String, String> metadata, float[] vector) {
+    DomainDocument.DomainDocumentBuilder document =
+        DomainDocument.builder().setId(id).setPageContent(pageContent);
+    if (metadata != null) {
+      document.setMetadata(Metadata.builder().setValue(new HashMap<>(metadata)).build());
+    }
+    return VectorRecord.builder().setDocument(document.build()).setVector(vector).build();
+  }
+}
@@ -0,0 +1,59 @@
+package ai.knowly.langtorch.util;
+
+import static org.mockito.Mockito.when;
+
+import ai.knowly.langtorch.processor.EmbeddingProcessor;
+import ai.knowly.langtorch.schema.embeddings.Embedding;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingInput;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingOutput;
+import ai.knowly.langtorch.schema.embeddings.EmbeddingType;
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.schema.io.Metadata;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+/**
+ * Fixtures for the tests of the in-process vector stores, whose documents carry their vector as a
+ * page content of comma separated numbers.
+ */
+public class LocalVectorStoreTestingUtils {
+
+  /** Returns a mocked embedding processor that embeds documents with {@link #embedContent}. */
+  public static EmbeddingProcessor contentEmbeddingProcessor() {
+    EmbeddingProcessor embeddingProcessor = Mockito.mock(EmbeddingProcessor.class);
+    when(embeddingProcessor.runAsync(ArgumentMatchers.any()))
+        .thenAnswer(invocation -> embedContent(invocation.getArgument(0)));
+    return embeddingProcessor;
+  }
+
+  /** Embeds a page content of comma separated numbers as the vector of those numbers. */
+  public static ListenableFuture<EmbeddingOutput> embedContent(EmbeddingInput embeddingInput) {
+    List<Embedding> embeddings = new ArrayList<>();
+    for (String input : embeddingInput.getInput()) {
+      embeddings.add(
+          Embedding.of(
+              Arrays.stream(input.split(",")).map(Double::valueOf).collect(Collectors.toList())));
+    }
+    return Futures.immediateFuture(EmbeddingOutput.of(EmbeddingType.OPEN_AI, embeddings));
+  }
+
+  public static DomainDocument document(String id, String content) {
+    return document(id, content, ImmutableMap.of());
+  }
+
+  public static DomainDocument document(
+      String id, String content, ImmutableMap<String, String> metadata) {
+    return DomainDocument.builder()
+        .setId(id)
+        .setPageContent(content)
+        .setMetadata(Metadata.builder().setValue(metadata).build())
+        .build();
+  }
+}
@@ -0,0 +1,68 @@
+package ai.knowly.langtorch.util;
+
+import ai.knowly.langtorch.schema.io.DomainDocument;
+import ai.knowly.langtorch.schema.io.Metadata;
+import ai.knowly.langtorch.store.vectordb.integration.VectorStore;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionReader;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.VectorCollectionWriter;
+import ai.knowly.langtorch.store.vectordb.integration.transfer.schema.VectorRecord;
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Fixtures for the tests that export and import vector collections in memory. */
+public class VectorCollectionTestingUtils {
+
+  /** Returns the collection the store exports. */
+  public static byte[] exportCollection(VectorStore vectorStore) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (VectorCollectionWriter writer = new VectorCollectionWriter(outputStream)) {
+      vectorStore.exportDocuments(writer);
+    }
+    return outputStream.toByteArray();
+  }
+
+  /** Returns a collection of the records, written in chunks of the given size. */
+  public static byte[] writeCollection(List<VectorRecord> vectorRecords, int chunkSize)
+      throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (VectorCollectionWriter writer = new VectorCollectionWriter(outputStream, chunkSize)) {
+      for (VectorRecord vectorRecord : vectorRecords) {
+        writer.write(vectorRecord);
+      }
+    }
+    return outputStream.toByteArray();
+  }
+
+  public static VectorCollectionReader openCollection(byte[] collection) throws IOException {
+    return new VectorCollectionReader(new ByteArrayInputStream(collection));
+  }
+
+  /** Returns all records of the collection, in the order they were written. */
+  public static List<VectorRecord> readCollection(byte[] collection) throws IOException {
+    List<VectorRecord> vectorRecords = new ArrayList<>();
+    try (VectorCollectionReader reader = openCollection(collection)) {
+      List<VectorRecord> chunk;
+      while (!(chunk = reader.readChunk()).isEmpty()) {
+        vectorRecords.addAll(chunk);
+      }
+    }
+    return vectorRecords;
+  }
+
+  public static VectorRecord vectorRecord(
+      String id, String pageContent, ImmutableMap<String, String> metadata, float... vector) {
+    return VectorRecord.builder()
+        .setDocument(
+            DomainDocument.builder()
+                .setId(id)
+                .setPageContent(pageContent)
+                .setMetadata(Metadata.builder().setValue(metadata).build())
+                .build())
+        .setVector(vector)
+        .build();
+  }
+}
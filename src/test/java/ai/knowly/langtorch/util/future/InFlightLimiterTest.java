@@ -0,0 +1,105 @@
+package ai.knowly.langtorch.util.future;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ai.knowly.langtorch.utils.future.InFlightLimiter;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+final class InFlightLimiterTest {
+
+  @Test
+  void testQueuedOperationsStartInOrderAsEarlierOnesComplete() {
+    InFlightLimiter limiter = new InFlightLimiter(2);
+    List<SettableFuture<Integer>> started = new ArrayList<>();
+    List<ListenableFuture<Integer>> results = new ArrayList<>();
+
+    // Act.
+    for (int i = 0; i < 4; i++) {
+      results.add(
+          limiter.submit(
+              () -> {
+                SettableFuture<Integer> operation = SettableFuture.create();
+                started.add(operation);
+                return operation;
+              }));
+    }
+
+    // Assert.
+    assertThat(started).hasSize(2);
+    assertThat(limiter.getInFlight()).isEqualTo(2);
+    started.get(1).set(1);
+    assertThat(started).hasSize(3);
+    assertThat(Futures.getUnchecked(results.get(1))).isEqualTo(1);
+    started.get(0).set(0);
+    started.get(2).set(2);
+    started.get(3).set(3);
+    assertThat(Futures.getUnchecked(results.get(3))).isEqualTo(3);
+    assertThat(limiter.getInFlight()).isEqualTo(0);
+  }
+
+  @Test
+  void testImmediateOperationsDoNotRecurse() {
+    InFlightLimiter limiter = new InFlightLimiter(1);
+    SettableFuture<Integer> blocker = SettableFuture.create();
+    limiter.submit(() -> blocker);
+    List<ListenableFuture<Integer>> results = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      int value = i;
+      results.add(limiter.submit(() -> Futures.immediateFuture(value)));
+    }
+
+    // Act.
+    blocker.set(-1);
+
+    // Assert.
+    assertThat(Futures.getUnchecked(results.get(99_999))).isEqualTo(99_999);
+    assertThat(limiter.getInFlight()).isEqualTo(0);
+  }
+
+  @Test
+  void testFailingOperationReleasesItsSlot() {
+    InFlightLimiter limiter = new InFlightLimiter(1);
+
+    // Act.
+    ListenableFuture<Integer> failed =
+        limiter.submit(
+            () -> {
+              throw new IllegalStateException("failed to start");
+            });
+    ListenableFuture<Integer> next = limiter.submit(() -> Futures.immediateFuture(1));
+
+    // Assert.
+    ExecutionException exception = assertThrows(ExecutionException.class, failed::get);
+    assertThat(exception).hasCauseThat().isInstanceOf(IllegalStateException.class);
+    assertThat(Futures.getUnchecked(next)).isEqualTo(1);
+  }
+
+  @Test
+  void testCancelledOperationIsNotStarted() {
+    InFlightLimiter limiter = new InFlightLimiter(1);
+    SettableFuture<Integer> blocker = SettableFuture.create();
+    limiter.submit(() -> blocker);
+    List<Integer> startedValues = new ArrayList<>();
+    ListenableFuture<Integer> cancelled =
+        limiter.submit(
+            () -> {
+              startedValues.add(1);
+              return Futures.immediateFuture(1);
+            });
+
+    // Act.
+    cancelled.cancel(false);
+    blocker.set(0);
+
+    // Assert.
+    assertThat(startedValues).isEmpty();
+    assertThat(limiter.getInFlight()).isEqualTo(0);
+  }
+}
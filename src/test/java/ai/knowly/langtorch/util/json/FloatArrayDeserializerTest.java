@@ -0,0 +1,108 @@
+package ai.knowly.langtorch.util.json;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ai.knowly.langtorch.llm.minimax.MiniMaxService;
+import ai.knowly.langtorch.llm.openai.OpenAIService;
+import ai.knowly.langtorch.llm.openai.schema.dto.embedding.EmbeddingResult;
+import ai.knowly.langtorch.utils.json.FloatArrayDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+
+final class FloatArrayDeserializerTest {
+
+  @Test
+  void testOpenAIEmbeddingsFromArrays() throws Exception {
+    String json =
+        "{\"object\":\"list\",\"data\":["
+            + "{\"object\":\"embedding\",\"index\":0,\"embedding\":[0.5,-1,2.25]},"
+            + "{\"object\":\"embedding\",\"index\":1,\"embedding\":[1e-3]}]}";
+
+    // Act.
+    EmbeddingResult result =
+        OpenAIService.defaultObjectMapper().readValue(json, EmbeddingResult.class);
+
+    // Assert.
+    assertThat(result.getData().get(0).getValue()).isEqualTo(new float[] {0.5f, -1f, 2.25f});
+    assertThat(result.getData().get(1).getValue()).isEqualTo(new float[] {0.001f});
+  }
+
+  @Test
+  void testOpenAIEmbeddingsFromBase64() throws Exception {
+    String json =
+        "{\"data\":[{\"index\":0,\"embedding\":\"" + base64(0.5f, -1f, 2.25f) + "\"}]}";
+
+    // Act.
+    EmbeddingResult result =
+        OpenAIService.defaultObjectMapper().readValue(json, EmbeddingResult.class);
+
+    // Assert.
+    assertThat(result.getData().get(0).getValue()).isEqualTo(new float[] {0.5f, -1f, 2.25f});
+  }
+
+  @Test
+  void testMiniMaxVectors() throws Exception {
+    String json = "{\"vectors\":[[1,2,3],[4.5]]}";
+
+    // Act.
+    ai.knowly.langtorch.llm.minimax.schema.dto.embedding.EmbeddingResult result =
+        MiniMaxService.defaultObjectMapper()
+            .readValue(
+                json, ai.knowly.langtorch.llm.minimax.schema.dto.embedding.EmbeddingResult.class);
+
+    // Assert.
+    assertThat(result.getVectors().get(0)).isEqualTo(new float[] {1f, 2f, 3f});
+    assertThat(result.getVectors().get(1)).isEqualTo(new float[] {4.5f});
+  }
+
+  @Test
+  void testVectorsLongerThanTheInitialCapacity() throws Exception {
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < 5000; i++) {
+      json.append(i == 0 ? "" : ",").append(i);
+    }
+    json.append(']');
+
+    // Act.
+    float[] first = newMapper().readValue(json.toString(), float[].class);
+    float[] second = newMapper().readValue("[7]", float[].class);
+
+    // Assert.
+    assertThat(first).hasLength(5000);
+    assertThat(first[4999]).isEqualTo(4999f);
+    assertThat(second).isEqualTo(new float[] {7f});
+  }
+
+  @Test
+  void testRejectsTruncatedBase64() {
+    String json = "\"" + Base64.getEncoder().encodeToString(new byte[] {1, 2, 3, 4, 5, 6}) + "\"";
+
+    // Act and assert.
+    assertThrows(JsonMappingException.class, () -> newMapper().readValue(json, float[].class));
+  }
+
+  @Test
+  void testRejectsNonNumericComponents() {
+    // Act and assert.
+    assertThrows(
+        JsonMappingException.class, () -> newMapper().readValue("[1,\"a\"]", float[].class));
+  }
+
+  private static ObjectMapper newMapper() {
+    return new ObjectMapper()
+        .registerModule(
+            new SimpleModule().addDeserializer(float[].class, new FloatArrayDeserializer()));
+  }
+
+  private static String base64(float... values) {
+    ByteBuffer buffer = ByteBuffer.allocate(values.length * Float.BYTES);
+    buffer.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(values);
+    return Base64.getEncoder().encodeToString(buffer.array());
+  }
+}